@@ -0,0 +1,89 @@
+-- Script SQL para los clientes
+-- identificacionNormalizada y nombreNormalizado los calcula ServicioCliente al
+-- guardar (mayúsculas, sin tildes ni separadores) y son los que usan las
+-- búsquedas, así "1-1234-5678" y "112345678" son la misma identificación
+
+CREATE TABLE IF NOT EXISTS clientes (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    identificacion VARCHAR(50) NOT NULL,
+    identificacionNormalizada VARCHAR(50) NOT NULL,
+    nombreCompleto VARCHAR(255) NOT NULL,
+    nombreNormalizado VARCHAR(255) NOT NULL,
+    fechaNacimiento DATE,
+    kycVerificado BOOLEAN NOT NULL DEFAULT FALSE,
+    email VARCHAR(150),
+    telefono VARCHAR(30),
+    direccion VARCHAR(500),
+    paisNacimiento VARCHAR(100),
+    nacionalidad VARCHAR(100),
+    profesion VARCHAR(100),
+    ingresosMensuales VARCHAR(50),
+    origenFondos VARCHAR(100),
+    pep BOOLEAN NOT NULL DEFAULT FALSE,
+    documentoIdentidad VARCHAR(50),
+    fechaVerificacionKyc TIMESTAMP NULL,
+    estadoKyc VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE',
+    observacionesKyc TEXT,
+    enListaRestrictiva BOOLEAN NOT NULL DEFAULT FALSE,
+    motivoListaRestrictiva VARCHAR(500),
+
+    -- Índices para mejorar rendimiento
+    UNIQUE INDEX uk_clientes_identificacion (identificacionNormalizada),
+    UNIQUE INDEX uk_clientes_email (email),
+    INDEX idx_clientes_nombre (nombreNormalizado),
+    INDEX idx_clientes_estado_kyc (estadoKyc),
+    INDEX idx_clientes_estado_nombre (estadoKyc, nombreNormalizado),
+    FULLTEXT INDEX ft_clientes_nombre (nombreNormalizado)
+);
+
+-- Columnas e índices para bases creadas con la tabla mínima (id, kycVerificado)
+ALTER TABLE clientes
+    ADD COLUMN IF NOT EXISTS identificacion VARCHAR(50) NOT NULL DEFAULT '',
+    ADD COLUMN IF NOT EXISTS identificacionNormalizada VARCHAR(50) NULL,
+    ADD COLUMN IF NOT EXISTS nombreCompleto VARCHAR(255) NOT NULL DEFAULT '',
+    ADD COLUMN IF NOT EXISTS nombreNormalizado VARCHAR(255) NOT NULL DEFAULT '',
+    ADD COLUMN IF NOT EXISTS fechaNacimiento DATE,
+    ADD COLUMN IF NOT EXISTS email VARCHAR(150),
+    ADD COLUMN IF NOT EXISTS telefono VARCHAR(30),
+    ADD COLUMN IF NOT EXISTS direccion VARCHAR(500),
+    ADD COLUMN IF NOT EXISTS paisNacimiento VARCHAR(100),
+    ADD COLUMN IF NOT EXISTS nacionalidad VARCHAR(100),
+    ADD COLUMN IF NOT EXISTS profesion VARCHAR(100),
+    ADD COLUMN IF NOT EXISTS ingresosMensuales VARCHAR(50),
+    ADD COLUMN IF NOT EXISTS origenFondos VARCHAR(100),
+    ADD COLUMN IF NOT EXISTS pep BOOLEAN NOT NULL DEFAULT FALSE,
+    ADD COLUMN IF NOT EXISTS documentoIdentidad VARCHAR(50),
+    ADD COLUMN IF NOT EXISTS fechaVerificacionKyc TIMESTAMP NULL,
+    ADD COLUMN IF NOT EXISTS estadoKyc VARCHAR(20) NOT NULL DEFAULT 'PENDIENTE',
+    ADD COLUMN IF NOT EXISTS observacionesKyc TEXT,
+    ADD COLUMN IF NOT EXISTS enListaRestrictiva BOOLEAN NOT NULL DEFAULT FALSE,
+    ADD COLUMN IF NOT EXISTS motivoListaRestrictiva VARCHAR(500);
+
+-- Las filas viejas sin identificación quedan con una propia para no chocar en el índice único
+UPDATE clientes SET identificacionNormalizada = CONCAT('SIN-ID-', id) WHERE identificacionNormalizada IS NULL;
+
+-- Las filas viejas con nombre quedan con su forma normalizada (mayúsculas, espacios simples);
+-- las tildes se comparan igual en la intercalación de la tabla y ServicioCliente guarda la
+-- forma exacta en la siguiente actualización del cliente
+UPDATE clientes
+SET nombreNormalizado = UPPER(TRIM(REPLACE(REPLACE(REPLACE(nombreCompleto, '  ', ' '), '  ', ' '), '  ', ' ')))
+WHERE nombreNormalizado = '' AND nombreCompleto <> '';
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_clientes_identificacion ON clientes (identificacionNormalizada);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_clientes_email ON clientes (email);
+CREATE INDEX IF NOT EXISTS idx_clientes_nombre ON clientes (nombreNormalizado);
+CREATE INDEX IF NOT EXISTS idx_clientes_estado_kyc ON clientes (estadoKyc);
+CREATE INDEX IF NOT EXISTS idx_clientes_estado_nombre ON clientes (estadoKyc, nombreNormalizado);
+CREATE FULLTEXT INDEX IF NOT EXISTS ft_clientes_nombre ON clientes (nombreNormalizado);
+
+-- Datos de prueba
+INSERT IGNORE INTO clientes (identificacion, identificacionNormalizada, nombreCompleto, nombreNormalizado, email,
+                             telefono, estadoKyc, kycVerificado, paisNacimiento, nacionalidad, profesion,
+                             ingresosMensuales, origenFondos, pep, enListaRestrictiva, motivoListaRestrictiva) VALUES
+('1-1234-5678', '112345678', 'María Rodríguez Jiménez', 'MARIA RODRIGUEZ JIMENEZ', 'maria.rodriguez@email.com',
+ '8888-1234', 'APROBADO', TRUE, 'Costa Rica', 'Costarricense', 'Ingeniera', '1000000-2000000', 'Salario', FALSE,
+ FALSE, NULL),
+('2-2345-6789', '223456789', 'Juan Carlos Pérez Soto', 'JUAN CARLOS PEREZ SOTO', 'juan.perez@email.com',
+ '7777-5678', 'PENDIENTE', FALSE, NULL, NULL, NULL, NULL, NULL, FALSE, FALSE, NULL),
+('1-3456-7890', '134567890', 'Ana Patricia Morales Vega', 'ANA PATRICIA MORALES VEGA', 'ana.morales@email.com',
+ '6666-9012', 'RECHAZADO', FALSE, NULL, NULL, NULL, NULL, NULL, FALSE, TRUE, 'Actividad sospechosa');
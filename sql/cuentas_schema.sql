@@ -13,6 +13,7 @@ CREATE TABLE IF NOT EXISTS cuentas (
     idCliente INT NOT NULL,
     fechaCreacion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     fechaUltimoMovimiento TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
 
     -- Índices para mejorar rendimiento
     INDEX idx_cliente (idCliente),
@@ -28,13 +29,20 @@ CREATE TABLE IF NOT EXISTS cuentas (
     FOREIGN KEY (idCliente) REFERENCES clientes(id) ON DELETE RESTRICT
 );
 
+-- Columna de versión para bases creadas antes de que existiera (se incrementa en cada cambio de la fila)
+ALTER TABLE cuentas ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
 -- Insertar datos de ejemplo para pruebas (opcional)
 INSERT IGNORE INTO cuentas (numeroCuenta, tipo, tipoMoneda, saldo, estado, idCliente) VALUES
 ('CR000000000000000001', 'AHORRO', 'CRC', 100000.00, 'ACTIVA', 1),
 ('US000000000000000001', 'AHORRO', 'USD', 500.00, 'ACTIVA', 1),
 ('CR000000000000000002', 'CORRIENTE', 'CRC', 250000.00, 'ACTIVA', 2),
 ('US000000000000000002', 'CORRIENTE', 'USD', 1000.00, 'BLOQUEADA', 2),
-('CR000000000000000003', 'AHORRO', 'CRC', 0.00, 'CERRADA', 3);
+('CR000000000000000003', 'AHORRO', 'CRC', 0.00, 'CERRADA', 3),
+('CR05015108410026012345', 'CORRIENTE', 'CRC', 1250750.00, 'ACTIVA', 1),
+('CR05015108410026067890', 'AHORRO', 'CRC', 850300.50, 'ACTIVA', 1),
+('CR05015108410026098765', 'AHORRO', 'USD', 2150.75, 'ACTIVA', 2),
+('CR05015108410026123456', 'CORRIENTE', 'CRC', 0.00, 'BLOQUEADA', 3);
 
 -- Crear vista para estadísticas del sistema
 CREATE OR REPLACE VIEW vista_estadisticas_cuentas AS
@@ -207,6 +215,9 @@ DELIMITER ;
 -- Crear índices adicionales para mejorar rendimiento
 CREATE INDEX IF NOT EXISTS idx_cuentas_cliente_moneda ON cuentas(idCliente, tipoMoneda);
 CREATE INDEX IF NOT EXISTS idx_cuentas_estado_tipo ON cuentas(estado, tipo);
+-- Listado paginado del administrador: filtro por estado y moneda en orden de id, y orden por saldo
+CREATE INDEX IF NOT EXISTS idx_cuentas_estado_moneda ON cuentas(estado, tipoMoneda);
+CREATE INDEX IF NOT EXISTS idx_cuentas_saldo ON cuentas(saldo);
 CREATE INDEX IF NOT EXISTS idx_auditoria_fecha ON auditoria_cuentas(fecha_cambio);
 
 -- Comentarios sobre la estructura
@@ -0,0 +1,23 @@
+-- Script SQL para la lista restrictiva usada en la verificación KYC
+-- Entradas de listas OFAC, ONU, PEP, internas, etc. Las importaciones masivas
+-- reemplazan la foto de un tipo de lista: lo que no viene en el archivo se desactiva
+
+CREATE TABLE IF NOT EXISTS lista_restrictiva (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    identificacion VARCHAR(50) NOT NULL,
+    nombre_completo VARCHAR(255) NOT NULL,
+    tipo_lista VARCHAR(20) NOT NULL,
+    motivo_inclusion VARCHAR(500),
+    fecha_inclusion TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    fecha_actualizacion TIMESTAMP NULL,
+    activo BOOLEAN NOT NULL DEFAULT TRUE,
+    observaciones TEXT,
+
+    -- Índices para mejorar rendimiento
+    INDEX idx_lista_tipo_identificacion (tipo_lista, identificacion),
+    INDEX idx_lista_identificacion (identificacion),
+    INDEX idx_lista_activo (activo)
+);
+
+-- Índice para bases creadas antes de que existiera: la importación cruza el archivo por tipo e identificación
+CREATE INDEX IF NOT EXISTS idx_lista_tipo_identificacion ON lista_restrictiva (tipo_lista, identificacion);
@@ -18,6 +18,19 @@ CREATE TABLE limite_transaccion (
     UNIQUE KEY uk_limite_cuenta_tipo (numero_cuenta, tipo_limite)
 );
 
+-- Tabla para el acumulado de uso de cada límite por ventana (día, semana o mes calendario)
+CREATE TABLE uso_limite (
+    numero_cuenta VARCHAR(20) NOT NULL,
+    tipo_limite VARCHAR(50) NOT NULL,
+    periodo VARCHAR(20) NOT NULL,
+    inicio_periodo DATE NOT NULL,
+    monto_usado DECIMAL(15,2) NOT NULL DEFAULT 0,
+    fecha_actualizacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (numero_cuenta, tipo_limite, periodo, inicio_periodo),
+    INDEX idx_uso_inicio (inicio_periodo)
+);
+
 -- Tabla para alertas del sistema
 CREATE TABLE alerta (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -29,6 +42,8 @@ CREATE TABLE alerta (
     prioridad VARCHAR(10) NOT NULL DEFAULT 'MEDIA',
     fecha_generacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
     fecha_procesamiento DATETIME NULL,
+    intentos INT NOT NULL DEFAULT 0,
+    proximo_intento DATETIME NULL,
     email_enviado BOOLEAN DEFAULT FALSE,
     sms_enviado BOOLEAN DEFAULT FALSE,
     metadatos TEXT NULL,
@@ -99,6 +114,52 @@ CREATE TABLE auditoria_limite (
     FOREIGN KEY (limite_id) REFERENCES limite_transaccion(id)
 );
 
+-- Tabla para alertas archivadas (fuera del horizonte de retención)
+CREATE TABLE alerta_historico (
+    id BIGINT PRIMARY KEY,
+    numero_cuenta VARCHAR(20) NOT NULL,
+    tipo_alerta VARCHAR(50) NOT NULL,
+    mensaje TEXT NOT NULL,
+    monto_transaccion DECIMAL(15,2) NULL,
+    estado VARCHAR(20) NOT NULL,
+    prioridad VARCHAR(10) NOT NULL,
+    fecha_generacion DATETIME NOT NULL,
+    fecha_procesamiento DATETIME NULL,
+    email_enviado BOOLEAN DEFAULT FALSE,
+    sms_enviado BOOLEAN DEFAULT FALSE,
+    metadatos TEXT NULL,
+    fecha_archivo DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    INDEX idx_historico_cuenta_fecha (numero_cuenta, fecha_generacion),
+    INDEX idx_historico_fecha (fecha_generacion)
+);
+
+-- Tabla para el resumen diario de alertas (precalculado de forma incremental)
+CREATE TABLE alerta_resumen_diario (
+    fecha DATE NOT NULL,
+    numero_cuenta VARCHAR(20) NOT NULL,
+    tipo_alerta VARCHAR(50) NOT NULL,
+    prioridad VARCHAR(10) NOT NULL,
+    total_alertas INT NOT NULL DEFAULT 0,
+    monto_total DECIMAL(17,2) NOT NULL DEFAULT 0,
+    fecha_actualizacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+
+    PRIMARY KEY (fecha, numero_cuenta, tipo_alerta, prioridad),
+    INDEX idx_resumen_cuenta_fecha (numero_cuenta, fecha)
+);
+
+-- Tabla para el avance de los procesos por lotes (permite reanudar una corrida interrumpida)
+CREATE TABLE proceso_checkpoint (
+    proceso VARCHAR(50) PRIMARY KEY,
+    estado VARCHAR(20) NOT NULL,
+    ultimo_id BIGINT NOT NULL DEFAULT 0,
+    id_tope BIGINT NOT NULL DEFAULT 0,
+    fecha_corte DATETIME NULL,
+    filas_procesadas BIGINT NOT NULL DEFAULT 0,
+    fecha_inicio DATETIME NULL,
+    fecha_actualizacion DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Insertar configuraciones predeterminadas de límites
 INSERT INTO limite_transaccion (numero_cuenta, tipo_limite, monto_limite, periodo) VALUES
 ('1001', 'TRANSFERENCIA_NACIONAL', 500000.00, 'DIARIO'),
@@ -172,6 +233,10 @@ BEGIN
 END //
 DELIMITER ;
 
+-- Reintentos del procesamiento de alertas en bases creadas antes de estas columnas
+ALTER TABLE alerta ADD COLUMN IF NOT EXISTS intentos INT NOT NULL DEFAULT 0 AFTER fecha_procesamiento;
+ALTER TABLE alerta ADD COLUMN IF NOT EXISTS proximo_intento DATETIME NULL AFTER intentos;
+
 -- Índices adicionales para optimización
 CREATE INDEX idx_alerta_cuenta_fecha ON alerta(numero_cuenta, fecha_generacion DESC);
 CREATE INDEX idx_limite_cuenta_activo ON limite_transaccion(numero_cuenta, activo);
@@ -179,7 +244,11 @@ CREATE INDEX idx_config_notif_activo ON configuracion_notificacion(activo, numer
 
 -- Comentarios en las tablas
 ALTER TABLE limite_transaccion COMMENT = 'Tabla para gestión de límites de transacciones por cuenta';
+ALTER TABLE uso_limite COMMENT = 'Acumulado de uso de límites por cuenta, tipo y periodo';
 ALTER TABLE alerta COMMENT = 'Tabla para registro de alertas automáticas del sistema';
+ALTER TABLE alerta_historico COMMENT = 'Alertas archivadas por la política de retención';
+ALTER TABLE alerta_resumen_diario COMMENT = 'Totales diarios de alertas por cuenta, tipo y prioridad';
+ALTER TABLE proceso_checkpoint COMMENT = 'Avance de los procesos por lotes para reanudar corridas interrumpidas';
 ALTER TABLE configuracion_notificacion COMMENT = 'Configuración de notificaciones por cuenta de cliente';
 ALTER TABLE historial_bloqueo COMMENT = 'Historial de bloqueos y desbloqueos de cuentas';
 ALTER TABLE auditoria_limite COMMENT = 'Auditoría de cambios en límites de transacciones';
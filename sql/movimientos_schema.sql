@@ -0,0 +1,34 @@
+-- Script SQL para la tabla de movimientos de cuentas
+
+-- Tabla de movimientos/transacciones por cuenta
+CREATE TABLE IF NOT EXISTS movimiento (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    numero_cuenta VARCHAR(20) NOT NULL,
+    tipo_movimiento VARCHAR(50) NOT NULL,
+    monto DECIMAL(15,2) NOT NULL,
+    descripcion VARCHAR(255) NULL,
+    fecha_movimiento DATETIME NOT NULL,
+    saldo_anterior DECIMAL(15,2) NULL,
+    saldo_posterior DECIMAL(15,2) NULL,
+    cuenta_destino VARCHAR(20) NULL,
+    referencia VARCHAR(50) NULL,
+    estado VARCHAR(20) DEFAULT 'COMPLETADO'
+);
+
+-- Índice compuesto para paginación por llave del historial de una cuenta:
+-- WHERE numero_cuenta = ? AND (fecha_movimiento, id) < (?, ?) ORDER BY fecha_movimiento DESC, id DESC
+CREATE INDEX idx_movimiento_cuenta_fecha_id ON movimiento(numero_cuenta, fecha_movimiento, id);
+
+-- Último movimiento de cada cuenta por orden de inserción (MAX(id)), que es el
+-- orden en que se encadenan los saldos: saldo sin snapshot y conciliación
+CREATE INDEX idx_movimiento_cuenta_id ON movimiento(numero_cuenta, id);
+
+-- Snapshot del saldo actual por cuenta, actualizado en la misma transacción que
+-- cada movimiento. version se usa para control de concurrencia optimista.
+CREATE TABLE IF NOT EXISTS saldo_cuenta (
+    numero_cuenta VARCHAR(20) PRIMARY KEY,
+    saldo DECIMAL(15,2) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    id_ultimo_movimiento BIGINT NULL,
+    fecha_actualizacion DATETIME NOT NULL
+);
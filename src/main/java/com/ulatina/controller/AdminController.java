@@ -6,10 +6,19 @@ package com.ulatina.controller;
 
 import com.ulatina.data.Cliente;
 import com.ulatina.data.Cuenta;
+import com.ulatina.data.Pagina;
 import com.ulatina.data.Usuario;
 import com.ulatina.service.ServicioCuenta;
 import com.ulatina.service.ServicioCliente;
 import com.ulatina.service.ServicioKyc;
+import com.ulatina.service.ServicioLimite;
+import com.ulatina.service.PoolConexiones;
+import com.ulatina.service.ProcesadorAlertas;
+import com.ulatina.service.PublicadorAlertas;
+import com.ulatina.service.ReverificadorKyc;
+import com.ulatina.service.ServicioEstadisticas;
+import com.ulatina.service.ServicioResumenAlertas;
+import com.ulatina.service.ServicioRetencionAlertas;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
@@ -20,8 +29,15 @@ import jakarta.json.JsonObject;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import jakarta.ws.rs.core.Context;
-import java.math.BigDecimal;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Path("/admin")
 @RequestScoped
@@ -38,6 +54,27 @@ public class AdminController {
     @Inject
     private ServicioKyc servicioKyc;
 
+    @Inject
+    private ServicioLimite servicioLimite;
+
+    @Inject
+    private PublicadorAlertas publicadorAlertas;
+
+    @Inject
+    private ProcesadorAlertas procesadorAlertas;
+
+    @Inject
+    private ServicioRetencionAlertas servicioRetencionAlertas;
+
+    @Inject
+    private ServicioResumenAlertas servicioResumenAlertas;
+
+    @Inject
+    private ReverificadorKyc reverificadorKyc;
+
+    @Inject
+    private ServicioEstadisticas servicioEstadisticas;
+
     @Context
     private HttpServletRequest request;
 
@@ -57,62 +94,348 @@ public class AdminController {
         }
 
         try {
-            List<Cliente> clientes = servicioCliente.listarTodos();
-            List<Cuenta> cuentas = servicioCuenta.listarTodas();
+            // Contadores mantenidos por eventos y totales de clientes en caché: no recorre clientes ni cuentas
+            Map<String, Object> estadisticas = new LinkedHashMap<>();
+            long totalClientes = servicioCliente.contar(null);
+            estadisticas.put("totalClientes", totalClientes);
+            estadisticas.put("clientesActivos", totalClientes - servicioCliente.contar("SUSPENDIDO"));
+            estadisticas.putAll(servicioEstadisticas.obtenerEstadisticasCuentas());
 
-            long clientesActivos = clientes.stream().filter(Cliente::isActivo).count();
-            long cuentasActivas = cuentas.stream().filter(c -> "ACTIVA".equals(c.getEstado())).count();
+            return Response.ok(estadisticas).build();
 
-            BigDecimal totalDepositos = cuentas.stream()
-                .filter(c -> "ACTIVA".equals(c.getEstado()))
-                .map(Cuenta::getSaldo)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", "Error al obtener estadísticas")
+                    .build())
+                .build();
+        }
+    }
 
-            return Response.ok()
+    @GET
+    @Path("/pool-conexiones")
+    public Response obtenerMetricasPool() {
+        if (!isAdmin()) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        try {
+            return Response.ok(PoolConexiones.getInstancia().obtenerMetricas()).build();
+
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                 .entity(Json.createObjectBuilder()
-                    .add("totalClientes", clientes.size())
-                    .add("clientesActivos", clientesActivos)
-                    .add("totalCuentas", cuentas.size())
-                    .add("cuentasActivas", cuentasActivas)
-                    .add("totalDepositos", totalDepositos.toString())
+                    .add("success", false)
+                    .add("message", "Error al obtener métricas del pool")
                     .build())
                 .build();
+        }
+    }
+
+    @GET
+    @Path("/cache-limites")
+    public Response obtenerMetricasCacheLimites() {
+        if (!isAdmin()) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        try {
+            return Response.ok(servicioLimite.obtenerMetricasCache()).build();
 
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                 .entity(Json.createObjectBuilder()
                     .add("success", false)
-                    .add("message", "Error al obtener estadísticas")
+                    .add("message", "Error al obtener métricas de la caché de límites")
                     .build())
                 .build();
         }
     }
 
     @GET
-    @Path("/clientes")
-    public Response listarClientes(@QueryParam("page") @DefaultValue("1") int page,
-                                 @QueryParam("size") @DefaultValue("10") int size) {
+    @Path("/cache-clientes")
+    public Response obtenerMetricasCacheClientes() {
+        if (!isAdmin()) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        try {
+            return Response.ok(servicioCliente.obtenerMetricasCache()).build();
+
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", "Error al obtener métricas de la caché de clientes")
+                    .build())
+                .build();
+        }
+    }
+
+    @GET
+    @Path("/cache-cuentas-cliente")
+    public Response obtenerMetricasCacheCuentasCliente() {
         if (!isAdmin()) {
             return Response.status(Response.Status.UNAUTHORIZED).build();
         }
 
         try {
-            List<Cliente> clientes = servicioCliente.listarTodos();
+            return Response.ok(servicioCuenta.obtenerMetricasCacheClientes()).build();
 
-            // Paginación simple
-            int start = (page - 1) * size;
-            int end = Math.min(start + size, clientes.size());
-            List<Cliente> clientesPaginados = clientes.subList(start, end);
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", "Error al obtener métricas de la caché de cuentas por cliente")
+                    .build())
+                .build();
+        }
+    }
+
+    @GET
+    @Path("/cola-alertas")
+    public Response obtenerMetricasColaAlertas() {
+        if (!isAdmin()) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        try {
+            return Response.ok(publicadorAlertas.obtenerMetricas()).build();
+
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", "Error al obtener métricas de la cola de alertas")
+                    .build())
+                .build();
+        }
+    }
+
+    @GET
+    @Path("/procesamiento-alertas")
+    public Response obtenerMetricasProcesamientoAlertas() {
+        if (!isAdmin()) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        try {
+            return Response.ok(procesadorAlertas.obtenerMetricas()).build();
+
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", "Error al obtener métricas del procesamiento de alertas")
+                    .build())
+                .build();
+        }
+    }
+
+    @GET
+    @Path("/retencion-alertas")
+    public Response obtenerEstadoRetencionAlertas() {
+        if (!isAdmin()) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        try {
+            return Response.ok(servicioRetencionAlertas.obtenerEstado()).build();
+
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", "Error al obtener el estado de la retención de alertas")
+                    .build())
+                .build();
+        }
+    }
+
+    /**
+     * Totales de alertas precalculados. agrupar: lista separada por comas de
+     * fecha, cuenta, tipo y prioridad
+     */
+    @GET
+    @Path("/alertas/resumen")
+    public Response obtenerResumenAlertas(@QueryParam("desde") String desde,
+                                          @QueryParam("hasta") String hasta,
+                                          @QueryParam("cuenta") String cuenta,
+                                          @QueryParam("agrupar") @DefaultValue("fecha") String agrupar) {
+        if (!isAdmin()) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        try {
+            LocalDate fechaFin = hasta != null && !hasta.isEmpty() ? LocalDate.parse(hasta) : LocalDate.now();
+            LocalDate fechaInicio = desde != null && !desde.isEmpty() ? LocalDate.parse(desde) : fechaFin.minusDays(30);
+            List<String> dimensiones = agrupar.trim().isEmpty()
+                ? Collections.emptyList() : Arrays.asList(agrupar.split(","));
 
             return Response.ok()
                 .entity(Json.createObjectBuilder()
-                    .add("clientes", Json.createArrayBuilder(clientesPaginados))
-                    .add("total", clientes.size())
-                    .add("page", page)
-                    .add("size", size)
+                    .add("desde", fechaInicio.toString())
+                    .add("hasta", fechaFin.toString())
+                    .add("resumen", Json.createArrayBuilder(
+                        servicioResumenAlertas.consultarResumen(fechaInicio, fechaFin,
+                            cuenta != null && !cuenta.isEmpty() ? cuenta : null, dimensiones)))
+                    .build())
+                .build();
+
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", e.getMessage())
+                    .build())
+                .build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", "Error al obtener el resumen de alertas")
+                    .build())
+                .build();
+        }
+    }
+
+    /**
+     * Importa el archivo completo de un tipo de lista restrictiva (CSV o XML
+     * en el cuerpo). Las entradas de ese tipo que no vienen en el archivo se
+     * desactivan.
+     */
+    @POST
+    @Path("/listas-restrictivas/{tipoLista}/importar")
+    @Consumes({"text/csv", MediaType.TEXT_PLAIN, MediaType.APPLICATION_XML, MediaType.TEXT_XML,
+               MediaType.APPLICATION_OCTET_STREAM})
+    public Response importarListaRestrictiva(@PathParam("tipoLista") String tipoLista,
+                                             @QueryParam("formato") @DefaultValue("CSV") String formato,
+                                             InputStream archivo) {
+        if (!isAdmin()) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        try {
+            Map<String, Object> resultado = servicioKyc.importarListaRestrictiva(archivo, formato, tipoLista);
+
+            return Response.ok()
+                .entity(Json.createObjectBuilder()
+                    .add("success", true)
+                    .add("message", "Lista restrictiva importada exitosamente")
+                    .add("resultado", Json.createObjectBuilder(resultado))
+                    .build())
+                .build();
+
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", e.getMessage())
+                    .build())
+                .build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", "Error al importar la lista restrictiva")
+                    .build())
+                .build();
+        }
+    }
+
+    /**
+     * Reverifica contra la lista restrictiva los clientes con KYC pendiente
+     * (alcance=PENDIENTES) o toda la cartera (alcance=TODOS)
+     */
+    @POST
+    @Path("/kyc/reverificar")
+    public Response reverificarKyc(@QueryParam("alcance") @DefaultValue("PENDIENTES") String alcance) {
+        if (!isAdmin()) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        try {
+            Map<String, Object> resultado = reverificadorKyc.reverificar(alcance);
+
+            return Response.ok()
+                .entity(Json.createObjectBuilder()
+                    .add("success", true)
+                    .add("message", "Reverificación KYC completada")
+                    .add("resultado", Json.createObjectBuilder(resultado))
+                    .build())
+                .build();
+
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", e.getMessage())
+                    .build())
+                .build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", "Error en la reverificación KYC")
                     .build())
                 .build();
+        }
+    }
+
+    @GET
+    @Path("/kyc/reverificacion")
+    public Response obtenerEstadoReverificacionKyc() {
+        if (!isAdmin()) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        try {
+            return Response.ok(reverificadorKyc.obtenerEstado()).build();
 
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", "Error al obtener el estado de la reverificación KYC")
+                    .build())
+                .build();
+        }
+    }
+
+    /**
+     * Página de clientes paginada por cursor. estadoKyc filtra; orden: id o
+     * nombre, con "-" adelante para descendente. El total se guarda unos
+     * segundos por filtro.
+     */
+    @GET
+    @Path("/clientes")
+    public Response listarClientes(@QueryParam("estadoKyc") String estadoKyc,
+                                 @QueryParam("orden") @DefaultValue("id") String orden,
+                                 @QueryParam("cursor") String cursor,
+                                 @QueryParam("size") @DefaultValue("10") int size) {
+        if (!isAdmin()) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        try {
+            Pagina<Cliente> pagina = servicioCliente.obtenerPagina(estadoKyc, orden, cursor, size);
+
+            Map<String, Object> respuesta = new LinkedHashMap<>();
+            respuesta.put("clientes", pagina.getElementos());
+            respuesta.put("total", servicioCliente.contar(estadoKyc));
+            respuesta.put("size", pagina.getElementos().size());
+            respuesta.put("siguienteCursor", pagina.getSiguienteCursor());
+            respuesta.put("hayMas", pagina.isHayMas());
+            return Response.ok(respuesta).build();
+
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", e.getMessage())
+                    .build())
+                .build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                 .entity(Json.createObjectBuilder()
@@ -123,6 +446,59 @@ public class AdminController {
         }
     }
 
+    /**
+     * Búsqueda de clientes por identificación, email o nombre (en ese orden
+     * de prioridad si vienen varios)
+     */
+    @GET
+    @Path("/clientes/buscar")
+    public Response buscarClientes(@QueryParam("identificacion") String identificacion,
+                                   @QueryParam("email") String email,
+                                   @QueryParam("nombre") String nombre) {
+        if (!isAdmin()) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+
+        try {
+            List<Cliente> clientes = new ArrayList<>();
+            if (identificacion != null && !identificacion.trim().isEmpty()) {
+                Cliente cliente = servicioCliente.obtenerPorCedula(identificacion);
+                if (cliente != null) {
+                    clientes.add(cliente);
+                }
+            } else if (email != null && !email.trim().isEmpty()) {
+                Cliente cliente = servicioCliente.obtenerPorEmail(email);
+                if (cliente != null) {
+                    clientes.add(cliente);
+                }
+            } else if (nombre != null && !nombre.trim().isEmpty()) {
+                clientes = servicioCliente.buscarPorNombre(nombre);
+            } else {
+                throw new IllegalArgumentException("Indique identificación, email o nombre");
+            }
+
+            Map<String, Object> respuesta = new LinkedHashMap<>();
+            respuesta.put("clientes", clientes);
+            respuesta.put("total", clientes.size());
+            return Response.ok(respuesta).build();
+
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", e.getMessage())
+                    .build())
+                .build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", "Error al buscar clientes")
+                    .build())
+                .build();
+        }
+    }
+
     @GET
     @Path("/clientes/{clienteId}")
     public Response obtenerCliente(@PathParam("clienteId") int clienteId) {
@@ -233,31 +609,40 @@ public class AdminController {
         }
     }
 
+    /**
+     * Página de cuentas paginada por cursor. estado y moneda filtran; orden:
+     * id o saldo, con "-" adelante para descendente. El total se guarda unos
+     * segundos por filtro.
+     */
     @GET
     @Path("/cuentas")
-    public Response listarCuentas(@QueryParam("page") @DefaultValue("1") int page,
+    public Response listarCuentas(@QueryParam("estado") String estado,
+                                @QueryParam("moneda") String moneda,
+                                @QueryParam("orden") @DefaultValue("id") String orden,
+                                @QueryParam("cursor") String cursor,
                                 @QueryParam("size") @DefaultValue("10") int size) {
         if (!isAdmin()) {
             return Response.status(Response.Status.UNAUTHORIZED).build();
         }
 
         try {
-            List<Cuenta> cuentas = servicioCuenta.listarTodas();
-
-            // Paginación simple
-            int start = (page - 1) * size;
-            int end = Math.min(start + size, cuentas.size());
-            List<Cuenta> cuentasPaginadas = cuentas.subList(start, end);
-
-            return Response.ok()
+            Pagina<Cuenta> pagina = servicioCuenta.obtenerPagina(estado, moneda, orden, cursor, size);
+
+            Map<String, Object> respuesta = new LinkedHashMap<>();
+            respuesta.put("cuentas", pagina.getElementos());
+            respuesta.put("total", servicioCuenta.contar(estado, moneda));
+            respuesta.put("size", pagina.getElementos().size());
+            respuesta.put("siguienteCursor", pagina.getSiguienteCursor());
+            respuesta.put("hayMas", pagina.isHayMas());
+            return Response.ok(respuesta).build();
+
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
                 .entity(Json.createObjectBuilder()
-                    .add("cuentas", Json.createArrayBuilder(cuentasPaginadas))
-                    .add("total", cuentas.size())
-                    .add("page", page)
-                    .add("size", size)
+                    .add("success", false)
+                    .add("message", e.getMessage())
                     .build())
                 .build();
-
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                 .entity(Json.createObjectBuilder()
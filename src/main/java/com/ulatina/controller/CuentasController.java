@@ -8,6 +8,8 @@ package com.ulatina.controller;
 import com.ulatina.data.Cuenta;
 import com.ulatina.data.Usuario;
 import com.ulatina.data.Movimiento;
+import com.ulatina.data.Pagina;
+import com.ulatina.service.ResumenCliente;
 import com.ulatina.service.ServicioCuenta;
 import com.ulatina.service.ServicioMovimiento;
 import jakarta.enterprise.context.RequestScoped;
@@ -17,10 +19,22 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.json.Json;
 import jakarta.json.JsonObject;
+import jakarta.json.stream.JsonGenerator;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @Path("/cuentas")
@@ -106,7 +120,8 @@ public class CuentasController {
     @GET
     @Path("/{numeroCuenta}/movimientos")
     public Response obtenerMovimientos(@PathParam("numeroCuenta") String numeroCuenta,
-                                     @QueryParam("limite") @DefaultValue("10") int limite) {
+                                     @QueryParam("limite") @DefaultValue("10") int limite,
+                                     @QueryParam("cursor") String cursor) {
         try {
             HttpSession session = request.getSession(false);
             if (session == null) {
@@ -118,10 +133,17 @@ public class CuentasController {
                 return Response.status(Response.Status.UNAUTHORIZED).build();
             }
 
-            List<Movimiento> movimientos = servicioMovimiento.obtenerPorCuenta(numeroCuenta, limite);
+            Pagina<Movimiento> pagina = servicioMovimiento.obtenerPaginaPorCuenta(numeroCuenta, cursor, limite);
 
-            return Response.ok(movimientos).build();
+            return Response.ok(pagina).build();
 
+        } catch (IllegalArgumentException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", e.getMessage())
+                    .build())
+                .build();
         } catch (Exception e) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
                 .entity(Json.createObjectBuilder()
@@ -132,6 +154,61 @@ public class CuentasController {
         }
     }
 
+    @GET
+    @Path("/{numeroCuenta}/movimientos/exportar")
+    @Produces({MediaType.APPLICATION_JSON, "text/csv"})
+    public Response exportarMovimientos(@PathParam("numeroCuenta") String numeroCuenta,
+                                      @QueryParam("formato") @DefaultValue("json") String formato,
+                                      @QueryParam("desde") String desde,
+                                      @QueryParam("hasta") String hasta) {
+        try {
+            HttpSession session = request.getSession(false);
+            if (session == null) {
+                return Response.status(Response.Status.UNAUTHORIZED).build();
+            }
+
+            Usuario usuario = (Usuario) session.getAttribute("usuario");
+            if (usuario == null) {
+                return Response.status(Response.Status.UNAUTHORIZED).build();
+            }
+
+            boolean csv = "csv".equalsIgnoreCase(formato);
+            if (!csv && !"json".equalsIgnoreCase(formato)) {
+                throw new IllegalArgumentException("Formato no soportado: " + formato);
+            }
+
+            LocalDateTime fechaInicio = desde != null && !desde.isEmpty() ? LocalDate.parse(desde).atStartOfDay() : null;
+            LocalDateTime fechaFin = hasta != null && !hasta.isEmpty() ? LocalDate.parse(hasta).atTime(LocalTime.MAX) : null;
+
+            // Las filas se escriben a medida que se leen del cursor, sin armar la lista completa
+            StreamingOutput salida = csv
+                ? out -> escribirCSV(out, numeroCuenta, fechaInicio, fechaFin)
+                : out -> escribirJSON(out, numeroCuenta, fechaInicio, fechaFin);
+
+            String archivo = "movimientos-" + numeroCuenta + (csv ? ".csv" : ".json");
+            return Response.ok(salida, csv ? "text/csv; charset=UTF-8" : MediaType.APPLICATION_JSON)
+                .header("Content-Disposition", "attachment; filename=\"" + archivo + "\"")
+                .build();
+
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", e.getMessage())
+                    .build())
+                .build();
+        } catch (Exception e) {
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(Json.createObjectBuilder()
+                    .add("success", false)
+                    .add("message", "Error al exportar movimientos")
+                    .build())
+                .build();
+        }
+    }
+
     @POST
     @Path("/crear")
     public Response crearCuenta(JsonObject cuentaData) {
@@ -191,29 +268,14 @@ public class CuentasController {
                 return Response.status(Response.Status.UNAUTHORIZED).build();
             }
 
-            List<Cuenta> cuentas = servicioCuenta.obtenerPorCliente(usuario.getIdCliente());
-
-            BigDecimal totalCRC = BigDecimal.ZERO;
-            BigDecimal totalUSD = BigDecimal.ZERO;
-            int cuentasActivas = 0;
-
-            for (Cuenta cuenta : cuentas) {
-                if ("ACTIVA".equals(cuenta.getEstado())) {
-                    cuentasActivas++;
-                    if ("CRC".equals(cuenta.getMoneda())) {
-                        totalCRC = totalCRC.add(cuenta.getSaldo());
-                    } else if ("USD".equals(cuenta.getMoneda())) {
-                        totalUSD = totalUSD.add(cuenta.getSaldo());
-                    }
-                }
-            }
+            ResumenCliente resumen = servicioCuenta.obtenerResumenCliente(usuario.getIdCliente());
 
             return Response.ok()
                 .entity(Json.createObjectBuilder()
-                    .add("totalCuentas", cuentas.size())
-                    .add("cuentasActivas", cuentasActivas)
-                    .add("saldoTotalCRC", totalCRC.toString())
-                    .add("saldoTotalUSD", totalUSD.toString())
+                    .add("totalCuentas", resumen.getTotalCuentas())
+                    .add("cuentasActivas", resumen.getCuentasActivas())
+                    .add("saldoTotalCRC", resumen.getSaldoTotalCRC().toString())
+                    .add("saldoTotalUSD", resumen.getSaldoTotalUSD().toString())
                     .build())
                 .build();
 
@@ -226,4 +288,122 @@ public class CuentasController {
                 .build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Columnas del archivo CSV de movimientos, en el orden de escribirMovimientoCSV
+     */
+    public static final String ENCABEZADO_CSV =
+        "id,numeroCuenta,tipoMovimiento,monto,fechaMovimiento,saldoAnterior,saldoPosterior," +
+        "descripcion,cuentaDestino,referencia,estado\r\n";
+
+    private void escribirJSON(OutputStream out, String numeroCuenta,
+                              LocalDateTime fechaInicio, LocalDateTime fechaFin) throws IOException {
+        JsonGenerator generador = Json.createGenerator(out);
+        generador.writeStartArray();
+
+        recorrer(numeroCuenta, fechaInicio, fechaFin, movimiento -> escribirMovimientoJSON(generador, movimiento));
+
+        generador.writeEnd();
+        generador.close();
+    }
+
+    /**
+     * Escribe un movimiento como objeto JSON. Los saldos son NULL en los
+     * movimientos anteriores al registro de saldos y se escriben como null.
+     */
+    public static void escribirMovimientoJSON(JsonGenerator generador, Movimiento movimiento) {
+        generador.writeStartObject()
+            .write("id", movimiento.getId())
+            .write("numeroCuenta", movimiento.getNumeroCuenta())
+            .write("tipoMovimiento", movimiento.getTipoMovimiento())
+            .write("monto", movimiento.getMonto())
+            .write("fechaMovimiento", String.valueOf(movimiento.getFechaMovimiento()));
+        escribirDecimal(generador, "saldoAnterior", movimiento.getSaldoAnterior());
+        escribirDecimal(generador, "saldoPosterior", movimiento.getSaldoPosterior());
+        escribirTexto(generador, "descripcion", movimiento.getDescripcion());
+        escribirTexto(generador, "cuentaDestino", movimiento.getCuentaDestino());
+        escribirTexto(generador, "referencia", movimiento.getReferencia());
+        escribirTexto(generador, "estado", movimiento.getEstado());
+        generador.writeEnd();
+    }
+
+    private static void escribirTexto(JsonGenerator generador, String nombre, String valor) {
+        if (valor == null) {
+            generador.writeNull(nombre);
+        } else {
+            generador.write(nombre, valor);
+        }
+    }
+
+    private static void escribirDecimal(JsonGenerator generador, String nombre, BigDecimal valor) {
+        if (valor == null) {
+            generador.writeNull(nombre);
+        } else {
+            generador.write(nombre, valor);
+        }
+    }
+
+    private void escribirCSV(OutputStream out, String numeroCuenta,
+                             LocalDateTime fechaInicio, LocalDateTime fechaFin) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(ENCABEZADO_CSV);
+
+        recorrer(numeroCuenta, fechaInicio, fechaFin, movimiento -> escribirMovimientoCSV(writer, movimiento));
+
+        writer.flush();
+    }
+
+    /**
+     * Escribe un movimiento como fila CSV; un saldo NULL queda como campo vacío
+     */
+    public static void escribirMovimientoCSV(Writer writer, Movimiento movimiento) throws IOException {
+        writer.write(String.valueOf(movimiento.getId()));
+        writer.write(',');
+        writer.write(campoCSV(movimiento.getNumeroCuenta()));
+        writer.write(',');
+        writer.write(campoCSV(movimiento.getTipoMovimiento()));
+        writer.write(',');
+        writer.write(String.valueOf(movimiento.getMonto()));
+        writer.write(',');
+        writer.write(String.valueOf(movimiento.getFechaMovimiento()));
+        writer.write(',');
+        writer.write(campoDecimalCSV(movimiento.getSaldoAnterior()));
+        writer.write(',');
+        writer.write(campoDecimalCSV(movimiento.getSaldoPosterior()));
+        writer.write(',');
+        writer.write(campoCSV(movimiento.getDescripcion()));
+        writer.write(',');
+        writer.write(campoCSV(movimiento.getCuentaDestino()));
+        writer.write(',');
+        writer.write(campoCSV(movimiento.getReferencia()));
+        writer.write(',');
+        writer.write(campoCSV(movimiento.getEstado()));
+        writer.write("\r\n");
+    }
+
+    private static String campoDecimalCSV(BigDecimal valor) {
+        return valor == null ? "" : valor.toPlainString();
+    }
+
+    private static String campoCSV(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    private void recorrer(String numeroCuenta, LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                          ServicioMovimiento.ConsumidorMovimiento consumidor) throws IOException {
+        try {
+            servicioMovimiento.recorrerMovimientos(numeroCuenta, fechaInicio, fechaFin, consumidor);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            // La respuesta ya comenzó a enviarse: solo se puede cortar el flujo
+            throw new WebApplicationException("Error al exportar movimientos: " + e.getMessage(), e);
+        }
+    }
+}
@@ -6,24 +6,32 @@ package com.ulatina.controller;
 
 import com.ulatina.data.Cliente;
 import com.ulatina.data.ListaRestrictiva;
+import com.ulatina.service.ReverificadorKyc;
 import com.ulatina.service.ServicioCliente;
 import com.ulatina.service.ServicioKyc;
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.SessionScoped;
 import jakarta.faces.application.FacesMessage;
 import jakarta.faces.context.FacesContext;
+import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Named
 @SessionScoped
 public class KycController implements Serializable {
 
     private ServicioKyc servicioKyc = new ServicioKyc();
-    private ServicioCliente servicioCliente = new ServicioCliente();
+    // Bean compartido: una instancia propia tendría otra caché que invalidarCache no alcanza
+    @Inject
+    private ServicioCliente servicioCliente;
+
+    @Inject
+    private ReverificadorKyc reverificadorKyc;
 
     private List<Cliente> clientesPendientes = new ArrayList<>();
     private List<ListaRestrictiva> listasRestrictivas = new ArrayList<>();
@@ -113,6 +121,38 @@ public class KycController implements Serializable {
         }
     }
 
+    /**
+     * Reverificar en lote todos los clientes con KYC pendiente
+     */
+    public void reverificarPendientes() {
+        reverificarEnLote(ReverificadorKyc.ALCANCE_PENDIENTES);
+    }
+
+    /**
+     * Reverificar en lote toda la cartera (por ejemplo después de actualizar la lista)
+     */
+    public void reverificarTodos() {
+        reverificarEnLote(ReverificadorKyc.ALCANCE_TODOS);
+    }
+
+    private void reverificarEnLote(String alcance) {
+        try {
+            Map<String, Object> resultado = reverificadorKyc.reverificar(alcance);
+            cargarDatos();
+
+            FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage("KYC Reverificado",
+                "Clientes verificados: " + resultado.get("verificados") +
+                ", en lista restrictiva: " + resultado.get("enListaRestrictiva") +
+                " (" + resultado.get("clientesPorSegundo") + " clientes/seg)"));
+
+        } catch (Exception e) {
+            FacesContext.getCurrentInstance().addMessage(null,
+                new FacesMessage(FacesMessage.SEVERITY_ERROR, "Error",
+                "Error en reverificación en lote: " + e.getMessage()));
+        }
+    }
+
     /**
      * Agregar nueva entrada a lista restrictiva
      */
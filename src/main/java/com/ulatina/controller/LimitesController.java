@@ -6,6 +6,7 @@ import com.ulatina.data.ConfiguracionNotificacion;
 import com.ulatina.service.ServicioLimite;
 import com.ulatina.service.ServicioAlerta;
 import com.ulatina.service.ServicioNotificacion;
+import com.ulatina.service.ServicioUsoLimite;
 import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.faces.application.FacesMessage;
@@ -34,6 +35,9 @@ public class LimitesController {
     @Inject
     private ServicioLimite servicioLimite;
 
+    @Inject
+    private ServicioUsoLimite servicioUsoLimite;
+
     @Inject
     private ServicioAlerta servicioAlerta;
 
@@ -216,17 +220,18 @@ public class LimitesController {
      */
     public void simularTransaccion(LimiteTransaccion.TipoLimite tipo, BigDecimal monto) {
         try {
-            boolean permitida = servicioLimite.verificarLimite(numeroCuenta, tipo, monto);
+            LimiteTransaccion limite = servicioLimite.buscarLimitePorTipo(numeroCuenta, tipo);
+
+            // Evaluar contra lo ya usado en el periodo, sin reservar el monto
+            BigDecimal acumulado = limite != null ? servicioUsoLimite.consultarUsado(limite).add(monto) : monto;
 
-            if (!permitida) {
-                LimiteTransaccion limite = servicioLimite.buscarLimitePorTipo(numeroCuenta, tipo);
+            if (!servicioLimite.verificarLimite(limite, acumulado)) {
                 servicioAlerta.generarAlertaLimiteExcedido(numeroCuenta, tipo, monto, limite.getMontoLimite());
                 mostrarMensajeError("Transacción rechazada: Límite excedido");
             } else {
                 // Verificar si está cerca del límite
-                if (servicioLimite.estaProximoAlLimite(numeroCuenta, tipo, monto,
+                if (servicioLimite.estaProximoAlLimite(limite, acumulado,
                     configuracionNotificacion.getUmbralAlertaPorcentaje())) {
-                    LimiteTransaccion limite = servicioLimite.buscarLimitePorTipo(numeroCuenta, tipo);
                     servicioAlerta.generarAlertaProximidadLimite(numeroCuenta, tipo, monto,
                         limite.getMontoLimite(), configuracionNotificacion.getUmbralAlertaPorcentaje());
                 }
@@ -80,6 +80,7 @@ public class Alerta {
     public enum EstadoAlerta {
         PENDIENTE,
         PROCESANDO,
+        PROCESADA,
         ENVIADA,
         FALLIDA,
         CANCELADA
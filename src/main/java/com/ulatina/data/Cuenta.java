@@ -16,6 +16,7 @@ public class Cuenta {
     private String estado; // ACTIVA, BLOQUEADA, CERRADA
     private int idCliente;
     private LocalDateTime fechaApertura;
+    private long version; // Se incrementa en cada cambio de la fila
 
     public Cuenta(){}
 
@@ -61,4 +62,7 @@ public class Cuenta {
 
     public LocalDateTime getFechaApertura() { return fechaApertura; }
     public void setFechaApertura(LocalDateTime fechaApertura) { this.fechaApertura = fechaApertura; }
+
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 }
\ No newline at end of file
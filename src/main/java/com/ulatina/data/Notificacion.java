@@ -0,0 +1,52 @@
+package com.ulatina.data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mensaje a entregar por un canal (email o SMS). Lleva la cuenta de intentos
+ * para los reintentos del despachador.
+ */
+public class Notificacion {
+
+    public enum Canal {
+        EMAIL,
+        SMS
+    }
+
+    private final Canal canal;
+    private final String destino;
+    private final String asunto;
+    private final String mensaje;
+    private final LocalDateTime fechaCreacion;
+    private int intentos;
+
+    public Notificacion(Canal canal, String destino, String asunto, String mensaje) {
+        this.canal = canal;
+        this.destino = destino;
+        this.asunto = asunto;
+        this.mensaje = mensaje;
+        this.fechaCreacion = LocalDateTime.now();
+    }
+
+    public static Notificacion email(String destino, String asunto, String mensaje) {
+        return new Notificacion(Canal.EMAIL, destino, asunto, mensaje);
+    }
+
+    public static Notificacion sms(String destino, String mensaje) {
+        return new Notificacion(Canal.SMS, destino, null, mensaje);
+    }
+
+    public Canal getCanal() { return canal; }
+
+    public String getDestino() { return destino; }
+
+    public String getAsunto() { return asunto; }
+
+    public String getMensaje() { return mensaje; }
+
+    public LocalDateTime getFechaCreacion() { return fechaCreacion; }
+
+    public int getIntentos() { return intentos; }
+
+    public int registrarIntento() { return ++intentos; }
+}
@@ -0,0 +1,32 @@
+package com.ulatina.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Página de resultados con cursor opaco para solicitar la siguiente
+ */
+public class Pagina<T> {
+    private List<T> elementos;
+    private String siguienteCursor; // null cuando no hay más resultados
+    private boolean hayMas;
+
+    public Pagina() {
+        this.elementos = new ArrayList<>();
+    }
+
+    public Pagina(List<T> elementos, String siguienteCursor) {
+        this.elementos = elementos;
+        this.siguienteCursor = siguienteCursor;
+        this.hayMas = siguienteCursor != null;
+    }
+
+    public List<T> getElementos() { return elementos; }
+    public void setElementos(List<T> elementos) { this.elementos = elementos; }
+
+    public String getSiguienteCursor() { return siguienteCursor; }
+    public void setSiguienteCursor(String siguienteCursor) { this.siguienteCursor = siguienteCursor; }
+
+    public boolean isHayMas() { return hayMas; }
+    public void setHayMas(boolean hayMas) { this.hayMas = hayMas; }
+}
@@ -0,0 +1,45 @@
+package com.ulatina.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resultado de un registro por lotes: IDs generados en el mismo orden de la
+ * lista recibida (null en las filas que fallaron) y el error de cada fila fallida
+ */
+public class ResultadoLote {
+    private final List<Long> ids;
+    private final Map<Integer, String> errores = new TreeMap<>();
+
+    public ResultadoLote(int total) {
+        this.ids = new ArrayList<>(Collections.nCopies(total, (Long) null));
+    }
+
+    public void registrarId(int indice, Long id) {
+        ids.set(indice, id);
+    }
+
+    public void registrarError(int indice, String mensaje) {
+        ids.set(indice, null);
+        errores.put(indice, mensaje);
+    }
+
+    public boolean tieneError(int indice) {
+        return errores.containsKey(indice);
+    }
+
+    public List<Long> getIds() { return Collections.unmodifiableList(ids); }
+
+    public Map<Integer, String> getErrores() { return Collections.unmodifiableMap(errores); }
+
+    public int getTotal() { return ids.size(); }
+
+    public int getExitosos() { return ids.size() - errores.size(); }
+
+    public int getFallidos() { return errores.size(); }
+
+    public boolean isCompleto() { return errores.isEmpty(); }
+}
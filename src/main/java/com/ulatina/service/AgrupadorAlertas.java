@@ -0,0 +1,159 @@
+package com.ulatina.service;
+
+import com.ulatina.data.Alerta;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Agrupación de alertas para tormentas de alertas. Las alertas de la misma
+ * cuenta y tipo cuya fecha de generación cae en la misma ventana de tiempo se
+ * notifican con un único resumen en lugar de un mensaje por alerta.
+ *
+ * Las ventanas son fijas y alineadas (por ejemplo 10:00-10:15, 10:15-10:30) y
+ * su duración depende de la prioridad. Una ventana solo se procesa cuando ya
+ * cerró, así el resumen incluye todas sus alertas. Las alertas CRITICA no se
+ * agrupan y se notifican de inmediato.
+ *
+ * Duraciones configurables en minutos con ALERTAS_VENTANA_BAJA,
+ * ALERTAS_VENTANA_MEDIA y ALERTAS_VENTANA_ALTA.
+ */
+public class AgrupadorAlertas {
+
+    private static final Logger logger = Logger.getLogger(AgrupadorAlertas.class.getName());
+
+    private static final DateTimeFormatter FORMATO_HORA = DateTimeFormatter.ofPattern("HH:mm");
+    private static final int MAXIMO_DETALLE = 5;
+
+    private final Map<Alerta.PrioridadAlerta, Duration> ventanas = new EnumMap<>(Alerta.PrioridadAlerta.class);
+
+    public AgrupadorAlertas() {
+        this(Duration.ofMinutes(leerMinutos("ALERTAS_VENTANA_BAJA", 60)),
+             Duration.ofMinutes(leerMinutos("ALERTAS_VENTANA_MEDIA", 15)),
+             Duration.ofMinutes(leerMinutos("ALERTAS_VENTANA_ALTA", 5)));
+    }
+
+    public AgrupadorAlertas(Duration baja, Duration media, Duration alta) {
+        ventanas.put(Alerta.PrioridadAlerta.BAJA, baja);
+        ventanas.put(Alerta.PrioridadAlerta.MEDIA, media);
+        ventanas.put(Alerta.PrioridadAlerta.ALTA, alta);
+        ventanas.put(Alerta.PrioridadAlerta.CRITICA, Duration.ZERO);
+    }
+
+    /**
+     * Corte de reclamo por prioridad: solo las alertas anteriores al corte
+     * pertenecen a ventanas ya cerradas. null = sin espera.
+     */
+    public Map<Alerta.PrioridadAlerta, LocalDateTime> cortes(LocalDateTime ahora) {
+        Map<Alerta.PrioridadAlerta, LocalDateTime> cortes = new EnumMap<>(Alerta.PrioridadAlerta.class);
+        for (Map.Entry<Alerta.PrioridadAlerta, Duration> ventana : ventanas.entrySet()) {
+            cortes.put(ventana.getKey(), ventana.getValue().isZero() ? null : inicioVentana(ahora, ventana.getValue()));
+        }
+        return cortes;
+    }
+
+    /**
+     * Agrupa por cuenta, tipo y ventana; cada alerta CRITICA queda en su propio grupo
+     */
+    public List<List<Alerta>> agrupar(List<Alerta> alertas) {
+        Map<String, List<Alerta>> grupos = new LinkedHashMap<>();
+
+        for (Alerta alerta : alertas) {
+            Duration ventana = ventanas.getOrDefault(alerta.getPrioridad(), Duration.ZERO);
+            String clave = ventana.isZero()
+                ? "#" + alerta.getId()
+                : alerta.getNumeroCuenta() + "|" + alerta.getTipoAlerta() + "|" + alerta.getPrioridad() + "|" +
+                  inicioVentana(alerta.getFechaGeneracion(), ventana);
+            grupos.computeIfAbsent(clave, k -> new ArrayList<>()).add(alerta);
+        }
+
+        return new ArrayList<>(grupos.values());
+    }
+
+    /**
+     * Asunto de la notificación del grupo
+     */
+    public String asunto(List<Alerta> grupo) {
+        Alerta primera = grupo.get(0);
+        String tipo = primera.getTipoAlerta().toString().replace('_', ' ');
+        return grupo.size() == 1 ? "Alerta: " + tipo : "Resumen de " + grupo.size() + " alertas: " + tipo;
+    }
+
+    /**
+     * Texto de la notificación: el mensaje de la alerta o un resumen del grupo
+     */
+    public String mensaje(List<Alerta> grupo) {
+        if (grupo.size() == 1) {
+            return grupo.get(0).getMensaje();
+        }
+
+        Alerta primera = grupo.get(0);
+        Alerta ultima = grupo.get(grupo.size() - 1);
+        BigDecimal montoTotal = BigDecimal.ZERO;
+        for (Alerta alerta : grupo) {
+            if (alerta.getMontoTransaccion() != null) {
+                montoTotal = montoTotal.add(alerta.getMontoTransaccion());
+            }
+        }
+
+        StringBuilder texto = new StringBuilder();
+        texto.append(String.format("Se generaron %d alertas %s en la cuenta %s entre las %s y las %s. Monto total: %s.",
+                                   grupo.size(), primera.getTipoAlerta(), primera.getNumeroCuenta(),
+                                   primera.getFechaGeneracion().format(FORMATO_HORA),
+                                   ultima.getFechaGeneracion().format(FORMATO_HORA), montoTotal));
+        for (int i = Math.max(0, grupo.size() - MAXIMO_DETALLE); i < grupo.size(); i++) {
+            texto.append("\n- ").append(grupo.get(i).getMensaje());
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Metadatos JSON que se guardan en cada alerta del grupo: qué alertas cubrió
+     * la notificación y la ventana a la que pertenecen
+     */
+    public String metadatos(List<Alerta> grupo) {
+        JsonArrayBuilder ids = Json.createArrayBuilder();
+        for (Alerta alerta : grupo) {
+            ids.add(alerta.getId());
+        }
+
+        Alerta primera = grupo.get(0);
+        Duration ventana = ventanas.getOrDefault(primera.getPrioridad(), Duration.ZERO);
+        LocalDateTime inicio = ventana.isZero() ? primera.getFechaGeneracion()
+                                                : inicioVentana(primera.getFechaGeneracion(), ventana);
+
+        return Json.createObjectBuilder()
+            .add("resumen", grupo.size() > 1)
+            .add("alertas", ids)
+            .add("ventanaInicio", inicio.toString())
+            .add("ventanaFin", inicio.plus(ventana).toString())
+            .build()
+            .toString();
+    }
+
+    private static LocalDateTime inicioVentana(LocalDateTime fecha, Duration ventana) {
+        long segundos = fecha.toEpochSecond(ZoneOffset.UTC);
+        long tamano = ventana.getSeconds();
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(segundos, tamano) * tamano, 0, ZoneOffset.UTC);
+    }
+
+    private static long leerMinutos(String nombre, long valorPorDefecto) {
+        String valor = System.getenv(nombre);
+        try {
+            return valor != null ? Math.max(0, Long.parseLong(valor.trim())) : valorPorDefecto;
+        } catch (NumberFormatException e) {
+            logger.warning("Valor inválido para " + nombre + ": " + valor);
+            return valorPorDefecto;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.ulatina.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Totales de los listados paginados guardados por filtro durante unos
+ * segundos, para no repetir un COUNT(*) sobre toda la tabla en cada página.
+ * El total puede ir atrasado hasta la vigencia indicada; los servicios lo
+ * limpian cuando crean o eliminan filas.
+ */
+final class CacheConteos {
+
+    @FunctionalInterface
+    interface Conteo {
+        long contar() throws Exception;
+    }
+
+    private final long vigenciaMs;
+    private final Map<String, long[]> conteos = new ConcurrentHashMap<>(); // {total, vence}
+
+    CacheConteos(long vigenciaMs) {
+        this.vigenciaMs = vigenciaMs;
+    }
+
+    long obtener(String filtro, Conteo conteo) throws Exception {
+        long[] guardado = conteos.get(filtro);
+        if (guardado != null && guardado[1] > System.currentTimeMillis()) {
+            return guardado[0];
+        }
+
+        long total = conteo.contar();
+        conteos.put(filtro, new long[] {total, System.currentTimeMillis() + vigenciaMs});
+        return total;
+    }
+
+    void limpiar() {
+        conteos.clear();
+    }
+}
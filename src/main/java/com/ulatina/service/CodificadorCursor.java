@@ -0,0 +1,44 @@
+package com.ulatina.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Codifica la posición de una consulta paginada por llave (keyset) en un
+ * cursor opaco para el cliente
+ */
+public final class CodificadorCursor {
+
+    private static final String SEPARADOR = "|";
+
+    private CodificadorCursor() {
+    }
+
+    public static String codificar(String... valores) {
+        String plano = String.join(SEPARADOR, valores);
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor y valida que tenga el número de partes esperado
+     */
+    public static String[] decodificar(String cursor, int partes) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            throw new IllegalArgumentException("El cursor no puede ser null o vacío");
+        }
+
+        String plano;
+        try {
+            plano = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+
+        String[] valores = plano.split("\\" + SEPARADOR, -1);
+        if (valores.length != partes) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        return valores;
+    }
+}
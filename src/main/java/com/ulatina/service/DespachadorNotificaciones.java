@@ -0,0 +1,292 @@
+package com.ulatina.service;
+
+import com.ulatina.data.Notificacion;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Despacho asíncrono de notificaciones. Cada canal (email, SMS) tiene su propio
+ * pool de hilos con cola acotada, de modo que un proveedor lento no frena al
+ * otro. Antes de cada envío se toma una ficha del limitador de tasa del
+ * proveedor; si el envío falla se reintenta con espera exponencial (con
+ * variación aleatoria) hasta el máximo de intentos.
+ *
+ * Quien notifica solo encola: encolar() nunca espera al proveedor.
+ *
+ * La instancia compartida se configura por variables de entorno: si hay
+ * SMTP_HOST o credenciales TWILIO_* se usan esos proveedores, si no un
+ * transporte simulado. Hilos y tasas: NOTIF_HILOS_EMAIL, NOTIF_HILOS_SMS,
+ * NOTIF_TASA_EMAIL, NOTIF_TASA_SMS (envíos por segundo).
+ */
+public final class DespachadorNotificaciones {
+
+    private static final Logger logger = Logger.getLogger(DespachadorNotificaciones.class.getName());
+
+    private static final int CAPACIDAD_COLA = 1000;
+    private static final long ESPERA_TASA_SEGUNDOS = 30;
+
+    private static volatile DespachadorNotificaciones instancia;
+
+    private final Map<Notificacion.Canal, CanalDespacho> canales = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService programador;
+    private final int maximoIntentos;
+    private final long esperaBaseMs;
+    private final long esperaMaximaMs;
+
+    /**
+     * @param maximoIntentos intentos por notificación, incluido el primero
+     * @param esperaBaseMs   espera antes del primer reintento; se duplica en cada uno
+     * @param esperaMaximaMs tope de la espera entre reintentos
+     */
+    public DespachadorNotificaciones(int maximoIntentos, long esperaBaseMs, long esperaMaximaMs) {
+        this.maximoIntentos = maximoIntentos;
+        this.esperaBaseMs = esperaBaseMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+        this.programador = Executors.newSingleThreadScheduledExecutor(fabricaHilos("notif-reintentos"));
+    }
+
+    public static DespachadorNotificaciones getInstancia() {
+        DespachadorNotificaciones despachador = instancia;
+        if (despachador == null) {
+            synchronized (DespachadorNotificaciones.class) {
+                despachador = instancia;
+                if (despachador == null) {
+                    despachador = desdeEntorno();
+                    instancia = despachador;
+                }
+            }
+        }
+        return despachador;
+    }
+
+    private static DespachadorNotificaciones desdeEntorno() {
+        DespachadorNotificaciones despachador = new DespachadorNotificaciones(5, 1000, 60000);
+
+        TransporteNotificacion email = null;
+        try {
+            email = TransporteEmailSmtp.desdeEntorno();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Configuración SMTP inválida; se usará el transporte simulado", e);
+        }
+        TransporteNotificacion sms = TransporteSmsTwilio.desdeEntorno();
+
+        despachador.registrar(email != null ? email : new TransporteSimulado(Notificacion.Canal.EMAIL),
+                              leerEntero("NOTIF_HILOS_EMAIL", 4), CAPACIDAD_COLA,
+                              leerEntero("NOTIF_TASA_EMAIL", 10), 20);
+        despachador.registrar(sms != null ? sms : new TransporteSimulado(Notificacion.Canal.SMS),
+                              leerEntero("NOTIF_HILOS_SMS", 4), CAPACIDAD_COLA,
+                              leerEntero("NOTIF_TASA_SMS", 5), 10);
+        return despachador;
+    }
+
+    /**
+     * Registra el transporte de un canal con su pool y su límite de tasa
+     */
+    public synchronized DespachadorNotificaciones registrar(TransporteNotificacion transporte, int hilos, int capacidad,
+                                                            double porSegundo, int rafaga) {
+        CanalDespacho anterior = canales.put(transporte.getCanal(),
+                                             new CanalDespacho(transporte, hilos, capacidad, porSegundo, rafaga));
+        if (anterior != null) {
+            anterior.ejecutor.shutdown();
+        }
+        logger.info("Canal " + transporte.getCanal() + " atendido por " + transporte.getNombre() +
+                    " (" + hilos + " hilos, " + porSegundo + " envíos/seg)");
+        return this;
+    }
+
+    /**
+     * Deja la notificación en la cola de su canal
+     *
+     * @return false si el canal no está configurado o su cola está llena
+     */
+    public boolean encolar(Notificacion notificacion) {
+        CanalDespacho canal = canales.get(notificacion.getCanal());
+        if (canal == null) {
+            logger.warning("No hay transporte configurado para el canal " + notificacion.getCanal());
+            return false;
+        }
+
+        try {
+            canal.ejecutor.execute(() -> entregar(canal, notificacion));
+            canal.encoladas.incrementAndGet();
+            return true;
+        } catch (RejectedExecutionException e) {
+            canal.rechazadas.incrementAndGet();
+            logger.warning("Cola de " + notificacion.getCanal() + " llena; notificación a " +
+                           notificacion.getDestino() + " descartada");
+            return false;
+        }
+    }
+
+    private void entregar(CanalDespacho canal, Notificacion notificacion) {
+        try {
+            if (!canal.limitador.adquirir(ESPERA_TASA_SEGUNDOS, TimeUnit.SECONDS)) {
+                throw new Exception("Límite de tasa de " + canal.transporte.getNombre() + " sin cupo");
+            }
+            canal.transporte.enviar(notificacion);
+            canal.enviadas.incrementAndGet();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            int intento = notificacion.registrarIntento();
+            if (intento >= maximoIntentos) {
+                canal.fallidas.incrementAndGet();
+                logger.log(Level.SEVERE, "Notificación " + notificacion.getCanal() + " a " + notificacion.getDestino() +
+                           " descartada tras " + intento + " intentos", e);
+                return;
+            }
+
+            canal.reintentos.incrementAndGet();
+            long espera = calcularEspera(intento);
+            logger.warning("Fallo enviando " + notificacion.getCanal() + " a " + notificacion.getDestino() +
+                           " (intento " + intento + "): " + e.getMessage() + ". Reintento en " + espera + " ms");
+            try {
+                programador.schedule(() -> reencolar(canal, notificacion), espera, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException cerrado) {
+                canal.fallidas.incrementAndGet();
+            }
+        }
+    }
+
+    private void reencolar(CanalDespacho canal, Notificacion notificacion) {
+        try {
+            canal.ejecutor.execute(() -> entregar(canal, notificacion));
+        } catch (RejectedExecutionException e) {
+            canal.fallidas.incrementAndGet();
+            logger.warning("Cola de " + notificacion.getCanal() + " llena; reintento a " +
+                           notificacion.getDestino() + " descartado");
+        }
+    }
+
+    /**
+     * Espera exponencial con variación aleatoria entre el 50% y el 100% para que
+     * los reintentos de muchas notificaciones no lleguen juntos al proveedor
+     */
+    private long calcularEspera(int intento) {
+        long espera = Math.min(esperaMaximaMs, esperaBaseMs << Math.min(intento - 1, 30));
+        return espera / 2 + ThreadLocalRandom.current().nextLong(espera / 2 + 1);
+    }
+
+    /**
+     * Métricas por canal
+     */
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        for (Notificacion.Canal tipo : Notificacion.Canal.values()) {
+            CanalDespacho canal = canales.get(tipo);
+            if (canal == null) {
+                continue;
+            }
+            Map<String, Object> datos = new LinkedHashMap<>();
+            datos.put("proveedor", canal.transporte.getNombre());
+            datos.put("enCola", canal.ejecutor.getQueue().size());
+            datos.put("activos", canal.ejecutor.getActiveCount());
+            datos.put("encoladas", canal.encoladas.get());
+            datos.put("enviadas", canal.enviadas.get());
+            datos.put("reintentos", canal.reintentos.get());
+            datos.put("fallidas", canal.fallidas.get());
+            datos.put("rechazadas", canal.rechazadas.get());
+            metricas.put(tipo.name(), datos);
+        }
+        return metricas;
+    }
+
+    /**
+     * Espera hasta el tiempo indicado a que se vacíen las colas y detiene los
+     * hilos. Los reintentos programados y lo que siga en cola al vencer la
+     * espera se descartan y se registran en el log.
+     */
+    public void detener(long espera, TimeUnit unidad) throws InterruptedException {
+        long limite = System.nanoTime() + unidad.toNanos(espera);
+        int reintentosPendientes = programador.shutdownNow().size();
+        if (reintentosPendientes > 0) {
+            logger.warning(reintentosPendientes + " reintentos de notificaciones descartados al detener el despachador");
+        }
+
+        for (CanalDespacho canal : canales.values()) {
+            canal.ejecutor.shutdown();
+        }
+        for (Map.Entry<Notificacion.Canal, CanalDespacho> entrada : canales.entrySet()) {
+            ThreadPoolExecutor ejecutor = entrada.getValue().ejecutor;
+            if (!ejecutor.awaitTermination(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                int descartadas = ejecutor.shutdownNow().size();
+                entrada.getValue().fallidas.addAndGet(descartadas);
+                logger.warning(descartadas + " notificaciones " + entrada.getKey() +
+                               " descartadas al detener el despachador");
+            }
+        }
+    }
+
+    /**
+     * Cierra la instancia compartida (al detener la aplicación)
+     */
+    public static void cerrar() {
+        synchronized (DespachadorNotificaciones.class) {
+            if (instancia != null) {
+                try {
+                    instancia.detener(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                instancia = null;
+            }
+        }
+    }
+
+    private static ThreadFactory fabricaHilos(String prefijo) {
+        AtomicInteger contador = new AtomicInteger();
+        return r -> {
+            Thread hilo = new Thread(r, prefijo + "-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        };
+    }
+
+    private static int leerEntero(String nombre, int valorPorDefecto) {
+        String valor = System.getenv(nombre);
+        if (valor == null || valor.trim().isEmpty()) {
+            return valorPorDefecto;
+        }
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            logger.warning("Valor inválido para " + nombre + ": " + valor);
+            return valorPorDefecto;
+        }
+    }
+
+    private static final class CanalDespacho {
+        private final TransporteNotificacion transporte;
+        private final ThreadPoolExecutor ejecutor;
+        private final LimitadorTasa limitador;
+
+        private final AtomicLong encoladas = new AtomicLong();
+        private final AtomicLong enviadas = new AtomicLong();
+        private final AtomicLong reintentos = new AtomicLong();
+        private final AtomicLong fallidas = new AtomicLong();
+        private final AtomicLong rechazadas = new AtomicLong();
+
+        private CanalDespacho(TransporteNotificacion transporte, int hilos, int capacidad,
+                              double porSegundo, int rafaga) {
+            this.transporte = transporte;
+            this.ejecutor = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                                                   new ArrayBlockingQueue<>(capacidad),
+                                                   fabricaHilos("notif-" + transporte.getCanal().name().toLowerCase()));
+            this.limitador = new LimitadorTasa(porSegundo, rafaga);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.ulatina.service;
+
+import com.ulatina.data.Cuenta;
+
+/**
+ * Cambio confirmado en una cuenta (apertura, estado o saldo). ServicioCuenta
+ * lo publica con CDI después del commit, con copias de la fila antes y
+ * después del cambio.
+ */
+public final class EventoCuenta {
+
+    private final Cuenta anterior; // null en la apertura
+    private final Cuenta actual;
+
+    EventoCuenta(Cuenta anterior, Cuenta actual) {
+        this.anterior = anterior;
+        this.actual = actual;
+    }
+
+    public Cuenta getAnterior() {
+        return anterior;
+    }
+
+    public Cuenta getActual() {
+        return actual;
+    }
+}
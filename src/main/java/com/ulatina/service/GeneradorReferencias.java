@@ -0,0 +1,140 @@
+package com.ulatina.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Generador de referencias únicas y monótonas al estilo Snowflake, sin bloqueos
+ * ni objetos Random por llamada.
+ *
+ * El estado es un solo AtomicLong con tick * 10000 + secuencia, donde el tick es
+ * el milisegundo (o segundo) del reloj. Cada llamada avanza el estado con CAS:
+ * si el reloj avanzó se reinicia la secuencia, si no se incrementa, y si se agota
+ * la secuencia se toma prestado el siguiente tick. Un retroceso del reloj nunca
+ * genera valores repetidos porque el tick guardado no retrocede.
+ *
+ * Las referencias incluyen el identificador del nodo (variable de entorno NODO_ID,
+ * 0-99) para que varias instancias de la aplicación no colisionen entre sí. Nodo
+ * y secuencia van juntos en cuatro caracteres base 36 (nodo * 10000 + secuencia
+ * llega a 999999, menos que 36^4): la referencia de movimiento conserva su
+ * largo y la SWIFT cabe en los 16 caracteres del campo :20: del MT103.
+ */
+public final class GeneradorReferencias {
+
+    private static final Logger logger = Logger.getLogger(GeneradorReferencias.class.getName());
+
+    public static final int SECUENCIAS_POR_TICK = 10000;
+    public static final int NODO = leerNodo();
+
+    private static final GeneradorReferencias MOVIMIENTOS = new GeneradorReferencias(1, System::currentTimeMillis);
+    private static final GeneradorReferencias SINPE = new GeneradorReferencias(1000, System::currentTimeMillis);
+    private static final GeneradorReferencias SWIFT = new GeneradorReferencias(1000, System::currentTimeMillis);
+
+    private static final char[] DIGITOS_BASE36 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    private final AtomicLong estado = new AtomicLong();
+    private final long milisPorTick;
+    private final LongSupplier reloj;
+
+    public GeneradorReferencias(long milisPorTick, LongSupplier reloj) {
+        if (milisPorTick <= 0) {
+            throw new IllegalArgumentException("La duración del tick debe ser mayor que cero");
+        }
+        this.milisPorTick = milisPorTick;
+        this.reloj = reloj;
+    }
+
+    /**
+     * Siguiente valor tick * 10000 + secuencia, estrictamente creciente
+     */
+    public long siguiente() {
+        while (true) {
+            long actual = estado.get();
+            long tickActual = actual / SECUENCIAS_POR_TICK;
+            long ahora = reloj.getAsLong() / milisPorTick;
+
+            long nuevo;
+            if (ahora > tickActual) {
+                nuevo = ahora * SECUENCIAS_POR_TICK;
+            } else if (actual % SECUENCIAS_POR_TICK < SECUENCIAS_POR_TICK - 1) {
+                nuevo = actual + 1;
+            } else {
+                nuevo = (tickActual + 1) * SECUENCIAS_POR_TICK;
+            }
+
+            if (estado.compareAndSet(actual, nuevo)) {
+                return nuevo;
+            }
+        }
+    }
+
+    /**
+     * Referencia de movimiento: PREFIJO-milisegundos-XXXX (nodo y secuencia en
+     * base 36), del mismo largo que la anterior PREFIJO-milisegundos-SSSS
+     */
+    public static String referenciaMovimiento(String prefijo) {
+        long valor = MOVIMIENTOS.siguiente();
+        StringBuilder sb = new StringBuilder(prefijo.length() + 20)
+            .append(prefijo).append('-')
+            .append(valor / SECUENCIAS_POR_TICK).append('-');
+        return anexarNodoYSecuencia(sb, valor).toString();
+    }
+
+    /**
+     * Referencia SINPE: SINPE + segundos (7) + nodo y secuencia (4), en base
+     * 36; 16 caracteres
+     */
+    public static String referenciaSinpe() {
+        long valor = SINPE.siguiente();
+        StringBuilder sb = new StringBuilder(16).append("SINPE");
+        anexarBase36(sb, valor / SECUENCIAS_POR_TICK, 7);
+        return anexarNodoYSecuencia(sb, valor).toString();
+    }
+
+    /**
+     * Referencia SWIFT: SW + segundos (7) + nodo y secuencia (4), en base 36;
+     * 13 caracteres, dentro del límite de 16 del campo :20: del MT103
+     */
+    public static String referenciaSwift() {
+        long valor = SWIFT.siguiente();
+        StringBuilder sb = new StringBuilder(13).append("SW");
+        anexarBase36(sb, valor / SECUENCIAS_POR_TICK, 7);
+        return anexarNodoYSecuencia(sb, valor).toString();
+    }
+
+    private static StringBuilder anexarNodoYSecuencia(StringBuilder sb, long valor) {
+        anexarBase36(sb, NODO * (long) SECUENCIAS_POR_TICK + valor % SECUENCIAS_POR_TICK, 4);
+        return sb;
+    }
+
+    /**
+     * Número en base 36 con mayúsculas, rellenado con ceros a la izquierda; con
+     * el largo fijo, el orden alfabético coincide con el numérico
+     */
+    private static void anexarBase36(StringBuilder sb, long numero, int digitos) {
+        char[] texto = new char[digitos];
+        for (int i = digitos - 1; i >= 0; i--) {
+            texto[i] = DIGITOS_BASE36[(int) (numero % 36)];
+            numero /= 36;
+        }
+        sb.append(texto);
+    }
+
+    private static int leerNodo() {
+        String valor = System.getenv("NODO_ID");
+        if (valor == null || valor.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            int nodo = Integer.parseInt(valor.trim());
+            if (nodo < 0 || nodo > 99) {
+                throw new NumberFormatException("fuera de rango");
+            }
+            return nodo;
+        } catch (NumberFormatException e) {
+            logger.warning("Valor inválido para NODO_ID: " + valor + " (debe estar entre 0 y 99). Usando 0");
+            return 0;
+        }
+    }
+}
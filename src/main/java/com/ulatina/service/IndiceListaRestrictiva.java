@@ -0,0 +1,789 @@
+package com.ulatina.service;
+
+import com.ulatina.data.ListaRestrictiva;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Índice en memoria de las entradas activas de lista_restrictiva para revisar
+ * clientes sin ir a la base de datos.
+ *
+ * - Identificación: tabla hash sobre la identificación normalizada (solo
+ *   letras y dígitos), así "1-0234-0567" y "102340567" coinciden.
+ * - Nombre: los nombres se normalizan (mayúsculas, sin tildes ni signos) y se
+ *   separan en palabras. Cada palabra distinta de la lista se guarda bajo las
+ *   variantes que resultan de borrarle tantas letras como ediciones admite
+ *   (SymSpell), y una palabra de la consulta encuentra las parecidas (errores
+ *   de digitación) buscando sus propias variantes, sin recorrer la lista; la
+ *   similitud entre dos palabras es 1 - ediciones / longitud mayor. La
+ *   similitud de un nombre suma la mejor similitud de cada palabra de la
+ *   consulta y la divide entre las palabras de la consulta (el nombre
+ *   consultado está contenido en el de la lista) o, para consultas de una
+ *   palabra, entre el promedio de palabras de ambos. El orden no importa.
+ *
+ * Se carga completo la primera vez que se usa y se recarga cada cierto tiempo
+ * para tomar cambios hechos en otros nodos; las altas y bajas de este nodo se
+ * aplican al momento. Las consultas no toman el bloqueo de carga.
+ *
+ * Configurable con KYC_UMBRAL_SIMILITUD (0 a 1) y KYC_RECARGA_MINUTOS.
+ */
+public final class IndiceListaRestrictiva {
+
+    private static final Logger logger = Logger.getLogger(IndiceListaRestrictiva.class.getName());
+
+    public static final String CRITERIO_IDENTIFICACION = "IDENTIFICACION";
+    public static final String CRITERIO_NOMBRE = "NOMBRE";
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Entrada[] SIN_ENTRADAS = new Entrada[0];
+    private static final Palabra[] SIN_PALABRAS = new Palabra[0];
+
+    /**
+     * Similitud mínima entre dos palabras para que cuenten como la misma con
+     * un error de digitación (una edición cada cuatro letras); por debajo la
+     * palabra no aporta
+     */
+    private static final double SIMILITUD_MINIMA_PALABRA = 0.75;
+
+    /**
+     * Letras que se borran como máximo al generar variantes. Sin tope, una
+     * palabra de 40 letras daría miles de millones; con tres, solo las
+     * palabras de 16 letras o más con cuatro errores o más dejan de coincidir.
+     */
+    private static final int MAXIMO_BORRADOS = 3;
+
+    private static final int MAXIMO_PALABRAS_RECIENTES = 5000;
+
+    private static final double UMBRAL_POR_DEFECTO = 0.8;
+    private static final long RECARGA_POR_DEFECTO_MINUTOS = 10;
+
+    private static volatile IndiceListaRestrictiva instancia;
+
+    private final double umbral;
+    private final long recargaMs;
+    private final ReentrantLock bloqueoCarga = new ReentrantLock();
+
+    private volatile Indice indice;
+    private volatile long proximaRecarga;
+
+    private final AtomicLong consultas = new AtomicLong();
+    private final AtomicLong coincidencias = new AtomicLong();
+    private final AtomicLong recargas = new AtomicLong();
+
+    /**
+     * @param umbral    similitud mínima (0 a 1) para que un nombre coincida
+     * @param recargaMs cada cuánto se vuelve a cargar desde la base de datos
+     */
+    public IndiceListaRestrictiva(double umbral, long recargaMs) {
+        if (umbral <= 0 || umbral > 1) {
+            throw new IllegalArgumentException("El umbral de similitud debe estar entre 0 y 1");
+        }
+        this.umbral = umbral;
+        this.recargaMs = recargaMs;
+    }
+
+    public static IndiceListaRestrictiva getInstancia() {
+        IndiceListaRestrictiva indiceCompartido = instancia;
+        if (indiceCompartido == null) {
+            synchronized (IndiceListaRestrictiva.class) {
+                indiceCompartido = instancia;
+                if (indiceCompartido == null) {
+                    indiceCompartido = new IndiceListaRestrictiva(
+                        leerUmbral(), TimeUnit.MINUTES.toMillis(leerMinutos()));
+                    instancia = indiceCompartido;
+                }
+            }
+        }
+        return indiceCompartido;
+    }
+
+    /**
+     * Carga el índice si todavía no existe o si venció. Mientras un hilo
+     * recarga, los demás siguen consultando la versión anterior.
+     */
+    public void cargarSiVencido(Cargador cargador) throws Exception {
+        if (indice != null && System.currentTimeMillis() < proximaRecarga) {
+            return;
+        }
+
+        if (indice == null) {
+            bloqueoCarga.lock();
+        } else if (!bloqueoCarga.tryLock()) {
+            return;
+        }
+
+        try {
+            if (indice == null || System.currentTimeMillis() >= proximaRecarga) {
+                cargar(cargador.cargar());
+            }
+        } finally {
+            bloqueoCarga.unlock();
+        }
+    }
+
+    /**
+     * Reemplaza el índice con las entradas indicadas
+     */
+    public void cargar(Collection<ListaRestrictiva> entradas) {
+        bloqueoCarga.lock();
+        try {
+            long inicio = System.nanoTime();
+            Indice nuevo = new Indice(entradas);
+
+            indice = nuevo;
+            proximaRecarga = System.currentTimeMillis() + recargaMs;
+            recargas.incrementAndGet();
+            logger.info("Índice de lista restrictiva cargado: " + nuevo.porId.size() + " entradas, " +
+                        nuevo.palabras.size() + " palabras en " +
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio) + " ms");
+        } finally {
+            bloqueoCarga.unlock();
+        }
+    }
+
+    /**
+     * Agrega o reemplaza una entrada recién dada de alta. Si el índice no se
+     * ha cargado, la tomará la primera carga.
+     */
+    public void agregar(ListaRestrictiva item) {
+        bloqueoCarga.lock();
+        try {
+            if (indice != null) {
+                indice.quitar(item.getId());
+                if (item.isActivo()) {
+                    indice.agregar(item);
+                }
+            }
+        } finally {
+            bloqueoCarga.unlock();
+        }
+    }
+
+    /**
+     * Quita una entrada desactivada
+     */
+    public void quitar(int id) {
+        bloqueoCarga.lock();
+        try {
+            if (indice != null) {
+                indice.quitar(id);
+            }
+        } finally {
+            bloqueoCarga.unlock();
+        }
+    }
+
+    /**
+     * Obliga a recargar desde la base de datos en la próxima consulta
+     */
+    public void invalidar() {
+        proximaRecarga = 0;
+    }
+
+    /**
+     * Entradas que coinciden por identificación o por nombre, de mayor a
+     * menor similitud
+     */
+    public List<Coincidencia> buscar(String identificacion, String nombreCompleto) {
+        return buscar(indiceCargado(), identificacion, nombreCompleto);
+    }
+
+    /**
+     * Vista fija de la carga actual: una recarga posterior no la reemplaza,
+     * así un proceso masivo revisa a todos los clientes contra la misma lista.
+     * Las altas y bajas de este nodo sí se ven.
+     */
+    public Instantanea instantanea() {
+        return new Instantanea(indiceCargado());
+    }
+
+    private Indice indiceCargado() {
+        Indice actual = indice;
+        if (actual == null) {
+            throw new IllegalStateException("El índice de lista restrictiva no está cargado");
+        }
+        return actual;
+    }
+
+    private List<Coincidencia> buscar(Indice actual, String identificacion, String nombreCompleto) {
+        consultas.incrementAndGet();
+
+        Map<Integer, Coincidencia> encontradas = new LinkedHashMap<>();
+
+        String clave = normalizarIdentificacion(identificacion);
+        if (!clave.isEmpty()) {
+            Entrada entrada = actual.porIdentificacion.get(clave);
+            if (entrada != null) {
+                encontradas.put(entrada.item.getId(), new Coincidencia(entrada.item, 1.0, CRITERIO_IDENTIFICACION));
+            }
+        }
+
+        List<String> consulta = new ArrayList<>(new LinkedHashSet<>(palabras(nombreCompleto)));
+        if (!consulta.isEmpty()) {
+            buscarPorNombre(actual, consulta, encontradas);
+        }
+
+        List<Coincidencia> resultado = new ArrayList<>(encontradas.values());
+        resultado.sort((a, b) -> Double.compare(b.similitud, a.similitud));
+        if (!resultado.isEmpty()) {
+            coincidencias.incrementAndGet();
+        }
+        return resultado;
+    }
+
+    private void buscarPorNombre(Indice actual, List<String> consulta, Map<Integer, Coincidencia> encontradas) {
+        int total = consulta.size();
+
+        // Palabras de la lista parecidas a cada palabra de la consulta
+        List<Map<Palabra, Double>> parecidas = new ArrayList<>(total);
+        for (String palabra : consulta) {
+            parecidas.add(actual.parecidas(palabra));
+        }
+
+        // Una entrada necesita al menos "minimo" palabras en común para llegar al
+        // umbral, así que contiene alguna de las (total - minimo + 1) palabras de
+        // la consulta con menos entradas. Solo esas se recorren.
+        Integer[] orden = new Integer[total];
+        long[] frecuencia = new long[total];
+        for (int i = 0; i < total; i++) {
+            orden[i] = i;
+            for (Palabra palabra : parecidas.get(i).keySet()) {
+                frecuencia[i] += palabra.entradas.length;
+            }
+        }
+        Arrays.sort(orden, (a, b) -> Long.compare(frecuencia[a], frecuencia[b]));
+
+        int minimo = Math.max(1, (int) Math.ceil(umbral * total / (2 - umbral) - 1e-9));
+        // Una consulta de una palabra solo alcanza el umbral contra nombres cortos
+        int maximoPalabras = total == 1 ? (int) Math.floor(2 / umbral - 1 + 1e-9) : Integer.MAX_VALUE;
+        Set<Entrada> candidatas = new HashSet<>();
+        for (int i = 0; i < total - minimo + 1; i++) {
+            for (Palabra palabra : parecidas.get(orden[i]).keySet()) {
+                for (Entrada entrada : palabra.entradas) {
+                    if (entrada.palabras.length <= maximoPalabras) {
+                        candidatas.add(entrada);
+                    }
+                }
+            }
+        }
+
+        for (Entrada entrada : candidatas) {
+            double suma = 0;
+            for (Map<Palabra, Double> similares : parecidas) {
+                double mejor = 0;
+                for (Palabra palabra : entrada.palabras) {
+                    Double similitud = similares.get(palabra);
+                    if (similitud != null && similitud > mejor) {
+                        mejor = similitud;
+                    }
+                }
+                suma += mejor;
+            }
+
+            double similitud = 2 * suma / (total + entrada.palabras.length);
+            if (total >= 2) {
+                similitud = Math.max(similitud, suma / total);
+            }
+            if (similitud >= umbral && !encontradas.containsKey(entrada.item.getId())) {
+                encontradas.put(entrada.item.getId(), new Coincidencia(entrada.item, similitud, CRITERIO_NOMBRE));
+            }
+        }
+    }
+
+    public boolean estaCargado() {
+        return indice != null;
+    }
+
+    public Map<String, Object> obtenerMetricas() {
+        Indice actual = indice;
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("cargado", actual != null);
+        metricas.put("entradas", actual != null ? actual.porId.size() : 0);
+        metricas.put("palabras", actual != null ? actual.palabras.size() : 0);
+        metricas.put("umbral", umbral);
+        metricas.put("consultas", consultas.get());
+        metricas.put("conCoincidencias", coincidencias.get());
+        metricas.put("recargas", recargas.get());
+        return metricas;
+    }
+
+    /**
+     * Identificación sin separadores ni espacios, en mayúsculas
+     */
+    public static String normalizarIdentificacion(String identificacion) {
+        if (identificacion == null) {
+            return "";
+        }
+        StringBuilder clave = new StringBuilder(identificacion.length());
+        for (int i = 0; i < identificacion.length(); i++) {
+            char c = identificacion.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                clave.append(Character.toUpperCase(c));
+            }
+        }
+        return clave.toString();
+    }
+
+    /**
+     * Palabras del nombre en mayúsculas, sin tildes ni signos
+     */
+    static List<String> palabras(String nombre) {
+        List<String> palabras = new ArrayList<>();
+        if (nombre == null || nombre.trim().isEmpty()) {
+            return palabras;
+        }
+
+        String sinTildes = MARCAS.matcher(Normalizer.normalize(nombre, Normalizer.Form.NFD)).replaceAll("");
+        for (String palabra : SEPARADORES.split(sinTildes.toUpperCase())) {
+            if (!palabra.isEmpty()) {
+                palabras.add(palabra);
+            }
+        }
+        return palabras;
+    }
+
+    /**
+     * Huellas de las variantes de la palabra: la palabra y cada forma que
+     * resulta de borrarle hasta edicionesPermitidas(longitud) letras, sin
+     * pasar de MAXIMO_BORRADOS. Dos palabras a d ediciones comparten una
+     * variante borrando a lo sumo d letras de cada una, y la más corta
+     * necesita d menos la diferencia de longitud, así que este número de
+     * borrados alcanza para ambas. Cada variante va codificada en un long y el
+     * arreglo queda ordenado y sin repetidos ("LL" da la misma variante al
+     * borrar cualquiera de las dos).
+     */
+    static long[] variantes(String palabra) {
+        char[] letras = palabra.toCharArray();
+        int maximo = Math.min(edicionesPermitidas(letras.length), MAXIMO_BORRADOS);
+
+        int total = 0;
+        long combinaciones = 1;
+        for (int borradas = 0; borradas <= maximo; borradas++) {
+            total += combinaciones;
+            combinaciones = combinaciones * (letras.length - borradas) / (borradas + 1);
+        }
+
+        long[] variantes = new long[total];
+        borrar(letras, new boolean[letras.length], 0, maximo, variantes, 0);
+        Arrays.sort(variantes);
+
+        int distintas = 0;
+        for (int i = 0; i < variantes.length; i++) {
+            if (i == 0 || variantes[i] != variantes[i - 1]) {
+                variantes[distintas++] = variantes[i];
+            }
+        }
+        return Arrays.copyOf(variantes, distintas);
+    }
+
+    /**
+     * Agrega la variante actual y las que resultan de borrar además una letra
+     * en una posición desde "desde" en adelante
+     */
+    private static int borrar(char[] letras, boolean[] borradas, int desde, int restantes,
+                              long[] variantes, int generadas) {
+        variantes[generadas++] = huella(letras, borradas);
+        if (restantes == 0) {
+            return generadas;
+        }
+        for (int i = desde; i < letras.length; i++) {
+            borradas[i] = true;
+            generadas = borrar(letras, borradas, i + 1, restantes - 1, variantes, generadas);
+            borradas[i] = false;
+        }
+        return generadas;
+    }
+
+    /**
+     * FNV-1a de las letras que quedan, mezclado para repartir también los
+     * bits altos. Dos variantes distintas con la misma huella solo agregan una
+     * candidata que la distancia de edición descarta.
+     */
+    private static long huella(char[] letras, boolean[] borradas) {
+        long huella = 0xcbf29ce484222325L;
+        for (int i = 0; i < letras.length; i++) {
+            if (!borradas[i]) {
+                huella = (huella ^ letras[i]) * 0x100000001b3L;
+            }
+        }
+        huella ^= huella >>> 33;
+        huella *= 0xff51afd7ed558ccdL;
+        return huella ^ (huella >>> 33);
+    }
+
+    /**
+     * Ediciones que admite una palabra de la longitud dada sin bajar de
+     * SIMILITUD_MINIMA_PALABRA
+     */
+    private static int edicionesPermitidas(int longitud) {
+        return (int) Math.floor(longitud * (1 - SIMILITUD_MINIMA_PALABRA) + 1e-9);
+    }
+
+    /**
+     * Distancia de edición (inserciones, borrados y sustituciones)
+     */
+    static int distancia(String a, String b) {
+        int[] anterior = new int[b.length() + 1];
+        int[] actual = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            anterior[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            actual[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int sustitucion = anterior[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                actual[j] = Math.min(sustitucion, Math.min(anterior[j], actual[j - 1]) + 1);
+            }
+            int[] intercambio = anterior;
+            anterior = actual;
+            actual = intercambio;
+        }
+        return anterior[b.length()];
+    }
+
+    private static double leerUmbral() {
+        String valor = System.getenv("KYC_UMBRAL_SIMILITUD");
+        try {
+            return valor != null ? Double.parseDouble(valor.trim()) : UMBRAL_POR_DEFECTO;
+        } catch (NumberFormatException e) {
+            logger.warning("KYC_UMBRAL_SIMILITUD inválido: " + valor);
+            return UMBRAL_POR_DEFECTO;
+        }
+    }
+
+    private static long leerMinutos() {
+        String valor = System.getenv("KYC_RECARGA_MINUTOS");
+        try {
+            return valor != null ? Long.parseLong(valor.trim()) : RECARGA_POR_DEFECTO_MINUTOS;
+        } catch (NumberFormatException e) {
+            logger.warning("KYC_RECARGA_MINUTOS inválido: " + valor);
+            return RECARGA_POR_DEFECTO_MINUTOS;
+        }
+    }
+
+    /**
+     * Fuente de las entradas activas para la carga completa
+     */
+    @FunctionalInterface
+    public interface Cargador {
+        Collection<ListaRestrictiva> cargar() throws Exception;
+    }
+
+    /**
+     * Búsquedas sobre una carga fija del índice (ver instantanea())
+     */
+    public final class Instantanea {
+        private final Indice fijo;
+
+        private Instantanea(Indice fijo) {
+            this.fijo = fijo;
+        }
+
+        public List<Coincidencia> buscar(String identificacion, String nombreCompleto) {
+            return IndiceListaRestrictiva.this.buscar(fijo, identificacion, nombreCompleto);
+        }
+
+        public int getEntradas() {
+            return fijo.porId.size();
+        }
+    }
+
+    /**
+     * Entrada de la lista que coincidió y con qué similitud
+     */
+    public static final class Coincidencia {
+        private final ListaRestrictiva entrada;
+        private final double similitud;
+        private final String criterio;
+
+        private Coincidencia(ListaRestrictiva entrada, double similitud, String criterio) {
+            this.entrada = entrada;
+            this.similitud = similitud;
+            this.criterio = criterio;
+        }
+
+        public ListaRestrictiva getEntrada() {
+            return entrada;
+        }
+
+        public double getSimilitud() {
+            return similitud;
+        }
+
+        public String getCriterio() {
+            return criterio;
+        }
+    }
+
+    /**
+     * Palabra distinta de los nombres de la lista y las entradas que la usan
+     */
+    private static final class Palabra {
+        private final String texto;
+        private volatile Entrada[] entradas = SIN_ENTRADAS;
+
+        private Palabra(String texto) {
+            this.texto = texto;
+        }
+    }
+
+    private static final class Entrada {
+        private final ListaRestrictiva item;
+        private final String identificacion;
+        private final Palabra[] palabras;
+
+        private Entrada(ListaRestrictiva item, Palabra[] palabras) {
+            this.item = item;
+            this.identificacion = normalizarIdentificacion(item.getIdentificacion());
+            this.palabras = palabras;
+        }
+    }
+
+    /**
+     * Estructuras del índice. Las escrituras se hacen con bloqueoCarga tomado;
+     * las lecturas pueden ocurrir en paralelo. Las listas de entradas y de
+     * palabras son arreglos que no se modifican: un cambio reemplaza el arreglo.
+     */
+    private static final class Indice {
+        private final Map<Integer, Entrada> porId = new ConcurrentHashMap<>();
+        private final Map<String, Entrada> porIdentificacion = new ConcurrentHashMap<>();
+        private final Map<String, Palabra> palabras = new ConcurrentHashMap<>();
+
+        /**
+         * Variantes de las palabras de la carga completa, en una tabla hash de
+         * direccionamiento abierto sin objetos por variante. Cada long lleva la
+         * huella de la variante en los bits altos y el número de la palabra en
+         * vocabulario más uno en los bajos (mascaraNumero); 0 es una celda
+         * libre. Una búsqueda recorre desde la celda de la huella hasta la
+         * primera libre, unas pocas celdas contiguas.
+         * Las palabras que entran después de la carga van en agregadas; las
+         * que salen quedan aquí sin entradas hasta la próxima carga.
+         */
+        private final long[] variantes;
+        private final int desplazamiento;
+        private final Palabra[] vocabulario;
+        private final long mascaraNumero;
+        private final Map<Long, Palabra[]> agregadas = new ConcurrentHashMap<>();
+
+        /**
+         * Palabras parecidas ya calculadas para las palabras consultadas más
+         * recientemente (nombres y apellidos comunes), en orden LRU. Solo
+         * dependen del vocabulario: cada vez que entra o sale una palabra
+         * cambia la versión y lo guardado con otra versión se descarta.
+         */
+        private final Map<String, Parecidas> recientes = Collections.synchronizedMap(
+            new LinkedHashMap<String, Parecidas>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Parecidas> eldest) {
+                    return size() > MAXIMO_PALABRAS_RECIENTES;
+                }
+            });
+        private volatile long version;
+
+        /**
+         * Carga completa: arma las listas de una vez en lugar de copiar los
+         * arreglos con cada entrada
+         */
+        private Indice(Collection<ListaRestrictiva> items) {
+            Map<Palabra, List<Entrada>> entradasPorPalabra = new LinkedHashMap<>();
+            for (ListaRestrictiva item : items) {
+                if (!item.isActivo()) {
+                    continue;
+                }
+                Set<Palabra> propias = new LinkedHashSet<>();
+                for (String texto : palabras(item.getNombreCompleto())) {
+                    propias.add(palabras.computeIfAbsent(texto, Palabra::new));
+                }
+
+                Entrada entrada = new Entrada(item, propias.toArray(SIN_PALABRAS));
+                Entrada anterior = porId.put(item.getId(), entrada);
+                if (anterior != null) {
+                    porIdentificacion.remove(anterior.identificacion, anterior);
+                    for (Palabra palabra : anterior.palabras) {
+                        entradasPorPalabra.get(palabra).remove(anterior);
+                    }
+                }
+                if (!entrada.identificacion.isEmpty()) {
+                    porIdentificacion.put(entrada.identificacion, entrada);
+                }
+                for (Palabra palabra : entrada.palabras) {
+                    entradasPorPalabra.computeIfAbsent(palabra, p -> new ArrayList<>()).add(entrada);
+                }
+            }
+
+            List<Palabra> usadas = new ArrayList<>(entradasPorPalabra.size());
+            for (Map.Entry<Palabra, List<Entrada>> palabra : entradasPorPalabra.entrySet()) {
+                if (palabra.getValue().isEmpty()) {
+                    palabras.remove(palabra.getKey().texto);
+                } else {
+                    palabra.getKey().entradas = palabra.getValue().toArray(SIN_ENTRADAS);
+                    usadas.add(palabra.getKey());
+                }
+            }
+            vocabulario = usadas.toArray(SIN_PALABRAS);
+            mascaraNumero = (1L << (32 - Integer.numberOfLeadingZeros(vocabulario.length + 1))) - 1;
+
+            long[][] porPalabra = new long[vocabulario.length][];
+            int total = 0;
+            for (int numero = 0; numero < vocabulario.length; numero++) {
+                porPalabra[numero] = variantes(vocabulario[numero].texto);
+                total += porPalabra[numero].length;
+            }
+
+            // A lo sumo media tabla ocupada
+            int bits = Math.max(4, 33 - Integer.numberOfLeadingZeros(total));
+            variantes = new long[1 << bits];
+            desplazamiento = 64 - bits;
+            for (int numero = 0; numero < vocabulario.length; numero++) {
+                for (long huella : porPalabra[numero]) {
+                    int celda = (int) (huella >>> desplazamiento);
+                    while (variantes[celda] != 0) {
+                        celda = (celda + 1) & (variantes.length - 1);
+                    }
+                    variantes[celda] = (huella & ~mascaraNumero) | (numero + 1);
+                }
+            }
+        }
+
+        private Map<Palabra, Double> parecidas(String texto) {
+            long vigente = version;
+            Parecidas guardadas = recientes.get(texto);
+            if (guardadas != null && guardadas.version == vigente) {
+                return guardadas.palabras;
+            }
+
+            Map<Palabra, Double> parecidas = buscarParecidas(texto);
+            recientes.put(texto, new Parecidas(vigente, parecidas));
+            return parecidas;
+        }
+
+        /**
+         * Palabras de la lista cuya similitud con la palabra dada alcanza
+         * SIMILITUD_MINIMA_PALABRA. Toda palabra parecida comparte con la
+         * consulta alguna variante (ver variantes()), así que basta con buscar
+         * las variantes de la consulta y medir la distancia a las pocas
+         * palabras que aparecen.
+         */
+        private Map<Palabra, Double> buscarParecidas(String texto) {
+            Map<Palabra, Double> parecidas = new HashMap<>();
+            Set<Palabra> revisadas = new HashSet<>();
+            for (long huella : variantes(texto)) {
+                long clave = huella & ~mascaraNumero;
+                for (int celda = (int) (huella >>> desplazamiento); variantes[celda] != 0;
+                     celda = (celda + 1) & (variantes.length - 1)) {
+                    if ((variantes[celda] & ~mascaraNumero) == clave) {
+                        int numero = (int) (variantes[celda] & mascaraNumero) - 1;
+                        comparar(texto, vocabulario[numero], revisadas, parecidas);
+                    }
+                }
+                for (Palabra palabra : agregadas.getOrDefault(clave, SIN_PALABRAS)) {
+                    comparar(texto, palabra, revisadas, parecidas);
+                }
+            }
+            return parecidas;
+        }
+
+        private static void comparar(String texto, Palabra palabra, Set<Palabra> revisadas,
+                                     Map<Palabra, Double> parecidas) {
+            // Sin entradas: salió del índice después de la carga
+            if (palabra.entradas.length == 0 || !revisadas.add(palabra)) {
+                return;
+            }
+            int mayor = Math.max(texto.length(), palabra.texto.length());
+            int ediciones = edicionesPermitidas(mayor);
+            if (Math.abs(texto.length() - palabra.texto.length()) > ediciones) {
+                return;
+            }
+
+            int distancia = distancia(texto, palabra.texto);
+            if (distancia <= ediciones) {
+                parecidas.put(palabra, 1.0 - (double) distancia / mayor);
+            }
+        }
+
+        private void agregar(ListaRestrictiva item) {
+            Set<Palabra> propias = new LinkedHashSet<>();
+            for (String texto : palabras(item.getNombreCompleto())) {
+                propias.add(palabras.computeIfAbsent(texto, this::nuevaPalabra));
+            }
+
+            Entrada entrada = new Entrada(item, propias.toArray(SIN_PALABRAS));
+            porId.put(item.getId(), entrada);
+            if (!entrada.identificacion.isEmpty()) {
+                porIdentificacion.put(entrada.identificacion, entrada);
+            }
+            for (Palabra palabra : entrada.palabras) {
+                Entrada[] actuales = palabra.entradas;
+                Entrada[] copia = Arrays.copyOf(actuales, actuales.length + 1);
+                copia[actuales.length] = entrada;
+                palabra.entradas = copia;
+            }
+        }
+
+        private Palabra nuevaPalabra(String texto) {
+            Palabra palabra = new Palabra(texto);
+            for (long huella : variantes(texto)) {
+                agregadas.merge(huella & ~mascaraNumero, new Palabra[] {palabra}, (actuales, nueva) -> {
+                    Palabra[] copia = Arrays.copyOf(actuales, actuales.length + 1);
+                    copia[actuales.length] = palabra;
+                    return copia;
+                });
+            }
+            version++;
+            return palabra;
+        }
+
+        private void quitar(int id) {
+            Entrada entrada = porId.remove(id);
+            if (entrada == null) {
+                return;
+            }
+            porIdentificacion.remove(entrada.identificacion, entrada);
+
+            for (Palabra palabra : entrada.palabras) {
+                palabra.entradas = Arrays.stream(palabra.entradas).filter(e -> e != entrada).toArray(Entrada[]::new);
+                if (palabra.entradas.length > 0) {
+                    continue;
+                }
+
+                // Palabra sin entradas: sale del índice
+                palabras.remove(palabra.texto, palabra);
+                for (long huella : variantes(palabra.texto)) {
+                    agregadas.computeIfPresent(huella & ~mascaraNumero, (clave, actuales) -> {
+                        Palabra[] copia = Arrays.stream(actuales).filter(p -> p != palabra).toArray(Palabra[]::new);
+                        return copia.length > 0 ? copia : null;
+                    });
+                }
+                version++;
+            }
+        }
+    }
+
+    private static final class Parecidas {
+        private final long version;
+        private final Map<Palabra, Double> palabras;
+
+        private Parecidas(long version, Map<Palabra, Double> palabras) {
+            this.version = version;
+            this.palabras = palabras;
+        }
+    }
+}
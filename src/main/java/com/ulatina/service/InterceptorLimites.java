@@ -21,67 +21,93 @@ public class InterceptorLimites {
     @Inject
     private ServicioLimite servicioLimite;
 
+    @Inject
+    private ServicioUsoLimite servicioUsoLimite;
+
     @Inject
     private ServicioAlerta servicioAlerta;
 
+    @Inject
+    private PublicadorAlertas publicadorAlertas;
+
     /**
-     * Intercepta las operaciones de transacción para verificar límites
+     * Intercepta las operaciones de transacción para verificar límites. El monto
+     * se reserva contra el acumulado del periodo antes de ejecutar la operación
+     * y se libera si la operación falla.
      */
     @AroundInvoke
     public Object verificarLimites(InvocationContext context) throws Exception {
         String methodName = context.getMethod().getName();
 
         // Solo interceptar métodos de transacción
-        if (methodName.contains("transferir") || methodName.contains("retirar") ||
-            methodName.contains("pagar") || methodName.contains("comprar")) {
-
-            try {
-                // Extraer parámetros de la transacción
-                Object[] parameters = context.getParameters();
-                String numeroCuenta = null;
-                BigDecimal monto = null;
-                LimiteTransaccion.TipoLimite tipoTransaccion = null;
-
-                // Determinar parámetros según el método
-                if (parameters.length >= 2) {
-                    if (parameters[0] instanceof String) {
-                        numeroCuenta = (String) parameters[0];
-                    }
-                    if (parameters[1] instanceof BigDecimal) {
-                        monto = (BigDecimal) parameters[1];
-                    }
-                }
-
-                // Determinar tipo de transacción por el nombre del método
-                tipoTransaccion = determinarTipoTransaccion(methodName);
-
-                if (numeroCuenta != null && monto != null && tipoTransaccion != null) {
-                    // Verificar límites antes de proceder
-                    boolean limiteCumplido = servicioLimite.verificarLimite(numeroCuenta, tipoTransaccion, monto);
-
-                    if (!limiteCumplido) {
-                        LimiteTransaccion limite = servicioLimite.buscarLimitePorTipo(numeroCuenta, tipoTransaccion);
-                        servicioAlerta.generarAlertaLimiteExcedido(numeroCuenta, tipoTransaccion, monto, limite.getMontoLimite());
-
-                        throw new RuntimeException("Transacción rechazada: Límite " + tipoTransaccion + " excedido. " +
-                                                 "Monto: ₡" + monto + ", Límite: ₡" + limite.getMontoLimite());
-                    }
-
-                    // Verificar proximidad al límite
-                    if (servicioLimite.estaProximoAlLimite(numeroCuenta, tipoTransaccion, monto, 80)) {
-                        LimiteTransaccion limite = servicioLimite.buscarLimitePorTipo(numeroCuenta, tipoTransaccion);
-                        servicioAlerta.generarAlertaProximidadLimite(numeroCuenta, tipoTransaccion, monto,
-                                                                   limite.getMontoLimite(), 80);
-                    }
-                }
-
-            } catch (Exception e) {
-                logger.warning("Error en interceptor de límites: " + e.getMessage());
+        if (!(methodName.contains("transferir") || methodName.contains("retirar") ||
+              methodName.contains("pagar") || methodName.contains("comprar"))) {
+            return context.proceed();
+        }
+
+        // Extraer parámetros de la transacción
+        Object[] parameters = context.getParameters();
+        String numeroCuenta = null;
+        BigDecimal monto = null;
+
+        // Determinar parámetros según el método
+        if (parameters.length >= 2) {
+            if (parameters[0] instanceof String) {
+                numeroCuenta = (String) parameters[0];
+            }
+            if (parameters[1] instanceof BigDecimal) {
+                monto = (BigDecimal) parameters[1];
             }
         }
 
-        // Proceder con la ejecución normal del método
-        return context.proceed();
+        // Determinar tipo de transacción por el nombre del método
+        LimiteTransaccion.TipoLimite tipoTransaccion = determinarTipoTransaccion(methodName);
+
+        if (numeroCuenta == null || monto == null || tipoTransaccion == null) {
+            return context.proceed();
+        }
+
+        ServicioUsoLimite.Reserva reserva = null;
+        try {
+            // Cargar el límite una sola vez (desde la caché) y reservar contra el acumulado del periodo
+            LimiteTransaccion limite = servicioLimite.buscarLimitePorTipo(numeroCuenta, tipoTransaccion);
+            reserva = servicioUsoLimite.reservar(limite, monto);
+        } catch (Exception e) {
+            logger.warning("Error en interceptor de límites: " + e.getMessage());
+        }
+
+        if (reserva != null && !reserva.isAceptada()) {
+            LimiteTransaccion limite = reserva.getLimite();
+            publicadorAlertas.publicar(
+                servicioAlerta.alertaLimiteExcedido(numeroCuenta, tipoTransaccion, monto, limite.getMontoLimite()));
+
+            throw new RuntimeException("Transacción rechazada: Límite " + tipoTransaccion + " " + limite.getPeriodo() +
+                                       " excedido. Monto: ₡" + monto + ", Disponible: ₡" + reserva.getDisponible() +
+                                       ", Límite: ₡" + limite.getMontoLimite());
+        }
+
+        Object resultado;
+        try {
+            resultado = context.proceed();
+        } catch (Exception e) {
+            servicioUsoLimite.liberar(reserva);
+            throw e;
+        }
+
+        // Operaciones que informan el rechazo devolviendo false (por ejemplo saldo insuficiente)
+        if (Boolean.FALSE.equals(resultado)) {
+            servicioUsoLimite.liberar(reserva);
+            return resultado;
+        }
+
+        // Verificar proximidad al límite con el acumulado del periodo (la alerta se escribe en segundo plano)
+        if (reserva != null && reserva.getPorcentajeUsado() >= 80) {
+            publicadorAlertas.publicar(
+                servicioAlerta.alertaProximidadLimite(numeroCuenta, tipoTransaccion, monto,
+                                                      reserva.getLimite().getMontoLimite(), 80));
+        }
+
+        return resultado;
     }
 
     /**
@@ -0,0 +1,255 @@
+package com.ulatina.service;
+
+import com.ulatina.data.ListaRestrictiva;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Lectura en flujo de archivos de lista restrictiva (CSV o XML). Entrega las
+ * entradas una por una a un Destino, así un archivo de decenas de miles de
+ * registros no se carga completo en memoria.
+ *
+ * - CSV: la primera fila es el encabezado; separador coma o punto y coma
+ *   (se detecta en el encabezado) y comillas dobles para campos con
+ *   separadores, comillas o saltos de línea.
+ * - XML: cada elemento "entrada" es un registro y sus elementos hijos son
+ *   los campos.
+ *
+ * Los nombres de campo se comparan sin mayúsculas, tildes, espacios ni guiones
+ * bajos: identificacion (o documento), nombreCompleto (o nombre),
+ * motivoInclusion (o motivo) y observaciones. Los demás se ignoran.
+ */
+public class LectorListaRestrictiva {
+
+    public static final String FORMATO_CSV = "CSV";
+    public static final String FORMATO_XML = "XML";
+
+    private static final String ELEMENTO_ENTRADA = "entrada";
+
+    private static final Map<String, String> CAMPOS = new HashMap<>();
+
+    static {
+        CAMPOS.put("identificacion", "identificacion");
+        CAMPOS.put("documento", "identificacion");
+        CAMPOS.put("nombrecompleto", "nombreCompleto");
+        CAMPOS.put("nombre", "nombreCompleto");
+        CAMPOS.put("motivoinclusion", "motivoInclusion");
+        CAMPOS.put("motivo", "motivoInclusion");
+        CAMPOS.put("observaciones", "observaciones");
+    }
+
+    /**
+     * Recibe cada entrada leída del archivo
+     */
+    @FunctionalInterface
+    public interface Destino {
+        void recibir(ListaRestrictiva item) throws Exception;
+    }
+
+    /**
+     * Lee el archivo completo en el formato indicado
+     *
+     * @return registros leídos
+     */
+    public long leer(InputStream archivo, String formato, Destino destino) throws Exception {
+        if (formato == null) {
+            throw new IllegalArgumentException("El formato del archivo es requerido");
+        }
+        switch (formato.trim().toUpperCase()) {
+            case FORMATO_CSV:
+                return leerCsv(new InputStreamReader(archivo, StandardCharsets.UTF_8), destino);
+            case FORMATO_XML:
+                return leerXml(archivo, destino);
+            default:
+                throw new IllegalArgumentException("Formato no soportado: " + formato);
+        }
+    }
+
+    private long leerCsv(Reader origen, Destino destino) throws Exception {
+        BufferedReader lector = new BufferedReader(origen, 64 * 1024);
+
+        String encabezado = lector.readLine();
+        if (encabezado == null) {
+            return 0;
+        }
+        if (encabezado.startsWith("\uFEFF")) {
+            encabezado = encabezado.substring(1);
+        }
+        char separador = encabezado.indexOf(';') >= 0 && encabezado.indexOf(',') < 0 ? ';' : ',';
+
+        List<String> nombres = new ArrayList<>();
+        for (String nombre : dividir(encabezado, separador)) {
+            nombres.add(CAMPOS.get(normalizarCampo(nombre)));
+        }
+        if (!nombres.contains("identificacion") || !nombres.contains("nombreCompleto")) {
+            throw new IllegalArgumentException("El encabezado debe incluir identificación y nombre completo");
+        }
+
+        long registros = 0;
+        List<String> valores;
+        while ((valores = siguienteFila(lector, separador)) != null) {
+            if (valores.size() == 1 && valores.get(0).trim().isEmpty()) {
+                continue;
+            }
+
+            Map<String, String> campos = new HashMap<>();
+            for (int i = 0; i < valores.size() && i < nombres.size(); i++) {
+                if (nombres.get(i) != null) {
+                    campos.put(nombres.get(i), valores.get(i));
+                }
+            }
+            destino.recibir(crearEntrada(campos));
+            registros++;
+        }
+        return registros;
+    }
+
+    /**
+     * Siguiente fila del CSV; un campo entre comillas puede ocupar varias líneas
+     */
+    private List<String> siguienteFila(BufferedReader lector, char separador) throws IOException {
+        String linea = lector.readLine();
+        if (linea == null) {
+            return null;
+        }
+
+        List<String> valores = new ArrayList<>();
+        StringBuilder valor = new StringBuilder();
+        boolean entreComillas = false;
+
+        while (true) {
+            for (int i = 0; i < linea.length(); i++) {
+                char c = linea.charAt(i);
+                if (entreComillas) {
+                    if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                        valor.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        entreComillas = false;
+                    } else {
+                        valor.append(c);
+                    }
+                } else if (c == '"') {
+                    entreComillas = true;
+                } else if (c == separador) {
+                    valores.add(valor.toString());
+                    valor.setLength(0);
+                } else {
+                    valor.append(c);
+                }
+            }
+
+            if (!entreComillas) {
+                break;
+            }
+            linea = lector.readLine();
+            if (linea == null) {
+                throw new IllegalArgumentException("El archivo termina dentro de un campo entre comillas");
+            }
+            valor.append('\n');
+        }
+
+        valores.add(valor.toString());
+        return valores;
+    }
+
+    private List<String> dividir(String linea, char separador) throws IOException {
+        return siguienteFila(new BufferedReader(new StringReader(linea)), separador);
+    }
+
+    private long leerXml(InputStream archivo, Destino destino) throws Exception {
+        XMLInputFactory fabrica = XMLInputFactory.newInstance();
+        // Los archivos vienen de afuera: sin DTD ni entidades externas
+        fabrica.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        fabrica.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        XMLStreamReader xml = fabrica.createXMLStreamReader(archivo);
+        long registros = 0;
+        try {
+            Map<String, String> campos = null;
+            String campo = null;
+            StringBuilder texto = new StringBuilder();
+
+            while (xml.hasNext()) {
+                switch (xml.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (ELEMENTO_ENTRADA.equalsIgnoreCase(xml.getLocalName())) {
+                            campos = new HashMap<>();
+                        } else if (campos != null) {
+                            campo = CAMPOS.get(normalizarCampo(xml.getLocalName()));
+                            texto.setLength(0);
+                        }
+                        break;
+
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        if (campo != null) {
+                            texto.append(xml.getText());
+                        }
+                        break;
+
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (ELEMENTO_ENTRADA.equalsIgnoreCase(xml.getLocalName()) && campos != null) {
+                            destino.recibir(crearEntrada(campos));
+                            registros++;
+                            campos = null;
+                        } else if (campo != null) {
+                            campos.put(campo, texto.toString());
+                            campo = null;
+                        }
+                        break;
+
+                    default:
+                        break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("XML inválido: " + e.getMessage(), e);
+        } finally {
+            xml.close();
+        }
+        return registros;
+    }
+
+    private ListaRestrictiva crearEntrada(Map<String, String> campos) {
+        ListaRestrictiva item = new ListaRestrictiva();
+        item.setIdentificacion(limpiar(campos.get("identificacion")));
+        item.setNombreCompleto(limpiar(campos.get("nombreCompleto")));
+        item.setMotivoInclusion(limpiar(campos.get("motivoInclusion")));
+        item.setObservaciones(limpiar(campos.get("observaciones")));
+        item.setActivo(true);
+        return item;
+    }
+
+    /**
+     * Recorta y colapsa espacios; null si queda vacío
+     */
+    private static String limpiar(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        String limpio = valor.trim().replaceAll("\\s+", " ");
+        return limpio.isEmpty() ? null : limpio;
+    }
+
+    private static String normalizarCampo(String nombre) {
+        return Normalizer.normalize(nombre.trim(), Normalizer.Form.NFD)
+            .replaceAll("\\p{M}+", "")
+            .replaceAll("[\\s_-]+", "")
+            .toLowerCase();
+    }
+}
@@ -0,0 +1,58 @@
+package com.ulatina.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cubeta de fichas (token bucket): permite ráfagas de hasta "capacidad" envíos
+ * y luego un ritmo sostenido de "porSegundo" envíos por segundo.
+ */
+public final class LimitadorTasa {
+
+    private final double porNano;
+    private final double capacidad;
+    private double fichas;
+    private long ultimaRecarga;
+
+    public LimitadorTasa(double porSegundo, int capacidad) {
+        if (porSegundo <= 0 || capacidad <= 0) {
+            throw new IllegalArgumentException("La tasa y la capacidad deben ser mayores que cero");
+        }
+        this.porNano = porSegundo / TimeUnit.SECONDS.toNanos(1);
+        this.capacidad = capacidad;
+        this.fichas = capacidad;
+        this.ultimaRecarga = System.nanoTime();
+    }
+
+    /**
+     * Toma una ficha, esperando lo necesario hasta el tiempo máximo indicado
+     *
+     * @return false si no hubo ficha disponible dentro del tiempo máximo
+     */
+    public boolean adquirir(long espera, TimeUnit unidad) throws InterruptedException {
+        long limite = System.nanoTime() + unidad.toNanos(espera);
+
+        while (true) {
+            long faltante;
+            synchronized (this) {
+                recargar();
+                if (fichas >= 1) {
+                    fichas -= 1;
+                    return true;
+                }
+                faltante = (long) Math.ceil((1 - fichas) / porNano);
+            }
+
+            long restante = limite - System.nanoTime();
+            if (restante <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.min(faltante, restante));
+        }
+    }
+
+    private void recargar() {
+        long ahora = System.nanoTime();
+        fichas = Math.min(capacidad, fichas + (ahora - ultimaRecarga) * porNano);
+        ultimaRecarga = ahora;
+    }
+}
@@ -0,0 +1,116 @@
+package com.ulatina.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bloqueo por cuenta con franjas (lock striping). Cada número de cuenta se
+ * asigna a una de N franjas por su hash; operaciones sobre cuentas de franjas
+ * distintas avanzan en paralelo y solo compiten las que comparten franja.
+ *
+ * Las dos franjas de una transferencia se toman siempre en orden de índice, de
+ * modo que A->B y B->A no pueden bloquearse mutuamente. Si ambas cuentas caen
+ * en la misma franja se toma una sola vez. Cada adquisición usa tryLock con
+ * tiempo máximo; si se agota se liberan las franjas ya tomadas.
+ */
+public final class MotorBloqueoCuentas {
+
+    private final ReentrantLock[] franjas;
+    private final int mascara;
+
+    private final AtomicLong adquisiciones = new AtomicLong();
+    private final AtomicLong esperasAgotadas = new AtomicLong();
+
+    /**
+     * @param cantidadFranjas se redondea a la siguiente potencia de dos
+     */
+    public MotorBloqueoCuentas(int cantidadFranjas) {
+        if (cantidadFranjas <= 0) {
+            throw new IllegalArgumentException("La cantidad de franjas debe ser mayor que cero");
+        }
+
+        int tamano = Integer.highestOneBit(cantidadFranjas);
+        if (tamano < cantidadFranjas) {
+            tamano <<= 1;
+        }
+
+        franjas = new ReentrantLock[tamano];
+        for (int i = 0; i < tamano; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        mascara = tamano - 1;
+    }
+
+    /**
+     * Ejecuta la operación con la franja de una cuenta tomada
+     */
+    public <T> T ejecutar(String cuenta, long espera, TimeUnit unidad, OperacionBloqueada<T> operacion) throws Exception {
+        return ejecutar(cuenta, cuenta, espera, unidad, operacion);
+    }
+
+    /**
+     * Ejecuta la operación con las franjas de ambas cuentas tomadas
+     *
+     * @throws TimeoutException si no se obtienen las franjas dentro del tiempo indicado
+     */
+    public <T> T ejecutar(String cuentaA, String cuentaB, long espera, TimeUnit unidad,
+                          OperacionBloqueada<T> operacion) throws Exception {
+        int indiceA = indice(cuentaA);
+        int indiceB = indice(cuentaB);
+        ReentrantLock primera = franjas[Math.min(indiceA, indiceB)];
+        ReentrantLock segunda = indiceA == indiceB ? null : franjas[Math.max(indiceA, indiceB)];
+
+        long limite = System.nanoTime() + unidad.toNanos(espera);
+
+        if (!primera.tryLock(espera, unidad)) {
+            esperasAgotadas.incrementAndGet();
+            throw new TimeoutException("Tiempo de espera agotado bloqueando la cuenta " + cuentaA);
+        }
+
+        try {
+            if (segunda != null && !segunda.tryLock(Math.max(0, limite - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                esperasAgotadas.incrementAndGet();
+                throw new TimeoutException("Tiempo de espera agotado bloqueando la cuenta " + cuentaB);
+            }
+
+            try {
+                adquisiciones.incrementAndGet();
+                return operacion.ejecutar();
+            } finally {
+                if (segunda != null) {
+                    segunda.unlock();
+                }
+            }
+        } finally {
+            primera.unlock();
+        }
+    }
+
+    public int getCantidadFranjas() {
+        return franjas.length;
+    }
+
+    public long getAdquisiciones() {
+        return adquisiciones.get();
+    }
+
+    public long getEsperasAgotadas() {
+        return esperasAgotadas.get();
+    }
+
+    private int indice(String cuenta) {
+        int h = cuenta.hashCode();
+        // Mezclar los bits altos para que números de cuenta con prefijo común se repartan
+        h ^= (h >>> 16);
+        h *= 0x45d9f3b;
+        h ^= (h >>> 16);
+        return h & mascara;
+    }
+
+    @FunctionalInterface
+    public interface OperacionBloqueada<T> {
+        T ejecutar() throws Exception;
+    }
+}
@@ -0,0 +1,125 @@
+package com.ulatina.service;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Orden de un listado paginado por llave (keyset): una columna y el id como
+ * desempate, ascendente o descendente ("saldo" o "-saldo"). Arma la condición
+ * para seguir después de la última fila de la página anterior y el cursor que
+ * la identifica. El cursor lleva el nombre del orden, así no se puede usar el
+ * de un listado con otro orden.
+ */
+final class OrdenPaginado {
+
+    private static final String ORDEN_ID = "id";
+
+    private final String nombre;
+    private final String columna;
+    private final boolean descendente;
+    private final boolean numerico;
+
+    private OrdenPaginado(String nombre, String columna, boolean descendente, boolean numerico) {
+        this.nombre = nombre;
+        this.columna = columna;
+        this.descendente = descendente;
+        this.numerico = numerico;
+    }
+
+    /**
+     * @param orden     nombre del orden, con "-" adelante para descendente; null o vacío ordena por id
+     * @param columnas  nombres de orden permitidos y su columna
+     * @param numericas columnas DECIMAL, cuyo valor en el cursor se compara como número
+     */
+    static OrdenPaginado de(String orden, Map<String, String> columnas, String... numericas) {
+        String texto = orden == null || orden.trim().isEmpty() ? ORDEN_ID : orden.trim();
+        boolean descendente = texto.startsWith("-");
+        String campo = descendente ? texto.substring(1) : texto;
+
+        String columna = ORDEN_ID.equals(campo) ? ORDEN_ID : columnas.get(campo);
+        if (columna == null) {
+            throw new IllegalArgumentException("Orden no soportado: " + orden);
+        }
+
+        boolean numerico = false;
+        for (String numerica : numericas) {
+            numerico |= numerica.equals(columna);
+        }
+        return new OrdenPaginado((descendente ? "-" : "") + campo, columna, descendente, numerico);
+    }
+
+    /**
+     * Condición para las filas posteriores a la posición del cursor
+     */
+    String condicion() {
+        String comparador = descendente ? " < ?" : " > ?";
+        if (ORDEN_ID.equals(columna)) {
+            return "id" + comparador;
+        }
+        // Equivale a (columna, id) > (?, ?) pero deja un rango sobre la columna para el índice
+        String comparadorInclusivo = descendente ? " <= ?" : " >= ?";
+        return columna + comparadorInclusivo + " AND (" + columna + comparador + " OR id" + comparador + ")";
+    }
+
+    String ordenSql() {
+        String direccion = descendente ? " DESC" : "";
+        return ORDEN_ID.equals(columna) ? "id" + direccion : columna + direccion + ", id" + direccion;
+    }
+
+    /**
+     * Asigna los parámetros de condicion() desde el cursor decodificado
+     *
+     * @return siguiente índice libre
+     */
+    int asignar(PreparedStatement ps, int indice, Posicion posicion) throws SQLException {
+        if (!ORDEN_ID.equals(columna)) {
+            for (int i = 0; i < 2; i++) {
+                if (numerico) {
+                    ps.setBigDecimal(indice++, new BigDecimal(posicion.valor));
+                } else {
+                    ps.setString(indice++, posicion.valor);
+                }
+            }
+        }
+        ps.setLong(indice++, posicion.id);
+        return indice;
+    }
+
+    String cursor(String valor, long id) {
+        return CodificadorCursor.codificar(nombre, valor != null ? valor : "", String.valueOf(id));
+    }
+
+    /**
+     * Decodifica un cursor de este orden, o null si no viene cursor (primera página)
+     */
+    Posicion decodificar(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return null;
+        }
+
+        String[] partes = CodificadorCursor.decodificar(cursor, 3);
+        if (!nombre.equals(partes[0])) {
+            throw new IllegalArgumentException("El cursor corresponde a otro orden");
+        }
+        try {
+            if (numerico) {
+                new BigDecimal(partes[1]);
+            }
+            return new Posicion(partes[1], Long.parseLong(partes[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    static final class Posicion {
+        private final String valor;
+        private final long id;
+
+        private Posicion(String valor, long id) {
+            this.valor = valor;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.ulatina.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Perfiles de configuración del driver MySQL seleccionables por nombre
+ * (variable de entorno DB_PERFIL).
+ *
+ * BASICO conserva la URL original (solo SSL y zona horaria). OLTP activa la
+ * caché de sentencias preparadas del lado del servidor y del cliente, y evita
+ * consultas redundantes de estado de sesión. LOTE añade una caché más grande
+ * para procesos masivos (intereses, planillas, importaciones).
+ */
+public enum PerfilConexion {
+
+    BASICO(Collections.emptyMap()),
+
+    OLTP(propiedades(
+        "useServerPrepStmts", "true",
+        "cachePrepStmts", "true",
+        "prepStmtCacheSize", "250",
+        "prepStmtCacheSqlLimit", "2048",
+        "rewriteBatchedStatements", "true",
+        "useLocalSessionState", "true",
+        "cacheResultSetMetadata", "true",
+        "cacheServerConfiguration", "true",
+        "elideSetAutoCommits", "true",
+        "maintainTimeStats", "false")),
+
+    LOTE(propiedades(
+        "useServerPrepStmts", "true",
+        "cachePrepStmts", "true",
+        "prepStmtCacheSize", "500",
+        "prepStmtCacheSqlLimit", "4096",
+        "rewriteBatchedStatements", "true",
+        "useLocalSessionState", "true",
+        "cacheResultSetMetadata", "true",
+        "cacheServerConfiguration", "true",
+        "elideSetAutoCommits", "true",
+        "maintainTimeStats", "false",
+        "useCursorFetch", "true",
+        "defaultFetchSize", "1000"));
+
+    private final Map<String, String> propiedades;
+
+    PerfilConexion(Map<String, String> propiedades) {
+        this.propiedades = propiedades;
+    }
+
+    /**
+     * Propiedades del driver que aplica este perfil
+     */
+    public Map<String, String> getPropiedades() {
+        return propiedades;
+    }
+
+    /**
+     * Construye la URL JDBC con las opciones base (SSL y zona horaria) más las del perfil
+     */
+    public String construirURL(String host, String puerto, String sid, boolean ssl) {
+        StringBuilder url = new StringBuilder("jdbc:mysql://")
+            .append(host).append(':').append(puerto).append('/').append(sid);
+
+        if (ssl) {
+            url.append("?useSSL=true&requireSSL=true");
+        } else {
+            url.append("?useSSL=false");
+        }
+        url.append("&serverTimezone=UTC&allowPublicKeyRetrieval=true");
+
+        for (Map.Entry<String, String> propiedad : propiedades.entrySet()) {
+            url.append('&').append(propiedad.getKey()).append('=').append(propiedad.getValue());
+        }
+
+        return url.toString();
+    }
+
+    /**
+     * Busca un perfil por nombre sin distinguir mayúsculas; OLTP si no se indica
+     */
+    public static PerfilConexion porNombre(String nombre) {
+        if (nombre == null || nombre.trim().isEmpty()) {
+            return OLTP;
+        }
+
+        try {
+            return PerfilConexion.valueOf(nombre.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Perfil de conexión desconocido: " + nombre, e);
+        }
+    }
+
+    private static Map<String, String> propiedades(String... claveValor) {
+        Map<String, String> mapa = new LinkedHashMap<>();
+        for (int i = 0; i < claveValor.length; i += 2) {
+            mapa.put(claveValor[i], claveValor[i + 1]);
+        }
+        return Collections.unmodifiableMap(mapa);
+    }
+}
@@ -0,0 +1,147 @@
+package com.ulatina.service;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool compartido y acotado de conexiones JDBC para todos los servicios.
+ * Se configura con las mismas variables de entorno DB_* que usaba Servicio.
+ */
+public final class PoolConexiones {
+
+    private static final Logger logger = Logger.getLogger(PoolConexiones.class.getName());
+
+    private static volatile PoolConexiones instancia;
+
+    private final HikariDataSource dataSource;
+    private final int maximoConexiones;
+    private final PerfilConexion perfil;
+
+    private PoolConexiones() {
+        String host = leerVariable("DB_HOST", "db-mysql-nyc3-21466-do-user-24289380-0.d.db.ondigitalocean.com");
+        String puerto = leerVariable("DB_PORT", "25060");
+        String sid = leerVariable("DB_NAME", "defaultdb");
+        String usuario = leerVariable("DB_USER", "doadmin");
+        String clave = leerVariable("DB_PASSWORD", "");
+
+        if (host == null || puerto == null || sid == null || usuario == null || clave == null) {
+            throw new IllegalStateException("Variables de entorno de BD no configuradas correctamente");
+        }
+
+        maximoConexiones = leerEntero("DB_POOL_MAX", 10);
+        perfil = PerfilConexion.porNombre(System.getenv("DB_PERFIL"));
+        boolean ssl = !"false".equalsIgnoreCase(System.getenv("DB_SSL"));
+
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("BancoPool");
+        config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+        config.setJdbcUrl(perfil.construirURL(host, puerto, sid, ssl));
+        config.setUsername(usuario);
+        config.setPassword(clave);
+
+        // Tamaño del pool
+        config.setMaximumPoolSize(maximoConexiones);
+        config.setMinimumIdle(Math.min(leerEntero("DB_POOL_MIN_IDLE", 2), maximoConexiones));
+
+        // Desalojo por inactividad y por tiempo de vida máximo
+        config.setIdleTimeout(leerEntero("DB_POOL_IDLE_TIMEOUT_MS", 600000));
+        config.setMaxLifetime(leerEntero("DB_POOL_MAX_LIFETIME_MS", 1800000));
+        config.setKeepaliveTime(leerEntero("DB_POOL_KEEPALIVE_MS", 300000));
+
+        // Tiempo máximo de espera para obtener una conexión y validación
+        config.setConnectionTimeout(leerEntero("DB_POOL_CONNECTION_TIMEOUT_MS", 10000));
+        config.setValidationTimeout(leerEntero("DB_POOL_VALIDATION_TIMEOUT_MS", 5000));
+
+        // Detección de fugas: conexiones prestadas y no devueltas
+        config.setLeakDetectionThreshold(leerEntero("DB_POOL_LEAK_DETECTION_MS", 60000));
+
+        config.setRegisterMbeans(true);
+
+        dataSource = new HikariDataSource(config);
+        logger.info("Pool de conexiones inicializado para la base de datos: " + sid +
+                    " (perfil " + perfil + ", máximo " + maximoConexiones + " conexiones)");
+    }
+
+    public static PoolConexiones getInstancia() {
+        PoolConexiones pool = instancia;
+        if (pool == null) {
+            synchronized (PoolConexiones.class) {
+                pool = instancia;
+                if (pool == null) {
+                    pool = new PoolConexiones();
+                    instancia = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Presta una conexión del pool. Se devuelve al pool al llamar close().
+     */
+    public Connection obtenerConexion() throws SQLException {
+        try {
+            return dataSource.getConnection();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "No se pudo obtener una conexión del pool. " + obtenerMetricas(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * Métricas de saturación del pool
+     */
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+
+        int activas = pool != null ? pool.getActiveConnections() : 0;
+        metricas.put("perfil", perfil.name());
+        metricas.put("maximoConexiones", maximoConexiones);
+        metricas.put("conexionesActivas", activas);
+        metricas.put("conexionesInactivas", pool != null ? pool.getIdleConnections() : 0);
+        metricas.put("conexionesTotales", pool != null ? pool.getTotalConnections() : 0);
+        metricas.put("hilosEsperando", pool != null ? pool.getThreadsAwaitingConnection() : 0);
+        metricas.put("porcentajeSaturacion", maximoConexiones > 0 ? (activas * 100) / maximoConexiones : 0);
+
+        return metricas;
+    }
+
+    /**
+     * Cierra el pool y todas sus conexiones (al detener la aplicación)
+     */
+    public static void cerrar() {
+        synchronized (PoolConexiones.class) {
+            if (instancia != null) {
+                instancia.dataSource.close();
+                instancia = null;
+                logger.info("Pool de conexiones cerrado");
+            }
+        }
+    }
+
+    private static String leerVariable(String nombre, String valorPorDefecto) {
+        String valor = System.getenv(nombre);
+        return valor != null ? valor : valorPorDefecto;
+    }
+
+    private static int leerEntero(String nombre, int valorPorDefecto) {
+        String valor = System.getenv(nombre);
+        if (valor == null || valor.trim().isEmpty()) {
+            return valorPorDefecto;
+        }
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            logger.warning("Valor inválido para " + nombre + ": " + valor + ". Usando " + valorPorDefecto);
+            return valorPorDefecto;
+        }
+    }
+}
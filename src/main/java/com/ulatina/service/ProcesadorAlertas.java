@@ -0,0 +1,360 @@
+package com.ulatina.service;
+
+import com.ulatina.data.Alerta;
+import com.ulatina.data.ConfiguracionNotificacion;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Procesamiento en paralelo de alertas pendientes.
+ *
+ * El hilo que ejecuta la corrida reclama bloques de alertas con
+ * SELECT ... FOR UPDATE SKIP LOCKED (pasan a PROCESANDO), las reparte entre un
+ * pool de trabajadores y, mientras estos avanzan, reclama el siguiente bloque y
+ * confirma con un UPDATE en batch las que ya terminaron. Una alerta cuyo
+ * procesamiento falla vuelve a PENDIENTE con una espera que se duplica en cada
+ * intento; al agotar MAX_INTENTOS queda en FALLIDA, que no se reintenta y se
+ * cuenta en las métricas como "fallidas".
+ * Un semáforo limita las alertas en vuelo para no reclamar más de lo que el
+ * pool alcanza a procesar.
+ *
+ * Las alertas de una misma cuenta, tipo y ventana de tiempo se notifican con
+ * un único resumen (ver AgrupadorAlertas); las CRITICA se notifican una a una.
+ *
+ * Las alertas que quedan en PROCESANDO porque el nodo se cayó a mitad de una
+ * corrida se devuelven a PENDIENTE al inicio de la siguiente. Si el procesador
+ * original seguía vivo, su resultado se descarta al confirmar (ver
+ * ServicioAlerta.marcarAlertas) y se cuenta como "descartadas".
+ *
+ * Hilos configurables con la variable de entorno ALERTAS_HILOS_PROCESO.
+ */
+@ApplicationScoped
+public class ProcesadorAlertas {
+
+    private static final Logger logger = Logger.getLogger(ProcesadorAlertas.class.getName());
+
+    private static final int HILOS_POR_DEFECTO = 4;
+    private static final int TAMANO_BLOQUE = 100;
+    private static final int MINUTOS_RECLAMO_VENCIDO = 15;
+    private static final int MAX_INTENTOS = 5;
+    private static final long SEGUNDOS_ESPERA_REINTENTO = 60;
+
+    @Inject
+    private ServicioAlerta servicioAlerta;
+
+    @Inject
+    private ServicioNotificacion servicioNotificacion;
+
+    private final AgrupadorAlertas agrupador = new AgrupadorAlertas();
+
+    private final int hilos;
+    private ExecutorService trabajadores;
+
+    private final AtomicLong procesadas = new AtomicLong();
+    private final AtomicLong fallidas = new AtomicLong();
+    private final AtomicLong reintentos = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong bloques = new AtomicLong();
+    private final AtomicLong resumenes = new AtomicLong();
+    private final AtomicLong corridas = new AtomicLong();
+    private volatile long ultimaDuracionMs;
+    private volatile long ultimasProcesadas;
+    private volatile long retrasoInicialMs;
+    private volatile long retrasoMaximoMs;
+    private volatile LocalDateTime ultimaCorrida;
+
+    public ProcesadorAlertas() {
+        this(leerHilos());
+    }
+
+    public ProcesadorAlertas(int hilos) {
+        this.hilos = hilos;
+    }
+
+    /**
+     * Para uso fuera del contenedor
+     */
+    public ProcesadorAlertas(ServicioAlerta servicioAlerta, ServicioNotificacion servicioNotificacion, int hilos) {
+        this(hilos);
+        this.servicioAlerta = servicioAlerta;
+        this.servicioNotificacion = servicioNotificacion;
+    }
+
+    @PostConstruct
+    public synchronized void iniciar() {
+        if (trabajadores == null) {
+            AtomicInteger contador = new AtomicInteger();
+            trabajadores = Executors.newFixedThreadPool(hilos, r -> {
+                Thread hilo = new Thread(r, "procesador-alertas-" + contador.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+    }
+
+    @PreDestroy
+    public synchronized void detener() {
+        if (trabajadores != null) {
+            trabajadores.shutdown();
+            trabajadores = null;
+        }
+    }
+
+    /**
+     * Procesa alertas pendientes hasta vaciar la cola
+     *
+     * @return cantidad de alertas procesadas (exitosas o fallidas) en la corrida
+     */
+    public synchronized int procesarPendientes() throws Exception {
+        iniciar();
+        long inicio = System.nanoTime();
+
+        int liberadas = servicioAlerta.liberarReclamadasVencidas(MINUTOS_RECLAMO_VENCIDO);
+        if (liberadas > 0) {
+            logger.warning(liberadas + " alertas reclamadas sin terminar se devolvieron a PENDIENTE");
+        }
+
+        LocalDateTime masAntigua = servicioAlerta.fechaPendienteMasAntigua();
+        retrasoInicialMs = masAntigua != null ? Duration.between(masAntigua, LocalDateTime.now()).toMillis() : 0;
+
+        BlockingQueue<Resultado> terminadas = new LinkedBlockingQueue<>();
+        Semaphore cupo = new Semaphore(hilos * TAMANO_BLOQUE * 2);
+        long retrasoMaximo = 0;
+        int enviadas = 0;
+        int confirmadas = 0;
+
+        while (true) {
+            cupo.acquire(TAMANO_BLOQUE);
+            // Solo alertas de ventanas de agrupación ya cerradas (las CRITICA no esperan)
+            List<Alerta> bloque = servicioAlerta.reclamarPendientes(TAMANO_BLOQUE, agrupador.cortes(LocalDateTime.now()));
+            cupo.release(TAMANO_BLOQUE - bloque.size());
+
+            if (bloque.isEmpty()) {
+                break;
+            }
+            bloques.incrementAndGet();
+
+            for (Alerta alerta : bloque) {
+                retrasoMaximo = Math.max(retrasoMaximo,
+                                         Duration.between(alerta.getFechaGeneracion(), LocalDateTime.now()).toMillis());
+            }
+
+            List<List<Alerta>> grupos = agrupador.agrupar(bloque);
+            resumenes.addAndGet(grupos.size());
+            for (List<Alerta> grupo : grupos) {
+                trabajadores.submit(() -> {
+                    boolean exito = false;
+                    try {
+                        exito = procesar(grupo);
+                    } catch (Exception e) {
+                        logger.log(Level.WARNING, "Error procesando alertas de la cuenta " +
+                                   grupo.get(0).getNumeroCuenta(), e);
+                    } finally {
+                        for (Alerta alerta : grupo) {
+                            terminadas.add(new Resultado(alerta, exito));
+                        }
+                        cupo.release(grupo.size());
+                    }
+                });
+            }
+            enviadas += bloque.size();
+
+            // Confirmar lo que ya terminó mientras los trabajadores siguen con el bloque
+            confirmadas += confirmar(terminadas, null);
+        }
+
+        while (confirmadas < enviadas) {
+            Resultado primero = terminadas.poll(1, TimeUnit.SECONDS);
+            if (primero != null) {
+                confirmadas += confirmar(terminadas, primero);
+            }
+        }
+
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        corridas.incrementAndGet();
+        ultimaDuracionMs = ms;
+        ultimasProcesadas = enviadas;
+        retrasoMaximoMs = retrasoMaximo;
+        ultimaCorrida = LocalDateTime.now();
+
+        if (enviadas > 0) {
+            logger.info(String.format("Procesadas %d alertas en %d ms (%.0f alertas/seg, retraso máximo %d ms)",
+                                      enviadas, ms, rendimiento(enviadas, ms), retrasoMaximo));
+        }
+        return enviadas;
+    }
+
+    /**
+     * Notifica un grupo de alertas (una sola, o un resumen si son varias de la
+     * misma cuenta, tipo y ventana) según la configuración de la cuenta, y
+     * registra en cada alerta qué notificación la cubrió. Se ejecuta en el pool
+     * de trabajadores; la notificación solo se encola en el despachador.
+     *
+     * @return true si las alertas quedan PROCESADA (alguna notificación se
+     *         encoló, o la cuenta no tiene canales para este tipo de alerta);
+     *         false si todos los canales habilitados rechazaron la notificación
+     *         (cola llena o canal caído) y las alertas deben reintentarse
+     */
+    protected boolean procesar(List<Alerta> grupo) throws Exception {
+        Alerta primera = grupo.get(0);
+        ConfiguracionNotificacion configuracion = servicioAlerta.obtenerConfiguracionNotificacion(primera.getNumeroCuenta());
+
+        boolean email = false;
+        boolean sms = false;
+        boolean intentado = false;
+        if (configuracion != null && aceptaTipo(configuracion, primera.getTipoAlerta())) {
+            String asunto = agrupador.asunto(grupo);
+            String mensaje = agrupador.mensaje(grupo);
+
+            if (Boolean.TRUE.equals(configuracion.getNotificacionEmail()) &&
+                servicioNotificacion.validarEmail(configuracion.getEmail())) {
+                intentado = true;
+                email = servicioNotificacion.enviarAlertaEmail(configuracion.getEmail(), asunto, mensaje);
+            }
+            if (Boolean.TRUE.equals(configuracion.getNotificacionSms()) &&
+                servicioNotificacion.validarTelefono(configuracion.getTelefono())) {
+                intentado = true;
+                sms = servicioNotificacion.enviarAlertaSms(configuracion.getTelefono(), mensaje);
+            }
+        }
+
+        if (intentado && !email && !sms) {
+            logger.warning("Ningún canal aceptó la notificación de " + grupo.size() + " alertas de la cuenta " +
+                           primera.getNumeroCuenta() + "; se reintentarán");
+            return false;
+        }
+
+        List<Long> ids = new ArrayList<>(grupo.size());
+        for (Alerta alerta : grupo) {
+            ids.add(alerta.getId());
+        }
+        servicioAlerta.registrarNotificacion(ids, agrupador.metadatos(grupo), email, sms);
+        return true;
+    }
+
+    /**
+     * Preferencias de la cuenta por categoría de alerta
+     */
+    private static boolean aceptaTipo(ConfiguracionNotificacion configuracion, Alerta.TipoAlerta tipo) {
+        switch (tipo) {
+            case LIMITE_EXCEDIDO:
+            case LIMITE_PROXIMO:
+                return Boolean.TRUE.equals(configuracion.getAlertasLimite());
+            case TRANSACCION_SOSPECHOSA:
+            case CUENTA_BLOQUEADA:
+            case INTENTO_ACCESO_FALLIDO:
+                return Boolean.TRUE.equals(configuracion.getAlertasSeguridad());
+            default:
+                return Boolean.TRUE.equals(configuracion.getAlertasTransacciones());
+        }
+    }
+
+    /**
+     * Métricas de rendimiento y retraso del procesamiento
+     */
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("hilos", hilos);
+        metricas.put("corridas", corridas.get());
+        metricas.put("procesadas", procesadas.get());
+        metricas.put("fallidas", fallidas.get());
+        metricas.put("reintentos", reintentos.get());
+        metricas.put("descartadas", descartadas.get());
+        metricas.put("maxIntentos", MAX_INTENTOS);
+        metricas.put("bloques", bloques.get());
+        metricas.put("notificaciones", resumenes.get());
+        metricas.put("ultimaCorrida", ultimaCorrida != null ? ultimaCorrida.toString() : null);
+        metricas.put("ultimaDuracionMs", ultimaDuracionMs);
+        metricas.put("ultimasProcesadas", ultimasProcesadas);
+        metricas.put("alertasPorSegundo", Math.round(rendimiento(ultimasProcesadas, ultimaDuracionMs)));
+        metricas.put("retrasoInicialMs", retrasoInicialMs);
+        metricas.put("retrasoMaximoMs", retrasoMaximoMs);
+        return metricas;
+    }
+
+    /**
+     * Marca en batch los resultados disponibles
+     *
+     * @return cantidad de resultados consumidos de la cola
+     */
+    private int confirmar(BlockingQueue<Resultado> terminadas, Resultado primero) {
+        List<Resultado> resultados = new ArrayList<>();
+        if (primero != null) {
+            resultados.add(primero);
+        }
+        terminadas.drainTo(resultados);
+
+        List<Alerta> exitosas = new ArrayList<>();
+        List<Alerta> conError = new ArrayList<>();
+        for (Resultado resultado : resultados) {
+            (resultado.exito ? exitosas : conError).add(resultado.alerta);
+        }
+
+        // Si falla la confirmación quedan en PROCESANDO y se devuelven a PENDIENTE cuando venza el reclamo
+        if (!exitosas.isEmpty()) {
+            try {
+                int marcadas = servicioAlerta.marcarAlertas(exitosas, Alerta.EstadoAlerta.PROCESADA);
+                procesadas.addAndGet(marcadas);
+                descartadas.addAndGet(exitosas.size() - marcadas);
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Error marcando " + exitosas.size() + " alertas como PROCESADA", e);
+            }
+        }
+        if (!conError.isEmpty()) {
+            try {
+                int agotadas = servicioAlerta.registrarFallo(conError, MAX_INTENTOS, SEGUNDOS_ESPERA_REINTENTO);
+                fallidas.addAndGet(agotadas);
+                reintentos.addAndGet(conError.size() - agotadas);
+                if (agotadas > 0) {
+                    logger.warning(agotadas + " alertas agotaron " + MAX_INTENTOS + " intentos y quedaron en FALLIDA");
+                }
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Error registrando el fallo de " + conError.size() + " alertas", e);
+            }
+        }
+
+        return resultados.size();
+    }
+
+    private static double rendimiento(long cantidad, long ms) {
+        return ms > 0 ? cantidad * 1000.0 / ms : cantidad;
+    }
+
+    private static int leerHilos() {
+        String valor = System.getenv("ALERTAS_HILOS_PROCESO");
+        try {
+            return valor != null ? Math.max(1, Integer.parseInt(valor.trim())) : HILOS_POR_DEFECTO;
+        } catch (NumberFormatException e) {
+            logger.warning("ALERTAS_HILOS_PROCESO inválido: " + valor);
+            return HILOS_POR_DEFECTO;
+        }
+    }
+
+    private static final class Resultado {
+        private final Alerta alerta; // con la marca del reclamo
+        private final boolean exito;
+
+        private Resultado(Alerta alerta, boolean exito) {
+            this.alerta = alerta;
+            this.exito = exito;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.ulatina.service;
+
+import com.ulatina.data.Alerta;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Publicación asíncrona de alertas. Quien genera la alerta solo la deja en una
+ * cola acotada; un hilo escritor la vacía en lotes y los inserta en la tabla
+ * alerta con un batch JDBC, fuera del camino de la transacción del cliente.
+ *
+ * Cuando la cola está llena se aplica la política de desborde:
+ * ESPERAR frena al productor hasta ESPERA_MAXIMA_MS y luego descarta,
+ * DESCARTAR descarta de inmediato y ESCRIBIR_DIRECTO escribe la alerta en el
+ * hilo que la generó. Las alertas de prioridad CRITICA nunca se descartan: si
+ * no caben en la cola se escriben directamente.
+ *
+ * Configuración por variables de entorno ALERTAS_CAPACIDAD_COLA y
+ * ALERTAS_POLITICA_DESBORDE.
+ */
+@ApplicationScoped
+public class PublicadorAlertas {
+
+    private static final Logger logger = Logger.getLogger(PublicadorAlertas.class.getName());
+
+    private static final int CAPACIDAD_POR_DEFECTO = 10000;
+    private static final int TAMANO_LOTE = 200;
+    private static final long ESPERA_MAXIMA_MS = 50;
+    private static final long ESPERA_CIERRE_MS = 10000;
+
+    public enum PoliticaDesborde {
+        ESPERAR,
+        DESCARTAR,
+        ESCRIBIR_DIRECTO
+    }
+
+    @Inject
+    private ServicioAlerta servicioAlerta;
+
+    private final BlockingQueue<Alerta> cola;
+    private final PoliticaDesborde politica;
+
+    private volatile boolean activo;
+    private Thread escritor;
+
+    private final AtomicLong encoladas = new AtomicLong();
+    private final AtomicLong escritas = new AtomicLong();
+    private final AtomicLong escritasDirecto = new AtomicLong();
+    private final AtomicLong descartadas = new AtomicLong();
+    private final AtomicLong fallidas = new AtomicLong();
+    private final AtomicLong lotes = new AtomicLong();
+
+    public PublicadorAlertas() {
+        this(leerCapacidad(), leerPolitica());
+    }
+
+    public PublicadorAlertas(int capacidad, PoliticaDesborde politica) {
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.politica = politica;
+    }
+
+    /**
+     * Para uso fuera del contenedor
+     */
+    public PublicadorAlertas(ServicioAlerta servicioAlerta, int capacidad, PoliticaDesborde politica) {
+        this(capacidad, politica);
+        this.servicioAlerta = servicioAlerta;
+    }
+
+    @PostConstruct
+    public synchronized void iniciar() {
+        if (activo) {
+            return;
+        }
+
+        activo = true;
+        escritor = new Thread(this::escribirPendientes, "publicador-alertas");
+        escritor.setDaemon(true);
+        escritor.start();
+        logger.info("Publicador de alertas iniciado (capacidad " + (cola.size() + cola.remainingCapacity()) +
+                    ", política " + politica + ")");
+    }
+
+    /**
+     * Detiene el escritor después de vaciar lo que quede en la cola
+     */
+    @PreDestroy
+    public synchronized void detener() {
+        if (!activo) {
+            return;
+        }
+
+        activo = false;
+        escritor.interrupt();
+        try {
+            escritor.join(ESPERA_CIERRE_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!cola.isEmpty()) {
+            logger.warning("Quedaron " + cola.size() + " alertas sin escribir al detener el publicador");
+        }
+    }
+
+    /**
+     * Encola la alerta para escritura asíncrona. No lanza excepciones: un fallo
+     * al registrar la alerta no debe afectar la transacción que la originó.
+     *
+     * @return false si la alerta se descartó
+     */
+    public boolean publicar(Alerta alerta) {
+        if (cola.offer(alerta)) {
+            encoladas.incrementAndGet();
+            return true;
+        }
+
+        if (alerta.getPrioridad() == Alerta.PrioridadAlerta.CRITICA || politica == PoliticaDesborde.ESCRIBIR_DIRECTO) {
+            return escribirDirecto(alerta);
+        }
+
+        if (politica == PoliticaDesborde.ESPERAR) {
+            try {
+                if (cola.offer(alerta, ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS)) {
+                    encoladas.incrementAndGet();
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long total = descartadas.incrementAndGet();
+        // Registrar solo algunas para no inundar el log cuando la cola se mantiene llena
+        if (Long.bitCount(total) == 1) {
+            logger.warning("Cola de alertas llena: " + total + " alertas descartadas hasta ahora");
+        }
+        return false;
+    }
+
+    /**
+     * Métricas de la cola y del escritor
+     */
+    public Map<String, Object> obtenerMetricas() {
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("activo", activo);
+        metricas.put("politica", politica.toString());
+        metricas.put("enCola", cola.size());
+        metricas.put("capacidad", cola.size() + cola.remainingCapacity());
+        metricas.put("encoladas", encoladas.get());
+        metricas.put("escritas", escritas.get());
+        metricas.put("escritasDirecto", escritasDirecto.get());
+        metricas.put("descartadas", descartadas.get());
+        metricas.put("fallidas", fallidas.get());
+        metricas.put("lotes", lotes.get());
+        return metricas;
+    }
+
+    private boolean escribirDirecto(Alerta alerta) {
+        try {
+            servicioAlerta.insertarAlertas(Collections.singletonList(alerta));
+            escritasDirecto.incrementAndGet();
+            return true;
+        } catch (Exception e) {
+            fallidas.incrementAndGet();
+            logger.log(Level.SEVERE, "Error escribiendo alerta de la cuenta " + alerta.getNumeroCuenta(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Ciclo del hilo escritor: espera la primera alerta y se lleva en el mismo
+     * lote todas las que ya estén en cola. Al detenerse vacía lo pendiente.
+     */
+    private void escribirPendientes() {
+        List<Alerta> lote = new ArrayList<>(TAMANO_LOTE);
+
+        while (activo || !cola.isEmpty()) {
+            try {
+                Alerta primera = activo ? cola.poll(1, TimeUnit.SECONDS) : cola.poll();
+                if (primera == null) {
+                    continue;
+                }
+                lote.add(primera);
+            } catch (InterruptedException e) {
+                // detener() interrumpe la espera; el ciclo termina de vaciar la cola
+                continue;
+            }
+
+            cola.drainTo(lote, TAMANO_LOTE - 1);
+            escribirLote(lote);
+            lote.clear();
+        }
+    }
+
+    private void escribirLote(List<Alerta> lote) {
+        try {
+            servicioAlerta.insertarAlertas(lote);
+            escritas.addAndGet(lote.size());
+            lotes.incrementAndGet();
+            return;
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Error escribiendo lote de " + lote.size() + " alertas, reintentando una por una", e);
+        }
+
+        // Aislar la alerta que falla para no perder el resto del lote
+        for (Alerta alerta : lote) {
+            try {
+                servicioAlerta.insertarAlertas(Collections.singletonList(alerta));
+                escritas.incrementAndGet();
+            } catch (Exception e) {
+                fallidas.incrementAndGet();
+                logger.log(Level.SEVERE, "Alerta descartada de la cuenta " + alerta.getNumeroCuenta(), e);
+            }
+        }
+    }
+
+    private static int leerCapacidad() {
+        String valor = System.getenv("ALERTAS_CAPACIDAD_COLA");
+        try {
+            return valor != null ? Integer.parseInt(valor.trim()) : CAPACIDAD_POR_DEFECTO;
+        } catch (NumberFormatException e) {
+            logger.warning("ALERTAS_CAPACIDAD_COLA inválido: " + valor);
+            return CAPACIDAD_POR_DEFECTO;
+        }
+    }
+
+    private static PoliticaDesborde leerPolitica() {
+        String valor = System.getenv("ALERTAS_POLITICA_DESBORDE");
+        try {
+            return valor != null ? PoliticaDesborde.valueOf(valor.trim().toUpperCase()) : PoliticaDesborde.ESPERAR;
+        } catch (IllegalArgumentException e) {
+            logger.warning("ALERTAS_POLITICA_DESBORDE inválido: " + valor);
+            return PoliticaDesborde.ESPERAR;
+        }
+    }
+}
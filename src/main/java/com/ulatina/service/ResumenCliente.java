@@ -0,0 +1,62 @@
+package com.ulatina.service;
+
+import com.ulatina.data.Cuenta;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Resumen de las cuentas de un cliente: cantidad de cuentas y saldo total de
+ * las cuentas activas por moneda. ServicioCuenta lo guarda por cliente y lo
+ * descarta cuando cambia alguna de sus cuentas.
+ */
+public final class ResumenCliente {
+
+    private static final String ESTADO_ACTIVA = "ACTIVA";
+
+    private final int totalCuentas;
+    private final int cuentasActivas;
+    private final BigDecimal saldoTotalCRC;
+    private final BigDecimal saldoTotalUSD;
+
+    private ResumenCliente(int totalCuentas, int cuentasActivas, BigDecimal saldoTotalCRC, BigDecimal saldoTotalUSD) {
+        this.totalCuentas = totalCuentas;
+        this.cuentasActivas = cuentasActivas;
+        this.saldoTotalCRC = saldoTotalCRC;
+        this.saldoTotalUSD = saldoTotalUSD;
+    }
+
+    static ResumenCliente de(List<Cuenta> cuentas) {
+        BigDecimal totalCRC = BigDecimal.ZERO;
+        BigDecimal totalUSD = BigDecimal.ZERO;
+        int cuentasActivas = 0;
+
+        for (Cuenta cuenta : cuentas) {
+            if (ESTADO_ACTIVA.equals(cuenta.getEstado())) {
+                cuentasActivas++;
+                if ("CRC".equals(cuenta.getMoneda())) {
+                    totalCRC = totalCRC.add(cuenta.getSaldo());
+                } else if ("USD".equals(cuenta.getMoneda())) {
+                    totalUSD = totalUSD.add(cuenta.getSaldo());
+                }
+            }
+        }
+
+        return new ResumenCliente(cuentas.size(), cuentasActivas, totalCRC, totalUSD);
+    }
+
+    public int getTotalCuentas() {
+        return totalCuentas;
+    }
+
+    public int getCuentasActivas() {
+        return cuentasActivas;
+    }
+
+    public BigDecimal getSaldoTotalCRC() {
+        return saldoTotalCRC;
+    }
+
+    public BigDecimal getSaldoTotalUSD() {
+        return saldoTotalUSD;
+    }
+}
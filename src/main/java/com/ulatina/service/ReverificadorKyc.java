@@ -0,0 +1,369 @@
+package com.ulatina.service;
+
+import com.ulatina.data.Cliente;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reverificación masiva de KYC: vuelve a revisar contra la lista restrictiva
+ * los clientes con KYC pendiente o toda la cartera (por ejemplo después de
+ * importar una lista nueva).
+ *
+ * Los clientes se recorren por id en particiones que se reparten entre un
+ * pool de trabajadores. Todos se revisan contra la misma carga del índice en
+ * memoria (IndiceListaRestrictiva), sin una consulta a la base de datos por
+ * cliente.
+ *
+ * El avance queda en proceso_checkpoint: el hilo de la corrida confirma las
+ * particiones en orden de id y mueve el checkpoint hasta la última partición
+ * terminada sin huecos. Una corrida interrumpida continúa en la siguiente
+ * desde ahí; el tope de id se fija al iniciar, así los clientes creados
+ * mientras corre no se recorren (ya se verificaron al crearse).
+ *
+ * Hilos configurables con KYC_HILOS_REVERIFICACION.
+ */
+@ApplicationScoped
+public class ReverificadorKyc extends Servicio {
+
+    private static final Logger logger = Logger.getLogger(ReverificadorKyc.class.getName());
+
+    public static final String ALCANCE_PENDIENTES = "PENDIENTES";
+    public static final String ALCANCE_TODOS = "TODOS";
+
+    static final String PROCESO = "REVERIFICACION_KYC_";
+    static final String EN_CURSO = "EN_CURSO";
+    static final String COMPLETADO = "COMPLETADO";
+
+    private static final int HILOS_POR_DEFECTO = 4;
+    private static final int TAMANO_PARTICION = 500;
+
+    @Inject
+    private ServicioCliente servicioCliente;
+
+    @Inject
+    private ServicioKyc servicioKyc;
+
+    private final int hilos;
+    private ExecutorService trabajadores;
+
+    private volatile String ultimoAlcance;
+    private volatile LocalDateTime ultimaCorrida;
+    private volatile long ultimaDuracionMs;
+    private volatile long ultimosVerificados;
+
+    public ReverificadorKyc() {
+        this(leerHilos());
+    }
+
+    public ReverificadorKyc(int hilos) {
+        this.hilos = hilos;
+    }
+
+    /**
+     * Para uso fuera del contenedor
+     */
+    public ReverificadorKyc(ServicioCliente servicioCliente, ServicioKyc servicioKyc, int hilos) {
+        this(hilos);
+        this.servicioCliente = servicioCliente;
+        this.servicioKyc = servicioKyc;
+    }
+
+    @PostConstruct
+    public synchronized void iniciar() {
+        if (trabajadores == null) {
+            AtomicInteger contador = new AtomicInteger();
+            trabajadores = Executors.newFixedThreadPool(hilos, r -> {
+                Thread hilo = new Thread(r, "reverificador-kyc-" + contador.incrementAndGet());
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+    }
+
+    @PreDestroy
+    public synchronized void detener() {
+        if (trabajadores != null) {
+            trabajadores.shutdown();
+            trabajadores = null;
+        }
+    }
+
+    /**
+     * Reverifica los clientes del alcance indicado. Si hay una corrida anterior
+     * del mismo alcance sin terminar, la continúa.
+     *
+     * @param alcance PENDIENTES o TODOS
+     * @return verificados, aprobados, rechazados, en lista, errores,
+     *         checkpoint y clientes por segundo
+     */
+    public synchronized Map<String, Object> reverificar(String alcance) throws Exception {
+        String tipo = validarAlcance(alcance);
+        String proceso = PROCESO + tipo;
+        iniciar();
+        long inicio = System.nanoTime();
+
+        try {
+            conectarBD();
+
+            long[] checkpoint = leerCheckpoint(proceso);
+            List<Cliente> candidatos = ALCANCE_TODOS.equals(tipo)
+                ? servicioCliente.listarTodos() : servicioCliente.listarPendientesKyc();
+
+            long ultimoId;
+            long idTope;
+            if (checkpoint != null) {
+                ultimoId = checkpoint[0];
+                idTope = checkpoint[1];
+                logger.info("Reanudando reverificación KYC " + tipo + " desde el id " + ultimoId);
+            } else {
+                ultimoId = 0;
+                idTope = candidatos.stream().mapToLong(Cliente::getId).max().orElse(0);
+                iniciarCorrida(proceso, idTope);
+            }
+
+            List<Cliente> clientes = new ArrayList<>();
+            for (Cliente cliente : candidatos) {
+                if (cliente.getId() > ultimoId && cliente.getId() <= idTope) {
+                    clientes.add(cliente);
+                }
+            }
+            clientes.sort(Comparator.comparingInt(Cliente::getId));
+
+            // Una sola carga de la lista para toda la corrida
+            IndiceListaRestrictiva.Instantanea lista = servicioKyc.instantaneaListaRestrictiva();
+
+            List<Future<Conteo>> particiones = new ArrayList<>();
+            for (int desde = 0; desde < clientes.size(); desde += TAMANO_PARTICION) {
+                List<Cliente> particion = clientes.subList(desde, Math.min(clientes.size(), desde + TAMANO_PARTICION));
+                particiones.add(trabajadores.submit(() -> verificarParticion(particion, lista)));
+            }
+
+            Conteo total = new Conteo();
+            try {
+                for (Future<Conteo> particion : particiones) {
+                    Conteo conteo = particion.get();
+                    total.sumar(conteo);
+                    ultimoId = conteo.ultimoId;
+                    avanzarCheckpoint(proceso, ultimoId, conteo.verificados);
+                }
+            } catch (ExecutionException e) {
+                // Lo confirmado queda en el checkpoint; lo demás se repite en la siguiente corrida
+                particiones.forEach(particion -> particion.cancel(true));
+                throw e;
+            }
+            avanzarCheckpoint(proceso, idTope, 0);
+            actualizarEstado(proceso, COMPLETADO);
+
+            long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+            ultimoAlcance = tipo;
+            ultimaCorrida = LocalDateTime.now();
+            ultimaDuracionMs = ms;
+            ultimosVerificados = total.verificados;
+            logger.info(String.format("Reverificación KYC %s: %d clientes en %d ms (%.0f clientes/seg), %d en lista " +
+                                      "restrictiva", ultimoAlcance, total.verificados, ms,
+                                      rendimiento(total.verificados, ms), total.enLista));
+
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("alcance", ultimoAlcance);
+            resultado.put("verificados", total.verificados);
+            resultado.put("aprobados", total.aprobados);
+            resultado.put("rechazados", total.verificados - total.aprobados - total.errores);
+            resultado.put("enListaRestrictiva", total.enLista);
+            resultado.put("errores", total.errores);
+            resultado.put("entradasLista", lista.getEntradas());
+            resultado.put("particiones", particiones.size());
+            resultado.put("hilos", hilos);
+            resultado.put("idTope", idTope);
+            resultado.put("duracionMs", ms);
+            resultado.put("clientesPorSegundo", Math.round(rendimiento(total.verificados, ms)));
+            return resultado;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Exception("Reverificación KYC interrumpida", e);
+        } catch (Exception e) {
+            throw new Exception("Error en la reverificación KYC: " + e.getMessage(), e);
+        } finally {
+            cerrarConexion();
+        }
+    }
+
+    /**
+     * Se ejecuta en el pool de trabajadores. Un error en un cliente se cuenta y
+     * no detiene la partición.
+     */
+    private Conteo verificarParticion(List<Cliente> particion, IndiceListaRestrictiva.Instantanea lista) {
+        Conteo conteo = new Conteo();
+        for (Cliente cliente : particion) {
+            try {
+                if (servicioCliente.reverificarKyc(cliente, lista)) {
+                    conteo.aprobados++;
+                }
+                if (cliente.isEnListaRestrictiva()) {
+                    conteo.enLista++;
+                }
+            } catch (Exception e) {
+                conteo.errores++;
+                logger.log(Level.WARNING, "Error reverificando KYC del cliente " + cliente.getId(), e);
+            }
+            conteo.verificados++;
+        }
+        conteo.ultimoId = particion.get(particion.size() - 1).getId();
+        return conteo;
+    }
+
+    /**
+     * Estado de la última corrida de cada alcance y rendimiento de la última
+     * corrida de este nodo
+     */
+    public Map<String, Object> obtenerEstado() throws Exception {
+        try {
+            conectarBD();
+
+            Map<String, Object> estado = new LinkedHashMap<>();
+            estado.put("hilos", hilos);
+            estado.put("tamanoParticion", TAMANO_PARTICION);
+            for (String alcance : new String[] {ALCANCE_PENDIENTES, ALCANCE_TODOS}) {
+                PreparedStatement ps = getConexion().prepareStatement(
+                    "SELECT estado, ultimo_id, id_tope, filas_procesadas, fecha_inicio, fecha_actualizacion " +
+                    "FROM proceso_checkpoint WHERE proceso = ?");
+                ps.setString(1, PROCESO + alcance);
+                ResultSet rs = ps.executeQuery();
+                if (rs.next()) {
+                    Map<String, Object> corrida = new LinkedHashMap<>();
+                    corrida.put("estado", rs.getString("estado"));
+                    corrida.put("ultimoId", rs.getLong("ultimo_id"));
+                    corrida.put("idTope", rs.getLong("id_tope"));
+                    corrida.put("verificados", rs.getLong("filas_procesadas"));
+                    corrida.put("fechaInicio", texto(rs.getTimestamp("fecha_inicio")));
+                    corrida.put("fechaActualizacion", texto(rs.getTimestamp("fecha_actualizacion")));
+                    estado.put(alcance.toLowerCase(), corrida);
+                }
+                cerrarResultSet(rs);
+                cerrarPreparedStatement(ps);
+            }
+
+            estado.put("ultimoAlcance", ultimoAlcance);
+            estado.put("ultimaCorrida", ultimaCorrida != null ? ultimaCorrida.toString() : null);
+            estado.put("ultimaDuracionMs", ultimaDuracionMs);
+            estado.put("ultimosVerificados", ultimosVerificados);
+            estado.put("clientesPorSegundo", Math.round(rendimiento(ultimosVerificados, ultimaDuracionMs)));
+            return estado;
+
+        } catch (Exception e) {
+            throw new Exception("Error obteniendo estado de la reverificación KYC: " + e.getMessage(), e);
+        } finally {
+            cerrarConexion();
+        }
+    }
+
+    /**
+     * Último id confirmado y tope de una corrida en curso, o null si no hay
+     */
+    private long[] leerCheckpoint(String proceso) throws Exception {
+        PreparedStatement ps = getConexion().prepareStatement(
+            "SELECT ultimo_id, id_tope FROM proceso_checkpoint WHERE proceso = ? AND estado = ?");
+        ps.setString(1, proceso);
+        ps.setString(2, EN_CURSO);
+        ResultSet rs = ps.executeQuery();
+
+        long[] checkpoint = rs.next() ? new long[] {rs.getLong(1), rs.getLong(2)} : null;
+
+        cerrarResultSet(rs);
+        cerrarPreparedStatement(ps);
+        return checkpoint;
+    }
+
+    private void iniciarCorrida(String proceso, long idTope) throws Exception {
+        PreparedStatement ps = getConexion().prepareStatement(
+            "INSERT INTO proceso_checkpoint (proceso, estado, ultimo_id, id_tope, fecha_corte, filas_procesadas, " +
+            "fecha_inicio, fecha_actualizacion) VALUES (?, ?, 0, ?, NOW(), 0, NOW(), NOW()) " +
+            "ON DUPLICATE KEY UPDATE estado = VALUES(estado), ultimo_id = 0, id_tope = VALUES(id_tope), " +
+            "fecha_corte = NOW(), filas_procesadas = 0, fecha_inicio = NOW(), fecha_actualizacion = NOW()");
+        ps.setString(1, proceso);
+        ps.setString(2, EN_CURSO);
+        ps.setLong(3, idTope);
+        ps.executeUpdate();
+        cerrarPreparedStatement(ps);
+    }
+
+    private void avanzarCheckpoint(String proceso, long ultimoId, long verificados) throws Exception {
+        PreparedStatement ps = getConexion().prepareStatement(
+            "UPDATE proceso_checkpoint SET ultimo_id = ?, filas_procesadas = filas_procesadas + ?, " +
+            "fecha_actualizacion = NOW() WHERE proceso = ?");
+        ps.setLong(1, ultimoId);
+        ps.setLong(2, verificados);
+        ps.setString(3, proceso);
+        ps.executeUpdate();
+        cerrarPreparedStatement(ps);
+    }
+
+    private void actualizarEstado(String proceso, String estado) throws Exception {
+        PreparedStatement ps = getConexion().prepareStatement(
+            "UPDATE proceso_checkpoint SET estado = ?, fecha_actualizacion = NOW() WHERE proceso = ?");
+        ps.setString(1, estado);
+        ps.setString(2, proceso);
+        ps.executeUpdate();
+        cerrarPreparedStatement(ps);
+    }
+
+    private static String validarAlcance(String alcance) {
+        String valor = alcance != null ? alcance.trim().toUpperCase() : "";
+        if (!ALCANCE_PENDIENTES.equals(valor) && !ALCANCE_TODOS.equals(valor)) {
+            throw new IllegalArgumentException("Alcance no soportado: " + alcance + " (PENDIENTES o TODOS)");
+        }
+        return valor;
+    }
+
+    private static String texto(Timestamp fecha) {
+        return fecha != null ? fecha.toLocalDateTime().toString() : null;
+    }
+
+    private static double rendimiento(long cantidad, long ms) {
+        return ms > 0 ? cantidad * 1000.0 / ms : cantidad;
+    }
+
+    private static int leerHilos() {
+        String valor = System.getenv("KYC_HILOS_REVERIFICACION");
+        try {
+            return valor != null ? Math.max(1, Integer.parseInt(valor.trim())) : HILOS_POR_DEFECTO;
+        } catch (NumberFormatException e) {
+            logger.warning("KYC_HILOS_REVERIFICACION inválido: " + valor);
+            return HILOS_POR_DEFECTO;
+        }
+    }
+
+    private static final class Conteo {
+        private long verificados;
+        private long aprobados;
+        private long enLista;
+        private long errores;
+        private long ultimoId;
+
+        private void sumar(Conteo otro) {
+            verificados += otro.verificados;
+            aprobados += otro.aprobados;
+            enLista += otro.enLista;
+            errores += otro.errores;
+        }
+    }
+}
@@ -10,43 +10,50 @@ import java.util.logging.Level;
 public abstract class Servicio implements AutoCloseable {
 
     private static final Logger logger = Logger.getLogger(Servicio.class.getName());
-    protected Connection conexion = null;
-
-    // Usar variables de entorno en lugar de credenciales hardcodeadas
-    private final String host = System.getenv("DB_HOST") != null ?
-        System.getenv("DB_HOST") : "db-mysql-nyc3-21466-do-user-24289380-0.d.db.ondigitalocean.com";
-    private final String puerto = System.getenv("DB_PORT") != null ?
-        System.getenv("DB_PORT") : "25060";
-    private final String sid = System.getenv("DB_NAME") != null ?
-        System.getenv("DB_NAME") : "defaultdb";
-    private final String usuario = System.getenv("DB_USER") != null ?
-        System.getenv("DB_USER") : "doadmin";
-    private final String clave = System.getenv("DB_PASSWORD") != null ?
-        System.getenv("DB_PASSWORD") : "";
 
+    /**
+     * Conexión asignada al hilo actual. Los servicios @ApplicationScoped son
+     * compartidos entre peticiones, por lo que la conexión no puede vivir en un
+     * campo de instancia: cada hilo toma prestada la suya del pool. Las llamadas
+     * anidadas (por ejemplo dentro de ejecutarEnTransaccion) reutilizan la misma
+     * conexión y solo la más externa la devuelve al pool.
+     */
+    private static final ThreadLocal<ConexionAsignada> CONEXION_ACTUAL = new ThreadLocal<>();
+
+    private static final class ConexionAsignada {
+        private Connection conexion;
+        private int usos;
+
+        private ConexionAsignada(Connection conexion) {
+            this.conexion = conexion;
+            this.usos = 1;
+        }
+    }
+
+    /**
+     * Toma prestada una conexión del pool para el hilo actual
+     */
     public void conectarBD() throws ClassNotFoundException, SQLException {
-        validarConfiguracion();
+        ConexionAsignada asignada = CONEXION_ACTUAL.get();
+        if (asignada != null) {
+            asignada.usos++;
+            return;
+        }
 
         try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            String url = construirURL();
-            conexion = DriverManager.getConnection(url, usuario, clave);
-            logger.info("Conexión establecida a la base de datos: " + sid);
+            CONEXION_ACTUAL.set(new ConexionAsignada(abrirConexion()));
+            logger.fine("Conexión obtenida del pool");
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error de conexión a la base de datos", e);
             throw e;
         }
     }
 
-    private void validarConfiguracion() {
-        if (host == null || puerto == null || sid == null || usuario == null || clave == null) {
-            throw new IllegalStateException("Variables de entorno de BD no configuradas correctamente");
-        }
-    }
-
-    private String construirURL() {
-        return "jdbc:mysql://" + host + ":" + puerto + "/" + sid +
-               "?useSSL=true&requireSSL=true&serverTimezone=UTC&allowPublicKeyRetrieval=true";
+    /**
+     * Obtiene una conexión nueva. Por defecto del pool compartido.
+     */
+    protected Connection abrirConexion() throws SQLException {
+        return PoolConexiones.getInstancia().obtenerConexion();
     }
 
     public void cerrarPreparedStatement(PreparedStatement ps) {
@@ -82,32 +89,66 @@ public abstract class Servicio implements AutoCloseable {
         }
     }
 
+    /**
+     * Devuelve la conexión del hilo actual al pool
+     */
     public void cerrarConexion() {
-        if (conexion != null) {
-            try {
-                conexion.close();
-                conexion = null;
-                logger.info("Conexión cerrada correctamente");
-            } catch (SQLException e) {
-                logger.log(Level.WARNING, "Error cerrando conexión", e);
-            }
+        ConexionAsignada asignada = CONEXION_ACTUAL.get();
+        if (asignada == null) {
+            return;
+        }
+
+        if (--asignada.usos > 0) {
+            return;
+        }
+
+        CONEXION_ACTUAL.remove();
+        try {
+            asignada.conexion.close();
+            logger.fine("Conexión devuelta al pool");
+        } catch (SQLException e) {
+            logger.log(Level.WARNING, "Error devolviendo conexión al pool", e);
         }
     }
 
+    /**
+     * Conexión del hilo actual; si no hay una asignada se toma del pool y debe
+     * liberarse con cerrarConexion()
+     */
     protected Connection getConexion() throws SQLException {
-        if (conexion == null || conexion.isClosed()) {
+        ConexionAsignada asignada = CONEXION_ACTUAL.get();
+
+        if (asignada == null) {
             try {
                 conectarBD();
             } catch (ClassNotFoundException e) {
                 logger.log(Level.SEVERE, "Driver MySQL no encontrado", e);
                 throw new SQLException("Driver MySQL no disponible", e);
             }
+            return CONEXION_ACTUAL.get().conexion;
+        }
+
+        if (asignada.conexion.isClosed()) {
+            asignada.conexion = abrirConexion();
         }
-        return conexion;
+        return asignada.conexion;
+    }
+
+    /**
+     * Conexión del hilo actual sin tomar una nueva, o null si no hay ninguna
+     */
+    protected Connection conexionActual() {
+        ConexionAsignada asignada = CONEXION_ACTUAL.get();
+        return asignada != null ? asignada.conexion : null;
     }
 
     protected void setConexion(Connection conexion) {
-        this.conexion = conexion;
+        ConexionAsignada asignada = CONEXION_ACTUAL.get();
+        if (asignada != null) {
+            asignada.conexion = conexion;
+        } else if (conexion != null) {
+            CONEXION_ACTUAL.set(new ConexionAsignada(conexion));
+        }
     }
 
     @Override
@@ -143,26 +184,42 @@ public abstract class Servicio implements AutoCloseable {
 
     // Método de utilidad para transacciones
     protected void ejecutarEnTransaccion(TransactionCallback callback) throws SQLException {
-        Connection conn = getConexion();
-        boolean autoCommitOriginal = conn.getAutoCommit();
+        try {
+            conectarBD();
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("Driver MySQL no disponible", e);
+        }
 
         try {
-            conn.setAutoCommit(false);
-            callback.execute(conn);
-            conn.commit();
-        } catch (SQLException e) {
-            try {
-                conn.rollback();
-            } catch (SQLException rollbackEx) {
-                logger.log(Level.SEVERE, "Error en rollback", rollbackEx);
+            Connection conn = getConexion();
+            boolean autoCommitOriginal = conn.getAutoCommit();
+
+            if (!autoCommitOriginal) {
+                // Ya hay una transacción en curso en este hilo: participar en ella
+                callback.execute(conn);
+                return;
             }
-            throw e;
-        } finally {
+
             try {
-                conn.setAutoCommit(autoCommitOriginal);
+                conn.setAutoCommit(false);
+                callback.execute(conn);
+                conn.commit();
             } catch (SQLException e) {
-                logger.log(Level.WARNING, "Error restaurando autoCommit", e);
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    logger.log(Level.SEVERE, "Error en rollback", rollbackEx);
+                }
+                throw e;
+            } finally {
+                try {
+                    conn.setAutoCommit(autoCommitOriginal);
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Error restaurando autoCommit", e);
+                }
             }
+        } finally {
+            cerrarConexion();
         }
     }
 
@@ -1,25 +1,36 @@
 package com.ulatina.service;
 
 import com.ulatina.data.Alerta;
+import com.ulatina.data.ConfiguracionNotificacion;
 import com.ulatina.data.LimiteTransaccion;
 import jakarta.enterprise.context.ApplicationScoped;
 import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
 
 @ApplicationScoped
 public class ServicioAlerta extends Servicio {
 
+    private static final Logger logger = Logger.getLogger(ServicioAlerta.class.getName());
+
+    // Se desactiva la primera vez que el servidor rechaza FOR UPDATE SKIP LOCKED
+    private volatile boolean skipLockedDisponible = true;
+
     public List<Alerta> obtenerAlertasPorCuenta(String numeroCuenta) throws Exception {
         List<Alerta> alertas = new ArrayList<>();
 
         try {
             conectarBD();
             String sql = "SELECT * FROM alerta WHERE numero_cuenta = ? ORDER BY fecha_generacion DESC LIMIT 50";
-            PreparedStatement ps = conexion.prepareStatement(sql);
+            PreparedStatement ps = getConexion().prepareStatement(sql);
             ps.setString(1, numeroCuenta);
             ResultSet rs = ps.executeQuery();
 
@@ -42,21 +53,40 @@ public class ServicioAlerta extends Servicio {
 
     public void generarAlertaLimiteExcedido(String numeroCuenta, LimiteTransaccion.TipoLimite tipo,
                                           BigDecimal montoTransaccion, BigDecimal montoLimite) throws Exception {
-        String mensaje = String.format("Límite excedido para %s. Monto: %s, Límite: %s",
-            tipo.toString(), montoTransaccion, montoLimite);
-
-        crearAlerta(numeroCuenta, Alerta.TipoAlerta.LIMITE_EXCEDIDO, mensaje,
-                   Alerta.PrioridadAlerta.ALTA, montoTransaccion);
+        insertarAlerta(alertaLimiteExcedido(numeroCuenta, tipo, montoTransaccion, montoLimite));
     }
 
     public void generarAlertaProximidadLimite(String numeroCuenta, LimiteTransaccion.TipoLimite tipo,
                                             BigDecimal montoTransaccion, BigDecimal montoLimite,
                                             int umbralPorcentaje) throws Exception {
+        insertarAlerta(alertaProximidadLimite(numeroCuenta, tipo, montoTransaccion, montoLimite, umbralPorcentaje));
+    }
+
+    /**
+     * Construye, sin guardarla, la alerta de límite excedido
+     */
+    public Alerta alertaLimiteExcedido(String numeroCuenta, LimiteTransaccion.TipoLimite tipo,
+                                       BigDecimal montoTransaccion, BigDecimal montoLimite) {
+        String mensaje = String.format("Límite excedido para %s. Monto: %s, Límite: %s",
+            tipo.toString(), montoTransaccion, montoLimite);
+
+        Alerta alerta = new Alerta(numeroCuenta, Alerta.TipoAlerta.LIMITE_EXCEDIDO, mensaje, Alerta.PrioridadAlerta.ALTA);
+        alerta.setMontoTransaccion(montoTransaccion);
+        return alerta;
+    }
+
+    /**
+     * Construye, sin guardarla, la alerta de proximidad al límite
+     */
+    public Alerta alertaProximidadLimite(String numeroCuenta, LimiteTransaccion.TipoLimite tipo,
+                                         BigDecimal montoTransaccion, BigDecimal montoLimite,
+                                         int umbralPorcentaje) {
         String mensaje = String.format("Próximo al límite para %s (%d%%). Monto: %s, Límite: %s",
             tipo.toString(), umbralPorcentaje, montoTransaccion, montoLimite);
 
-        crearAlerta(numeroCuenta, Alerta.TipoAlerta.LIMITE_PROXIMO, mensaje,
-                   Alerta.PrioridadAlerta.MEDIA, montoTransaccion);
+        Alerta alerta = new Alerta(numeroCuenta, Alerta.TipoAlerta.LIMITE_PROXIMO, mensaje, Alerta.PrioridadAlerta.MEDIA);
+        alerta.setMontoTransaccion(montoTransaccion);
+        return alerta;
     }
 
     public void generarAlertaTransaccionSospechosa(String numeroCuenta, String descripcion,
@@ -69,33 +99,50 @@ public class ServicioAlerta extends Servicio {
 
     private void crearAlerta(String numeroCuenta, Alerta.TipoAlerta tipoAlerta, String mensaje,
                            Alerta.PrioridadAlerta prioridad, BigDecimal montoTransaccion) throws Exception {
-        try {
-            conectarBD();
-            String sql = "INSERT INTO alerta (numero_cuenta, tipo_alerta, mensaje, monto_transaccion, " +
-                        "estado, prioridad, fecha_generacion, email_enviado, sms_enviado) " +
-                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-            PreparedStatement ps = conexion.prepareStatement(sql);
-            ps.setString(1, numeroCuenta);
-            ps.setString(2, tipoAlerta.toString());
-            ps.setString(3, mensaje);
-            ps.setBigDecimal(4, montoTransaccion);
-            ps.setString(5, Alerta.EstadoAlerta.PENDIENTE.toString());
-            ps.setString(6, prioridad.toString());
-            ps.setTimestamp(7, java.sql.Timestamp.valueOf(LocalDateTime.now()));
-            ps.setBoolean(8, false);
-            ps.setBoolean(9, false);
-
-            ps.executeUpdate();
-            cerrarPreparedStatement(ps);
+        Alerta alerta = new Alerta(numeroCuenta, tipoAlerta, mensaje, prioridad);
+        alerta.setMontoTransaccion(montoTransaccion);
+        insertarAlerta(alerta);
+    }
 
+    private void insertarAlerta(Alerta alerta) throws Exception {
+        try {
+            insertarAlertas(Collections.singletonList(alerta));
         } catch (Exception e) {
-            throw new Exception("Error creando alerta: " + e.getMessage());
-        } finally {
-            cerrarConexion();
+            throw new Exception("Error creando alerta: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Inserta un grupo de alertas en una sola transacción con un batch JDBC
+     */
+    public void insertarAlertas(List<Alerta> alertas) throws SQLException {
+        if (alertas.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO alerta (numero_cuenta, tipo_alerta, mensaje, monto_transaccion, " +
+                    "estado, prioridad, fecha_generacion, email_enviado, sms_enviado) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        ejecutarEnTransaccion(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (Alerta alerta : alertas) {
+                    ps.setString(1, alerta.getNumeroCuenta());
+                    ps.setString(2, alerta.getTipoAlerta().toString());
+                    ps.setString(3, alerta.getMensaje());
+                    ps.setBigDecimal(4, alerta.getMontoTransaccion());
+                    ps.setString(5, alerta.getEstado().toString());
+                    ps.setString(6, alerta.getPrioridad().toString());
+                    ps.setTimestamp(7, java.sql.Timestamp.valueOf(alerta.getFechaGeneracion()));
+                    ps.setBoolean(8, Boolean.TRUE.equals(alerta.getEmailEnviado()));
+                    ps.setBoolean(9, Boolean.TRUE.equals(alerta.getSmsEnviado()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
     private Alerta mapearAlerta(ResultSet rs) throws Exception {
         Alerta alerta = new Alerta();
         alerta.setId(rs.getLong("id"));
@@ -125,7 +172,7 @@ public class ServicioAlerta extends Servicio {
         try {
             conectarBD();
             String sql = "SELECT * FROM alerta WHERE estado = ? ORDER BY fecha_generacion ASC";
-            PreparedStatement ps = conexion.prepareStatement(sql);
+            PreparedStatement ps = getConexion().prepareStatement(sql);
             ps.setString(1, Alerta.EstadoAlerta.PENDIENTE.toString());
             ResultSet rs = ps.executeQuery();
 
@@ -153,7 +200,7 @@ public class ServicioAlerta extends Servicio {
         try {
             conectarBD();
             String sql = "UPDATE alerta SET estado = ?, fecha_procesamiento = ? WHERE id = ?";
-            PreparedStatement ps = conexion.prepareStatement(sql);
+            PreparedStatement ps = getConexion().prepareStatement(sql);
             ps.setString(1, Alerta.EstadoAlerta.PROCESADA.toString());
             ps.setTimestamp(2, java.sql.Timestamp.valueOf(LocalDateTime.now()));
             ps.setLong(3, alerta.getId());
@@ -175,4 +222,308 @@ public class ServicioAlerta extends Servicio {
             cerrarConexion();
         }
     }
+
+    /**
+     * Reclama un bloque de alertas PENDIENTE pasándolas a PROCESANDO. Las filas
+     * bloqueadas por otro procesador se saltan (SKIP LOCKED), así varios nodos
+     * pueden reclamar a la vez sin esperarse ni tomar la misma alerta.
+     */
+    public List<Alerta> reclamarPendientes(int cantidad) throws SQLException {
+        return reclamarPendientes(cantidad, null);
+    }
+
+    /**
+     * Igual que reclamarPendientes(int), pero solo toma las alertas generadas
+     * antes del corte de su prioridad. Un corte null toma la prioridad sin
+     * esperar; una prioridad ausente del mapa no se reclama.
+     */
+    public List<Alerta> reclamarPendientes(int cantidad, Map<Alerta.PrioridadAlerta, LocalDateTime> cortes)
+            throws SQLException {
+        if (skipLockedDisponible) {
+            try {
+                return reclamarPendientes(cantidad, cortes, true);
+            } catch (SQLSyntaxErrorException e) {
+                // Servidor sin SKIP LOCKED (MySQL < 8.0, MariaDB < 10.6): seguir con FOR UPDATE simple
+                skipLockedDisponible = false;
+                logger.warning("La base de datos no soporta SKIP LOCKED; las alertas se reclamarán con FOR UPDATE");
+            }
+        }
+
+        return reclamarPendientes(cantidad, cortes, false);
+    }
+
+    private List<Alerta> reclamarPendientes(int cantidad, Map<Alerta.PrioridadAlerta, LocalDateTime> cortes,
+                                            boolean skipLocked) throws SQLException {
+        List<Alerta> alertas = new ArrayList<>();
+        // DATETIME sin fracción: la marca del reclamo se compara igual al confirmar (ver marcarAlertas)
+        LocalDateTime ahora = LocalDateTime.now().withNano(0);
+        List<Object> parametros = new ArrayList<>();
+        parametros.add(Alerta.EstadoAlerta.PENDIENTE.toString());
+        parametros.add(java.sql.Timestamp.valueOf(ahora));
+
+        // Las alertas devueltas para reintento esperan hasta proximo_intento
+        StringBuilder sql = new StringBuilder(
+            "SELECT * FROM alerta WHERE estado = ? AND (proximo_intento IS NULL OR proximo_intento <= ?)");
+        if (cortes != null) {
+            List<String> condiciones = new ArrayList<>();
+            for (Map.Entry<Alerta.PrioridadAlerta, LocalDateTime> corte : cortes.entrySet()) {
+                parametros.add(corte.getKey().toString());
+                if (corte.getValue() == null) {
+                    condiciones.add("prioridad = ?");
+                } else {
+                    condiciones.add("(prioridad = ? AND fecha_generacion < ?)");
+                    parametros.add(java.sql.Timestamp.valueOf(corte.getValue()));
+                }
+            }
+            sql.append(condiciones.isEmpty() ? " AND 1 = 0" : " AND (" + String.join(" OR ", condiciones) + ")");
+        }
+        sql.append(" ORDER BY fecha_generacion ASC, id ASC LIMIT ? FOR UPDATE").append(skipLocked ? " SKIP LOCKED" : "");
+        parametros.add(cantidad);
+
+        ejecutarEnTransaccion(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < parametros.size(); i++) {
+                    ps.setObject(i + 1, parametros.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        alertas.add(mapearAlertaSQL(rs));
+                    }
+                }
+            }
+
+            if (alertas.isEmpty()) {
+                return;
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE alerta SET estado = ?, fecha_procesamiento = ? WHERE id = ?")) {
+                for (Alerta alerta : alertas) {
+                    ps.setString(1, Alerta.EstadoAlerta.PROCESANDO.toString());
+                    ps.setTimestamp(2, java.sql.Timestamp.valueOf(ahora));
+                    ps.setLong(3, alerta.getId());
+                    ps.addBatch();
+
+                    alerta.setEstado(Alerta.EstadoAlerta.PROCESANDO);
+                    alerta.setFechaProcesamiento(ahora);
+                }
+                ps.executeBatch();
+            }
+        });
+
+        return alertas;
+    }
+
+    /**
+     * Marca un grupo de alertas reclamadas con el estado final en un solo
+     * batch. Solo cambia las que siguen en PROCESANDO con la marca de su
+     * reclamo: si el reclamo venció y otro procesador volvió a tomar la
+     * alerta, el resultado de este se descarta y no pisa el del nuevo.
+     *
+     * @return alertas marcadas
+     */
+    public int marcarAlertas(List<Alerta> alertas, Alerta.EstadoAlerta estado) throws SQLException {
+        if (alertas.isEmpty()) {
+            return 0;
+        }
+
+        int[] marcadas = new int[1];
+        ejecutarEnTransaccion(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE alerta SET estado = ?, fecha_procesamiento = ? " +
+                    "WHERE id = ? AND estado = ? AND fecha_procesamiento = ?")) {
+                java.sql.Timestamp ahora = java.sql.Timestamp.valueOf(LocalDateTime.now());
+                for (Alerta alerta : alertas) {
+                    ps.setString(1, estado.toString());
+                    ps.setTimestamp(2, ahora);
+                    asignarReclamo(ps, 3, alerta);
+                    ps.addBatch();
+                }
+                marcadas[0] = contarActualizadas(ps.executeBatch());
+            }
+        });
+        return marcadas[0];
+    }
+
+    /**
+     * Registra un intento fallido en alertas reclamadas. Las que aún tienen
+     * intentos vuelven a PENDIENTE y no se reclaman hasta que pase la espera,
+     * que se duplica en cada intento; las que agotan maxIntentos quedan en
+     * FALLIDA, donde ya no se reintentan. Igual que marcarAlertas, solo toca
+     * las alertas cuyo reclamo sigue vigente.
+     *
+     * @return alertas que agotaron los intentos y quedaron en FALLIDA
+     */
+    public int registrarFallo(List<Alerta> alertas, int maxIntentos, long segundosEspera) throws SQLException {
+        if (alertas.isEmpty()) {
+            return 0;
+        }
+
+        int[] agotadas = new int[1];
+        ejecutarEnTransaccion(conn -> {
+            try (PreparedStatement fallidas = conn.prepareStatement(
+                    "UPDATE alerta SET estado = ?, intentos = intentos + 1, fecha_procesamiento = ? " +
+                    "WHERE id = ? AND estado = ? AND fecha_procesamiento = ? AND intentos + 1 >= ?");
+                 PreparedStatement reintentos = conn.prepareStatement(
+                    "UPDATE alerta SET estado = ?, proximo_intento = DATE_ADD(?, INTERVAL ? * POW(2, intentos) SECOND), " +
+                    "intentos = intentos + 1 " +
+                    "WHERE id = ? AND estado = ? AND fecha_procesamiento = ? AND intentos + 1 < ?")) {
+                java.sql.Timestamp ahora = java.sql.Timestamp.valueOf(LocalDateTime.now());
+                for (Alerta alerta : alertas) {
+                    fallidas.setString(1, Alerta.EstadoAlerta.FALLIDA.toString());
+                    fallidas.setTimestamp(2, ahora);
+                    asignarReclamo(fallidas, 3, alerta);
+                    fallidas.setInt(6, maxIntentos);
+                    fallidas.addBatch();
+
+                    reintentos.setString(1, Alerta.EstadoAlerta.PENDIENTE.toString());
+                    reintentos.setTimestamp(2, ahora);
+                    reintentos.setLong(3, segundosEspera);
+                    asignarReclamo(reintentos, 4, alerta);
+                    reintentos.setInt(7, maxIntentos);
+                    reintentos.addBatch();
+                }
+                agotadas[0] = contarActualizadas(fallidas.executeBatch());
+                reintentos.executeBatch();
+            }
+        });
+        return agotadas[0];
+    }
+
+    /**
+     * Asigna id, estado PROCESANDO y marca del reclamo a partir del índice indicado
+     */
+    private static void asignarReclamo(PreparedStatement ps, int indice, Alerta alerta) throws SQLException {
+        ps.setLong(indice, alerta.getId());
+        ps.setString(indice + 1, Alerta.EstadoAlerta.PROCESANDO.toString());
+        ps.setTimestamp(indice + 2, java.sql.Timestamp.valueOf(alerta.getFechaProcesamiento()));
+    }
+
+    private static int contarActualizadas(int[] resultados) {
+        int total = 0;
+        for (int resultado : resultados) {
+            // Con rewriteBatchedStatements el driver puede no informar la cantidad
+            total += resultado == java.sql.Statement.SUCCESS_NO_INFO ? 1 : Math.max(resultado, 0);
+        }
+        return total;
+    }
+
+    /**
+     * Registra en un grupo de alertas el resumen que las notificó y los canales usados
+     */
+    public void registrarNotificacion(List<Long> ids, String metadatos, boolean email, boolean sms) throws SQLException {
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        ejecutarEnTransaccion(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE alerta SET metadatos = ?, email_enviado = email_enviado OR ?, " +
+                    "sms_enviado = sms_enviado OR ? WHERE id = ?")) {
+                for (Long id : ids) {
+                    ps.setString(1, metadatos);
+                    ps.setBoolean(2, email);
+                    ps.setBoolean(3, sms);
+                    ps.setLong(4, id);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    /**
+     * Configuración de notificaciones activa de la cuenta, o null si no tiene
+     */
+    public ConfiguracionNotificacion obtenerConfiguracionNotificacion(String numeroCuenta) throws Exception {
+        try {
+            conectarBD();
+            PreparedStatement ps = getConexion().prepareStatement(
+                "SELECT * FROM configuracion_notificacion WHERE numero_cuenta = ? AND activo = TRUE");
+            ps.setString(1, numeroCuenta);
+            ResultSet rs = ps.executeQuery();
+
+            ConfiguracionNotificacion configuracion = null;
+            if (rs.next()) {
+                configuracion = new ConfiguracionNotificacion();
+                configuracion.setId(rs.getLong("id"));
+                configuracion.setNumeroCuenta(rs.getString("numero_cuenta"));
+                configuracion.setEmail(rs.getString("email"));
+                configuracion.setTelefono(rs.getString("telefono"));
+                configuracion.setNotificacionEmail(rs.getBoolean("notificacion_email"));
+                configuracion.setNotificacionSms(rs.getBoolean("notificacion_sms"));
+                configuracion.setAlertasLimite(rs.getBoolean("alertas_limite"));
+                configuracion.setAlertasTransacciones(rs.getBoolean("alertas_transacciones"));
+                configuracion.setAlertasSeguridad(rs.getBoolean("alertas_seguridad"));
+                configuracion.setUmbralAlertaPorcentaje(rs.getInt("umbral_alerta_porcentaje"));
+                configuracion.setActivo(rs.getBoolean("activo"));
+            }
+
+            cerrarResultSet(rs);
+            cerrarPreparedStatement(ps);
+            return configuracion;
+
+        } catch (Exception e) {
+            throw new Exception("Error obteniendo configuración de notificaciones: " + e.getMessage());
+        } finally {
+            cerrarConexion();
+        }
+    }
+
+    /**
+     * Devuelve a PENDIENTE las alertas que quedaron en PROCESANDO por más de los
+     * minutos indicados (por ejemplo si el nodo que las reclamó se cayó)
+     */
+    public int liberarReclamadasVencidas(int minutos) throws SQLException {
+        int[] liberadas = new int[1];
+
+        ejecutarEnTransaccion(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE alerta SET estado = ? WHERE estado = ? AND fecha_procesamiento < ?")) {
+                ps.setString(1, Alerta.EstadoAlerta.PENDIENTE.toString());
+                ps.setString(2, Alerta.EstadoAlerta.PROCESANDO.toString());
+                ps.setTimestamp(3, java.sql.Timestamp.valueOf(LocalDateTime.now().minusMinutes(minutos)));
+                liberadas[0] = ps.executeUpdate();
+            }
+        });
+
+        return liberadas[0];
+    }
+
+    /**
+     * Fecha de generación de la alerta pendiente más antigua, o null si no hay
+     */
+    public LocalDateTime fechaPendienteMasAntigua() throws Exception {
+        try {
+            conectarBD();
+            PreparedStatement ps = getConexion().prepareStatement(
+                "SELECT MIN(fecha_generacion) FROM alerta WHERE estado = ?");
+            ps.setString(1, Alerta.EstadoAlerta.PENDIENTE.toString());
+            ResultSet rs = ps.executeQuery();
+
+            LocalDateTime fecha = null;
+            if (rs.next() && rs.getTimestamp(1) != null) {
+                fecha = rs.getTimestamp(1).toLocalDateTime();
+            }
+
+            cerrarResultSet(rs);
+            cerrarPreparedStatement(ps);
+            return fecha;
+
+        } catch (Exception e) {
+            throw new Exception("Error consultando alertas pendientes: " + e.getMessage());
+        } finally {
+            cerrarConexion();
+        }
+    }
+
+    private Alerta mapearAlertaSQL(ResultSet rs) throws SQLException {
+        try {
+            return mapearAlerta(rs);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Error leyendo alerta: " + e.getMessage(), e);
+        }
+    }
 }
@@ -6,66 +6,86 @@
 package com.ulatina.service;
 
 import com.ulatina.data.Cliente;
+import com.ulatina.data.ListaRestrictiva;
+import com.ulatina.data.Pagina;
 import jakarta.enterprise.context.ApplicationScoped;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
 
+/**
+ * Clientes en la tabla clientes (ver sql/clientes_schema.sql). La
+ * identificación y el nombre se guardan también normalizados: la
+ * identificación sin separadores tiene índice único y el nombre en mayúsculas
+ * sin tildes tiene un índice normal (búsqueda por prefijo) y uno FULLTEXT
+ * (búsqueda por palabras en cualquier orden). El email tiene índice único.
+ *
+ * Las consultas puntuales (por id, identificación o email) pasan por una
+ * caché LRU de clientes por id con dos índices secundarios que apuntan al id,
+ * así las verificaciones de duplicados y las consultas repetidas no van a la
+ * base de datos.
+ */
 @ApplicationScoped
-public class ServicioCliente {
+public class ServicioCliente extends Servicio {
+
+    private static final Logger logger = Logger.getLogger(ServicioCliente.class.getName());
+
+    private static final int CAPACIDAD_CACHE = 10000;
+    private static final long VIGENCIA_CACHE_MS = 300000;
+    private static final int LIMITE_BUSQUEDA = 100;
+    private static final int LIMITE_MAXIMO_PAGINA = 100;
+    private static final long VIGENCIA_CONTEOS_MS = 30000;
+
+    private static final List<String> ESTADOS_KYC = Arrays.asList("PENDIENTE", "APROBADO", "RECHAZADO", "SUSPENDIDO");
+    private static final Map<String, String> ORDENES = Collections.singletonMap("nombre", "nombreNormalizado");
+
+    // innodb_ft_min_token_size: las palabras más cortas no están en el índice FULLTEXT
+    private static final int LONGITUD_MINIMA_FULLTEXT = 3;
+
+    private static final String COLUMNAS =
+        "identificacion, identificacionNormalizada, nombreCompleto, nombreNormalizado, fechaNacimiento, " +
+        "kycVerificado, email, telefono, direccion, paisNacimiento, nacionalidad, profesion, ingresosMensuales, " +
+        "origenFondos, pep, documentoIdentidad, fechaVerificacionKyc, estadoKyc, observacionesKyc, " +
+        "enListaRestrictiva, motivoListaRestrictiva";
 
     private final ServicioKyc servicioKyc = new ServicioKyc();
 
-    // Simulación de almacenamiento en memoria
-    private final Map<Integer, Cliente> clientes = new HashMap<>();
-    private int nextId = 1;
-
-    public ServicioCliente() {
-        inicializarDatosPrueba();
-    }
-
-    private void inicializarDatosPrueba() {
-        Cliente cliente1 = new Cliente();
-        cliente1.setId(nextId++);
-        cliente1.setNombreCompleto("María Rodríguez Jiménez");
-        cliente1.setIdentificacion("1-1234-5678");
-        cliente1.setEmail("maria.rodriguez@email.com");
-        cliente1.setTelefono("8888-1234");
-        cliente1.setEstadoKyc("APROBADO");
-        cliente1.setKycVerificado(true);
-        cliente1.setPaisNacimiento("Costa Rica");
-        cliente1.setNacionalidad("Costarricense");
-        cliente1.setProfesion("Ingeniera");
-        cliente1.setIngresosMensuales("1000000-2000000");
-        cliente1.setOrigenFondos("Salario");
-        cliente1.setPep(false);
-        clientes.put(cliente1.getId(), cliente1);
-
-        Cliente cliente2 = new Cliente();
-        cliente2.setId(nextId++);
-        cliente2.setNombreCompleto("Juan Carlos Pérez Soto");
-        cliente2.setIdentificacion("2-2345-6789");
-        cliente2.setEmail("juan.perez@email.com");
-        cliente2.setTelefono("7777-5678");
-        cliente2.setEstadoKyc("PENDIENTE");
-        cliente2.setKycVerificado(false);
-        clientes.put(cliente2.getId(), cliente2);
-
-        Cliente cliente3 = new Cliente();
-        cliente3.setId(nextId++);
-        cliente3.setNombreCompleto("Ana Patricia Morales Vega");
-        cliente3.setIdentificacion("1-3456-7890");
-        cliente3.setEmail("ana.morales@email.com");
-        cliente3.setTelefono("6666-9012");
-        cliente3.setEstadoKyc("RECHAZADO");
-        cliente3.setKycVerificado(false);
-        cliente3.setEnListaRestrictiva(true);
-        cliente3.setMotivoListaRestrictiva("Actividad sospechosa");
-        clientes.put(cliente3.getId(), cliente3);
-    }
+    /**
+     * Caché LRU acotada de clientes por id. Las entradas vencen a los cinco
+     * minutos para recoger cambios hechos desde otra instancia.
+     */
+    private final Map<Integer, EntradaCache> cacheClientes = mapaLru();
 
-    public Cliente crear(Cliente cliente) throws Exception {
-        cliente.setId(nextId++);
+    /**
+     * Índices secundarios de la caché: identificación normalizada y email en
+     * minúscula apuntan al id. Solo se confía en ellos si el cliente en caché
+     * todavía tiene esa identificación o ese email.
+     */
+    private final Map<String, Integer> cachePorIdentificacion = mapaLru();
+    private final Map<String, Integer> cachePorEmail = mapaLru();
+
+    // Se incrementa en cada invalidación; una carga iniciada antes no se guarda
+    private final AtomicLong generacionCache = new AtomicLong();
+    private final AtomicLong aciertosCache = new AtomicLong();
+    private final AtomicLong fallosCache = new AtomicLong();
+
+    private final CacheConteos conteos = new CacheConteos(VIGENCIA_CONTEOS_MS);
 
+    public Cliente crear(Cliente cliente) throws Exception {
         // Verificar KYC antes de crear
         try {
             boolean esValido = verificarKycInterno(cliente);
@@ -80,37 +100,247 @@ public class ServicioCliente {
 
         // Si el cliente está en lista restrictiva, mostrar advertencia
         if (cliente.isEnListaRestrictiva()) {
-            System.out.println("ADVERTENCIA: Cliente creado pero se encuentra en lista restrictiva: " +
+            logger.warning("Cliente creado pero se encuentra en lista restrictiva: " +
                 cliente.getMotivoListaRestrictiva());
         }
 
-        clientes.put(cliente.getId(), cliente);
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            conectarBD();
+            ps = getConexion().prepareStatement(
+                "INSERT INTO clientes (" + COLUMNAS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, " +
+                "?, ?, ?)", Statement.RETURN_GENERATED_KEYS);
+            asignarParametros(ps, cliente);
+            ps.executeUpdate();
+
+            rs = ps.getGeneratedKeys();
+            if (rs.next()) {
+                cliente.setId(rs.getInt(1));
+            }
+
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new Exception("Ya existe un cliente con la identificación " + cliente.getIdentificacion() +
+                                " o el email " + cliente.getEmail(), e);
+        } catch (Exception e) {
+            throw new Exception("Error creando cliente: " + e.getMessage(), e);
+        } finally {
+            cerrarResultSet(rs);
+            cerrarPreparedStatement(ps);
+            cerrarConexion();
+        }
+
+        conteos.limpiar();
+        guardarEnCache(cliente, generacionCache.get());
         return cliente;
     }
 
-    public List<Cliente> listar() {
-        return new ArrayList<>(clientes.values());
+    public List<Cliente> listar() throws Exception {
+        return listarTodos();
+    }
+
+    public List<Cliente> listarTodos() throws Exception {
+        return consultarClientes("SELECT * FROM clientes ORDER BY id");
+    }
+
+    /**
+     * Página de clientes por llave (keyset), con el filtro y el orden resueltos
+     * en la consulta. El costo de cada página no depende de qué tan profundo se
+     * navegue.
+     *
+     * @param estadoKyc filtro opcional: PENDIENTE, APROBADO, RECHAZADO o SUSPENDIDO
+     * @param orden     id o nombre, con "-" adelante para descendente
+     * @param cursor    cursor devuelto por la página anterior, o null para la primera
+     */
+    public Pagina<Cliente> obtenerPagina(String estadoKyc, String orden, String cursor, int limite) throws Exception {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite debe ser un número positivo");
+        }
+        limite = Math.min(limite, LIMITE_MAXIMO_PAGINA);
+
+        String estado = validarEstadoKyc(estadoKyc);
+        OrdenPaginado ordenPaginado = OrdenPaginado.de(orden, ORDENES);
+        OrdenPaginado.Posicion posicion = ordenPaginado.decodificar(cursor);
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM clientes WHERE 1 = 1");
+        if (estado != null) {
+            sql.append(" AND estadoKyc = ?");
+        }
+        if (posicion != null) {
+            sql.append(" AND ").append(ordenPaginado.condicion());
+        }
+        sql.append(" ORDER BY ").append(ordenPaginado.ordenSql()).append(" LIMIT ?");
+
+        List<Cliente> clientes = new ArrayList<>();
+        boolean hayMas = false;
+        // El cursor lleva el valor guardado por el que se ordena, no uno recalculado
+        String ultimoNombre = null;
+
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            conectarBD();
+            ps = getConexion().prepareStatement(sql.toString());
+            int indice = 1;
+            if (estado != null) {
+                ps.setString(indice++, estado);
+            }
+            if (posicion != null) {
+                indice = ordenPaginado.asignar(ps, indice, posicion);
+            }
+            // Se pide una fila extra para saber si existe una página siguiente
+            ps.setInt(indice, limite + 1);
+
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                if (clientes.size() == limite) {
+                    hayMas = true;
+                    break;
+                }
+                clientes.add(mapearCliente(rs));
+                ultimoNombre = rs.getString("nombreNormalizado");
+            }
+
+        } catch (Exception e) {
+            throw new Exception("Error obteniendo página de clientes: " + e.getMessage(), e);
+        } finally {
+            cerrarResultSet(rs);
+            cerrarPreparedStatement(ps);
+            cerrarConexion();
+        }
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            Cliente ultimo = clientes.get(clientes.size() - 1);
+            siguienteCursor = ordenPaginado.cursor(ultimoNombre, ultimo.getId());
+        }
+
+        return new Pagina<>(clientes, siguienteCursor);
+    }
+
+    /**
+     * Total de clientes con el filtro indicado. Se guarda unos segundos (ver
+     * CacheConteos), así paginar no repite el conteo en cada página.
+     */
+    public long contar(String estadoKyc) throws Exception {
+        String estado = validarEstadoKyc(estadoKyc);
+        return conteos.obtener(estado != null ? estado : "", () -> {
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            try {
+                conectarBD();
+                ps = getConexion().prepareStatement(
+                    "SELECT COUNT(*) FROM clientes" + (estado != null ? " WHERE estadoKyc = ?" : ""));
+                if (estado != null) {
+                    ps.setString(1, estado);
+                }
+                rs = ps.executeQuery();
+                return rs.next() ? rs.getLong(1) : 0;
+
+            } catch (Exception e) {
+                throw new Exception("Error contando clientes: " + e.getMessage(), e);
+            } finally {
+                cerrarResultSet(rs);
+                cerrarPreparedStatement(ps);
+                cerrarConexion();
+            }
+        });
     }
 
-    public List<Cliente> listarTodos() {
-        return new ArrayList<>(clientes.values());
+    private static String validarEstadoKyc(String estadoKyc) {
+        if (estadoKyc == null || estadoKyc.trim().isEmpty()) {
+            return null;
+        }
+        String estado = estadoKyc.trim().toUpperCase();
+        if (!ESTADOS_KYC.contains(estado)) {
+            throw new IllegalArgumentException("Estado KYC no soportado: " + estadoKyc);
+        }
+        return estado;
     }
 
-    public Cliente obtenerPorId(int id) {
-        return clientes.get(id);
+    /**
+     * Cliente por id, o null si no existe. Se sirve desde la caché; solo un
+     * fallo consulta la base de datos.
+     */
+    public Cliente obtenerPorId(int id) throws Exception {
+        Cliente enCache = leerCache(id);
+        if (enCache != null) {
+            aciertosCache.incrementAndGet();
+            return copiar(enCache);
+        }
+
+        fallosCache.incrementAndGet();
+        long generacion = generacionCache.get();
+        Cliente cliente = consultarCliente("SELECT * FROM clientes WHERE id = ?", id);
+        guardarEnCache(cliente, generacion);
+        return cliente;
     }
 
-    public Cliente obtenerPorCedula(String cedula) {
-        return clientes.values().stream()
-            .filter(c -> cedula.equals(c.getIdentificacion()))
-            .findFirst()
-            .orElse(null);
+    /**
+     * Cliente por identificación, con o sin guiones, o null si no existe
+     */
+    public Cliente obtenerPorCedula(String cedula) throws Exception {
+        String clave = IndiceListaRestrictiva.normalizarIdentificacion(cedula);
+        if (clave.isEmpty()) {
+            return null;
+        }
+
+        Cliente enCache = leerCache(cachePorIdentificacion.get(clave));
+        if (enCache != null && clave.equals(IndiceListaRestrictiva.normalizarIdentificacion(enCache.getIdentificacion()))) {
+            aciertosCache.incrementAndGet();
+            return copiar(enCache);
+        }
+
+        fallosCache.incrementAndGet();
+        long generacion = generacionCache.get();
+        Cliente cliente = consultarCliente("SELECT * FROM clientes WHERE identificacionNormalizada = ?", clave);
+        guardarEnCache(cliente, generacion);
+        return cliente;
+    }
+
+    /**
+     * Cliente por email sin distinguir mayúsculas, o null si no existe
+     */
+    public Cliente obtenerPorEmail(String email) throws Exception {
+        if (email == null || email.trim().isEmpty()) {
+            return null;
+        }
+        String clave = email.trim().toLowerCase();
+
+        Cliente enCache = leerCache(cachePorEmail.get(clave));
+        if (enCache != null && enCache.getEmail() != null && clave.equals(enCache.getEmail().toLowerCase())) {
+            aciertosCache.incrementAndGet();
+            return copiar(enCache);
+        }
+
+        fallosCache.incrementAndGet();
+        long generacion = generacionCache.get();
+        Cliente cliente = consultarCliente("SELECT * FROM clientes WHERE email = ?", email.trim());
+        guardarEnCache(cliente, generacion);
+        return cliente;
     }
 
     public void actualizar(Cliente cliente) throws Exception {
-        if (clientes.containsKey(cliente.getId())) {
-            cliente.setFechaVerificacionKyc(LocalDateTime.now());
-            clientes.put(cliente.getId(), cliente);
+        cliente.setFechaVerificacionKyc(LocalDateTime.now());
+
+        PreparedStatement ps = null;
+        try {
+            conectarBD();
+            ps = getConexion().prepareStatement(
+                "UPDATE clientes SET " + COLUMNAS.replace(",", " = ?,") + " = ? WHERE id = ?");
+            asignarParametros(ps, cliente);
+            ps.setInt(22, cliente.getId());
+            ps.executeUpdate();
+
+        } catch (SQLIntegrityConstraintViolationException e) {
+            throw new Exception("Ya existe otro cliente con la identificación " + cliente.getIdentificacion() +
+                                " o el email " + cliente.getEmail(), e);
+        } catch (Exception e) {
+            throw new Exception("Error actualizando cliente: " + e.getMessage(), e);
+        } finally {
+            cerrarPreparedStatement(ps);
+            cerrarConexion();
+            invalidarCache(cliente.getId());
         }
     }
 
@@ -126,6 +356,54 @@ public class ServicioCliente {
         }
     }
 
+    /**
+     * Reverifica el KYC de un cliente ya cargado contra una carga fija de la
+     * lista restrictiva, sin consultar la lista en la base de datos (ver
+     * ReverificadorKyc)
+     *
+     * @return true si el KYC quedó aprobado
+     */
+    public boolean reverificarKyc(Cliente cliente, IndiceListaRestrictiva.Instantanea listaRestrictiva) throws Exception {
+        List<IndiceListaRestrictiva.Coincidencia> coincidencias =
+            listaRestrictiva.buscar(cliente.getIdentificacion(), cliente.getNombreCompleto());
+        if (coincidencias.isEmpty()) {
+            cliente.setEnListaRestrictiva(false);
+            cliente.setMotivoListaRestrictiva(null);
+        } else {
+            ListaRestrictiva entrada = coincidencias.get(0).getEntrada();
+            cliente.setEnListaRestrictiva(true);
+            cliente.setMotivoListaRestrictiva(entrada.getMotivoInclusion() + " (" + entrada.getTipoLista() + ")");
+        }
+
+        boolean esValido = !cliente.isEnListaRestrictiva() && tieneDatosRequeridos(cliente);
+        cliente.setEstadoKyc(esValido ? "APROBADO" : "RECHAZADO");
+        cliente.setKycVerificado(esValido);
+        cliente.setFechaVerificacionKyc(LocalDateTime.now());
+
+        PreparedStatement ps = null;
+        try {
+            conectarBD();
+            ps = getConexion().prepareStatement(
+                "UPDATE clientes SET estadoKyc = ?, kycVerificado = ?, fechaVerificacionKyc = ?, " +
+                "enListaRestrictiva = ?, motivoListaRestrictiva = ? WHERE id = ?");
+            ps.setString(1, cliente.getEstadoKyc());
+            ps.setBoolean(2, cliente.isKycVerificado());
+            ps.setTimestamp(3, Timestamp.valueOf(cliente.getFechaVerificacionKyc()));
+            ps.setBoolean(4, cliente.isEnListaRestrictiva());
+            ps.setString(5, cliente.getMotivoListaRestrictiva());
+            ps.setInt(6, cliente.getId());
+            ps.executeUpdate();
+
+        } catch (Exception e) {
+            throw new Exception("Error guardando reverificación KYC: " + e.getMessage(), e);
+        } finally {
+            cerrarPreparedStatement(ps);
+            cerrarConexion();
+            invalidarCache(cliente.getId());
+        }
+        return esValido;
+    }
+
     private boolean verificarKycInterno(Cliente cliente) {
         // Verificar si está en lista restrictiva
         try {
@@ -142,6 +420,10 @@ public class ServicioCliente {
             // Si hay error verificando lista restrictiva, continuar con verificación básica
         }
 
+        return tieneDatosRequeridos(cliente);
+    }
+
+    private boolean tieneDatosRequeridos(Cliente cliente) {
         // Verificación básica de campos requeridos
         return cliente.getIdentificacion() != null &&
                !cliente.getIdentificacion().trim().isEmpty() &&
@@ -151,50 +433,300 @@ public class ServicioCliente {
                !cliente.getEmail().trim().isEmpty();
     }
 
-    public void eliminar(int id) {
-        clientes.remove(id);
+    public void eliminar(int id) throws Exception {
+        ejecutarActualizacion("DELETE FROM clientes WHERE id = ?", id, "Error eliminando cliente");
     }
 
-    public void suspender(int id) {
-        Cliente cliente = clientes.get(id);
-        if (cliente != null) {
-            cliente.setEstadoKyc("SUSPENDIDO");
+    public void suspender(int id) throws Exception {
+        ejecutarActualizacion("UPDATE clientes SET estadoKyc = 'SUSPENDIDO' WHERE id = ?", id,
+                              "Error suspendiendo cliente");
+    }
+
+    public void activar(int id) throws Exception {
+        ejecutarActualizacion("UPDATE clientes SET estadoKyc = 'PENDIENTE' WHERE id = ? AND estadoKyc = 'SUSPENDIDO'",
+                              id, "Error activando cliente");
+    }
+
+    /**
+     * Clientes cuyo nombre coincide con el texto, sin distinguir mayúsculas ni
+     * tildes. Con palabras de tres letras o más se usa el índice FULLTEXT y
+     * cada palabra puede ser el inicio de cualquier palabra del nombre, en
+     * cualquier orden ("ped sot" encuentra a "Juan Carlos Pérez Soto"); si no,
+     * el texto debe ser el inicio del nombre. Devuelve a lo sumo
+     * LIMITE_BUSQUEDA clientes ordenados por nombre.
+     */
+    public List<Cliente> buscarPorNombre(String nombre) throws Exception {
+        List<String> palabras = IndiceListaRestrictiva.palabras(nombre);
+        if (palabras.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        StringBuilder booleana = new StringBuilder();
+        List<String> cortas = new ArrayList<>();
+        for (String palabra : palabras) {
+            if (palabra.length() >= LONGITUD_MINIMA_FULLTEXT) {
+                booleana.append('+').append(palabra).append("* ");
+            } else {
+                cortas.add(palabra);
+            }
         }
+
+        if (booleana.length() == 0) {
+            return consultarClientes("SELECT * FROM clientes WHERE nombreNormalizado LIKE ? " +
+                                     "ORDER BY nombreNormalizado LIMIT " + LIMITE_BUSQUEDA,
+                                     String.join(" ", palabras) + "%");
+        }
+
+        // Las palabras cortas no están en el índice FULLTEXT: se filtran entre los candidatos
+        StringBuilder sql = new StringBuilder(
+            "SELECT * FROM clientes WHERE MATCH (nombreNormalizado) AGAINST (? IN BOOLEAN MODE)");
+        List<Object> parametros = new ArrayList<>();
+        parametros.add(booleana.toString().trim());
+        for (String corta : cortas) {
+            sql.append(" AND CONCAT(' ', nombreNormalizado) LIKE ?");
+            parametros.add("% " + corta + "%");
+        }
+        sql.append(" ORDER BY nombreNormalizado LIMIT ").append(LIMITE_BUSQUEDA);
+        return consultarClientes(sql.toString(), parametros.toArray());
     }
 
-    public void activar(int id) {
-        Cliente cliente = clientes.get(id);
-        if (cliente != null && "SUSPENDIDO".equals(cliente.getEstadoKyc())) {
-            cliente.setEstadoKyc("PENDIENTE");
+    public boolean existeCedula(String cedula) throws Exception {
+        return obtenerPorCedula(cedula) != null;
+    }
+
+    public boolean existeEmail(String email) throws Exception {
+        return obtenerPorEmail(email) != null;
+    }
+
+    /**
+     * Listar clientes con KYC pendiente de verificación
+     */
+    public List<Cliente> listarPendientesKyc() throws Exception {
+        return consultarClientes("SELECT * FROM clientes WHERE estadoKyc = 'PENDIENTE' OR estadoKyc IS NULL " +
+                                 "OR kycVerificado = FALSE ORDER BY id");
+    }
+
+    /**
+     * Descarta de la caché el cliente indicado. Los índices secundarios que
+     * apuntan a él dejan de servir porque ya no encuentran el cliente. También
+     * descarta los totales por estado, que pueden haber cambiado.
+     */
+    public void invalidarCache(int id) {
+        generacionCache.incrementAndGet();
+        cacheClientes.remove(id);
+        conteos.limpiar();
+    }
+
+    public void limpiarCache() {
+        generacionCache.incrementAndGet();
+        conteos.limpiar();
+        cacheClientes.clear();
+        cachePorIdentificacion.clear();
+        cachePorEmail.clear();
+    }
+
+    /**
+     * Métricas de la caché de clientes
+     */
+    public Map<String, Object> obtenerMetricasCache() {
+        long aciertos = aciertosCache.get();
+        long fallos = fallosCache.get();
+
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("entradas", cacheClientes.size());
+        metricas.put("entradasPorIdentificacion", cachePorIdentificacion.size());
+        metricas.put("entradasPorEmail", cachePorEmail.size());
+        metricas.put("capacidad", CAPACIDAD_CACHE);
+        metricas.put("aciertos", aciertos);
+        metricas.put("fallos", fallos);
+        metricas.put("porcentajeAciertos", aciertos + fallos > 0 ? (aciertos * 100) / (aciertos + fallos) : 0);
+        return metricas;
+    }
+
+    private Cliente leerCache(Integer id) {
+        if (id == null) {
+            return null;
         }
+        EntradaCache entrada = cacheClientes.get(id);
+        return entrada != null && entrada.vence > System.currentTimeMillis() ? entrada.cliente : null;
     }
 
-    public List<Cliente> buscarPorNombre(String nombre) {
-        return clientes.values().stream()
-            .filter(c -> c.getNombreCompleto() != null &&
-                        c.getNombreCompleto().toLowerCase().contains(nombre.toLowerCase()))
-            .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+    private void guardarEnCache(Cliente cliente, long generacion) {
+        // Si hubo una invalidación mientras se consultaba, el resultado puede estar desactualizado
+        if (cliente == null || generacionCache.get() != generacion) {
+            return;
+        }
+
+        cacheClientes.put(cliente.getId(), new EntradaCache(copiar(cliente),
+                                                            System.currentTimeMillis() + VIGENCIA_CACHE_MS));
+        cachePorIdentificacion.put(IndiceListaRestrictiva.normalizarIdentificacion(cliente.getIdentificacion()),
+                                   cliente.getId());
+        if (cliente.getEmail() != null) {
+            cachePorEmail.put(cliente.getEmail().trim().toLowerCase(), cliente.getId());
+        }
     }
 
-    public boolean existeCedula(String cedula) {
-        return clientes.values().stream()
-            .anyMatch(c -> cedula.equals(c.getIdentificacion()));
+    private void ejecutarActualizacion(String sql, int id, String error) throws Exception {
+        PreparedStatement ps = null;
+        try {
+            conectarBD();
+            ps = getConexion().prepareStatement(sql);
+            ps.setInt(1, id);
+            ps.executeUpdate();
+
+        } catch (Exception e) {
+            throw new Exception(error + ": " + e.getMessage(), e);
+        } finally {
+            cerrarPreparedStatement(ps);
+            cerrarConexion();
+            invalidarCache(id);
+        }
     }
 
-    public boolean existeEmail(String email) {
-        return clientes.values().stream()
-            .anyMatch(c -> email.equals(c.getEmail()));
+    private Cliente consultarCliente(String sql, Object parametro) throws Exception {
+        List<Cliente> clientes = consultarClientes(sql, parametro);
+        return clientes.isEmpty() ? null : clientes.get(0);
+    }
+
+    private List<Cliente> consultarClientes(String sql, Object... parametros) throws Exception {
+        List<Cliente> clientes = new ArrayList<>();
+
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            conectarBD();
+            ps = getConexion().prepareStatement(sql);
+            for (int i = 0; i < parametros.length; i++) {
+                ps.setObject(i + 1, parametros[i]);
+            }
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                clientes.add(mapearCliente(rs));
+            }
+
+        } catch (Exception e) {
+            throw new Exception("Error consultando clientes: " + e.getMessage(), e);
+        } finally {
+            cerrarResultSet(rs);
+            cerrarPreparedStatement(ps);
+            cerrarConexion();
+        }
+
+        return clientes;
     }
 
     /**
-     * Listar clientes con KYC pendiente de verificación
+     * Parámetros 1 a 21 en el orden de COLUMNAS
+     */
+    private void asignarParametros(PreparedStatement ps, Cliente cliente) throws SQLException {
+        ps.setString(1, cliente.getIdentificacion());
+        ps.setString(2, IndiceListaRestrictiva.normalizarIdentificacion(cliente.getIdentificacion()));
+        ps.setString(3, cliente.getNombreCompleto());
+        ps.setString(4, String.join(" ", IndiceListaRestrictiva.palabras(cliente.getNombreCompleto())));
+        if (cliente.getFechaNacimiento() != null) {
+            ps.setDate(5, Date.valueOf(cliente.getFechaNacimiento()));
+        } else {
+            ps.setNull(5, Types.DATE);
+        }
+        ps.setBoolean(6, cliente.isKycVerificado());
+        // Email vacío como null: el índice único admite varios null
+        ps.setString(7, cliente.getEmail() != null && !cliente.getEmail().trim().isEmpty()
+                        ? cliente.getEmail().trim() : null);
+        ps.setString(8, cliente.getTelefono());
+        ps.setString(9, cliente.getDireccion());
+        ps.setString(10, cliente.getPaisNacimiento());
+        ps.setString(11, cliente.getNacionalidad());
+        ps.setString(12, cliente.getProfesion());
+        ps.setString(13, cliente.getIngresosMensuales());
+        ps.setString(14, cliente.getOrigenFondos());
+        ps.setBoolean(15, cliente.isPep());
+        ps.setString(16, cliente.getDocumentoIdentidad());
+        if (cliente.getFechaVerificacionKyc() != null) {
+            ps.setTimestamp(17, Timestamp.valueOf(cliente.getFechaVerificacionKyc()));
+        } else {
+            ps.setNull(17, Types.TIMESTAMP);
+        }
+        ps.setString(18, cliente.getEstadoKyc() != null ? cliente.getEstadoKyc() : "PENDIENTE");
+        ps.setString(19, cliente.getObservacionesKyc());
+        ps.setBoolean(20, cliente.isEnListaRestrictiva());
+        ps.setString(21, cliente.getMotivoListaRestrictiva());
+    }
+
+    private Cliente mapearCliente(ResultSet rs) throws SQLException {
+        Cliente cliente = new Cliente();
+        cliente.setId(rs.getInt("id"));
+        cliente.setIdentificacion(rs.getString("identificacion"));
+        cliente.setNombreCompleto(rs.getString("nombreCompleto"));
+        Date fechaNacimiento = rs.getDate("fechaNacimiento");
+        if (fechaNacimiento != null) {
+            cliente.setFechaNacimiento(fechaNacimiento.toLocalDate());
+        }
+        cliente.setKycVerificado(rs.getBoolean("kycVerificado"));
+        cliente.setEmail(rs.getString("email"));
+        cliente.setTelefono(rs.getString("telefono"));
+        cliente.setDireccion(rs.getString("direccion"));
+        cliente.setPaisNacimiento(rs.getString("paisNacimiento"));
+        cliente.setNacionalidad(rs.getString("nacionalidad"));
+        cliente.setProfesion(rs.getString("profesion"));
+        cliente.setIngresosMensuales(rs.getString("ingresosMensuales"));
+        cliente.setOrigenFondos(rs.getString("origenFondos"));
+        cliente.setPep(rs.getBoolean("pep"));
+        cliente.setDocumentoIdentidad(rs.getString("documentoIdentidad"));
+        Timestamp fechaVerificacion = rs.getTimestamp("fechaVerificacionKyc");
+        if (fechaVerificacion != null) {
+            cliente.setFechaVerificacionKyc(fechaVerificacion.toLocalDateTime());
+        }
+        cliente.setEstadoKyc(rs.getString("estadoKyc"));
+        cliente.setObservacionesKyc(rs.getString("observacionesKyc"));
+        cliente.setEnListaRestrictiva(rs.getBoolean("enListaRestrictiva"));
+        cliente.setMotivoListaRestrictiva(rs.getString("motivoListaRestrictiva"));
+        return cliente;
+    }
+
+    /**
+     * Copia defensiva: quien recibe el cliente puede modificarlo sin alterar la caché
      */
-    public List<Cliente> listarPendientesKyc() {
-        return clientes.values().stream()
-            .filter(c -> "PENDIENTE".equals(c.getEstadoKyc()) ||
-                        c.getEstadoKyc() == null ||
-                        !c.isKycVerificado())
-            .sorted((c1, c2) -> Integer.compare(c1.getId(), c2.getId()))
-            .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+    private static Cliente copiar(Cliente original) {
+        Cliente copia = new Cliente();
+        copia.setId(original.getId());
+        copia.setIdentificacion(original.getIdentificacion());
+        copia.setNombreCompleto(original.getNombreCompleto());
+        copia.setFechaNacimiento(original.getFechaNacimiento());
+        copia.setKycVerificado(original.isKycVerificado());
+        copia.setEmail(original.getEmail());
+        copia.setTelefono(original.getTelefono());
+        copia.setDireccion(original.getDireccion());
+        copia.setPaisNacimiento(original.getPaisNacimiento());
+        copia.setNacionalidad(original.getNacionalidad());
+        copia.setProfesion(original.getProfesion());
+        copia.setIngresosMensuales(original.getIngresosMensuales());
+        copia.setOrigenFondos(original.getOrigenFondos());
+        copia.setPep(original.isPep());
+        copia.setDocumentoIdentidad(original.getDocumentoIdentidad());
+        copia.setFechaVerificacionKyc(original.getFechaVerificacionKyc());
+        copia.setEstadoKyc(original.getEstadoKyc());
+        copia.setObservacionesKyc(original.getObservacionesKyc());
+        copia.setEnListaRestrictiva(original.isEnListaRestrictiva());
+        copia.setMotivoListaRestrictiva(original.getMotivoListaRestrictiva());
+        return copia;
+    }
+
+    private static <K, V> Map<K, V> mapaLru() {
+        return Collections.synchronizedMap(new LinkedHashMap<K, V>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > CAPACIDAD_CACHE;
+            }
+        });
+    }
+
+    private static final class EntradaCache {
+        private final Cliente cliente;
+        private final long vence;
+
+        private EntradaCache(Cliente cliente, long vence) {
+            this.cliente = cliente;
+            this.vence = vence;
+        }
     }
 }
@@ -32,7 +32,7 @@ public class ServicioContabilidad extends Servicio {
             }
             sql.append(" ORDER BY fecha DESC, id DESC");
 
-            PreparedStatement ps = conexion.prepareStatement(sql.toString());
+            PreparedStatement ps = getConexion().prepareStatement(sql.toString());
             int paramIndex = 1;
 
             if (tipoTransaccion != null && !tipoTransaccion.isEmpty()) {
@@ -74,7 +74,7 @@ public class ServicioContabilidad extends Servicio {
                         "LEFT JOIN cuenta_contable c ON d.id_cuenta_contable = c.id " +
                         "WHERE d.id_asiento = ? ORDER BY d.id";
 
-            PreparedStatement ps = conexion.prepareStatement(sql);
+            PreparedStatement ps = getConexion().prepareStatement(sql);
             ps.setInt(1, idAsiento);
             ResultSet rs = ps.executeQuery();
 
@@ -102,7 +102,7 @@ public class ServicioContabilidad extends Servicio {
             conectarBD();
             String sql = "SELECT saldo FROM cuenta_contable WHERE codigo = ? AND activa = true";
 
-            PreparedStatement ps = conexion.prepareStatement(sql);
+            PreparedStatement ps = getConexion().prepareStatement(sql);
             ps.setString(1, codigoCuenta);
             ResultSet rs = ps.executeQuery();
 
@@ -134,7 +134,7 @@ public class ServicioContabilidad extends Servicio {
 
             String numeroAsiento = generarNumeroAsiento();
 
-            PreparedStatement ps = conexion.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
+            PreparedStatement ps = getConexion().prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS);
             ps.setString(1, numeroAsiento);
             ps.setTimestamp(2, java.sql.Timestamp.valueOf(LocalDateTime.now()));
             ps.setString(3, concepto);
@@ -179,7 +179,7 @@ public class ServicioContabilidad extends Servicio {
             String sql = "INSERT INTO detalle_asiento (id_asiento, id_cuenta_contable, " +
                         "debito, credito, concepto) VALUES (?, ?, ?, ?, ?)";
 
-            PreparedStatement ps = conexion.prepareStatement(sql);
+            PreparedStatement ps = getConexion().prepareStatement(sql);
             ps.setInt(1, idAsiento);
             ps.setInt(2, idCuentaContable);
             ps.setBigDecimal(3, debito != null ? debito : BigDecimal.ZERO);
@@ -208,7 +208,7 @@ public class ServicioContabilidad extends Servicio {
                         "             (SELECT COALESCE(SUM(credito), 0) FROM detalle_asiento WHERE id_asiento = ?)) " +
                         "WHERE id = ?";
 
-            PreparedStatement ps = conexion.prepareStatement(sql);
+            PreparedStatement ps = getConexion().prepareStatement(sql);
             ps.setInt(1, idAsiento);
             ps.setInt(2, idAsiento);
             ps.setInt(3, idAsiento);
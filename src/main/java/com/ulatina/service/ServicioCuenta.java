@@ -1,79 +1,109 @@
 package com.ulatina.service;
 
 import com.ulatina.data.Cuenta;
+import com.ulatina.data.Pagina;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Cuentas persistidas en la tabla cuentas.
+ *
+ * Los cambios de saldo se hacen dentro de una transacción con la fila bloqueada
+ * (SELECT ... FOR UPDATE) y cada cambio de la fila incrementa su versión.
+ * obtenerPorNumero se sirve desde una caché en memoria que se actualiza después
+ * de cada escritura confirmada; la caché devuelve copias para que un llamador
+ * no pueda modificar el estado compartido sin pasar por la base de datos.
+ * obtenerPorCliente y obtenerResumenCliente usan además un índice en memoria
+ * del cliente a los números de sus cuentas, que resuelve las filas en esa
+ * misma caché. Cada escritura confirmada se publica también como EventoCuenta.
+ */
 @ApplicationScoped
-public class ServicioCuenta {
-
-    // Simulación de almacenamiento en memoria (en producción usar base de datos)
-    private final Map<String, Cuenta> cuentas = new HashMap<>();
-    private int nextId = 1;
-
-    public ServicioCuenta() {
-        // Inicializar con datos de prueba
-        inicializarDatosPrueba();
-    }
-
-    private void inicializarDatosPrueba() {
-        // Cuenta corriente CRC
-        Cuenta cuenta1 = new Cuenta();
-        cuenta1.setId(nextId++);
-        cuenta1.setNumero("CR05015108410026012345");
-        cuenta1.setTipo("CORRIENTE");
-        cuenta1.setMoneda("CRC");
-        cuenta1.setSaldo(new BigDecimal("1250750.00"));
-        cuenta1.setEstado("ACTIVA");
-        cuenta1.setIdCliente(1);
-        cuenta1.setFechaApertura(LocalDateTime.now().minusMonths(6));
-        cuentas.put(cuenta1.getNumero(), cuenta1);
-
-        // Cuenta ahorros CRC
-        Cuenta cuenta2 = new Cuenta();
-        cuenta2.setId(nextId++);
-        cuenta2.setNumero("CR05015108410026067890");
-        cuenta2.setTipo("AHORROS");
-        cuenta2.setMoneda("CRC");
-        cuenta2.setSaldo(new BigDecimal("850300.50"));
-        cuenta2.setEstado("ACTIVA");
-        cuenta2.setIdCliente(1);
-        cuenta2.setFechaApertura(LocalDateTime.now().minusMonths(8));
-        cuentas.put(cuenta2.getNumero(), cuenta2);
-
-        // Cuenta USD
-        Cuenta cuenta3 = new Cuenta();
-        cuenta3.setId(nextId++);
-        cuenta3.setNumero("CR05015108410026098765");
-        cuenta3.setTipo("USD");
-        cuenta3.setMoneda("USD");
-        cuenta3.setSaldo(new BigDecimal("2150.75"));
-        cuenta3.setEstado("ACTIVA");
-        cuenta3.setIdCliente(2);
-        cuenta3.setFechaApertura(LocalDateTime.now().minusMonths(3));
-        cuentas.put(cuenta3.getNumero(), cuenta3);
-
-        // Cuenta con saldo negativo (para pruebas)
-        Cuenta cuenta4 = new Cuenta();
-        cuenta4.setId(nextId++);
-        cuenta4.setNumero("CR05015108410026123456");
-        cuenta4.setTipo("CORRIENTE");
-        cuenta4.setMoneda("CRC");
-        cuenta4.setSaldo(new BigDecimal("-15250.00"));
-        cuenta4.setEstado("BLOQUEADA");
-        cuenta4.setIdCliente(3);
-        cuenta4.setFechaApertura(LocalDateTime.now().minusMonths(4));
-        cuentas.put(cuenta4.getNumero(), cuenta4);
-    }
-
-    public Cuenta crear(Cuenta cuenta) {
-        cuenta.setId(nextId++);
-        if (cuenta.getNumero() == null) {
-            cuenta.setNumero(generarNumeroCuenta(cuenta.getMoneda()));
-        }
+public class ServicioCuenta extends Servicio {
+
+    private static final Logger LOGGER = Logger.getLogger(ServicioCuenta.class.getName());
+    private static final String PREFIJO_NUMERO_CUENTA = "CR05015108410026";
+
+    private static final int FRANJAS_BLOQUEO = 256;
+    private static final long ESPERA_BLOQUEO_MS = 5000;
+
+    private static final int LIMITE_MAXIMO_PAGINA = 100;
+    private static final long VIGENCIA_CONTEOS_MS = 30000;
+    private static final List<String> ESTADOS = Arrays.asList("ACTIVA", "BLOQUEADA", "CERRADA");
+    private static final List<String> MONEDAS = Arrays.asList("CRC", "USD");
+    private static final Map<String, String> ORDENES = Collections.singletonMap("saldo", "saldo");
+
+    private static final int CAPACIDAD_CACHE_CLIENTES = 10000;
+    private static final long VIGENCIA_CACHE_CLIENTES_MS = 300000;
+
+    private final Map<String, Cuenta> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Caché LRU acotada por idCliente con los números de sus cuentas, en orden
+     * de apertura, y el resumen de saldos una vez calculado. Se mantiene con
+     * las escrituras confirmadas: una apertura agrega el número, un cambio de
+     * saldo o estado descarta solo el resumen. Las entradas vencen a los cinco
+     * minutos para recoger cuentas abiertas desde otra instancia.
+     */
+    private final Map<Integer, EntradaCliente> cacheClientes = Collections.synchronizedMap(
+        new LinkedHashMap<Integer, EntradaCliente>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, EntradaCliente> eldest) {
+                return size() > CAPACIDAD_CACHE_CLIENTES;
+            }
+        });
+
+    // Se incrementa en cada invalidación; marca cuándo se escribió cada cliente
+    private final AtomicLong generacionClientes = new AtomicLong();
+
+    /**
+     * Generación de la última escritura de cada cliente, acotada como la caché.
+     * Una carga guarda su resultado solo si ninguna cuenta de ese cliente se
+     * escribió después de iniciarla; las escrituras de otros clientes no la
+     * cancelan. Al descartar un cliente su generación sube al piso, que vale
+     * para todos los que ya no están en el mapa. Se usa bajo el candado de
+     * cacheClientes.
+     */
+    private final Map<Integer, Long> escriturasClientes =
+        new LinkedHashMap<Integer, Long>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+                if (size() > CAPACIDAD_CACHE_CLIENTES) {
+                    pisoEscrituras = Math.max(pisoEscrituras, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    private long pisoEscrituras;
+
+    private final AtomicLong aciertosClientes = new AtomicLong();
+    private final AtomicLong fallosClientes = new AtomicLong();
+
+    // Totales del listado paginado del administrador por estado y moneda
+    private final CacheConteos conteos = new CacheConteos(VIGENCIA_CONTEOS_MS);
+
+    // Apertura, cambio de estado y de saldo confirmados (ver ServicioEstadisticas)
+    @Inject
+    private Event<EventoCuenta> eventosCuenta;
+
+    // Serializa en memoria los cambios de saldo de una misma cuenta antes de llegar a la base de datos
+    private final MotorBloqueoCuentas motorBloqueo = new MotorBloqueoCuentas(FRANJAS_BLOQUEO);
+
+    public Cuenta crear(Cuenta cuenta) throws Exception {
         if (cuenta.getFechaApertura() == null) {
             cuenta.setFechaApertura(LocalDateTime.now());
         }
@@ -84,100 +114,736 @@ public class ServicioCuenta {
             cuenta.setSaldo(BigDecimal.ZERO);
         }
 
-        cuentas.put(cuenta.getNumero(), cuenta);
+        String sql = "INSERT INTO cuentas (numeroCuenta, tipo, tipoMoneda, saldo, estado, idCliente, fechaCreacion, version) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+
+        List<Cuenta> escritas = new ArrayList<>();
+        try {
+            ejecutarEnTransaccion(conn -> {
+                // Sin número asignado se inserta con uno provisional y se reemplaza por el derivado del ID
+                boolean generarNumero = cuenta.getNumero() == null;
+                String numero = generarNumero ? "TMP-" + UUID.randomUUID() : cuenta.getNumero();
+
+                try (PreparedStatement ps = conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                    ps.setString(1, numero);
+                    ps.setString(2, cuenta.getTipo());
+                    ps.setString(3, cuenta.getMoneda());
+                    ps.setBigDecimal(4, cuenta.getSaldo());
+                    ps.setString(5, cuenta.getEstado());
+                    ps.setInt(6, cuenta.getIdCliente());
+                    ps.setTimestamp(7, Timestamp.valueOf(cuenta.getFechaApertura()));
+                    ps.executeUpdate();
+
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            cuenta.setId(rs.getInt(1));
+                        }
+                    }
+                }
+
+                if (generarNumero) {
+                    numero = generarNumeroCuenta(cuenta.getId());
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "UPDATE cuentas SET numeroCuenta = ? WHERE id = ?")) {
+                        ps.setString(1, numero);
+                        ps.setInt(2, cuenta.getId());
+                        ps.executeUpdate();
+                    }
+                    cuenta.setNumero(numero);
+                }
+
+                cuenta.setVersion(0);
+                escritas.add(copiar(cuenta));
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al crear cuenta: " + e.getMessage(), e);
+            throw new Exception("Error creando cuenta: " + e.getMessage(), e);
+        }
+
+        actualizarCache(escritas);
+        conteos.limpiar();
+        for (Cuenta escrita : escritas) {
+            actualizarCacheCliente(null, escrita);
+            publicar(null, escrita);
+        }
         return cuenta;
     }
 
-    public Cuenta obtenerPorNumero(String numeroCuenta) {
-        return cuentas.get(numeroCuenta);
+    public Cuenta obtenerPorNumero(String numeroCuenta) throws Exception {
+        if (numeroCuenta == null) {
+            return null;
+        }
+
+        Cuenta enCache = cache.get(numeroCuenta);
+        if (enCache != null) {
+            return copiar(enCache);
+        }
+
+        Cuenta cuenta;
+        try {
+            conectarBD();
+            cuenta = buscarPorNumero(getConexion(), numeroCuenta, false);
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener cuenta: " + e.getMessage(), e);
+            throw new Exception("Error obteniendo cuenta: " + e.getMessage(), e);
+        } finally {
+            cerrarConexion();
+        }
+
+        if (cuenta == null) {
+            return null;
+        }
+
+        actualizarCache(Collections.singletonList(cuenta));
+        return copiar(cuenta);
     }
 
-    public Cuenta obtenerPorId(int id) {
-        return cuentas.values().stream()
-            .filter(c -> c.getId() == id)
-            .findFirst()
-            .orElse(null);
+    public Cuenta obtenerPorId(int id) throws Exception {
+        List<Cuenta> cuentas = consultar("SELECT * FROM cuentas WHERE id = ?", id);
+        return cuentas.isEmpty() ? null : cuentas.get(0);
     }
 
-    public void actualizarSaldo(String numeroCuenta, BigDecimal nuevoSaldo) {
-        Cuenta cuenta = cuentas.get(numeroCuenta);
-        if (cuenta != null) {
-            cuenta.setSaldo(nuevoSaldo);
+    /**
+     * Fija el saldo de una cuenta (ajuste administrativo). Las operaciones
+     * normales deben usar transferir, debitar o acreditar.
+     */
+    public void actualizarSaldo(String numeroCuenta, BigDecimal nuevoSaldo) throws Exception {
+        motorBloqueo.ejecutar(numeroCuenta, ESPERA_BLOQUEO_MS, TimeUnit.MILLISECONDS,
+            () -> ejecutarCambio("Error actualizando saldo", numeroCuenta, (conn, actual) -> {
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "UPDATE cuentas SET saldo = ?, version = version + 1 WHERE numeroCuenta = ?")) {
+                    ps.setBigDecimal(1, nuevoSaldo);
+                    ps.setString(2, numeroCuenta);
+                    return ps.executeUpdate() > 0;
+                }
+            }));
+    }
+
+    /**
+     * Cuentas del cliente en orden de apertura. Con el cliente en la caché se
+     * arman desde la caché de cuentas sin consultar la base de datos.
+     */
+    public List<Cuenta> obtenerPorCliente(int idCliente) throws Exception {
+        List<Cuenta> enCache = cuentasEnCache(idCliente);
+        if (enCache != null) {
+            aciertosClientes.incrementAndGet();
+            return enCache;
         }
+
+        fallosClientes.incrementAndGet();
+        long generacion = generacionClientes.get();
+        List<Cuenta> cuentas = consultar("SELECT * FROM cuentas WHERE idCliente = ? ORDER BY id", idCliente);
+        actualizarCache(cuentas);
+
+        List<String> numeros = new ArrayList<>();
+        for (Cuenta cuenta : cuentas) {
+            numeros.add(cuenta.getNumero());
+        }
+        synchronized (cacheClientes) {
+            // Si se escribió el cliente mientras se consultaba, el resultado puede estar desactualizado
+            if (sinEscriturasDesde(idCliente, generacion)) {
+                cacheClientes.put(idCliente, new EntradaCliente(numeros, null,
+                                                                System.currentTimeMillis() + VIGENCIA_CACHE_CLIENTES_MS));
+            }
+        }
+
+        return cuentas;
     }
 
-    public List<Cuenta> obtenerPorCliente(int idCliente) {
-        return cuentas.values().stream()
-            .filter(c -> c.getIdCliente() == idCliente)
-            .collect(Collectors.toList());
+    /**
+     * Cantidad de cuentas del cliente y saldo de las activas por moneda. Se
+     * calcula una vez y se reutiliza hasta que cambia alguna de sus cuentas.
+     */
+    public ResumenCliente obtenerResumenCliente(int idCliente) throws Exception {
+        EntradaCliente entrada = entradaVigente(idCliente);
+        if (entrada != null && entrada.resumen != null) {
+            aciertosClientes.incrementAndGet();
+            return entrada.resumen;
+        }
+
+        long generacion = generacionClientes.get();
+        List<Cuenta> cuentas = obtenerPorCliente(idCliente);
+        ResumenCliente resumen = ResumenCliente.de(cuentas);
+
+        synchronized (cacheClientes) {
+            if (sinEscriturasDesde(idCliente, generacion)) {
+                cacheClientes.computeIfPresent(idCliente, (id, actual) -> actual.conResumen(resumen));
+            }
+        }
+        return resumen;
     }
 
-    public List<Cuenta> listarTodas() {
-        return new ArrayList<>(cuentas.values());
+    public List<Cuenta> listarTodas() throws Exception {
+        return consultar("SELECT * FROM cuentas ORDER BY id");
     }
 
-    public void cambiarEstado(String numeroCuenta, String nuevoEstado) {
-        Cuenta cuenta = cuentas.get(numeroCuenta);
-        if (cuenta != null) {
-            cuenta.setEstado(nuevoEstado);
+    /**
+     * Página de cuentas por llave (keyset), con los filtros y el orden
+     * resueltos en la consulta. El costo de cada página no depende de qué tan
+     * profundo se navegue.
+     *
+     * @param estado filtro opcional: ACTIVA, BLOQUEADA o CERRADA
+     * @param moneda filtro opcional: CRC o USD
+     * @param orden  id o saldo, con "-" adelante para descendente
+     * @param cursor cursor devuelto por la página anterior, o null para la primera
+     */
+    public Pagina<Cuenta> obtenerPagina(String estado, String moneda, String orden, String cursor, int limite)
+            throws Exception {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite debe ser un número positivo");
+        }
+        limite = Math.min(limite, LIMITE_MAXIMO_PAGINA);
+
+        String filtroEstado = validarFiltro(estado, ESTADOS, "Estado");
+        String filtroMoneda = validarFiltro(moneda, MONEDAS, "Moneda");
+        OrdenPaginado ordenPaginado = OrdenPaginado.de(orden, ORDENES, "saldo");
+        OrdenPaginado.Posicion posicion = ordenPaginado.decodificar(cursor);
+
+        StringBuilder sqlBuilder = new StringBuilder("SELECT * FROM cuentas WHERE 1 = 1");
+        if (filtroEstado != null) {
+            sqlBuilder.append(" AND estado = ?");
         }
+        if (filtroMoneda != null) {
+            sqlBuilder.append(" AND tipoMoneda = ?");
+        }
+        if (posicion != null) {
+            sqlBuilder.append(" AND ").append(ordenPaginado.condicion());
+        }
+        sqlBuilder.append(" ORDER BY ").append(ordenPaginado.ordenSql()).append(" LIMIT ?");
+
+        List<Cuenta> cuentas = new ArrayList<>();
+        boolean hayMas = false;
+
+        try {
+            conectarBD();
+            try (PreparedStatement ps = getConexion().prepareStatement(sqlBuilder.toString())) {
+                int indice = 1;
+                if (filtroEstado != null) {
+                    ps.setString(indice++, filtroEstado);
+                }
+                if (filtroMoneda != null) {
+                    ps.setString(indice++, filtroMoneda);
+                }
+                if (posicion != null) {
+                    indice = ordenPaginado.asignar(ps, indice, posicion);
+                }
+                // Se pide una fila extra para saber si existe una página siguiente
+                ps.setInt(indice, limite + 1);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (cuentas.size() == limite) {
+                            hayMas = true;
+                            break;
+                        }
+                        cuentas.add(mapearCuenta(rs));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener página de cuentas: " + e.getMessage(), e);
+            throw new Exception("Error obteniendo página de cuentas: " + e.getMessage(), e);
+        } finally {
+            cerrarConexion();
+        }
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            Cuenta ultima = cuentas.get(cuentas.size() - 1);
+            siguienteCursor = ordenPaginado.cursor(ultima.getSaldo() != null ? ultima.getSaldo().toPlainString() : "0",
+                                                   ultima.getId());
+        }
+
+        return new Pagina<>(cuentas, siguienteCursor);
     }
 
-    public List<Cuenta> listarActivas() {
-        return cuentas.values().stream()
-            .filter(c -> "ACTIVA".equals(c.getEstado()))
-            .collect(Collectors.toList());
+    /**
+     * Total de cuentas con los filtros indicados. Se guarda unos segundos (ver
+     * CacheConteos), así paginar no repite el conteo en cada página.
+     */
+    public long contar(String estado, String moneda) throws Exception {
+        String filtroEstado = validarFiltro(estado, ESTADOS, "Estado");
+        String filtroMoneda = validarFiltro(moneda, MONEDAS, "Moneda");
+
+        return conteos.obtener(filtroEstado + "|" + filtroMoneda, () -> {
+            String sql = "SELECT COUNT(*) FROM cuentas WHERE 1 = 1" +
+                         (filtroEstado != null ? " AND estado = ?" : "") +
+                         (filtroMoneda != null ? " AND tipoMoneda = ?" : "");
+            try {
+                conectarBD();
+                try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
+                    int indice = 1;
+                    if (filtroEstado != null) {
+                        ps.setString(indice++, filtroEstado);
+                    }
+                    if (filtroMoneda != null) {
+                        ps.setString(indice, filtroMoneda);
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return rs.next() ? rs.getLong(1) : 0;
+                    }
+                }
+            } catch (SQLException e) {
+                LOGGER.log(Level.SEVERE, "Error al contar cuentas: " + e.getMessage(), e);
+                throw new Exception("Error contando cuentas: " + e.getMessage(), e);
+            } finally {
+                cerrarConexion();
+            }
+        });
     }
 
-    public void actualizar(Cuenta cuenta) {
-        if (cuentas.containsKey(cuenta.getNumero())) {
-            cuentas.put(cuenta.getNumero(), cuenta);
+    private static String validarFiltro(String valor, List<String> permitidos, String nombre) {
+        if (valor == null || valor.trim().isEmpty()) {
+            return null;
         }
+        String filtro = valor.trim().toUpperCase();
+        if (!permitidos.contains(filtro)) {
+            throw new IllegalArgumentException(nombre + " no soportado: " + valor);
+        }
+        return filtro;
+    }
+
+    public void cambiarEstado(String numeroCuenta, String nuevoEstado) throws Exception {
+        ejecutarCambio("Error cambiando estado de cuenta", numeroCuenta, (conn, actual) -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE cuentas SET estado = ?, version = version + 1 WHERE numeroCuenta = ?")) {
+                ps.setString(1, nuevoEstado);
+                ps.setString(2, numeroCuenta);
+                return ps.executeUpdate() > 0;
+            }
+        });
+        conteos.limpiar();
+    }
+
+    public List<Cuenta> listarActivas() throws Exception {
+        return consultar("SELECT * FROM cuentas WHERE estado = ? ORDER BY id", "ACTIVA");
+    }
+
+    /**
+     * Actualiza los datos descriptivos de la cuenta (tipo, moneda, estado y
+     * cliente). El saldo nunca se toma del objeto recibido: así una copia
+     * desactualizada no puede pisar el resultado de una transferencia.
+     */
+    public void actualizar(Cuenta cuenta) throws Exception {
+        ejecutarCambio("Error actualizando cuenta", cuenta.getNumero(), (conn, actual) -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE cuentas SET tipo = ?, tipoMoneda = ?, estado = ?, idCliente = ?, version = version + 1 " +
+                    "WHERE numeroCuenta = ?")) {
+                ps.setString(1, cuenta.getTipo());
+                ps.setString(2, cuenta.getMoneda());
+                ps.setString(3, cuenta.getEstado());
+                ps.setInt(4, cuenta.getIdCliente());
+                ps.setString(5, cuenta.getNumero());
+                return ps.executeUpdate() > 0;
+            }
+        });
+        conteos.limpiar();
     }
 
-    private String generarNumeroCuenta(String tipoMoneda) {
-        return "CR05015108410026" + String.format("%06d", nextId);
+    private String generarNumeroCuenta(int id) {
+        return PREFIJO_NUMERO_CUENTA + String.format("%06d", id);
     }
 
-    public boolean transferir(String cuentaOrigen, String cuentaDestino, BigDecimal monto) {
-        Cuenta origen = cuentas.get(cuentaOrigen);
-        Cuenta destino = cuentas.get(cuentaDestino);
+    /**
+     * Transfiere entre dos cuentas en una sola transacción. Primero se toman
+     * las franjas de ambas cuentas en el motor de bloqueo y luego las filas con
+     * FOR UPDATE, ambas en orden canónico para que dos transferencias cruzadas
+     * no se bloqueen mutuamente.
+     *
+     * @return false si alguna cuenta no existe o el saldo es insuficiente
+     */
+    public boolean transferir(String cuentaOrigen, String cuentaDestino, BigDecimal monto) throws Exception {
+        if (monto == null || monto.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("El monto debe ser mayor a cero");
+        }
 
-        if (origen == null || destino == null) {
+        if (cuentaOrigen == null || cuentaDestino == null || cuentaOrigen.equals(cuentaDestino)) {
             return false;
         }
 
-        if (origen.getSaldo().compareTo(monto) < 0) {
-            return false; // Saldo insuficiente
+        return motorBloqueo.ejecutar(cuentaOrigen, cuentaDestino, ESPERA_BLOQUEO_MS, TimeUnit.MILLISECONDS,
+            () -> transferirBloqueado(cuentaOrigen, cuentaDestino, monto));
+    }
+
+    private boolean transferirBloqueado(String cuentaOrigen, String cuentaDestino, BigDecimal monto) throws Exception {
+        boolean[] realizada = {false};
+        List<Cuenta> anteriores = new ArrayList<>();
+        List<Cuenta> escritas = new ArrayList<>();
+
+        try {
+            ejecutarEnTransaccion(conn -> {
+                Map<String, Cuenta> bloqueadas = bloquearCuentas(conn, cuentaOrigen, cuentaDestino);
+                Cuenta origen = bloqueadas.get(cuentaOrigen);
+                Cuenta destino = bloqueadas.get(cuentaDestino);
+
+                if (origen == null || destino == null) {
+                    return;
+                }
+
+                if (origen.getSaldo().compareTo(monto) < 0) {
+                    return; // Saldo insuficiente
+                }
+
+                anteriores.add(copiar(origen));
+                anteriores.add(copiar(destino));
+
+                // Realizar transferencia
+                modificarSaldo(conn, origen, monto.negate());
+                modificarSaldo(conn, destino, monto);
+
+                escritas.add(origen);
+                escritas.add(destino);
+                realizada[0] = true;
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al transferir: " + e.getMessage(), e);
+            throw new Exception("Error realizando transferencia: " + e.getMessage(), e);
         }
 
-        // Realizar transferencia
-        origen.setSaldo(origen.getSaldo().subtract(monto));
-        destino.setSaldo(destino.getSaldo().add(monto));
+        actualizarCache(escritas);
+        for (int i = 0; i < escritas.size(); i++) {
+            actualizarCacheCliente(anteriores.get(i), escritas.get(i));
+            publicar(anteriores.get(i), escritas.get(i));
+        }
+        return realizada[0];
+    }
+
+    /**
+     * Debita la cuenta si tiene saldo suficiente
+     *
+     * @return false si la cuenta no existe o el saldo es insuficiente
+     */
+    public boolean debitar(String numeroCuenta, BigDecimal monto) throws Exception {
+        if (monto == null || monto.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("El monto debe ser mayor a cero");
+        }
 
-        return true;
+        return motorBloqueo.ejecutar(numeroCuenta, ESPERA_BLOQUEO_MS, TimeUnit.MILLISECONDS,
+            () -> ejecutarCambio("Error debitando cuenta", numeroCuenta, (conn, cuenta) -> {
+                if (cuenta == null || cuenta.getSaldo().compareTo(monto) < 0) {
+                    return false;
+                }
+                modificarSaldo(conn, cuenta, monto.negate());
+                return true;
+            }));
     }
 
-    public void bloquear(String numeroCuenta) {
-        Cuenta cuenta = cuentas.get(numeroCuenta);
-        if (cuenta != null) {
-            cuenta.setEstado("BLOQUEADA");
+    /**
+     * Acredita la cuenta
+     *
+     * @return false si la cuenta no existe
+     */
+    public boolean acreditar(String numeroCuenta, BigDecimal monto) throws Exception {
+        if (monto == null || monto.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("El monto debe ser mayor a cero");
         }
+
+        return motorBloqueo.ejecutar(numeroCuenta, ESPERA_BLOQUEO_MS, TimeUnit.MILLISECONDS,
+            () -> ejecutarCambio("Error acreditando cuenta", numeroCuenta, (conn, cuenta) -> {
+                if (cuenta == null) {
+                    return false;
+                }
+                modificarSaldo(conn, cuenta, monto);
+                return true;
+            }));
+    }
+
+    public void bloquear(String numeroCuenta) throws Exception {
+        cambiarEstado(numeroCuenta, "BLOQUEADA");
     }
 
     /**
      * Obtiene una cuenta por su número (método requerido por ServicioSwift)
      */
-    public Cuenta obtenerCuenta(String numeroCuenta) {
-        return cuentas.get(numeroCuenta);
+    public Cuenta obtenerCuenta(String numeroCuenta) throws Exception {
+        return obtenerPorNumero(numeroCuenta);
     }
 
     /**
      * Actualiza una cuenta existente (método requerido por ServicioSwift)
      */
-    public void actualizarCuenta(Cuenta cuenta) {
+    public void actualizarCuenta(Cuenta cuenta) throws Exception {
         if (cuenta != null && cuenta.getNumero() != null) {
-            cuentas.put(cuenta.getNumero(), cuenta);
+            actualizar(cuenta);
+        }
+    }
+
+    /**
+     * Descarta la caché; la siguiente lectura de cada cuenta va a la base de datos
+     */
+    public void limpiarCache() {
+        cache.clear();
+        conteos.limpiar();
+        synchronized (cacheClientes) {
+            pisoEscrituras = generacionClientes.incrementAndGet();
+            escriturasClientes.clear();
+            cacheClientes.clear();
+        }
+    }
+
+    /**
+     * Métricas del índice de cuentas por cliente
+     */
+    public Map<String, Object> obtenerMetricasCacheClientes() {
+        long aciertos = aciertosClientes.get();
+        long fallos = fallosClientes.get();
+
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("entradas", cacheClientes.size());
+        metricas.put("capacidad", CAPACIDAD_CACHE_CLIENTES);
+        metricas.put("aciertos", aciertos);
+        metricas.put("fallos", fallos);
+        metricas.put("porcentajeAciertos", aciertos + fallos > 0 ? (aciertos * 100) / (aciertos + fallos) : 0);
+        return metricas;
+    }
+
+    /**
+     * Ejecuta un cambio sobre una cuenta en una transacción, con la fila
+     * bloqueada (FOR UPDATE) y leída antes de aplicarlo, refresca su entrada en
+     * la caché con la fila confirmada y publica el cambio
+     */
+    private boolean ejecutarCambio(String mensajeError, String numeroCuenta, CambioCuenta cambio) throws Exception {
+        boolean[] aplicado = {false};
+        Cuenta[] anterior = new Cuenta[1];
+        List<Cuenta> escritas = new ArrayList<>();
+
+        try {
+            ejecutarEnTransaccion(conn -> {
+                anterior[0] = buscarPorNumero(conn, numeroCuenta, true);
+                // El cambio recibe una copia: puede modificarla sin alterar la fila anterior
+                aplicado[0] = cambio.aplicar(conn, anterior[0] != null ? copiar(anterior[0]) : null);
+                if (aplicado[0]) {
+                    Cuenta leida = buscarPorNumero(conn, numeroCuenta, false);
+                    if (leida != null) {
+                        escritas.add(leida);
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, mensajeError + ": " + e.getMessage(), e);
+            throw new Exception(mensajeError + ": " + e.getMessage(), e);
+        }
+
+        actualizarCache(escritas);
+        for (Cuenta escrita : escritas) {
+            actualizarCacheCliente(anterior[0], escrita);
+            publicar(anterior[0], escrita);
         }
+        return aplicado[0];
+    }
+
+    @FunctionalInterface
+    private interface CambioCuenta {
+        /**
+         * @param actual la fila bloqueada antes del cambio, o null si la cuenta no existe
+         */
+        boolean aplicar(Connection conn, Cuenta actual) throws SQLException;
+    }
+
+    /**
+     * Publica un cambio ya confirmado. Un error en un observador se registra
+     * y no afecta la operación, que ya está en la base de datos.
+     */
+    private void publicar(Cuenta anterior, Cuenta actual) {
+        if (eventosCuenta == null) {
+            return; // Instanciado fuera del contenedor
+        }
+        try {
+            eventosCuenta.fire(new EventoCuenta(anterior != null ? copiar(anterior) : null, copiar(actual)));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Error publicando cambio de la cuenta " + actual.getNumero(), e);
+        }
+    }
+
+    private Map<String, Cuenta> bloquearCuentas(Connection conn, String numero1, String numero2) throws SQLException {
+        Map<String, Cuenta> cuentas = new HashMap<>();
+        String sql = "SELECT * FROM cuentas WHERE numeroCuenta IN (?, ?) ORDER BY numeroCuenta FOR UPDATE";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            boolean enOrden = numero1.compareTo(numero2) < 0;
+            ps.setString(1, enOrden ? numero1 : numero2);
+            ps.setString(2, enOrden ? numero2 : numero1);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Cuenta cuenta = mapearCuenta(rs);
+                    cuentas.put(cuenta.getNumero(), cuenta);
+                }
+            }
+        }
+
+        return cuentas;
+    }
+
+    private void modificarSaldo(Connection conn, Cuenta cuenta, BigDecimal delta) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE cuentas SET saldo = saldo + ?, version = version + 1 WHERE id = ?")) {
+            ps.setBigDecimal(1, delta);
+            ps.setInt(2, cuenta.getId());
+            ps.executeUpdate();
+        }
+
+        cuenta.setSaldo(cuenta.getSaldo().add(delta));
+        cuenta.setVersion(cuenta.getVersion() + 1);
+    }
+
+    private Cuenta buscarPorNumero(Connection conn, String numeroCuenta, boolean bloquear) throws SQLException {
+        String sql = "SELECT * FROM cuentas WHERE numeroCuenta = ?" + (bloquear ? " FOR UPDATE" : "");
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, numeroCuenta);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapearCuenta(rs) : null;
+            }
+        }
+    }
+
+    private List<Cuenta> consultar(String sql, Object... parametros) throws Exception {
+        List<Cuenta> cuentas = new ArrayList<>();
+
+        try {
+            conectarBD();
+            try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
+                for (int i = 0; i < parametros.length; i++) {
+                    ps.setObject(i + 1, parametros[i]);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        cuentas.add(mapearCuenta(rs));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al consultar cuentas: " + e.getMessage(), e);
+            throw new Exception("Error consultando cuentas: " + e.getMessage(), e);
+        } finally {
+            cerrarConexion();
+        }
+
+        return cuentas;
+    }
+
+    /**
+     * Guarda en la caché las filas confirmadas. Si dos escrituras terminan en
+     * desorden se conserva la de mayor versión.
+     */
+    private void actualizarCache(List<Cuenta> cuentas) {
+        for (Cuenta cuenta : cuentas) {
+            cache.merge(cuenta.getNumero(), copiar(cuenta),
+                (actual, nueva) -> nueva.getVersion() >= actual.getVersion() ? nueva : actual);
+        }
+    }
+
+    /**
+     * Refleja una escritura confirmada en el índice por cliente: una apertura
+     * agrega la cuenta a su cliente, cualquier otro cambio descarta el resumen
+     * y una cuenta que cambia de cliente descarta la entrada de ambos.
+     *
+     * @param anterior la fila antes del cambio, o null en la apertura
+     */
+    private void actualizarCacheCliente(Cuenta anterior, Cuenta actual) {
+        synchronized (cacheClientes) {
+            long generacion = generacionClientes.incrementAndGet();
+            escriturasClientes.put(actual.getIdCliente(), generacion);
+
+            if (anterior != null && anterior.getIdCliente() != actual.getIdCliente()) {
+                escriturasClientes.put(anterior.getIdCliente(), generacion);
+                cacheClientes.remove(anterior.getIdCliente());
+                cacheClientes.remove(actual.getIdCliente());
+            } else if (anterior == null) {
+                // La cuenta nueva tiene el id más alto: se conserva el orden de apertura
+                cacheClientes.computeIfPresent(actual.getIdCliente(),
+                                               (id, entrada) -> entrada.conCuenta(actual.getNumero()));
+            } else {
+                cacheClientes.computeIfPresent(actual.getIdCliente(), (id, entrada) -> entrada.conResumen(null));
+            }
+        }
+    }
+
+    /**
+     * Indica si ninguna cuenta del cliente se escribió después de la
+     * generación dada. Se llama con el candado de cacheClientes.
+     */
+    private boolean sinEscriturasDesde(int idCliente, long generacion) {
+        return escriturasClientes.getOrDefault(idCliente, pisoEscrituras) <= generacion;
+    }
+
+    /**
+     * Cuentas del cliente resueltas desde la caché, o null si el cliente no
+     * está indexado o alguna de sus cuentas ya no está en la caché
+     */
+    private List<Cuenta> cuentasEnCache(int idCliente) {
+        EntradaCliente entrada = entradaVigente(idCliente);
+        if (entrada == null) {
+            return null;
+        }
+
+        List<Cuenta> cuentas = new ArrayList<>(entrada.numeros.size());
+        for (String numero : entrada.numeros) {
+            Cuenta cuenta = cache.get(numero);
+            // La cuenta pudo pasar a otro cliente por un cambio que la entrada no vio
+            if (cuenta == null || cuenta.getIdCliente() != idCliente) {
+                return null;
+            }
+            cuentas.add(copiar(cuenta));
+        }
+        return cuentas;
+    }
+
+    private EntradaCliente entradaVigente(int idCliente) {
+        EntradaCliente entrada = cacheClientes.get(idCliente);
+        return entrada != null && entrada.vence > System.currentTimeMillis() ? entrada : null;
+    }
+
+    /**
+     * Entrada inmutable del índice por cliente; los cambios la reemplazan
+     */
+    private static final class EntradaCliente {
+        private final List<String> numeros;
+        private final ResumenCliente resumen;
+        private final long vence;
+
+        private EntradaCliente(List<String> numeros, ResumenCliente resumen, long vence) {
+            this.numeros = Collections.unmodifiableList(numeros);
+            this.resumen = resumen;
+            this.vence = vence;
+        }
+
+        private EntradaCliente conCuenta(String numero) {
+            List<String> ampliada = new ArrayList<>(numeros);
+            ampliada.add(numero);
+            return new EntradaCliente(ampliada, null, vence);
+        }
+
+        private EntradaCliente conResumen(ResumenCliente nuevo) {
+            return new EntradaCliente(numeros, nuevo, vence);
+        }
+    }
+
+    private static Cuenta copiar(Cuenta original) {
+        Cuenta copia = new Cuenta(original.getId(), original.getNumero(), original.getTipo(), original.getMoneda(),
+                                  original.getSaldo(), original.getEstado(), original.getIdCliente());
+        copia.setFechaApertura(original.getFechaApertura());
+        copia.setVersion(original.getVersion());
+        return copia;
+    }
+
+    private Cuenta mapearCuenta(ResultSet rs) throws SQLException {
+        Cuenta cuenta = new Cuenta();
+        cuenta.setId(rs.getInt("id"));
+        cuenta.setNumero(rs.getString("numeroCuenta"));
+        cuenta.setTipo(rs.getString("tipo"));
+        cuenta.setMoneda(rs.getString("tipoMoneda"));
+        cuenta.setSaldo(rs.getBigDecimal("saldo"));
+        cuenta.setEstado(rs.getString("estado"));
+        cuenta.setIdCliente(rs.getInt("idCliente"));
+        cuenta.setVersion(rs.getLong("version"));
+
+        Timestamp fechaCreacion = rs.getTimestamp("fechaCreacion");
+        if (fechaCreacion != null) {
+            cuenta.setFechaApertura(fechaCreacion.toLocalDateTime());
+        }
+
+        return cuenta;
     }
 }
@@ -0,0 +1,213 @@
+package com.ulatina.service;
+
+import com.ulatina.data.Cuenta;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * Contadores de cuentas por estado y moneda, con la suma de saldos de cada
+ * grupo, para el tablero del administrador. Se cargan una vez desde la tabla
+ * cuentas y después se actualizan con cada EventoCuenta (apertura, cambio de
+ * estado o de saldo), así consultarlos no recorre las cuentas.
+ *
+ * Los cambios hechos fuera de ServicioCuenta (otra instancia, procedimientos
+ * almacenados, correcciones manuales) no generan eventos: reconciliar() vuelve
+ * a calcular los grupos desde la base de datos y reemplaza los contadores; se
+ * ejecuta periódicamente desde ServicioProgramadoConciliacion. Un cambio que
+ * se confirma mientras corre la reconciliación puede quedar contado dos veces
+ * o ninguna hasta la siguiente.
+ */
+@ApplicationScoped
+public class ServicioEstadisticas extends Servicio {
+
+    private static final Logger logger = Logger.getLogger(ServicioEstadisticas.class.getName());
+
+    private static final String ESTADO_ACTIVA = "ACTIVA";
+
+    // Clave "ESTADO|MONEDA"; solo se accede con el monitor de esta instancia
+    private final Map<String, Grupo> grupos = new HashMap<>();
+    private boolean cargado;
+    private long eventosAplicados;
+    private LocalDateTime ultimaReconciliacion;
+
+    /**
+     * Aplica un cambio confirmado: resta la fila anterior de su grupo y suma
+     * la actual al suyo
+     */
+    public synchronized void alCambiarCuenta(@Observes EventoCuenta evento) {
+        if (!cargado) {
+            return; // La primera consulta carga todo desde la base de datos
+        }
+        if (evento.getAnterior() != null) {
+            grupo(evento.getAnterior()).restar(evento.getAnterior().getSaldo());
+        }
+        if (evento.getActual() != null) {
+            grupo(evento.getActual()).sumar(evento.getActual().getSaldo());
+        }
+        eventosAplicados++;
+    }
+
+    /**
+     * Estadísticas de cuentas desde los contadores, sin consultar la base de
+     * datos salvo la primera vez
+     */
+    public Map<String, Object> obtenerEstadisticasCuentas() throws Exception {
+        if (!estaCargado()) {
+            reconciliar();
+        }
+
+        Map<String, Long> cuentasPorEstado = new TreeMap<>();
+        Map<String, Long> cuentasPorMoneda = new TreeMap<>();
+        Map<String, BigDecimal> depositosPorMoneda = new TreeMap<>();
+        long totalCuentas = 0;
+        BigDecimal totalDepositos = BigDecimal.ZERO;
+
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        synchronized (this) {
+            for (Grupo grupo : grupos.values()) {
+                totalCuentas += grupo.cuentas;
+                cuentasPorEstado.merge(grupo.estado, grupo.cuentas, Long::sum);
+                cuentasPorMoneda.merge(grupo.moneda, grupo.cuentas, Long::sum);
+                if (ESTADO_ACTIVA.equals(grupo.estado)) {
+                    depositosPorMoneda.merge(grupo.moneda, grupo.saldo, BigDecimal::add);
+                    totalDepositos = totalDepositos.add(grupo.saldo);
+                }
+            }
+            estadisticas.put("eventosAplicados", eventosAplicados);
+            estadisticas.put("ultimaReconciliacion", String.valueOf(ultimaReconciliacion));
+        }
+
+        estadisticas.put("totalCuentas", totalCuentas);
+        estadisticas.put("cuentasActivas", cuentasPorEstado.getOrDefault(ESTADO_ACTIVA, 0L));
+        estadisticas.put("cuentasPorEstado", cuentasPorEstado);
+        estadisticas.put("cuentasPorMoneda", cuentasPorMoneda);
+        estadisticas.put("depositosPorMoneda", depositosPorMoneda);
+        // Suma nominal de todas las monedas, como la calculaba el tablero; texto, como lo recibían sus clientes
+        estadisticas.put("totalDepositos", totalDepositos.toPlainString());
+        return estadisticas;
+    }
+
+    /**
+     * Recalcula los contadores desde la tabla cuentas. La consulta corre sin
+     * tomar el monitor, así los eventos de las transferencias no esperan por
+     * ella; solo el reemplazo de los contadores es exclusivo.
+     *
+     * @return grupos y grupos que no coincidían con los contadores
+     */
+    public Map<String, Object> reconciliar() throws Exception {
+        long inicio = System.currentTimeMillis();
+        Map<String, Grupo> calculados = new HashMap<>();
+
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            conectarBD();
+            ps = getConexion().prepareStatement(
+                "SELECT estado, tipoMoneda, COUNT(*) AS cuentas, COALESCE(SUM(saldo), 0) AS saldo " +
+                "FROM cuentas GROUP BY estado, tipoMoneda");
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                Grupo grupo = new Grupo(rs.getString("estado"), rs.getString("tipoMoneda"));
+                grupo.cuentas = rs.getLong("cuentas");
+                grupo.saldo = rs.getBigDecimal("saldo");
+                calculados.put(clave(grupo.estado, grupo.moneda), grupo);
+            }
+
+        } catch (Exception e) {
+            throw new Exception("Error reconciliando estadísticas de cuentas: " + e.getMessage(), e);
+        } finally {
+            cerrarResultSet(rs);
+            cerrarPreparedStatement(ps);
+            cerrarConexion();
+        }
+
+        int diferencias = reemplazar(calculados);
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("grupos", calculados.size());
+        resultado.put("diferencias", diferencias);
+        resultado.put("duracionMs", System.currentTimeMillis() - inicio);
+        return resultado;
+    }
+
+    /**
+     * @return grupos que no coincidían con los contadores
+     */
+    private synchronized int reemplazar(Map<String, Grupo> calculados) {
+        int diferencias = 0;
+        if (cargado) {
+            Map<String, Grupo> todos = new HashMap<>(grupos);
+            todos.putAll(calculados);
+            for (String clave : todos.keySet()) {
+                if (!Grupo.iguales(grupos.get(clave), calculados.get(clave))) {
+                    diferencias++;
+                }
+            }
+            if (diferencias > 0) {
+                logger.warning("Reconciliación de estadísticas: " + diferencias +
+                               " grupos de cuentas no coincidían con los contadores");
+            }
+        }
+
+        grupos.clear();
+        grupos.putAll(calculados);
+        cargado = true;
+        ultimaReconciliacion = LocalDateTime.now();
+        return diferencias;
+    }
+
+    private synchronized boolean estaCargado() {
+        return cargado;
+    }
+
+    private Grupo grupo(Cuenta cuenta) {
+        return grupos.computeIfAbsent(clave(cuenta.getEstado(), cuenta.getMoneda()),
+                                      k -> new Grupo(cuenta.getEstado(), cuenta.getMoneda()));
+    }
+
+    private static String clave(String estado, String moneda) {
+        return estado + "|" + moneda;
+    }
+
+    private static final class Grupo {
+        private final String estado;
+        private final String moneda;
+        private long cuentas;
+        private BigDecimal saldo = BigDecimal.ZERO;
+
+        private Grupo(String estado, String moneda) {
+            this.estado = estado;
+            this.moneda = moneda;
+        }
+
+        private void sumar(BigDecimal monto) {
+            cuentas++;
+            saldo = saldo.add(monto != null ? monto : BigDecimal.ZERO);
+        }
+
+        private void restar(BigDecimal monto) {
+            cuentas--;
+            saldo = saldo.subtract(monto != null ? monto : BigDecimal.ZERO);
+        }
+
+        /**
+         * Un grupo ausente equivale a uno sin cuentas
+         */
+        private static boolean iguales(Grupo a, Grupo b) {
+            long cuentasA = a != null ? a.cuentas : 0;
+            long cuentasB = b != null ? b.cuentas : 0;
+            BigDecimal saldoA = a != null ? a.saldo : BigDecimal.ZERO;
+            BigDecimal saldoB = b != null ? b.saldo : BigDecimal.ZERO;
+            return cuentasA == cuentasB && saldoA.compareTo(saldoB) == 0;
+        }
+    }
+}
@@ -1,11 +1,18 @@
 package com.ulatina.service;
 
 import com.ulatina.data.ListaRestrictiva;
+import java.io.InputStream;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.time.LocalDateTime;
 import java.util.logging.Logger;
 import java.util.logging.Level;
@@ -14,13 +21,15 @@ public class ServicioKyc extends Servicio {
 
     private static final Logger logger = Logger.getLogger(ServicioKyc.class.getName());
 
+    private static final int TAMANO_LOTE_IMPORTACION = 1000;
+
     public List<ListaRestrictiva> listarListasRestrictivas() throws Exception {
         List<ListaRestrictiva> lista = new ArrayList<>();
         String sql = "SELECT * FROM lista_restrictiva WHERE activo = 1 ORDER BY fecha_inclusion DESC";
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql);
+            try (PreparedStatement ps = getConexion().prepareStatement(sql);
                  ResultSet rs = ps.executeQuery()) {
 
                 while (rs.next()) {
@@ -67,14 +76,15 @@ public class ServicioKyc extends Servicio {
 
         try {
             conectarBD();
-            conexion.setAutoCommit(false); // Iniciar transacción
+            getConexion().setAutoCommit(false); // Iniciar transacción
 
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            try (PreparedStatement ps = getConexion().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                LocalDateTime fechaInclusion = LocalDateTime.now();
                 ps.setString(1, item.getIdentificacion().trim());
                 ps.setString(2, item.getNombreCompleto().trim());
                 ps.setString(3, item.getTipoLista().trim());
                 ps.setString(4, item.getMotivoInclusion());
-                ps.setTimestamp(5, java.sql.Timestamp.valueOf(LocalDateTime.now()));
+                ps.setTimestamp(5, java.sql.Timestamp.valueOf(fechaInclusion));
                 ps.setBoolean(6, true);
                 ps.setString(7, item.getObservaciones());
 
@@ -83,13 +93,24 @@ public class ServicioKyc extends Servicio {
                     throw new SQLException("No se pudo insertar el registro");
                 }
 
-                conexion.commit(); // Confirmar transacción
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        item.setId(rs.getInt(1));
+                    }
+                }
+
+                getConexion().commit(); // Confirmar transacción
                 logger.info("Lista restrictiva agregada exitosamente: " + item.getIdentificacion());
+
+                // La nueva entrada se revisa desde ya, sin esperar la próxima recarga del índice
+                item.setFechaInclusion(fechaInclusion);
+                item.setActivo(true);
+                IndiceListaRestrictiva.getInstancia().agregar(item);
             }
         } catch (SQLException e) {
             try {
-                if (conexion != null) {
-                    conexion.rollback(); // Revertir cambios
+                if (conexionActual() != null) {
+                    conexionActual().rollback(); // Revertir cambios
                 }
             } catch (SQLException rollbackEx) {
                 logger.log(Level.SEVERE, "Error en rollback", rollbackEx);
@@ -98,8 +119,8 @@ public class ServicioKyc extends Servicio {
             throw new Exception("Error de base de datos agregando a lista restrictiva: " + e.getMessage());
         } catch (Exception e) {
             try {
-                if (conexion != null) {
-                    conexion.rollback();
+                if (conexionActual() != null) {
+                    conexionActual().rollback();
                 }
             } catch (SQLException rollbackEx) {
                 logger.log(Level.SEVERE, "Error en rollback", rollbackEx);
@@ -108,8 +129,8 @@ public class ServicioKyc extends Servicio {
             throw new Exception("Error agregando a lista restrictiva: " + e.getMessage());
         } finally {
             try {
-                if (conexion != null) {
-                    conexion.setAutoCommit(true); // Restaurar auto-commit
+                if (conexionActual() != null) {
+                    conexionActual().setAutoCommit(true); // Restaurar auto-commit
                 }
             } catch (SQLException e) {
                 logger.log(Level.WARNING, "Error restaurando auto-commit", e);
@@ -118,42 +139,252 @@ public class ServicioKyc extends Servicio {
         }
     }
 
+    /**
+     * Revisa si la identificación o el nombre están en la lista restrictiva.
+     * Se resuelve en memoria con IndiceListaRestrictiva: la identificación debe
+     * coincidir exacta (sin separadores) y el nombre por similitud.
+     */
     public boolean verificarListaRestrictiva(String identificacion, String nombreCompleto) throws Exception {
+        boolean encontrado = !buscarCoincidenciasListaRestrictiva(identificacion, nombreCompleto).isEmpty();
+        logger.fine("Verificación de lista restrictiva completada. Encontrado: " + encontrado);
+        return encontrado;
+    }
+
+    /**
+     * Entradas de la lista restrictiva que coinciden, de mayor a menor similitud
+     */
+    public List<IndiceListaRestrictiva.Coincidencia> buscarCoincidenciasListaRestrictiva(String identificacion,
+                                                                                         String nombreCompleto) throws Exception {
         // Validaciones de entrada
         if ((identificacion == null || identificacion.trim().isEmpty()) &&
             (nombreCompleto == null || nombreCompleto.trim().isEmpty())) {
             throw new IllegalArgumentException("Debe proporcionar al menos identificación o nombre completo");
         }
 
-        boolean encontrado = false;
-        String sql = "SELECT COUNT(*) FROM lista_restrictiva WHERE " +
-                    "(identificacion = ? OR UPPER(nombre_completo) LIKE UPPER(?)) AND activo = 1";
+        try {
+            IndiceListaRestrictiva indice = IndiceListaRestrictiva.getInstancia();
+            indice.cargarSiVencido(this::listarListasRestrictivas);
+            return indice.buscar(identificacion, nombreCompleto);
+
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error verificando lista restrictiva", e);
+            throw new Exception("Error verificando lista restrictiva: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Carga actual de la lista restrictiva para revisar muchos clientes contra
+     * la misma versión (ver ReverificadorKyc)
+     */
+    public IndiceListaRestrictiva.Instantanea instantaneaListaRestrictiva() throws Exception {
+        try {
+            IndiceListaRestrictiva indice = IndiceListaRestrictiva.getInstancia();
+            indice.cargarSiVencido(this::listarListasRestrictivas);
+            return indice.instantanea();
+
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error cargando lista restrictiva", e);
+            throw new Exception("Error cargando lista restrictiva: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Importa un archivo completo de un tipo de lista (por ejemplo OFAC) como
+     * la nueva foto de esa lista. El archivo se lee en flujo y se carga por
+     * lotes en una tabla temporal; luego, en una sola transacción, se
+     * actualizan las entradas que cambiaron, se agregan las nuevas y se
+     * desactivan las del mismo tipo que ya no vienen en el archivo.
+     *
+     * Las identificaciones se comparan normalizadas, como en
+     * IndiceListaRestrictiva: "1-0234-0567" en el archivo es la misma entrada
+     * que "102340567" en la tabla, que se actualiza y conserva la
+     * identificación guardada. Las repetidas dentro del archivo se toman una
+     * sola vez (la primera) y los registros sin identificación o nombre se
+     * descartan.
+     *
+     * @param formato CSV o XML (ver LectorListaRestrictiva)
+     * @return registros leídos, duplicados, descartados, agregados,
+     *         actualizados y desactivados
+     */
+    public Map<String, Object> importarListaRestrictiva(InputStream archivo, String formato,
+                                                        String tipoLista) throws Exception {
+        if (archivo == null) {
+            throw new IllegalArgumentException("El archivo es requerido");
+        }
+        if (tipoLista == null || tipoLista.trim().isEmpty()) {
+            throw new IllegalArgumentException("El tipo de lista es requerido");
+        }
+        String tipo = tipoLista.trim().toUpperCase();
+        long inicio = System.currentTimeMillis();
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
-                ps.setString(1, identificacion != null ? identificacion.trim() : "");
-                ps.setString(2, nombreCompleto != null ? "%" + nombreCompleto.trim() + "%" : "");
+            Connection conn = getConexion();
+            try (Statement st = conn.createStatement()) {
+                st.execute("DROP TEMPORARY TABLE IF EXISTS lista_restrictiva_carga");
+                st.execute("CREATE TEMPORARY TABLE lista_restrictiva_carga (" +
+                           "clave VARCHAR(50) NOT NULL PRIMARY KEY, identificacion VARCHAR(50) NOT NULL, " +
+                           "nombre_completo VARCHAR(255) NOT NULL, " +
+                           "motivo_inclusion VARCHAR(500), observaciones TEXT)");
+                // Entradas actuales del tipo con su identificación normalizada
+                st.execute("DROP TEMPORARY TABLE IF EXISTS lista_restrictiva_vigente");
+                st.execute("CREATE TEMPORARY TABLE lista_restrictiva_vigente (" +
+                           "id INT NOT NULL PRIMARY KEY, clave VARCHAR(50) NOT NULL, INDEX (clave))");
+            }
 
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        encontrado = rs.getInt(1) > 0;
-                    }
+            try {
+                long[] conteo = cargarArchivoTemporal(conn, archivo, formato);
+                if (conteo[0] - conteo[1] - conteo[2] == 0) {
+                    // Sin esto un archivo vacío o mal formado desactivaría la lista completa
+                    throw new IllegalArgumentException("El archivo no contiene entradas válidas");
                 }
 
-                logger.info("Verificación de lista restrictiva completada. Encontrado: " + encontrado);
+                long[] cambios = new long[3];
+                ejecutarEnTransaccion(c -> {
+                    cargarVigentes(c, tipo);
+
+                    PreparedStatement ps = c.prepareStatement(
+                        "UPDATE lista_restrictiva l JOIN lista_restrictiva_vigente v ON v.id = l.id " +
+                        "JOIN lista_restrictiva_carga n ON n.clave = v.clave " +
+                        "SET l.nombre_completo = n.nombre_completo, " +
+                        "l.motivo_inclusion = COALESCE(n.motivo_inclusion, l.motivo_inclusion), " +
+                        "l.observaciones = COALESCE(n.observaciones, l.observaciones), " +
+                        "l.activo = 1, l.fecha_actualizacion = NOW() " +
+                        "WHERE l.activo = 0 OR l.nombre_completo <> n.nombre_completo " +
+                        "OR NOT (l.motivo_inclusion <=> COALESCE(n.motivo_inclusion, l.motivo_inclusion)) " +
+                        "OR NOT (l.observaciones <=> COALESCE(n.observaciones, l.observaciones))");
+                    cambios[1] = ps.executeUpdate();
+                    cerrarPreparedStatement(ps);
+
+                    ps = c.prepareStatement(
+                        "INSERT INTO lista_restrictiva (identificacion, nombre_completo, tipo_lista, " +
+                        "motivo_inclusion, fecha_inclusion, activo, observaciones) " +
+                        "SELECT n.identificacion, n.nombre_completo, ?, COALESCE(n.motivo_inclusion, ?), NOW(), 1, " +
+                        "n.observaciones FROM lista_restrictiva_carga n WHERE NOT EXISTS (" +
+                        "SELECT 1 FROM lista_restrictiva_vigente v WHERE v.clave = n.clave)");
+                    ps.setString(1, tipo);
+                    ps.setString(2, "Importación de lista " + tipo);
+                    cambios[0] = ps.executeUpdate();
+                    cerrarPreparedStatement(ps);
+
+                    ps = c.prepareStatement(
+                        "UPDATE lista_restrictiva l JOIN lista_restrictiva_vigente v ON v.id = l.id " +
+                        "SET l.activo = 0, l.fecha_actualizacion = NOW() " +
+                        "WHERE l.activo = 1 AND NOT EXISTS (" +
+                        "SELECT 1 FROM lista_restrictiva_carga n WHERE n.clave = v.clave)");
+                    cambios[2] = ps.executeUpdate();
+                    cerrarPreparedStatement(ps);
+                });
+
+                // Las demás verificaciones recargan el índice con la lista nueva
+                IndiceListaRestrictiva.getInstancia().invalidar();
+
+                Map<String, Object> resultado = new LinkedHashMap<>();
+                resultado.put("tipoLista", tipo);
+                resultado.put("leidos", conteo[0]);
+                resultado.put("duplicados", conteo[1]);
+                resultado.put("descartados", conteo[2]);
+                resultado.put("agregados", cambios[0]);
+                resultado.put("actualizados", cambios[1]);
+                resultado.put("desactivados", cambios[2]);
+                resultado.put("duracionMs", System.currentTimeMillis() - inicio);
+                logger.info("Lista restrictiva " + tipo + " importada: " + resultado);
+                return resultado;
+
+            } finally {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("DROP TEMPORARY TABLE IF EXISTS lista_restrictiva_carga");
+                    st.execute("DROP TEMPORARY TABLE IF EXISTS lista_restrictiva_vigente");
+                }
             }
-        } catch (SQLException e) {
-            logger.log(Level.SEVERE, "Error de SQL verificando lista restrictiva", e);
-            throw new Exception("Error de base de datos verificando lista restrictiva: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
-            logger.log(Level.SEVERE, "Error verificando lista restrictiva", e);
-            throw new Exception("Error verificando lista restrictiva: " + e.getMessage());
+            logger.log(Level.SEVERE, "Error importando lista restrictiva " + tipo, e);
+            throw new Exception("Error importando lista restrictiva: " + e.getMessage(), e);
         } finally {
             cerrarConexion();
         }
+    }
 
-        return encontrado;
+    /**
+     * Lee el archivo y lo inserta en lista_restrictiva_carga por lotes
+     *
+     * @return registros leídos, duplicados y descartados
+     */
+    private long[] cargarArchivoTemporal(Connection conn, InputStream archivo, String formato) throws Exception {
+        long[] conteo = new long[3];
+        Set<String> vistas = new HashSet<>();
+        int[] enLote = new int[1];
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO lista_restrictiva_carga (clave, identificacion, nombre_completo, " +
+                "motivo_inclusion, observaciones) VALUES (?, ?, ?, ?, ?)")) {
+
+            conteo[0] = new LectorListaRestrictiva().leer(archivo, formato, item -> {
+                if (item.getIdentificacion() == null || item.getNombreCompleto() == null ||
+                    item.getIdentificacion().length() > 50 || item.getNombreCompleto().length() > 255) {
+                    conteo[2]++;
+                    return;
+                }
+                String clave = IndiceListaRestrictiva.normalizarIdentificacion(item.getIdentificacion());
+                if (clave.isEmpty()) {
+                    conteo[2]++;
+                    return;
+                }
+                if (!vistas.add(clave)) {
+                    conteo[1]++;
+                    return;
+                }
+
+                ps.setString(1, clave);
+                ps.setString(2, item.getIdentificacion());
+                ps.setString(3, item.getNombreCompleto());
+                String motivo = item.getMotivoInclusion();
+                ps.setString(4, motivo != null && motivo.length() > 500 ? motivo.substring(0, 500) : motivo);
+                ps.setString(5, item.getObservaciones());
+                ps.addBatch();
+                if (++enLote[0] == TAMANO_LOTE_IMPORTACION) {
+                    ps.executeBatch();
+                    enLote[0] = 0;
+                }
+            });
+
+            if (enLote[0] > 0) {
+                ps.executeBatch();
+            }
+        }
+        return conteo;
+    }
+
+    /**
+     * Copia en lista_restrictiva_vigente el id y la identificación normalizada
+     * de las entradas del tipo, para compararlas con el archivo por la misma
+     * clave que lista_restrictiva_carga
+     */
+    private void cargarVigentes(Connection conn, String tipo) throws SQLException {
+        try (PreparedStatement consulta = conn.prepareStatement(
+                 "SELECT id, identificacion FROM lista_restrictiva WHERE tipo_lista = ? FOR UPDATE");
+             PreparedStatement insercion = conn.prepareStatement(
+                 "INSERT INTO lista_restrictiva_vigente (id, clave) VALUES (?, ?)")) {
+            consulta.setString(1, tipo);
+            int enLote = 0;
+            try (ResultSet rs = consulta.executeQuery()) {
+                while (rs.next()) {
+                    insercion.setInt(1, rs.getInt("id"));
+                    insercion.setString(2,
+                        IndiceListaRestrictiva.normalizarIdentificacion(rs.getString("identificacion")));
+                    insercion.addBatch();
+                    if (++enLote == TAMANO_LOTE_IMPORTACION) {
+                        insercion.executeBatch();
+                        enLote = 0;
+                    }
+                }
+            }
+            if (enLote > 0) {
+                insercion.executeBatch();
+            }
+        }
     }
 
     public ListaRestrictiva obtenerDetalleListaRestrictiva(String identificacion) throws Exception {
@@ -167,7 +398,7 @@ public class ServicioKyc extends Servicio {
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
                 ps.setString(1, identificacion.trim());
 
                 try (ResultSet rs = ps.executeQuery()) {
@@ -220,7 +451,13 @@ public class ServicioKyc extends Servicio {
     private boolean existeIdentificacion(String identificacion) throws Exception {
         String sql = "SELECT COUNT(*) FROM lista_restrictiva WHERE identificacion = ? AND activo = 1";
 
-        try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+        try {
+            conectarBD();
+        } catch (ClassNotFoundException e) {
+            throw new Exception("Driver MySQL no disponible", e);
+        }
+
+        try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
             ps.setString(1, identificacion.trim());
 
             try (ResultSet rs = ps.executeQuery()) {
@@ -231,6 +468,8 @@ public class ServicioKyc extends Servicio {
         } catch (SQLException e) {
             logger.log(Level.SEVERE, "Error verificando existencia de identificación", e);
             throw new Exception("Error verificando existencia de identificación: " + e.getMessage());
+        } finally {
+            cerrarConexion();
         }
 
         return false;
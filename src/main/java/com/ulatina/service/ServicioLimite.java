@@ -9,18 +9,43 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 @ApplicationScoped
 public class ServicioLimite extends Servicio {
 
+    private static final int CAPACIDAD_CACHE = 10000;
+    private static final long VIGENCIA_CACHE_MS = 300000;
+
+    /**
+     * Caché LRU acotada de límites por (numeroCuenta, TipoLimite). También guarda
+     * la ausencia de límite, que es el caso más común. Las entradas vencen a los
+     * cinco minutos para recoger cambios hechos desde otra instancia.
+     */
+    private final Map<String, EntradaCache> cacheLimites = Collections.synchronizedMap(
+        new LinkedHashMap<String, EntradaCache>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EntradaCache> eldest) {
+                return size() > CAPACIDAD_CACHE;
+            }
+        });
+
+    // Se incrementa en cada invalidación; una carga iniciada antes no se guarda
+    private final AtomicLong generacionCache = new AtomicLong();
+    private final AtomicLong aciertosCache = new AtomicLong();
+    private final AtomicLong fallosCache = new AtomicLong();
+
     public List<LimiteTransaccion> obtenerLimitesPorCuenta(String numeroCuenta) throws Exception {
         List<LimiteTransaccion> limites = new ArrayList<>();
 
         try {
             conectarBD();
             String sql = "SELECT * FROM limite_transaccion WHERE numero_cuenta = ? AND activo = true ORDER BY id DESC";
-            PreparedStatement ps = conexion.prepareStatement(sql);
+            PreparedStatement ps = getConexion().prepareStatement(sql);
             ps.setString(1, numeroCuenta);
             ResultSet rs = ps.executeQuery();
 
@@ -48,7 +73,7 @@ public class ServicioLimite extends Servicio {
             String sql = "INSERT INTO limite_transaccion (numero_cuenta, tipo_limite, monto_limite, " +
                         "periodo, activo, fecha_creacion) VALUES (?, ?, ?, ?, ?, ?)";
 
-            PreparedStatement ps = conexion.prepareStatement(sql);
+            PreparedStatement ps = getConexion().prepareStatement(sql);
             ps.setString(1, numeroCuenta);
             ps.setString(2, tipoLimite.toString());
             ps.setBigDecimal(3, montoLimite);
@@ -63,6 +88,7 @@ public class ServicioLimite extends Servicio {
             throw new Exception("Error creando límite: " + e.getMessage());
         } finally {
             cerrarConexion();
+            invalidarCache(numeroCuenta, tipoLimite);
         }
     }
 
@@ -71,7 +97,7 @@ public class ServicioLimite extends Servicio {
             conectarBD();
             String sql = "UPDATE limite_transaccion SET activo = ?, fecha_modificacion = ? WHERE id = ?";
 
-            PreparedStatement ps = conexion.prepareStatement(sql);
+            PreparedStatement ps = getConexion().prepareStatement(sql);
             ps.setBoolean(1, nuevoEstado);
             ps.setTimestamp(2, java.sql.Timestamp.valueOf(LocalDateTime.now()));
             ps.setLong(3, id);
@@ -79,6 +105,18 @@ public class ServicioLimite extends Servicio {
             ps.executeUpdate();
             cerrarPreparedStatement(ps);
 
+            // Invalidar la entrada de la cuenta y tipo del límite modificado
+            ps = getConexion().prepareStatement("SELECT numero_cuenta, tipo_limite FROM limite_transaccion WHERE id = ?");
+            ps.setLong(1, id);
+            ResultSet rs = ps.executeQuery();
+            if (rs.next()) {
+                invalidarCache(rs.getString("numero_cuenta"),
+                               LimiteTransaccion.TipoLimite.valueOf(rs.getString("tipo_limite")));
+            }
+
+            cerrarResultSet(rs);
+            cerrarPreparedStatement(ps);
+
         } catch (Exception e) {
             throw new Exception("Error cambiando estado del límite: " + e.getMessage());
         } finally {
@@ -87,8 +125,13 @@ public class ServicioLimite extends Servicio {
     }
 
     public boolean verificarLimite(String numeroCuenta, LimiteTransaccion.TipoLimite tipo, BigDecimal monto) throws Exception {
-        LimiteTransaccion limite = buscarLimitePorTipo(numeroCuenta, tipo);
+        return verificarLimite(buscarLimitePorTipo(numeroCuenta, tipo), monto);
+    }
 
+    /**
+     * Evalúa un límite ya cargado, sin consultar la base de datos
+     */
+    public boolean verificarLimite(LimiteTransaccion limite, BigDecimal monto) {
         if (limite == null || !limite.getActivo()) {
             return true; // Sin límite configurado, permitir transacción
         }
@@ -96,14 +139,39 @@ public class ServicioLimite extends Servicio {
         return monto.compareTo(limite.getMontoLimite()) <= 0;
     }
 
+    /**
+     * Límite activo de la cuenta para el tipo indicado, o null si no tiene.
+     * Se sirve desde la caché; solo un fallo consulta la base de datos.
+     */
     public LimiteTransaccion buscarLimitePorTipo(String numeroCuenta, LimiteTransaccion.TipoLimite tipo) throws Exception {
+        String clave = claveCache(numeroCuenta, tipo);
+        EntradaCache entrada = cacheLimites.get(clave);
+
+        if (entrada != null && entrada.vence > System.currentTimeMillis()) {
+            aciertosCache.incrementAndGet();
+            return copiar(entrada.limite);
+        }
+
+        fallosCache.incrementAndGet();
+        long generacion = generacionCache.get();
+        LimiteTransaccion limite = consultarLimitePorTipo(numeroCuenta, tipo);
+
+        // Si hubo una invalidación mientras se consultaba, el resultado puede estar desactualizado
+        if (generacionCache.get() == generacion) {
+            cacheLimites.put(clave, new EntradaCache(copiar(limite), System.currentTimeMillis() + VIGENCIA_CACHE_MS));
+        }
+
+        return limite;
+    }
+
+    private LimiteTransaccion consultarLimitePorTipo(String numeroCuenta, LimiteTransaccion.TipoLimite tipo) throws Exception {
         LimiteTransaccion limite = null;
 
         try {
             conectarBD();
             String sql = "SELECT * FROM limite_transaccion WHERE numero_cuenta = ? AND tipo_limite = ? AND activo = true LIMIT 1";
 
-            PreparedStatement ps = conexion.prepareStatement(sql);
+            PreparedStatement ps = getConexion().prepareStatement(sql);
             ps.setString(1, numeroCuenta);
             ps.setString(2, tipo.toString());
 
@@ -126,8 +194,13 @@ public class ServicioLimite extends Servicio {
 
     public boolean estaProximoAlLimite(String numeroCuenta, LimiteTransaccion.TipoLimite tipo,
                                      BigDecimal monto, int umbralPorcentaje) throws Exception {
-        LimiteTransaccion limite = buscarLimitePorTipo(numeroCuenta, tipo);
+        return estaProximoAlLimite(buscarLimitePorTipo(numeroCuenta, tipo), monto, umbralPorcentaje);
+    }
 
+    /**
+     * Evalúa la proximidad a un límite ya cargado, sin consultar la base de datos
+     */
+    public boolean estaProximoAlLimite(LimiteTransaccion limite, BigDecimal monto, int umbralPorcentaje) {
         if (limite == null || !limite.getActivo()) {
             return false;
         }
@@ -139,6 +212,69 @@ public class ServicioLimite extends Servicio {
         return monto.compareTo(umbral) >= 0 && monto.compareTo(limite.getMontoLimite()) <= 0;
     }
 
+    /**
+     * Descarta la entrada de caché de una cuenta y tipo de límite
+     */
+    public void invalidarCache(String numeroCuenta, LimiteTransaccion.TipoLimite tipo) {
+        generacionCache.incrementAndGet();
+        cacheLimites.remove(claveCache(numeroCuenta, tipo));
+    }
+
+    public void limpiarCache() {
+        generacionCache.incrementAndGet();
+        cacheLimites.clear();
+    }
+
+    /**
+     * Métricas de la caché de límites
+     */
+    public Map<String, Object> obtenerMetricasCache() {
+        long aciertos = aciertosCache.get();
+        long fallos = fallosCache.get();
+
+        Map<String, Object> metricas = new LinkedHashMap<>();
+        metricas.put("entradas", cacheLimites.size());
+        metricas.put("capacidad", CAPACIDAD_CACHE);
+        metricas.put("aciertos", aciertos);
+        metricas.put("fallos", fallos);
+        metricas.put("porcentajeAciertos", aciertos + fallos > 0 ? (aciertos * 100) / (aciertos + fallos) : 0);
+        return metricas;
+    }
+
+    private static String claveCache(String numeroCuenta, LimiteTransaccion.TipoLimite tipo) {
+        return numeroCuenta + "|" + tipo;
+    }
+
+    /**
+     * Copia defensiva: quien recibe el límite puede modificarlo sin alterar la caché
+     */
+    private static LimiteTransaccion copiar(LimiteTransaccion original) {
+        if (original == null) {
+            return null;
+        }
+
+        LimiteTransaccion copia = new LimiteTransaccion();
+        copia.setId(original.getId());
+        copia.setNumeroCuenta(original.getNumeroCuenta());
+        copia.setTipoLimite(original.getTipoLimite());
+        copia.setMontoLimite(original.getMontoLimite());
+        copia.setPeriodo(original.getPeriodo());
+        copia.setActivo(original.getActivo());
+        copia.setFechaCreacion(original.getFechaCreacion());
+        copia.setFechaModificacion(original.getFechaModificacion());
+        return copia;
+    }
+
+    private static final class EntradaCache {
+        private final LimiteTransaccion limite; // null si la cuenta no tiene límite de ese tipo
+        private final long vence;
+
+        private EntradaCache(LimiteTransaccion limite, long vence) {
+            this.limite = limite;
+            this.vence = vence;
+        }
+    }
+
     private LimiteTransaccion mapearLimite(ResultSet rs) throws SQLException {
         LimiteTransaccion limite = new LimiteTransaccion();
         limite.setId(rs.getLong("id"));
@@ -6,11 +6,17 @@
 package com.ulatina.service;
 
 import com.ulatina.data.Movimiento;
+import com.ulatina.data.Pagina;
+import com.ulatina.data.ResultadoLote;
 import jakarta.enterprise.context.ApplicationScoped;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Savepoint;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.logging.Logger;
@@ -20,6 +26,13 @@ import java.util.logging.Level;
 public class ServicioMovimiento extends Servicio {
 
     private static final Logger LOGGER = Logger.getLogger(ServicioMovimiento.class.getName());
+    private static final int LIMITE_MAXIMO_PAGINA = 100;
+    private static final int TAMANO_LOTE_POR_DEFECTO = 500;
+
+    private static final String SQL_INSERTAR =
+        "INSERT INTO movimiento (numero_cuenta, tipo_movimiento, monto, descripcion, " +
+        "fecha_movimiento, saldo_anterior, saldo_posterior, cuenta_destino, referencia, estado) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     public Movimiento registrar(Movimiento movimiento) throws Exception {
         if (movimiento == null) {
@@ -27,54 +40,92 @@ public class ServicioMovimiento extends Servicio {
         }
 
         validarMovimiento(movimiento);
+        completarMovimiento(movimiento);
 
-        // Generar referencia si no existe
-        if (movimiento.getReferencia() == null || movimiento.getReferencia().trim().isEmpty()) {
-            movimiento.setReferencia(generarReferencia(movimiento.getTipoMovimiento()));
+        try {
+            // El movimiento y el snapshot de saldo se confirman juntos o ninguno
+            ejecutarEnTransaccion(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(SQL_INSERTAR, PreparedStatement.RETURN_GENERATED_KEYS)) {
+                    asignarParametros(ps, movimiento);
+
+                    int filasAfectadas = ps.executeUpdate();
+                    if (filasAfectadas == 0) {
+                        throw new SQLException("No se pudo insertar el movimiento");
+                    }
+
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            movimiento.setId(rs.getLong(1));
+                        }
+                    }
+                }
+
+                actualizarSnapshotSaldo(conn, movimiento);
+            });
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al registrar movimiento: " + e.getMessage(), e);
+            throw new Exception("Error registrando movimiento: " + e.getMessage(), e);
         }
 
-        // Establecer fecha actual si no existe
-        if (movimiento.getFechaMovimiento() == null) {
-            movimiento.setFechaMovimiento(LocalDateTime.now());
+        return movimiento;
+    }
+
+    public ResultadoLote registrarLote(List<Movimiento> movimientos, boolean commitParcial) throws Exception {
+        return registrarLote(movimientos, commitParcial, TAMANO_LOTE_POR_DEFECTO);
+    }
+
+    /**
+     * Registra una lista de movimientos en una sola transacción, enviando los
+     * INSERT en lotes JDBC de tamanoLote filas. Toda la lista se valida antes
+     * de tocar la base de datos.
+     *
+     * Sin commitParcial cualquier fila inválida o fallida aborta el lote completo.
+     * Con commitParcial las filas fallidas se reportan en el resultado y el resto
+     * se confirma; si una fila de una cuenta falla, en la validación o al
+     * insertarse, las siguientes de esa misma cuenta también se rechazan
+     * porque su saldo anterior ya no sería válido.
+     */
+    public ResultadoLote registrarLote(List<Movimiento> movimientos, boolean commitParcial, int tamanoLote) throws Exception {
+        if (movimientos == null || movimientos.isEmpty()) {
+            throw new IllegalArgumentException("La lista de movimientos no puede estar vacía");
         }
 
-        String sql = "INSERT INTO movimiento (numero_cuenta, tipo_movimiento, monto, descripcion, " +
-                    "fecha_movimiento, saldo_anterior, saldo_posterior, cuenta_destino, referencia, estado) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        if (tamanoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor que cero");
+        }
 
-        try {
-            conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
-                ps.setString(1, movimiento.getNumeroCuenta());
-                ps.setString(2, movimiento.getTipoMovimiento());
-                ps.setBigDecimal(3, movimiento.getMonto());
-                ps.setString(4, movimiento.getDescripcion());
-                ps.setTimestamp(5, java.sql.Timestamp.valueOf(movimiento.getFechaMovimiento()));
-                ps.setBigDecimal(6, movimiento.getSaldoAnterior());
-                ps.setBigDecimal(7, movimiento.getSaldoPosterior());
-                ps.setString(8, movimiento.getCuentaDestino());
-                ps.setString(9, movimiento.getReferencia());
-                ps.setString(10, movimiento.getEstado());
+        ResultadoLote resultado = new ResultadoLote(movimientos.size());
 
-                int filasAfectadas = ps.executeUpdate();
-                if (filasAfectadas == 0) {
-                    throw new SQLException("No se pudo insertar el movimiento");
+        for (int i = 0; i < movimientos.size(); i++) {
+            Movimiento movimiento = movimientos.get(i);
+            try {
+                if (movimiento == null) {
+                    throw new IllegalArgumentException("El movimiento no puede ser null");
                 }
-
-                try (ResultSet rs = ps.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        movimiento.setId(rs.getLong(1));
-                    }
+                validarMovimiento(movimiento);
+                completarMovimiento(movimiento);
+            } catch (IllegalArgumentException e) {
+                if (!commitParcial) {
+                    throw new IllegalArgumentException("Movimiento " + i + ": " + e.getMessage(), e);
                 }
+                resultado.registrarError(i, e.getMessage());
             }
+        }
+
+        if (resultado.getFallidos() == movimientos.size()) {
+            return resultado;
+        }
+
+        try {
+            ejecutarEnTransaccion(conn -> insertarLote(conn, movimientos, commitParcial, tamanoLote, resultado));
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Error al registrar movimiento: " + e.getMessage(), e);
-            throw new Exception("Error registrando movimiento: " + e.getMessage(), e);
-        } finally {
-            cerrarConexion();
+            LOGGER.log(Level.SEVERE, "Error al registrar lote de movimientos: " + e.getMessage(), e);
+            throw new Exception("Error registrando lote de movimientos: " + e.getMessage(), e);
         }
 
-        return movimiento;
+        LOGGER.info("Lote de movimientos registrado: " + resultado.getExitosos() + " exitosos, " +
+                    resultado.getFallidos() + " fallidos");
+        return resultado;
     }
 
     public List<Movimiento> listar() throws Exception {
@@ -93,7 +144,7 @@ public class ServicioMovimiento extends Servicio {
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
                 if (limite != null && limite > 0) {
                     ps.setInt(1, limite);
                 }
@@ -135,7 +186,7 @@ public class ServicioMovimiento extends Servicio {
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
                 ps.setString(1, numeroCuenta);
                 if (limite != null && limite > 0) {
                     ps.setInt(2, limite);
@@ -158,6 +209,85 @@ public class ServicioMovimiento extends Servicio {
         return movimientos;
     }
 
+    /**
+     * Página de movimientos de una cuenta, del más reciente al más antiguo,
+     * usando paginación por llave (fecha_movimiento, id). El costo de cada página
+     * no depende de qué tan profundo se navegue en el historial.
+     *
+     * @param cursor cursor devuelto por la página anterior, o null para la primera
+     */
+    public Pagina<Movimiento> obtenerPaginaPorCuenta(String numeroCuenta, String cursor, int limite) throws Exception {
+        if (numeroCuenta == null || numeroCuenta.trim().isEmpty()) {
+            throw new IllegalArgumentException("El número de cuenta no puede ser null o vacío");
+        }
+
+        if (limite <= 0) {
+            throw new IllegalArgumentException("El límite debe ser un número positivo");
+        }
+        limite = Math.min(limite, LIMITE_MAXIMO_PAGINA);
+
+        LocalDateTime fechaCursor = null;
+        long idCursor = 0;
+        if (cursor != null && !cursor.trim().isEmpty()) {
+            String[] partes = CodificadorCursor.decodificar(cursor, 2);
+            try {
+                fechaCursor = LocalDateTime.parse(partes[0]);
+                idCursor = Long.parseLong(partes[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor inválido", e);
+            }
+        }
+
+        StringBuilder sqlBuilder = new StringBuilder("SELECT * FROM movimiento WHERE numero_cuenta = ?");
+        if (fechaCursor != null) {
+            sqlBuilder.append(" AND (fecha_movimiento < ? OR (fecha_movimiento = ? AND id < ?))");
+        }
+        sqlBuilder.append(" ORDER BY fecha_movimiento DESC, id DESC LIMIT ?");
+
+        List<Movimiento> movimientos = new ArrayList<>();
+        boolean hayMas = false;
+
+        try {
+            conectarBD();
+            try (PreparedStatement ps = getConexion().prepareStatement(sqlBuilder.toString())) {
+                int indice = 1;
+                ps.setString(indice++, numeroCuenta);
+                if (fechaCursor != null) {
+                    java.sql.Timestamp timestamp = java.sql.Timestamp.valueOf(fechaCursor);
+                    ps.setTimestamp(indice++, timestamp);
+                    ps.setTimestamp(indice++, timestamp);
+                    ps.setLong(indice++, idCursor);
+                }
+                // Se pide una fila extra para saber si existe una página siguiente
+                ps.setInt(indice, limite + 1);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (movimientos.size() == limite) {
+                            hayMas = true;
+                            break;
+                        }
+                        movimientos.add(mapearMovimiento(rs));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al obtener página de movimientos: " + e.getMessage(), e);
+            throw new Exception("Error obteniendo página de movimientos: " + e.getMessage(), e);
+        } finally {
+            cerrarConexion();
+        }
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            Movimiento ultimo = movimientos.get(movimientos.size() - 1);
+            siguienteCursor = CodificadorCursor.codificar(
+                ultimo.getFechaMovimiento().toString(), String.valueOf(ultimo.getId()));
+        }
+
+        return new Pagina<>(movimientos, siguienteCursor);
+    }
+
     public Movimiento obtenerPorId(Long id) throws Exception {
         if (id == null || id <= 0) {
             throw new IllegalArgumentException("El ID debe ser un número positivo");
@@ -168,7 +298,7 @@ public class ServicioMovimiento extends Servicio {
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
                 ps.setLong(1, id);
 
                 try (ResultSet rs = ps.executeQuery()) {
@@ -197,7 +327,7 @@ public class ServicioMovimiento extends Servicio {
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
                 ps.setString(1, tipoMovimiento);
 
                 try (ResultSet rs = ps.executeQuery()) {
@@ -231,7 +361,7 @@ public class ServicioMovimiento extends Servicio {
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
                 ps.setTimestamp(1, java.sql.Timestamp.valueOf(fechaInicio));
                 ps.setTimestamp(2, java.sql.Timestamp.valueOf(fechaFin));
 
@@ -252,18 +382,106 @@ public class ServicioMovimiento extends Servicio {
         return movimientos;
     }
 
+    /**
+     * Recorre los movimientos en orden cronológico entregándolos uno a uno al
+     * consumidor mientras se leen, sin acumularlos en memoria. Pensado para
+     * exportaciones de rangos grandes (auditoría, estados de cuenta anuales).
+     *
+     * @param numeroCuenta cuenta a exportar, o null para todas las cuentas
+     * @param fechaInicio inicio del rango (inclusive), o null sin límite inferior
+     * @param fechaFin fin del rango (inclusive), o null sin límite superior
+     * @return cantidad de movimientos entregados
+     */
+    public long recorrerMovimientos(String numeroCuenta, LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                                    ConsumidorMovimiento consumidor) throws Exception {
+        if (consumidor == null) {
+            throw new IllegalArgumentException("El consumidor no puede ser null");
+        }
+
+        if (fechaInicio != null && fechaFin != null && fechaInicio.isAfter(fechaFin)) {
+            throw new IllegalArgumentException("La fecha de inicio debe ser anterior a la fecha de fin");
+        }
+
+        StringBuilder sqlBuilder = new StringBuilder("SELECT * FROM movimiento WHERE 1=1");
+        if (numeroCuenta != null && !numeroCuenta.trim().isEmpty()) {
+            sqlBuilder.append(" AND numero_cuenta = ?");
+        }
+        if (fechaInicio != null) {
+            sqlBuilder.append(" AND fecha_movimiento >= ?");
+        }
+        if (fechaFin != null) {
+            sqlBuilder.append(" AND fecha_movimiento <= ?");
+        }
+        sqlBuilder.append(" ORDER BY fecha_movimiento ASC, id ASC");
+
+        long total = 0;
+
+        try {
+            conectarBD();
+            try (PreparedStatement ps = getConexion().prepareStatement(sqlBuilder.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // Con Connector/J, un fetch size de Integer.MIN_VALUE sobre un cursor
+                // de solo avance transmite las filas una a una en lugar de cargarlas todas
+                ps.setFetchSize(Integer.MIN_VALUE);
+
+                int indice = 1;
+                if (numeroCuenta != null && !numeroCuenta.trim().isEmpty()) {
+                    ps.setString(indice++, numeroCuenta);
+                }
+                if (fechaInicio != null) {
+                    ps.setTimestamp(indice++, java.sql.Timestamp.valueOf(fechaInicio));
+                }
+                if (fechaFin != null) {
+                    ps.setTimestamp(indice, java.sql.Timestamp.valueOf(fechaFin));
+                }
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        consumidor.aceptar(mapearMovimiento(rs));
+                        total++;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al recorrer movimientos: " + e.getMessage(), e);
+            throw new Exception("Error recorriendo movimientos: " + e.getMessage(), e);
+        } finally {
+            cerrarConexion();
+        }
+
+        return total;
+    }
+
+    /**
+     * Saldo actual de la cuenta leído del snapshot por llave primaria. Las cuentas
+     * sin snapshot (movimientos previos a la tabla saldo_cuenta) usan el último
+     * movimiento hasta que la conciliación las complete. "Último" es el de mayor
+     * id, el orden en que se encadenan los saldos, igual que en reconciliarSaldos:
+     * un movimiento con fecha retroactiva no lo desplaza.
+     */
     public BigDecimal calcularSaldoPorCuenta(String numeroCuenta) throws Exception {
         if (numeroCuenta == null || numeroCuenta.trim().isEmpty()) {
             throw new IllegalArgumentException("El número de cuenta no puede ser null o vacío");
         }
 
         BigDecimal saldo = BigDecimal.ZERO;
+        String sqlSnapshot = "SELECT saldo FROM saldo_cuenta WHERE numero_cuenta = ?";
         String sql = "SELECT saldo_posterior FROM movimiento WHERE numero_cuenta = ? " +
-                    "ORDER BY fecha_movimiento DESC, id DESC LIMIT 1";
+                    "ORDER BY id DESC LIMIT 1";
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            try (PreparedStatement ps = getConexion().prepareStatement(sqlSnapshot)) {
+                ps.setString(1, numeroCuenta);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getBigDecimal("saldo");
+                    }
+                }
+            }
+
+            try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
                 ps.setString(1, numeroCuenta);
 
                 try (ResultSet rs = ps.executeQuery()) {
@@ -285,6 +503,81 @@ public class ServicioMovimiento extends Servicio {
         return saldo;
     }
 
+    /**
+     * Verifica cada snapshot de saldo_cuenta contra el último movimiento de su
+     * cuenta y crea los snapshots faltantes. Las diferencias se registran en el
+     * log y solo se corrigen si se indica.
+     *
+     * @return cantidad de snapshots que no coincidían con el registro de movimientos
+     */
+    public int reconciliarSaldos(boolean corregir) throws Exception {
+        String sqlUltimos = "SELECT m.numero_cuenta, m.id, m.saldo_posterior " +
+                           "FROM movimiento m " +
+                           "JOIN (SELECT numero_cuenta, MAX(id) AS id FROM movimiento GROUP BY numero_cuenta) u " +
+                           "ON u.id = m.id";
+
+        String sqlFaltantes = "INSERT INTO saldo_cuenta (numero_cuenta, saldo, version, id_ultimo_movimiento, fecha_actualizacion) " +
+                             "SELECT m.numero_cuenta, m.saldo_posterior, 0, m.id, NOW() " +
+                             "FROM movimiento m " +
+                             "JOIN (SELECT numero_cuenta, MAX(id) AS id FROM movimiento GROUP BY numero_cuenta) u " +
+                             "ON u.id = m.id " +
+                             "LEFT JOIN saldo_cuenta s ON s.numero_cuenta = m.numero_cuenta " +
+                             "WHERE s.numero_cuenta IS NULL AND m.saldo_posterior IS NOT NULL";
+
+        String sqlDiferencias = "SELECT s.numero_cuenta, s.saldo, s.version, s.id_ultimo_movimiento, " +
+                               "m.id, m.saldo_posterior FROM saldo_cuenta s " +
+                               "JOIN (" + sqlUltimos + ") m ON m.numero_cuenta = s.numero_cuenta " +
+                               "WHERE s.saldo <> m.saldo_posterior OR s.id_ultimo_movimiento <> m.id";
+
+        String sqlCorregir = "UPDATE saldo_cuenta SET saldo = ?, id_ultimo_movimiento = ?, version = version + 1, " +
+                            "fecha_actualizacion = NOW() WHERE numero_cuenta = ? AND version = ?";
+
+        int diferencias = 0;
+
+        try {
+            conectarBD();
+
+            try (PreparedStatement ps = getConexion().prepareStatement(sqlFaltantes)) {
+                int creados = ps.executeUpdate();
+                if (creados > 0) {
+                    LOGGER.info("Snapshots de saldo creados para " + creados + " cuentas sin snapshot");
+                }
+            }
+
+            try (PreparedStatement ps = getConexion().prepareStatement(sqlDiferencias);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    diferencias++;
+                    String numeroCuenta = rs.getString("numero_cuenta");
+                    BigDecimal saldoSnapshot = rs.getBigDecimal("saldo");
+                    BigDecimal saldoMovimientos = rs.getBigDecimal("saldo_posterior");
+                    long idMovimiento = rs.getLong("id");
+
+                    LOGGER.warning("Snapshot de saldo inconsistente para la cuenta " + numeroCuenta +
+                                  ": snapshot " + saldoSnapshot + " (movimiento " + rs.getLong("id_ultimo_movimiento") +
+                                  "), registro de movimientos " + saldoMovimientos + " (movimiento " + idMovimiento + ")");
+
+                    if (corregir) {
+                        try (PreparedStatement update = getConexion().prepareStatement(sqlCorregir)) {
+                            update.setBigDecimal(1, saldoMovimientos);
+                            update.setLong(2, idMovimiento);
+                            update.setString(3, numeroCuenta);
+                            update.setLong(4, rs.getLong("version"));
+                            update.executeUpdate();
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Error al conciliar saldos: " + e.getMessage(), e);
+            throw new Exception("Error conciliando saldos: " + e.getMessage(), e);
+        } finally {
+            cerrarConexion();
+        }
+
+        return diferencias;
+    }
+
     public List<Movimiento> obtenerIngresos(String numeroCuenta, int limite) throws Exception {
         if (numeroCuenta == null || numeroCuenta.trim().isEmpty()) {
             throw new IllegalArgumentException("El número de cuenta no puede ser null o vacío");
@@ -300,7 +593,7 @@ public class ServicioMovimiento extends Servicio {
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
                 ps.setString(1, numeroCuenta);
                 ps.setInt(2, limite);
 
@@ -336,7 +629,7 @@ public class ServicioMovimiento extends Servicio {
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
                 ps.setString(1, numeroCuenta);
                 ps.setInt(2, limite);
 
@@ -367,7 +660,7 @@ public class ServicioMovimiento extends Servicio {
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
                 ps.setString(1, estado);
 
                 try (ResultSet rs = ps.executeQuery()) {
@@ -401,7 +694,7 @@ public class ServicioMovimiento extends Servicio {
 
         try {
             conectarBD();
-            try (PreparedStatement ps = conexion.prepareStatement(sql)) {
+            try (PreparedStatement ps = getConexion().prepareStatement(sql)) {
                 ps.setString(1, nuevoEstado);
                 ps.setLong(2, id);
 
@@ -418,6 +711,275 @@ public class ServicioMovimiento extends Servicio {
         return actualizado;
     }
 
+    private void insertarLote(Connection conn, List<Movimiento> movimientos, boolean commitParcial,
+                              int tamanoLote, ResultadoLote resultado) throws SQLException {
+        Map<String, SnapshotSaldo> snapshots = cargarSnapshots(conn, movimientos, resultado, tamanoLote);
+        Set<String> cuentasConError = new HashSet<>();
+        List<Integer> pendientes = new ArrayList<>(tamanoLote);
+
+        try (PreparedStatement ps = conn.prepareStatement(SQL_INSERTAR, PreparedStatement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < movimientos.size(); i++) {
+                Movimiento movimiento = movimientos.get(i);
+                if (resultado.tieneError(i)) {
+                    // Rechazado en la validación: las filas siguientes de su cuenta asumen que se aplicó
+                    if (movimiento != null && movimiento.getNumeroCuenta() != null) {
+                        cuentasConError.add(movimiento.getNumeroCuenta());
+                    }
+                    continue;
+                }
+
+                String numeroCuenta = movimiento.getNumeroCuenta();
+                SnapshotSaldo snapshot = snapshots.computeIfAbsent(numeroCuenta, c -> new SnapshotSaldo());
+
+                String error = null;
+                if (cuentasConError.contains(numeroCuenta)) {
+                    error = "Un movimiento anterior de la cuenta " + numeroCuenta + " falló";
+                } else if (snapshot.saldoEsperado != null &&
+                           snapshot.saldoEsperado.compareTo(movimiento.getSaldoAnterior()) != 0) {
+                    error = "El saldo anterior (" + movimiento.getSaldoAnterior() +
+                            ") no coincide con el saldo de la cuenta " + numeroCuenta + " (" + snapshot.saldoEsperado + ")";
+                }
+
+                if (error != null) {
+                    if (!commitParcial) {
+                        throw new SQLException("Movimiento " + i + ": " + error);
+                    }
+                    resultado.registrarError(i, error);
+                    cuentasConError.add(numeroCuenta);
+                    continue;
+                }
+
+                snapshot.saldoEsperado = movimiento.getSaldoPosterior();
+                asignarParametros(ps, movimiento);
+                ps.addBatch();
+                pendientes.add(i);
+
+                if (pendientes.size() == tamanoLote) {
+                    ejecutarBloque(conn, ps, movimientos, pendientes, commitParcial, resultado, snapshots, cuentasConError);
+                }
+            }
+
+            if (!pendientes.isEmpty()) {
+                ejecutarBloque(conn, ps, movimientos, pendientes, commitParcial, resultado, snapshots, cuentasConError);
+            }
+        }
+
+        // Un solo UPDATE por cuenta con el saldo del último movimiento insertado
+        for (Map.Entry<String, SnapshotSaldo> entrada : snapshots.entrySet()) {
+            SnapshotSaldo snapshot = entrada.getValue();
+            if (snapshot.idUltimoMovimiento != null) {
+                guardarSnapshot(conn, entrada.getKey(), snapshot.version, snapshot.saldoConfirmado, snapshot.idUltimoMovimiento);
+            }
+        }
+    }
+
+    /**
+     * Envía un bloque del lote. Si falla y se permite commit parcial, el bloque
+     * se deshace hasta su savepoint y se reintenta fila por fila para aislar las
+     * filas con error.
+     */
+    private void ejecutarBloque(Connection conn, PreparedStatement ps, List<Movimiento> movimientos,
+                                List<Integer> indices, boolean commitParcial, ResultadoLote resultado,
+                                Map<String, SnapshotSaldo> snapshots, Set<String> cuentasConError) throws SQLException {
+        Savepoint savepoint = commitParcial ? conn.setSavepoint() : null;
+
+        try {
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (Integer indice : indices) {
+                    if (rs.next()) {
+                        confirmarFila(movimientos.get(indice), indice, rs.getLong(1), resultado, snapshots);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            if (!commitParcial) {
+                throw e;
+            }
+
+            ps.clearBatch();
+            conn.rollback(savepoint);
+            LOGGER.warning("Falló un bloque de " + indices.size() + " movimientos, reintentando fila por fila: " + e.getMessage());
+
+            for (Integer indice : indices) {
+                Movimiento movimiento = movimientos.get(indice);
+                if (cuentasConError.contains(movimiento.getNumeroCuenta())) {
+                    resultado.registrarError(indice, "Un movimiento anterior de la cuenta " + movimiento.getNumeroCuenta() + " falló");
+                    continue;
+                }
+
+                Savepoint savepointFila = conn.setSavepoint();
+                try {
+                    asignarParametros(ps, movimiento);
+                    ps.executeUpdate();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            confirmarFila(movimiento, indice, rs.getLong(1), resultado, snapshots);
+                        }
+                    }
+                    conn.releaseSavepoint(savepointFila);
+                } catch (SQLException errorFila) {
+                    conn.rollback(savepointFila);
+                    resultado.registrarError(indice, errorFila.getMessage());
+                    cuentasConError.add(movimiento.getNumeroCuenta());
+                }
+            }
+        } finally {
+            indices.clear();
+        }
+
+        if (savepoint != null) {
+            conn.releaseSavepoint(savepoint);
+        }
+    }
+
+    private void confirmarFila(Movimiento movimiento, int indice, long id, ResultadoLote resultado,
+                               Map<String, SnapshotSaldo> snapshots) {
+        movimiento.setId(id);
+        resultado.registrarId(indice, id);
+
+        SnapshotSaldo snapshot = snapshots.get(movimiento.getNumeroCuenta());
+        snapshot.saldoConfirmado = movimiento.getSaldoPosterior();
+        snapshot.idUltimoMovimiento = id;
+    }
+
+    /**
+     * Lee los snapshots de saldo de las cuentas del lote en consultas IN acotadas
+     */
+    private Map<String, SnapshotSaldo> cargarSnapshots(Connection conn, List<Movimiento> movimientos,
+                                                       ResultadoLote resultado, int tamanoLote) throws SQLException {
+        Map<String, SnapshotSaldo> snapshots = new HashMap<>();
+        List<String> cuentas = new ArrayList<>();
+        Set<String> vistas = new HashSet<>();
+
+        for (int i = 0; i < movimientos.size(); i++) {
+            if (!resultado.tieneError(i) && vistas.add(movimientos.get(i).getNumeroCuenta())) {
+                cuentas.add(movimientos.get(i).getNumeroCuenta());
+            }
+        }
+
+        for (int desde = 0; desde < cuentas.size(); desde += tamanoLote) {
+            List<String> bloque = cuentas.subList(desde, Math.min(desde + tamanoLote, cuentas.size()));
+            String sql = "SELECT numero_cuenta, saldo, version FROM saldo_cuenta WHERE numero_cuenta IN (" +
+                        String.join(",", Collections.nCopies(bloque.size(), "?")) + ")";
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int i = 0; i < bloque.size(); i++) {
+                    ps.setString(i + 1, bloque.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        SnapshotSaldo snapshot = new SnapshotSaldo();
+                        snapshot.version = rs.getLong("version");
+                        snapshot.saldoEsperado = rs.getBigDecimal("saldo");
+                        snapshots.put(rs.getString("numero_cuenta"), snapshot);
+                    }
+                }
+            }
+        }
+
+        return snapshots;
+    }
+
+    /**
+     * Estado del saldo de una cuenta durante un registro por lotes
+     */
+    private static final class SnapshotSaldo {
+        private Long version;               // null si la cuenta aún no tiene snapshot
+        private BigDecimal saldoEsperado;   // saldo anterior que debe traer la siguiente fila
+        private BigDecimal saldoConfirmado; // saldo posterior de la última fila insertada
+        private Long idUltimoMovimiento;
+    }
+
+    /**
+     * Aplica el movimiento al snapshot de saldo de su cuenta dentro de la
+     * transacción en curso. El saldo anterior del movimiento debe coincidir con
+     * el snapshot y la versión leída no debe haber cambiado; si otro registro
+     * concurrente ganó la carrera, se aborta la transacción completa.
+     */
+    private void actualizarSnapshotSaldo(Connection conn, Movimiento movimiento) throws SQLException {
+        String numeroCuenta = movimiento.getNumeroCuenta();
+        Long version = null;
+        BigDecimal saldoActual = null;
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT saldo, version FROM saldo_cuenta WHERE numero_cuenta = ?")) {
+            ps.setString(1, numeroCuenta);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    saldoActual = rs.getBigDecimal("saldo");
+                    version = rs.getLong("version");
+                }
+            }
+        }
+
+        if (version != null && saldoActual.compareTo(movimiento.getSaldoAnterior()) != 0) {
+            throw new SQLException("El saldo anterior del movimiento (" + movimiento.getSaldoAnterior() +
+                                  ") no coincide con el saldo actual de la cuenta " + numeroCuenta + " (" + saldoActual + ")");
+        }
+
+        guardarSnapshot(conn, numeroCuenta, version, movimiento.getSaldoPosterior(), movimiento.getId());
+    }
+
+    /**
+     * Crea el snapshot (versionLeida null) o lo actualiza si nadie lo modificó
+     * desde que se leyó
+     */
+    private void guardarSnapshot(Connection conn, String numeroCuenta, Long versionLeida,
+                                 BigDecimal saldo, Long idMovimiento) throws SQLException {
+        if (versionLeida == null) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO saldo_cuenta (numero_cuenta, saldo, version, id_ultimo_movimiento, fecha_actualizacion) " +
+                    "VALUES (?, ?, 0, ?, NOW())")) {
+                ps.setString(1, numeroCuenta);
+                ps.setBigDecimal(2, saldo);
+                ps.setObject(3, idMovimiento);
+                ps.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException e) {
+                throw new SQLException("Conflicto de concurrencia al crear el saldo de la cuenta " + numeroCuenta, e);
+            }
+            return;
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE saldo_cuenta SET saldo = ?, version = version + 1, id_ultimo_movimiento = ?, " +
+                "fecha_actualizacion = NOW() WHERE numero_cuenta = ? AND version = ?")) {
+            ps.setBigDecimal(1, saldo);
+            ps.setObject(2, idMovimiento);
+            ps.setString(3, numeroCuenta);
+            ps.setLong(4, versionLeida);
+
+            if (ps.executeUpdate() == 0) {
+                throw new SQLException("Conflicto de concurrencia al actualizar el saldo de la cuenta " + numeroCuenta);
+            }
+        }
+    }
+
+    private void completarMovimiento(Movimiento movimiento) {
+        // Generar referencia si no existe
+        if (movimiento.getReferencia() == null || movimiento.getReferencia().trim().isEmpty()) {
+            movimiento.setReferencia(generarReferencia(movimiento.getTipoMovimiento()));
+        }
+
+        // Establecer fecha actual si no existe
+        if (movimiento.getFechaMovimiento() == null) {
+            movimiento.setFechaMovimiento(LocalDateTime.now());
+        }
+    }
+
+    private void asignarParametros(PreparedStatement ps, Movimiento movimiento) throws SQLException {
+        ps.setString(1, movimiento.getNumeroCuenta());
+        ps.setString(2, movimiento.getTipoMovimiento());
+        ps.setBigDecimal(3, movimiento.getMonto());
+        ps.setString(4, movimiento.getDescripcion());
+        ps.setTimestamp(5, java.sql.Timestamp.valueOf(movimiento.getFechaMovimiento()));
+        ps.setBigDecimal(6, movimiento.getSaldoAnterior());
+        ps.setBigDecimal(7, movimiento.getSaldoPosterior());
+        ps.setString(8, movimiento.getCuentaDestino());
+        ps.setString(9, movimiento.getReferencia());
+        ps.setString(10, movimiento.getEstado());
+    }
+
     private void validarMovimiento(Movimiento movimiento) throws IllegalArgumentException {
         if (movimiento.getNumeroCuenta() == null || movimiento.getNumeroCuenta().trim().isEmpty()) {
             throw new IllegalArgumentException("El número de cuenta es requerido");
@@ -489,9 +1051,8 @@ public class ServicioMovimiento extends Servicio {
                 prefijo = "MOV";
         }
 
-        // Usar timestamp más un número aleatorio para mayor unicidad
-        return prefijo + "-" + System.currentTimeMillis() + "-" +
-               String.format("%04d", new Random().nextInt(10000));
+        // Milisegundo más nodo y secuencia: única aun con llamadas concurrentes
+        return GeneradorReferencias.referenciaMovimiento(prefijo);
     }
 
     private Movimiento mapearMovimiento(ResultSet rs) throws SQLException {
@@ -516,4 +1077,12 @@ public class ServicioMovimiento extends Servicio {
 
         return movimiento;
     }
+
+    /**
+     * Recibe cada movimiento leído por recorrerMovimientos
+     */
+    @FunctionalInterface
+    public interface ConsumidorMovimiento {
+        void aceptar(Movimiento movimiento) throws IOException;
+    }
 }
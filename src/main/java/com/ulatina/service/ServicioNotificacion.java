@@ -1,5 +1,6 @@
 package com.ulatina.service;
 
+import com.ulatina.data.Notificacion;
 import jakarta.enterprise.context.ApplicationScoped;
 import java.util.regex.Pattern;
 
@@ -59,37 +60,22 @@ public class ServicioNotificacion {
         return telefono != null && PHONE_PATTERN.matcher(telefono).matches();
     }
 
-    private boolean enviarEmail(String email, String asunto, String mensaje) throws Exception {
-        // Simulación de envío de email
-        System.out.println("=== ENVIANDO EMAIL ===");
-        System.out.println("Para: " + email);
-        System.out.println("Asunto: " + asunto);
-        System.out.println("Mensaje: " + mensaje);
-        System.out.println("======================");
-
-        // En una implementación real, aquí se integraría con un servicio de email
-        // como JavaMail, SendGrid, Amazon SES, etc.
-
-        // Simular un pequeño delay
-        Thread.sleep(100);
-
-        return true;
+    /**
+     * Encola el email en el despachador; el envío ocurre en segundo plano
+     *
+     * @return false si la notificación no pudo encolarse
+     */
+    private boolean enviarEmail(String email, String asunto, String mensaje) {
+        return DespachadorNotificaciones.getInstancia().encolar(Notificacion.email(email, asunto, mensaje));
     }
 
-    private boolean enviarSms(String telefono, String mensaje) throws Exception {
-        // Simulación de envío de SMS
-        System.out.println("=== ENVIANDO SMS ===");
-        System.out.println("Para: " + telefono);
-        System.out.println("Mensaje: " + mensaje);
-        System.out.println("===================");
-
-        // En una implementación real, aquí se integraría con un servicio de SMS
-        // como Twilio, Amazon SNS, etc.
-
-        // Simular un pequeño delay
-        Thread.sleep(100);
-
-        return true;
+    /**
+     * Encola el SMS en el despachador; el envío ocurre en segundo plano
+     *
+     * @return false si la notificación no pudo encolarse
+     */
+    private boolean enviarSms(String telefono, String mensaje) {
+        return DespachadorNotificaciones.getInstancia().encolar(Notificacion.sms(telefono, mensaje));
     }
 
     public void enviarNotificacionLimiteExcedido(String email, String telefono,
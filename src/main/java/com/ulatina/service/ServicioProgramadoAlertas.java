@@ -1,10 +1,13 @@
 package com.ulatina.service;
 
-import com.ulatina.data.Alerta;
 import jakarta.ejb.Schedule;
 import jakarta.ejb.Singleton;
 import jakarta.inject.Inject;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 /**
@@ -16,7 +19,13 @@ public class ServicioProgramadoAlertas {
     private static final Logger logger = Logger.getLogger(ServicioProgramadoAlertas.class.getName());
 
     @Inject
-    private ServicioAlerta servicioAlerta;
+    private ProcesadorAlertas procesadorAlertas;
+
+    @Inject
+    private ServicioRetencionAlertas servicioRetencionAlertas;
+
+    @Inject
+    private ServicioResumenAlertas servicioResumenAlertas;
 
     /**
      * Procesar alertas pendientes cada 5 minutos
@@ -26,25 +35,14 @@ public class ServicioProgramadoAlertas {
         try {
             logger.info("Iniciando procesamiento automático de alertas pendientes...");
 
-            List<Alerta> alertasPendientes = servicioAlerta.obtenerAlertasPendientes();
+            int procesadas = procesadorAlertas.procesarPendientes();
 
-            if (alertasPendientes.isEmpty()) {
+            if (procesadas == 0) {
                 logger.info("No hay alertas pendientes para procesar");
                 return;
             }
 
-            logger.info("Procesando " + alertasPendientes.size() + " alertas pendientes");
-
-            for (Alerta alerta : alertasPendientes) {
-                try {
-                    servicioAlerta.procesarAlerta(alerta);
-                    logger.info("Alerta procesada exitosamente: ID " + alerta.getId());
-                } catch (Exception e) {
-                    logger.severe("Error procesando alerta ID " + alerta.getId() + ": " + e.getMessage());
-                }
-            }
-
-            logger.info("Procesamiento automático de alertas completado");
+            logger.info("Procesamiento automático de alertas completado: " + procesadas + " alertas");
 
         } catch (Exception e) {
             logger.severe("Error en el procesamiento programado de alertas: " + e.getMessage());
@@ -59,16 +57,30 @@ public class ServicioProgramadoAlertas {
         try {
             logger.info("Iniciando limpieza de alertas antiguas...");
 
-            // Lógica para archivar o eliminar alertas muy antiguas (más de 90 días)
-            // Por implementar según políticas de retención de datos
+            // Lo que no alcance a archivarse en el tiempo máximo continúa en la próxima corrida
+            Map<String, Object> resultado = servicioRetencionAlertas.archivar(Duration.ofHours(2));
 
-            logger.info("Limpieza de alertas antiguas completada");
+            logger.info("Limpieza de alertas antiguas " +
+                        (Boolean.TRUE.equals(resultado.get("completado")) ? "completada: " : "pausada: ") + resultado);
 
         } catch (Exception e) {
             logger.severe("Error en la limpieza programada de alertas: " + e.getMessage());
         }
     }
 
+    /**
+     * Actualizar el resumen diario de alertas cada 15 minutos
+     */
+    @Schedule(minute = "*/15", hour = "*", persistent = false)
+    public void actualizarResumenAlertas() {
+        try {
+            servicioResumenAlertas.actualizar();
+
+        } catch (Exception e) {
+            logger.severe("Error actualizando el resumen de alertas: " + e.getMessage());
+        }
+    }
+
     /**
      * Generar reporte diario de alertas a las 8:00 AM
      */
@@ -77,10 +89,16 @@ public class ServicioProgramadoAlertas {
         try {
             logger.info("Generando reporte diario de alertas...");
 
-            // Lógica para generar reporte diario
-            // Por implementar según requerimientos de reporting
+            servicioResumenAlertas.actualizar();
+
+            LocalDate ayer = LocalDate.now().minusDays(1);
+            List<Map<String, Object>> porTipo = servicioResumenAlertas.consultarResumen(
+                ayer, ayer, null, Collections.singletonList("tipo"));
+            List<Map<String, Object>> porPrioridad = servicioResumenAlertas.consultarResumen(
+                ayer, ayer, null, Collections.singletonList("prioridad"));
 
-            logger.info("Reporte diario de alertas generado");
+            logger.info("Reporte diario de alertas generado para " + ayer + ". Por tipo: " + porTipo +
+                        ". Por prioridad: " + porPrioridad);
 
         } catch (Exception e) {
             logger.severe("Error generando reporte diario de alertas: " + e.getMessage());
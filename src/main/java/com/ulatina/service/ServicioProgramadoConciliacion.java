@@ -0,0 +1,58 @@
+package com.ulatina.service;
+
+import jakarta.ejb.Schedule;
+import jakarta.ejb.Singleton;
+import jakarta.inject.Inject;
+import java.util.logging.Logger;
+
+/**
+ * Servicio programado para conciliar los snapshots de saldo con el registro de
+ * movimientos y los contadores de estadísticas con la tabla de cuentas
+ */
+@Singleton
+public class ServicioProgramadoConciliacion {
+
+    private static final Logger logger = Logger.getLogger(ServicioProgramadoConciliacion.class.getName());
+
+    @Inject
+    private ServicioMovimiento servicioMovimiento;
+
+    @Inject
+    private ServicioEstadisticas servicioEstadisticas;
+
+    /**
+     * Verificar los snapshots de saldo cada hora. Las diferencias solo se
+     * reportan; la corrección se hace manualmente tras revisarlas.
+     */
+    @Schedule(minute = "30", hour = "*", persistent = false)
+    public void conciliarSaldos() {
+        try {
+            logger.info("Iniciando conciliación de snapshots de saldo...");
+
+            int diferencias = servicioMovimiento.reconciliarSaldos(false);
+
+            if (diferencias == 0) {
+                logger.info("Conciliación de saldos completada sin diferencias");
+            } else {
+                logger.severe("Conciliación de saldos encontró " + diferencias + " cuentas con snapshot inconsistente");
+            }
+
+        } catch (Exception e) {
+            logger.severe("Error en la conciliación programada de saldos: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Recalcular los contadores de estadísticas cada 10 minutos, para recoger
+     * los cambios que no pasaron por ServicioCuenta de este nodo
+     */
+    @Schedule(minute = "*/10", hour = "*", persistent = false)
+    public void reconciliarEstadisticas() {
+        try {
+            servicioEstadisticas.reconciliar();
+
+        } catch (Exception e) {
+            logger.severe("Error en la reconciliación programada de estadísticas: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.ulatina.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Resumen diario de alertas por cuenta, tipo y prioridad en la tabla
+ * alerta_resumen_diario, para que los reportes y tableros lean totales
+ * precalculados en lugar de recorrer la tabla alerta.
+ *
+ * El cálculo es incremental: una marca de agua (el último id resumido, en
+ * proceso_checkpoint) indica hasta dónde se procesó, y cada actualización
+ * solo suma las alertas posteriores. Se avanza por rangos de id y cada rango
+ * se suma y mueve la marca en la misma transacción, con la fila de la marca
+ * bloqueada (FOR UPDATE): si otro nodo ya avanzó la marca, el rango se
+ * descarta y se sigue desde la marca nueva. Así ninguna alerta se cuenta dos
+ * veces aunque la corrida se interrumpa o corra en varios nodos a la vez.
+ *
+ * Solo se resumen las alertas con más de MINUTOS_MARGEN minutos de generadas,
+ * para no saltarse una inserción con un id menor que todavía no confirmó. El
+ * resumen usa solo datos que no cambian después de generar la alerta (fecha,
+ * cuenta, tipo, prioridad, monto); el estado de cada alerta se consulta en
+ * la tabla alerta.
+ */
+@ApplicationScoped
+public class ServicioResumenAlertas extends Servicio {
+
+    private static final Logger logger = Logger.getLogger(ServicioResumenAlertas.class.getName());
+
+    static final String PROCESO = "RESUMEN_ALERTAS";
+
+    private static final int MINUTOS_MARGEN = 5;
+    private static final long IDS_POR_PASO = 50000;
+    private static final int DIAS_MAXIMOS_CONSULTA = 366;
+
+    /**
+     * Dimensiones por las que se puede agrupar la consulta y su columna
+     */
+    private static final Map<String, String> DIMENSIONES = new LinkedHashMap<>();
+
+    static {
+        DIMENSIONES.put("fecha", "fecha");
+        DIMENSIONES.put("cuenta", "numero_cuenta");
+        DIMENSIONES.put("tipo", "tipo_alerta");
+        DIMENSIONES.put("prioridad", "prioridad");
+    }
+
+    /**
+     * Suma al resumen las alertas generadas desde la última marca de agua
+     *
+     * @return alertas resumidas, pasos y marca de agua final
+     */
+    public synchronized Map<String, Object> actualizar() throws Exception {
+        long inicio = System.currentTimeMillis();
+
+        try {
+            conectarBD();
+            crearMarca();
+            long marca = leerMarca();
+            long tope = consultarTope(marca);
+
+            long resumidas = 0;
+            int pasos = 0;
+            while (marca < tope) {
+                long hasta = Math.min(tope, marca + IDS_POR_PASO);
+                long resumidasRango = resumirRango(marca, hasta);
+                if (resumidasRango < 0) {
+                    // Otro nodo resumió este rango: seguir desde donde dejó la marca
+                    marca = leerMarca();
+                    continue;
+                }
+                resumidas += resumidasRango;
+                marca = hasta;
+                pasos++;
+            }
+            if (resumidas > 0) {
+                logger.info("Resumen de alertas actualizado: " + resumidas + " alertas hasta el id " + marca);
+            }
+
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("alertasResumidas", resumidas);
+            resultado.put("pasos", pasos);
+            resultado.put("marcaAgua", marca);
+            resultado.put("duracionMs", System.currentTimeMillis() - inicio);
+            return resultado;
+
+        } catch (Exception e) {
+            throw new Exception("Error actualizando resumen de alertas: " + e.getMessage(), e);
+        } finally {
+            cerrarConexion();
+        }
+    }
+
+    /**
+     * Mayor id que ya se puede resumir. Solo recorre las alertas posteriores a
+     * la marca.
+     */
+    private long consultarTope(long marca) throws Exception {
+        PreparedStatement ps = getConexion().prepareStatement(
+            "SELECT MAX(id) FROM alerta WHERE id > ? AND fecha_generacion < NOW() - INTERVAL " +
+            MINUTOS_MARGEN + " MINUTE");
+        ps.setLong(1, marca);
+        ResultSet rs = ps.executeQuery();
+
+        long tope = marca;
+        if (rs.next() && rs.getObject(1) != null) {
+            tope = rs.getLong(1);
+        }
+
+        cerrarResultSet(rs);
+        cerrarPreparedStatement(ps);
+        return tope;
+    }
+
+    /**
+     * Suma las alertas con id en (desde, hasta] y mueve la marca a hasta
+     *
+     * @return alertas resumidas, o -1 si la marca ya no estaba en desde
+     */
+    private long resumirRango(long desde, long hasta) throws Exception {
+        long[] resumidas = new long[1];
+
+        ejecutarEnTransaccion(conn -> {
+            // Bloquea la marca hasta el commit: la suma y el avance de la marca van juntos
+            PreparedStatement ps = conn.prepareStatement(
+                "SELECT ultimo_id FROM proceso_checkpoint WHERE proceso = ? FOR UPDATE");
+            ps.setString(1, PROCESO);
+            ResultSet rs = ps.executeQuery();
+            long marca = rs.next() ? rs.getLong(1) : -1;
+            cerrarResultSet(rs);
+            cerrarPreparedStatement(ps);
+
+            if (marca != desde) {
+                resumidas[0] = -1;
+                return;
+            }
+
+            ps = conn.prepareStatement(
+                "SELECT COUNT(*) FROM alerta WHERE id > ? AND id <= ?");
+            ps.setLong(1, desde);
+            ps.setLong(2, hasta);
+            rs = ps.executeQuery();
+            if (rs.next()) {
+                resumidas[0] = rs.getLong(1);
+            }
+            cerrarResultSet(rs);
+            cerrarPreparedStatement(ps);
+
+            if (resumidas[0] > 0) {
+                ps = conn.prepareStatement(
+                    "INSERT INTO alerta_resumen_diario (fecha, numero_cuenta, tipo_alerta, prioridad, " +
+                    "total_alertas, monto_total, fecha_actualizacion) " +
+                    "SELECT DATE(fecha_generacion), numero_cuenta, tipo_alerta, prioridad, COUNT(*), " +
+                    "COALESCE(SUM(monto_transaccion), 0), NOW() FROM alerta WHERE id > ? AND id <= ? " +
+                    "GROUP BY DATE(fecha_generacion), numero_cuenta, tipo_alerta, prioridad " +
+                    "ON DUPLICATE KEY UPDATE total_alertas = total_alertas + VALUES(total_alertas), " +
+                    "monto_total = monto_total + VALUES(monto_total), fecha_actualizacion = NOW()");
+                ps.setLong(1, desde);
+                ps.setLong(2, hasta);
+                ps.executeUpdate();
+                cerrarPreparedStatement(ps);
+            }
+
+            ps = conn.prepareStatement(
+                "UPDATE proceso_checkpoint SET ultimo_id = ?, id_tope = ?, " +
+                "filas_procesadas = filas_procesadas + ?, fecha_actualizacion = NOW() WHERE proceso = ?");
+            ps.setLong(1, hasta);
+            ps.setLong(2, hasta);
+            ps.setLong(3, resumidas[0]);
+            ps.setString(4, PROCESO);
+            ps.executeUpdate();
+            cerrarPreparedStatement(ps);
+        });
+
+        return resumidas[0];
+    }
+
+    /**
+     * Crea la fila de la marca si no existe, para que resumirRango siempre
+     * tenga una fila que bloquear
+     */
+    private void crearMarca() throws Exception {
+        PreparedStatement ps = getConexion().prepareStatement(
+            "INSERT IGNORE INTO proceso_checkpoint (proceso, estado, ultimo_id, id_tope, filas_procesadas, " +
+            "fecha_inicio, fecha_actualizacion) VALUES (?, 'ACTIVO', 0, 0, 0, NOW(), NOW())");
+        ps.setString(1, PROCESO);
+        ps.executeUpdate();
+        cerrarPreparedStatement(ps);
+    }
+
+    private long leerMarca() throws Exception {
+        PreparedStatement ps = getConexion().prepareStatement(
+            "SELECT ultimo_id FROM proceso_checkpoint WHERE proceso = ?");
+        ps.setString(1, PROCESO);
+        ResultSet rs = ps.executeQuery();
+
+        long marca = rs.next() ? rs.getLong(1) : 0;
+
+        cerrarResultSet(rs);
+        cerrarPreparedStatement(ps);
+        return marca;
+    }
+
+    /**
+     * Totales del resumen entre dos fechas, agrupados por las dimensiones
+     * indicadas (fecha, cuenta, tipo, prioridad)
+     *
+     * @param numeroCuenta filtro opcional por cuenta
+     * @param agrupar      dimensiones; vacío para el total del rango
+     */
+    public List<Map<String, Object>> consultarResumen(LocalDate desde, LocalDate hasta, String numeroCuenta,
+                                                      List<String> agrupar) throws Exception {
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha inicial es posterior a la final");
+        }
+        if (desde.plusDays(DIAS_MAXIMOS_CONSULTA).isBefore(hasta)) {
+            throw new IllegalArgumentException("El rango no puede superar " + DIAS_MAXIMOS_CONSULTA + " días");
+        }
+
+        List<String> columnas = new ArrayList<>();
+        for (String dimension : agrupar) {
+            String columna = DIMENSIONES.get(dimension.trim().toLowerCase());
+            if (columna == null) {
+                throw new IllegalArgumentException("Dimensión no soportada: " + dimension);
+            }
+            if (!columnas.contains(columna)) {
+                columnas.add(columna);
+            }
+        }
+
+        String seleccion = columnas.isEmpty() ? "" : String.join(", ", columnas) + ", ";
+        String sql = "SELECT " + seleccion + "SUM(total_alertas) AS total_alertas, SUM(monto_total) AS monto_total " +
+                     "FROM alerta_resumen_diario WHERE fecha BETWEEN ? AND ?" +
+                     (numeroCuenta != null ? " AND numero_cuenta = ?" : "") +
+                     (columnas.isEmpty() ? "" : " GROUP BY " + String.join(", ", columnas) +
+                                                " ORDER BY " + String.join(", ", columnas));
+
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            conectarBD();
+            ps = getConexion().prepareStatement(sql);
+            ps.setDate(1, Date.valueOf(desde));
+            ps.setDate(2, Date.valueOf(hasta));
+            if (numeroCuenta != null) {
+                ps.setString(3, numeroCuenta);
+            }
+            rs = ps.executeQuery();
+
+            List<Map<String, Object>> filas = new ArrayList<>();
+            while (rs.next()) {
+                Map<String, Object> fila = new LinkedHashMap<>();
+                for (Map.Entry<String, String> dimension : DIMENSIONES.entrySet()) {
+                    if (columnas.contains(dimension.getValue())) {
+                        fila.put(dimension.getKey(), rs.getString(dimension.getValue()));
+                    }
+                }
+                fila.put("totalAlertas", rs.getLong("total_alertas"));
+                BigDecimal monto = rs.getBigDecimal("monto_total");
+                fila.put("montoTotal", monto != null ? monto : BigDecimal.ZERO);
+                filas.add(fila);
+            }
+            return filas;
+
+        } catch (Exception e) {
+            throw new Exception("Error consultando resumen de alertas: " + e.getMessage(), e);
+        } finally {
+            cerrarResultSet(rs);
+            cerrarPreparedStatement(ps);
+            cerrarConexion();
+        }
+    }
+}
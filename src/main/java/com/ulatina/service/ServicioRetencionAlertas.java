@@ -0,0 +1,297 @@
+package com.ulatina.service;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Retención de alertas: mueve a alerta_historico las alertas ya atendidas cuya
+ * fecha de generación quedó fuera del horizonte de retención.
+ *
+ * El archivo avanza por id en lotes acotados. Cada lote copia las filas,
+ * las borra de alerta y actualiza el checkpoint en la misma transacción, por
+ * lo que los bloqueos sobre la tabla activa duran solo lo que tarda un lote y
+ * una corrida interrumpida (caída, tiempo máximo agotado) continúa en la
+ * siguiente desde el último lote confirmado. Entre lotes se hace una pausa
+ * para no competir con el tráfico normal.
+ *
+ * Las alertas PENDIENTE o PROCESANDO no se archivan aunque sean antiguas.
+ *
+ * Configurable con ALERTAS_DIAS_RETENCION, ALERTAS_LOTE_ARCHIVO y
+ * ALERTAS_PAUSA_ARCHIVO_MS.
+ */
+@ApplicationScoped
+public class ServicioRetencionAlertas extends Servicio {
+
+    private static final Logger logger = Logger.getLogger(ServicioRetencionAlertas.class.getName());
+
+    static final String PROCESO = "ARCHIVO_ALERTAS";
+    static final String EN_CURSO = "EN_CURSO";
+    static final String COMPLETADO = "COMPLETADO";
+
+    private static final String COLUMNAS = "id, numero_cuenta, tipo_alerta, mensaje, monto_transaccion, estado, " +
+                                           "prioridad, fecha_generacion, fecha_procesamiento, email_enviado, " +
+                                           "sms_enviado, metadatos";
+    private static final String ARCHIVABLE = "estado NOT IN ('PENDIENTE', 'PROCESANDO')";
+
+    private final int diasRetencion;
+    private final int tamanoLote;
+    private final long pausaMs;
+
+    public ServicioRetencionAlertas() {
+        this(leerEntero("ALERTAS_DIAS_RETENCION", 90), leerEntero("ALERTAS_LOTE_ARCHIVO", 1000),
+             leerEntero("ALERTAS_PAUSA_ARCHIVO_MS", 100));
+    }
+
+    public ServicioRetencionAlertas(int diasRetencion, int tamanoLote, long pausaMs) {
+        this.diasRetencion = diasRetencion;
+        this.tamanoLote = Math.max(1, tamanoLote);
+        this.pausaMs = Math.max(0, pausaMs);
+    }
+
+    /**
+     * Archiva alertas hasta terminar o hasta agotar el tiempo máximo. Si hay una
+     * corrida anterior sin terminar, la continúa con el mismo corte.
+     *
+     * @return resumen de la corrida: movidas, lotes, completado y checkpoint
+     */
+    public synchronized Map<String, Object> archivar(Duration tiempoMaximo) throws Exception {
+        long limite = System.nanoTime() + tiempoMaximo.toNanos();
+        long inicio = System.currentTimeMillis();
+
+        try {
+            conectarBD();
+
+            Checkpoint checkpoint = leerCheckpoint();
+            if (checkpoint != null && EN_CURSO.equals(checkpoint.estado)) {
+                logger.info("Reanudando archivo de alertas desde el id " + checkpoint.ultimoId +
+                            " (corte " + checkpoint.fechaCorte + ")");
+            } else {
+                checkpoint = iniciarCorrida(LocalDate.now().minusDays(diasRetencion).atStartOfDay());
+            }
+
+            long movidas = 0;
+            int lotes = 0;
+            while (checkpoint.ultimoId < checkpoint.idTope && System.nanoTime() < limite) {
+                movidas += archivarLote(checkpoint);
+                lotes++;
+                if (pausaMs > 0 && checkpoint.ultimoId < checkpoint.idTope) {
+                    TimeUnit.MILLISECONDS.sleep(pausaMs);
+                }
+            }
+
+            boolean completado = checkpoint.ultimoId >= checkpoint.idTope;
+            if (completado) {
+                actualizarEstado(COMPLETADO);
+            }
+
+            Map<String, Object> resultado = new LinkedHashMap<>();
+            resultado.put("movidas", movidas);
+            resultado.put("lotes", lotes);
+            resultado.put("completado", completado);
+            resultado.put("fechaCorte", checkpoint.fechaCorte.toString());
+            resultado.put("ultimoId", checkpoint.ultimoId);
+            resultado.put("idTope", checkpoint.idTope);
+            resultado.put("duracionMs", System.currentTimeMillis() - inicio);
+            return resultado;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Exception("Archivo de alertas interrumpido", e);
+        } catch (Exception e) {
+            throw new Exception("Error archivando alertas: " + e.getMessage(), e);
+        } finally {
+            cerrarConexion();
+        }
+    }
+
+    /**
+     * Nueva corrida: el tope es el mayor id anterior al corte, así las alertas
+     * que se generen mientras corre no se recorren
+     */
+    private Checkpoint iniciarCorrida(LocalDateTime corte) throws Exception {
+        long idTope = 0;
+        PreparedStatement ps = getConexion().prepareStatement(
+            "SELECT MAX(id) FROM alerta WHERE fecha_generacion < ?");
+        ps.setTimestamp(1, Timestamp.valueOf(corte));
+        ResultSet rs = ps.executeQuery();
+        if (rs.next()) {
+            idTope = rs.getLong(1);
+        }
+        cerrarResultSet(rs);
+        cerrarPreparedStatement(ps);
+
+        ps = getConexion().prepareStatement(
+            "INSERT INTO proceso_checkpoint (proceso, estado, ultimo_id, id_tope, fecha_corte, filas_procesadas, " +
+            "fecha_inicio, fecha_actualizacion) VALUES (?, ?, 0, ?, ?, 0, NOW(), NOW()) " +
+            "ON DUPLICATE KEY UPDATE estado = VALUES(estado), ultimo_id = 0, id_tope = VALUES(id_tope), " +
+            "fecha_corte = VALUES(fecha_corte), filas_procesadas = 0, fecha_inicio = NOW(), fecha_actualizacion = NOW()");
+        ps.setString(1, PROCESO);
+        ps.setString(2, EN_CURSO);
+        ps.setLong(3, idTope);
+        ps.setTimestamp(4, Timestamp.valueOf(corte));
+        ps.executeUpdate();
+        cerrarPreparedStatement(ps);
+
+        logger.info("Archivo de alertas: corte " + corte + ", hasta el id " + idTope);
+        return new Checkpoint(EN_CURSO, 0, idTope, corte, 0);
+    }
+
+    /**
+     * Mueve un lote al histórico y avanza el checkpoint en una sola transacción
+     *
+     * @return alertas movidas en el lote
+     */
+    private int archivarLote(Checkpoint checkpoint) throws Exception {
+        int[] movidas = new int[1];
+        long[] siguienteId = new long[1];
+
+        ejecutarEnTransaccion(conn -> {
+            List<Long> ids = new ArrayList<>();
+            PreparedStatement ps = conn.prepareStatement(
+                "SELECT id FROM alerta WHERE id > ? AND id <= ? AND fecha_generacion < ? AND " + ARCHIVABLE +
+                " ORDER BY id LIMIT ?");
+            ps.setLong(1, checkpoint.ultimoId);
+            ps.setLong(2, checkpoint.idTope);
+            ps.setTimestamp(3, Timestamp.valueOf(checkpoint.fechaCorte));
+            ps.setInt(4, tamanoLote);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+            cerrarResultSet(rs);
+            cerrarPreparedStatement(ps);
+
+            // Lote incompleto: no quedan alertas archivables hasta el tope
+            siguienteId[0] = ids.size() < tamanoLote ? checkpoint.idTope : ids.get(ids.size() - 1);
+
+            if (!ids.isEmpty()) {
+                String enLote = " WHERE id IN (" + String.join(",", Collections.nCopies(ids.size(), "?")) + ")";
+
+                // IGNORE: si un lote anterior se copió pero no llegó a confirmarse el borrado no se duplica
+                ps = conn.prepareStatement("INSERT IGNORE INTO alerta_historico (" + COLUMNAS + ") SELECT " +
+                                           COLUMNAS + " FROM alerta" + enLote);
+                asignarIds(ps, ids);
+                ps.executeUpdate();
+                cerrarPreparedStatement(ps);
+
+                ps = conn.prepareStatement("DELETE FROM alerta" + enLote);
+                asignarIds(ps, ids);
+                movidas[0] = ps.executeUpdate();
+                cerrarPreparedStatement(ps);
+            }
+
+            ps = conn.prepareStatement(
+                "UPDATE proceso_checkpoint SET ultimo_id = ?, filas_procesadas = filas_procesadas + ?, " +
+                "fecha_actualizacion = NOW() WHERE proceso = ?");
+            ps.setLong(1, siguienteId[0]);
+            ps.setLong(2, movidas[0]);
+            ps.setString(3, PROCESO);
+            ps.executeUpdate();
+            cerrarPreparedStatement(ps);
+        });
+
+        checkpoint.ultimoId = siguienteId[0];
+        checkpoint.filasProcesadas += movidas[0];
+        return movidas[0];
+    }
+
+    /**
+     * Estado del último archivo de alertas, o vacío si nunca se ha ejecutado
+     */
+    public Map<String, Object> obtenerEstado() throws Exception {
+        try {
+            conectarBD();
+            Checkpoint checkpoint = leerCheckpoint();
+
+            Map<String, Object> estado = new LinkedHashMap<>();
+            estado.put("diasRetencion", diasRetencion);
+            estado.put("tamanoLote", tamanoLote);
+            if (checkpoint != null) {
+                estado.put("estado", checkpoint.estado);
+                estado.put("fechaCorte", checkpoint.fechaCorte != null ? checkpoint.fechaCorte.toString() : null);
+                estado.put("ultimoId", checkpoint.ultimoId);
+                estado.put("idTope", checkpoint.idTope);
+                estado.put("filasArchivadas", checkpoint.filasProcesadas);
+            }
+            return estado;
+
+        } catch (Exception e) {
+            throw new Exception("Error obteniendo estado del archivo de alertas: " + e.getMessage(), e);
+        } finally {
+            cerrarConexion();
+        }
+    }
+
+    private Checkpoint leerCheckpoint() throws Exception {
+        PreparedStatement ps = getConexion().prepareStatement(
+            "SELECT estado, ultimo_id, id_tope, fecha_corte, filas_procesadas FROM proceso_checkpoint WHERE proceso = ?");
+        ps.setString(1, PROCESO);
+        ResultSet rs = ps.executeQuery();
+
+        Checkpoint checkpoint = null;
+        if (rs.next()) {
+            Timestamp corte = rs.getTimestamp("fecha_corte");
+            checkpoint = new Checkpoint(rs.getString("estado"), rs.getLong("ultimo_id"), rs.getLong("id_tope"),
+                                        corte != null ? corte.toLocalDateTime() : null,
+                                        rs.getLong("filas_procesadas"));
+        }
+
+        cerrarResultSet(rs);
+        cerrarPreparedStatement(ps);
+        return checkpoint;
+    }
+
+    private void actualizarEstado(String estado) throws Exception {
+        PreparedStatement ps = getConexion().prepareStatement(
+            "UPDATE proceso_checkpoint SET estado = ?, fecha_actualizacion = NOW() WHERE proceso = ?");
+        ps.setString(1, estado);
+        ps.setString(2, PROCESO);
+        ps.executeUpdate();
+        cerrarPreparedStatement(ps);
+    }
+
+    private static void asignarIds(PreparedStatement ps, List<Long> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            ps.setLong(i + 1, ids.get(i));
+        }
+    }
+
+    private static int leerEntero(String nombre, int valorPorDefecto) {
+        String valor = System.getenv(nombre);
+        try {
+            return valor != null ? Integer.parseInt(valor.trim()) : valorPorDefecto;
+        } catch (NumberFormatException e) {
+            logger.warning(nombre + " inválido: " + valor);
+            return valorPorDefecto;
+        }
+    }
+
+    private static final class Checkpoint {
+        private final String estado;
+        private long ultimoId;
+        private final long idTope;
+        private final LocalDateTime fechaCorte;
+        private long filasProcesadas;
+
+        private Checkpoint(String estado, long ultimoId, long idTope, LocalDateTime fechaCorte, long filasProcesadas) {
+            this.estado = estado;
+            this.ultimoId = ultimoId;
+            this.idTope = idTope;
+            this.fechaCorte = fechaCorte;
+            this.filasProcesadas = filasProcesadas;
+        }
+    }
+}
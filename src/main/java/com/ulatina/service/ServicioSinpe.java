@@ -5,18 +5,20 @@ import jakarta.enterprise.context.ApplicationScoped;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @ApplicationScoped
 public class ServicioSinpe {
 
     // Simulación de almacenamiento en memoria
-    private Map<String, TransferenciaSinpe> transferencias = new HashMap<>();
-    private int nextId = 1;
+    private Map<String, TransferenciaSinpe> transferencias = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
 
     public TransferenciaSinpe procesarTransferencia(String cuentaOrigen, String cuentaDestino,
                                                   BigDecimal monto, String descripcion) {
         TransferenciaSinpe transferencia = new TransferenciaSinpe();
-        transferencia.setId(nextId++);
+        transferencia.setId(nextId.getAndIncrement());
         transferencia.setCuentaOrigen(cuentaOrigen);
         transferencia.setCuentaDestino(cuentaDestino);
         transferencia.setMonto(monto);
@@ -35,6 +37,6 @@ public class ServicioSinpe {
     }
 
     private String generarReferencia() {
-        return "SINPE" + System.currentTimeMillis() % 1000000;
+        return GeneradorReferencias.referenciaSinpe();
     }
 }
@@ -3,6 +3,7 @@ package com.ulatina.service;
 import com.ulatina.data.TransferenciaSwift;
 import com.ulatina.data.Cuenta;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.time.LocalDateTime;
@@ -20,7 +21,8 @@ public class ServicioSwift {
     private static final BigDecimal COMISION_BASE = new BigDecimal("25.00");
     private static final BigDecimal COMISION_PORCENTAJE = new BigDecimal("0.001"); // 0.1%
 
-    private ServicioCuenta servicioCuenta = new ServicioCuenta();
+    @Inject
+    private ServicioCuenta servicioCuenta;
     private List<TransferenciaSwift> transferenciasSwift = new ArrayList<>();
 
     /**
@@ -61,9 +63,10 @@ public class ServicioSwift {
         transferencia.setEstado("ENVIADO");
         transferencia.setFechaEnvio(LocalDateTime.now());
 
-        // Debitar cuenta origen
-        cuentaOrigen.setSaldo(cuentaOrigen.getSaldo().subtract(montoTotal));
-        servicioCuenta.actualizarCuenta(cuentaOrigen);
+        // Debitar cuenta origen; el débito vuelve a verificar el saldo con la fila bloqueada
+        if (!servicioCuenta.debitar(cuentaOrigen.getNumero(), montoTotal)) {
+            throw new Exception("Saldo insuficiente para la transferencia y comisión");
+        }
 
         // Simular envío a red SWIFT
         boolean exito = enviarARedSwift(transferencia);
@@ -77,8 +80,7 @@ public class ServicioSwift {
             transferencia.setMensajeError("Error en procesamiento SWIFT");
 
             // Reversar débito en caso de error
-            cuentaOrigen.setSaldo(cuentaOrigen.getSaldo().add(montoTotal));
-            servicioCuenta.actualizarCuenta(cuentaOrigen);
+            servicioCuenta.acreditar(cuentaOrigen.getNumero(), montoTotal);
         }
 
         // Guardar transferencia
@@ -171,10 +173,7 @@ public class ServicioSwift {
      * Genera referencia única SWIFT
      */
     private String generarReferenciaSwift() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyMMddHHmmss"));
-        Random random = new Random();
-        int randomNum = random.nextInt(9999);
-        return String.format("SW%s%04d", timestamp, randomNum);
+        return GeneradorReferencias.referenciaSwift();
     }
 
     /**
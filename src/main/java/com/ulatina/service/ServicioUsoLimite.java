@@ -0,0 +1,292 @@
+package com.ulatina.service;
+
+import com.ulatina.data.LimiteTransaccion;
+import jakarta.enterprise.context.ApplicationScoped;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Acumulado de uso de los límites por cuenta, tipo y periodo.
+ *
+ * Cada (cuenta, tipo, periodo) tiene un contador en memoria con el monto usado
+ * en la ventana actual (día, semana o mes calendario). Al cambiar de ventana el
+ * contador se reinicia con lo que haya en uso_limite para la nueva. Verificar y
+ * reservar cuesta O(1): no se recorre la tabla de movimientos. Cada reserva o
+ * liberación se suma también en uso_limite, así el acumulado sobrevive a un
+ * reinicio de la aplicación.
+ *
+ * Los contadores viven en esta instancia: con varios nodos cada uno debe
+ * atender a cuentas distintas o el acumulado se verifica por nodo.
+ */
+@ApplicationScoped
+public class ServicioUsoLimite extends Servicio {
+
+    private static final Logger logger = Logger.getLogger(ServicioUsoLimite.class.getName());
+
+    private final ConcurrentMap<String, ContadorUso> contadores = new ConcurrentHashMap<>();
+
+    /**
+     * Intenta reservar el monto contra el acumulado del periodo del límite.
+     *
+     * @return null si la cuenta no tiene un límite activo; en otro caso una
+     *         reserva aceptada o rechazada. Una reserva aceptada debe liberarse
+     *         si la transacción no llega a completarse.
+     */
+    public Reserva reservar(LimiteTransaccion limite, BigDecimal monto) throws Exception {
+        if (limite == null || !Boolean.TRUE.equals(limite.getActivo())) {
+            return null;
+        }
+
+        LocalDate ventana = inicioVentana(limite.getPeriodo(), hoy());
+        ContadorUso contador = obtenerContador(limite);
+        BigDecimal usado;
+
+        synchronized (contador) {
+            sincronizarVentana(contador, limite, ventana);
+
+            BigDecimal nuevoUsado = contador.usado.add(monto);
+            if (nuevoUsado.compareTo(limite.getMontoLimite()) > 0) {
+                return new Reserva(limite, ventana, monto, contador.usado, false);
+            }
+            contador.usado = nuevoUsado;
+            usado = nuevoUsado;
+        }
+
+        try {
+            persistirUso(limite.getNumeroCuenta(), limite.getTipoLimite(), limite.getPeriodo(), ventana, monto);
+        } catch (Exception e) {
+            // Sin persistencia la reserva no vale: devolver el monto al contador
+            descontar(contador, ventana, monto);
+            throw new Exception("Error registrando uso del límite: " + e.getMessage(), e);
+        }
+
+        return new Reserva(limite, ventana, monto, usado, true);
+    }
+
+    /**
+     * Devuelve al acumulado el monto de una reserva aceptada cuya transacción falló
+     */
+    public void liberar(Reserva reserva) {
+        if (reserva == null || !reserva.isAceptada()) {
+            return;
+        }
+
+        LimiteTransaccion limite = reserva.getLimite();
+        ContadorUso contador = contadores.get(clave(limite));
+        if (contador != null) {
+            descontar(contador, reserva.getVentana(), reserva.getMonto());
+        }
+
+        try {
+            persistirUso(limite.getNumeroCuenta(), limite.getTipoLimite(), limite.getPeriodo(),
+                         reserva.getVentana(), reserva.getMonto().negate());
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error liberando uso del límite de la cuenta " + limite.getNumeroCuenta(), e);
+        }
+    }
+
+    /**
+     * Monto usado en la ventana actual del límite
+     */
+    public BigDecimal consultarUsado(LimiteTransaccion limite) throws Exception {
+        LocalDate ventana = inicioVentana(limite.getPeriodo(), hoy());
+        ContadorUso contador = obtenerContador(limite);
+
+        synchronized (contador) {
+            sincronizarVentana(contador, limite, ventana);
+            return contador.usado;
+        }
+    }
+
+    /**
+     * Descarta los contadores en memoria; se recargan desde uso_limite
+     */
+    public void limpiarContadores() {
+        contadores.clear();
+    }
+
+    /**
+     * Primer día de la ventana calendario que contiene la fecha
+     */
+    public static LocalDate inicioVentana(LimiteTransaccion.PeriodoLimite periodo, LocalDate fecha) {
+        switch (periodo) {
+            case SEMANAL:
+                return fecha.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MENSUAL:
+                return fecha.withDayOfMonth(1);
+            case DIARIO:
+            default:
+                return fecha;
+        }
+    }
+
+    /**
+     * Fecha actual; separada para poder simular cambios de periodo
+     */
+    protected LocalDate hoy() {
+        return LocalDate.now();
+    }
+
+    /**
+     * Monto usado registrado en uso_limite para una ventana
+     */
+    protected BigDecimal cargarUso(String numeroCuenta, LimiteTransaccion.TipoLimite tipo,
+                                   LimiteTransaccion.PeriodoLimite periodo, LocalDate ventana) throws Exception {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
+            conectarBD();
+            ps = getConexion().prepareStatement(
+                "SELECT monto_usado FROM uso_limite " +
+                "WHERE numero_cuenta = ? AND tipo_limite = ? AND periodo = ? AND inicio_periodo = ?");
+            ps.setString(1, numeroCuenta);
+            ps.setString(2, tipo.toString());
+            ps.setString(3, periodo.toString());
+            ps.setDate(4, Date.valueOf(ventana));
+
+            rs = ps.executeQuery();
+            return rs.next() ? rs.getBigDecimal("monto_usado") : BigDecimal.ZERO;
+
+        } catch (Exception e) {
+            throw new Exception("Error consultando uso del límite: " + e.getMessage(), e);
+        } finally {
+            cerrarResultSet(rs);
+            cerrarPreparedStatement(ps);
+            cerrarConexion();
+        }
+    }
+
+    /**
+     * Suma el delta (positivo o negativo) al uso persistido de la ventana
+     */
+    protected void persistirUso(String numeroCuenta, LimiteTransaccion.TipoLimite tipo,
+                                LimiteTransaccion.PeriodoLimite periodo, LocalDate ventana,
+                                BigDecimal delta) throws Exception {
+        PreparedStatement ps = null;
+
+        try {
+            conectarBD();
+            ps = getConexion().prepareStatement(
+                "INSERT INTO uso_limite (numero_cuenta, tipo_limite, periodo, inicio_periodo, monto_usado, fecha_actualizacion) " +
+                "VALUES (?, ?, ?, ?, GREATEST(?, 0), ?) " +
+                "ON DUPLICATE KEY UPDATE monto_usado = GREATEST(monto_usado + ?, 0), " +
+                "fecha_actualizacion = VALUES(fecha_actualizacion)");
+            ps.setString(1, numeroCuenta);
+            ps.setString(2, tipo.toString());
+            ps.setString(3, periodo.toString());
+            ps.setDate(4, Date.valueOf(ventana));
+            ps.setBigDecimal(5, delta);
+            ps.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+            ps.setBigDecimal(7, delta);
+            ps.executeUpdate();
+
+        } finally {
+            cerrarPreparedStatement(ps);
+            cerrarConexion();
+        }
+    }
+
+    private ContadorUso obtenerContador(LimiteTransaccion limite) {
+        return contadores.computeIfAbsent(clave(limite), k -> new ContadorUso());
+    }
+
+    /**
+     * Debe llamarse con el contador bloqueado. Carga el acumulado la primera vez
+     * y lo reinicia al cruzar a una nueva ventana.
+     */
+    private void sincronizarVentana(ContadorUso contador, LimiteTransaccion limite, LocalDate ventana) throws Exception {
+        if (ventana.equals(contador.ventana)) {
+            return;
+        }
+
+        contador.usado = cargarUso(limite.getNumeroCuenta(), limite.getTipoLimite(), limite.getPeriodo(), ventana);
+        contador.ventana = ventana;
+    }
+
+    private void descontar(ContadorUso contador, LocalDate ventana, BigDecimal monto) {
+        synchronized (contador) {
+            // Si la ventana ya cambió, el monto pertenecía al periodo anterior
+            if (ventana.equals(contador.ventana)) {
+                contador.usado = contador.usado.subtract(monto).max(BigDecimal.ZERO);
+            }
+        }
+    }
+
+    private static String clave(LimiteTransaccion limite) {
+        return limite.getNumeroCuenta() + "|" + limite.getTipoLimite() + "|" + limite.getPeriodo();
+    }
+
+    private static final class ContadorUso {
+        private LocalDate ventana; // null hasta la primera carga
+        private BigDecimal usado = BigDecimal.ZERO;
+    }
+
+    /**
+     * Resultado de una reserva contra el acumulado de un límite
+     */
+    public static final class Reserva {
+        private final LimiteTransaccion limite;
+        private final LocalDate ventana;
+        private final BigDecimal monto;
+        private final BigDecimal usado;
+        private final boolean aceptada;
+
+        private Reserva(LimiteTransaccion limite, LocalDate ventana, BigDecimal monto,
+                        BigDecimal usado, boolean aceptada) {
+            this.limite = limite;
+            this.ventana = ventana;
+            this.monto = monto;
+            this.usado = usado;
+            this.aceptada = aceptada;
+        }
+
+        public LimiteTransaccion getLimite() {
+            return limite;
+        }
+
+        public LocalDate getVentana() {
+            return ventana;
+        }
+
+        public BigDecimal getMonto() {
+            return monto;
+        }
+
+        /**
+         * Acumulado del periodo: incluye el monto si fue aceptada
+         */
+        public BigDecimal getUsado() {
+            return usado;
+        }
+
+        public BigDecimal getDisponible() {
+            return limite.getMontoLimite().subtract(usado).max(BigDecimal.ZERO);
+        }
+
+        public boolean isAceptada() {
+            return aceptada;
+        }
+
+        public int getPorcentajeUsado() {
+            if (limite.getMontoLimite().signum() <= 0) {
+                return 100;
+            }
+            return usado.multiply(BigDecimal.valueOf(100))
+                        .divide(limite.getMontoLimite(), 0, RoundingMode.DOWN)
+                        .intValue();
+        }
+    }
+}
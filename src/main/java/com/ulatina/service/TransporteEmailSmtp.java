@@ -0,0 +1,82 @@
+package com.ulatina.service;
+
+import com.ulatina.data.Notificacion;
+import jakarta.mail.Authenticator;
+import jakarta.mail.Message;
+import jakarta.mail.PasswordAuthentication;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import java.util.Properties;
+
+/**
+ * Envío de email por SMTP con Jakarta Mail. Se configura con las variables de
+ * entorno SMTP_HOST, SMTP_PORT, SMTP_USER, SMTP_PASSWORD y SMTP_FROM.
+ */
+public class TransporteEmailSmtp implements TransporteNotificacion {
+
+    private final Session sesion;
+    private final InternetAddress remitente;
+
+    public TransporteEmailSmtp(String host, int puerto, String usuario, String clave, String remitente) throws Exception {
+        Properties propiedades = new Properties();
+        propiedades.put("mail.smtp.host", host);
+        propiedades.put("mail.smtp.port", String.valueOf(puerto));
+        propiedades.put("mail.smtp.starttls.enable", "true");
+        propiedades.put("mail.smtp.connectiontimeout", "10000");
+        propiedades.put("mail.smtp.timeout", "10000");
+
+        if (usuario != null && !usuario.isEmpty()) {
+            propiedades.put("mail.smtp.auth", "true");
+            this.sesion = Session.getInstance(propiedades, new Authenticator() {
+                @Override
+                protected PasswordAuthentication getPasswordAuthentication() {
+                    return new PasswordAuthentication(usuario, clave);
+                }
+            });
+        } else {
+            this.sesion = Session.getInstance(propiedades);
+        }
+
+        this.remitente = new InternetAddress(remitente);
+    }
+
+    /**
+     * Transporte configurado por variables de entorno, o null si falta SMTP_HOST
+     */
+    public static TransporteEmailSmtp desdeEntorno() throws Exception {
+        String host = System.getenv("SMTP_HOST");
+        if (host == null || host.trim().isEmpty()) {
+            return null;
+        }
+
+        String puerto = System.getenv("SMTP_PORT");
+        String remitente = System.getenv("SMTP_FROM");
+        return new TransporteEmailSmtp(host.trim(),
+                                       puerto != null ? Integer.parseInt(puerto.trim()) : 587,
+                                       System.getenv("SMTP_USER"),
+                                       System.getenv("SMTP_PASSWORD"),
+                                       remitente != null ? remitente : "no-responder@banco.local");
+    }
+
+    @Override
+    public Notificacion.Canal getCanal() {
+        return Notificacion.Canal.EMAIL;
+    }
+
+    @Override
+    public String getNombre() {
+        return "smtp";
+    }
+
+    @Override
+    public void enviar(Notificacion notificacion) throws Exception {
+        MimeMessage mensaje = new MimeMessage(sesion);
+        mensaje.setFrom(remitente);
+        mensaje.setRecipients(Message.RecipientType.TO, InternetAddress.parse(notificacion.getDestino()));
+        mensaje.setSubject(notificacion.getAsunto(), "UTF-8");
+        mensaje.setText(notificacion.getMensaje(), "UTF-8");
+        Transport.send(mensaje);
+    }
+}
@@ -0,0 +1,22 @@
+package com.ulatina.service;
+
+import com.ulatina.data.Notificacion;
+
+/**
+ * Proveedor que entrega notificaciones de un canal (SMTP, Twilio, simulado...)
+ */
+public interface TransporteNotificacion {
+
+    Notificacion.Canal getCanal();
+
+    /**
+     * Nombre del proveedor, usado en logs y métricas
+     */
+    String getNombre();
+
+    /**
+     * Entrega la notificación. Cualquier excepción se considera un fallo
+     * transitorio y el despachador reintenta.
+     */
+    void enviar(Notificacion notificacion) throws Exception;
+}
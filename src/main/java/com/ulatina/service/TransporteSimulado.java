@@ -0,0 +1,64 @@
+package com.ulatina.service;
+
+import com.ulatina.data.Notificacion;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+/**
+ * Transporte local sin proveedor real: registra la notificación en el log y la
+ * guarda en memoria. Se usa cuando no hay credenciales configuradas y en las
+ * pruebas, donde puede simular latencia y una tasa de fallos.
+ */
+public class TransporteSimulado implements TransporteNotificacion {
+
+    private static final Logger logger = Logger.getLogger(TransporteSimulado.class.getName());
+
+    private final Notificacion.Canal canal;
+    private final long latenciaMs;
+    private final double tasaFallos;
+    private final List<Notificacion> enviadas = new CopyOnWriteArrayList<>();
+
+    public TransporteSimulado(Notificacion.Canal canal) {
+        this(canal, 100, 0);
+    }
+
+    /**
+     * @param tasaFallos probabilidad (0 a 1) de que un envío lance excepción
+     */
+    public TransporteSimulado(Notificacion.Canal canal, long latenciaMs, double tasaFallos) {
+        this.canal = canal;
+        this.latenciaMs = latenciaMs;
+        this.tasaFallos = tasaFallos;
+    }
+
+    @Override
+    public Notificacion.Canal getCanal() {
+        return canal;
+    }
+
+    @Override
+    public String getNombre() {
+        return "simulado-" + canal.name().toLowerCase();
+    }
+
+    @Override
+    public void enviar(Notificacion notificacion) throws Exception {
+        if (latenciaMs > 0) {
+            Thread.sleep(latenciaMs);
+        }
+        if (tasaFallos > 0 && ThreadLocalRandom.current().nextDouble() < tasaFallos) {
+            throw new Exception("Fallo simulado del proveedor " + getNombre());
+        }
+
+        enviadas.add(notificacion);
+        logger.info("[" + canal + "] Para: " + notificacion.getDestino() +
+                    (notificacion.getAsunto() != null ? " | Asunto: " + notificacion.getAsunto() : "") +
+                    " | " + notificacion.getMensaje());
+    }
+
+    public List<Notificacion> getEnviadas() {
+        return enviadas;
+    }
+}
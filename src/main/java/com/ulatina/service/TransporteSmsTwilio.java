@@ -0,0 +1,63 @@
+package com.ulatina.service;
+
+import com.twilio.http.TwilioRestClient;
+import com.twilio.rest.api.v2010.account.Message;
+import com.twilio.type.PhoneNumber;
+import com.ulatina.data.Notificacion;
+
+/**
+ * Envío de SMS con Twilio. Se configura con las variables de entorno
+ * TWILIO_ACCOUNT_SID, TWILIO_AUTH_TOKEN y TWILIO_FROM.
+ */
+public class TransporteSmsTwilio implements TransporteNotificacion {
+
+    private final TwilioRestClient cliente;
+    private final PhoneNumber remitente;
+
+    public TransporteSmsTwilio(String cuenta, String token, String remitente) {
+        this.cliente = new TwilioRestClient.Builder(cuenta, token).build();
+        this.remitente = new PhoneNumber(remitente);
+    }
+
+    /**
+     * Transporte configurado por variables de entorno, o null si faltan credenciales
+     */
+    public static TransporteSmsTwilio desdeEntorno() {
+        String cuenta = System.getenv("TWILIO_ACCOUNT_SID");
+        String token = System.getenv("TWILIO_AUTH_TOKEN");
+        String remitente = System.getenv("TWILIO_FROM");
+
+        if (cuenta == null || token == null || remitente == null) {
+            return null;
+        }
+        return new TransporteSmsTwilio(cuenta.trim(), token.trim(), remitente.trim());
+    }
+
+    @Override
+    public Notificacion.Canal getCanal() {
+        return Notificacion.Canal.SMS;
+    }
+
+    @Override
+    public String getNombre() {
+        return "twilio";
+    }
+
+    @Override
+    public void enviar(Notificacion notificacion) throws Exception {
+        Message.creator(new PhoneNumber(formatoInternacional(notificacion.getDestino())), remitente,
+                        notificacion.getMensaje())
+               .create(cliente);
+    }
+
+    /**
+     * Los teléfonos se guardan como 8888-8888; Twilio requiere formato E.164
+     */
+    static String formatoInternacional(String telefono) {
+        if (telefono.startsWith("+")) {
+            return telefono;
+        }
+        String digitos = telefono.replaceAll("[^0-9]", "");
+        return digitos.length() == 8 ? "+506" + digitos : "+" + digitos;
+    }
+}
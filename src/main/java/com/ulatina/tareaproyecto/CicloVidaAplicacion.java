@@ -0,0 +1,21 @@
+package com.ulatina.tareaproyecto;
+
+import com.ulatina.service.DespachadorNotificaciones;
+import com.ulatina.service.PoolConexiones;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+/**
+ * Libera los recursos compartidos cuando se detiene la aplicación
+ */
+@WebListener
+public class CicloVidaAplicacion implements ServletContextListener {
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        // Primero el despachador: las notificaciones en cola pueden terminar de enviarse
+        DespachadorNotificaciones.cerrar();
+        PoolConexiones.cerrar();
+    }
+}
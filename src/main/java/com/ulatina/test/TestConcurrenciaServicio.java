@@ -0,0 +1,159 @@
+package com.ulatina.test;
+
+import com.ulatina.service.Servicio;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prueba de estrés de Servicio: muchos hilos usan la misma instancia (como un
+ * bean @ApplicationScoped) y se verifica que ninguno vea ni cierre la conexión
+ * de otro. No requiere base de datos: las conexiones son simuladas.
+ */
+public class TestConcurrenciaServicio {
+
+    private static final int HILOS = 32;
+    private static final int ITERACIONES = 2000;
+
+    private final AtomicInteger conexionesAbiertas = new AtomicInteger();
+    private final AtomicInteger conexionesPrestadas = new AtomicInteger();
+    private final AtomicInteger interferencias = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== PRUEBA DE CONCURRENCIA DE SERVICIO ===\n");
+
+        boolean exito = new TestConcurrenciaServicio().ejecutar();
+
+        System.out.println("\n=== FIN DE LA PRUEBA ===");
+        if (!exito) {
+            System.exit(1);
+        }
+    }
+
+    public boolean ejecutar() throws InterruptedException {
+        ServicioPrueba servicio = new ServicioPrueba();
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+
+        for (int h = 0; h < HILOS; h++) {
+            pool.submit(() -> {
+                try {
+                    inicio.await();
+                    for (int i = 0; i < ITERACIONES; i++) {
+                        servicio.operacion();
+                    }
+                } catch (Exception e) {
+                    interferencias.incrementAndGet();
+                    System.out.println("❌ Error en hilo: " + e.getMessage());
+                }
+            });
+        }
+
+        long t0 = System.nanoTime();
+        inicio.countDown();
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+        System.out.println("Hilos: " + HILOS + ", operaciones: " + (HILOS * ITERACIONES) + ", tiempo: " + ms + " ms");
+        System.out.println("Conexiones prestadas: " + conexionesPrestadas.get());
+        System.out.println("Conexiones sin devolver: " + conexionesAbiertas.get());
+        System.out.println("Interferencias entre peticiones: " + interferencias.get());
+
+        boolean exito = interferencias.get() == 0 && conexionesAbiertas.get() == 0;
+        System.out.println(exito ? "✅ Sin interferencias ni fugas" : "❌ Se detectaron interferencias o fugas");
+        return exito;
+    }
+
+    /**
+     * Servicio con conexiones simuladas que registran su propietario
+     */
+    private class ServicioPrueba extends Servicio {
+
+        @Override
+        protected Connection abrirConexion() {
+            conexionesAbiertas.incrementAndGet();
+            conexionesPrestadas.incrementAndGet();
+            return crearConexionSimulada(Thread.currentThread());
+        }
+
+        void operacion() throws Exception {
+            conectarBD();
+            try {
+                Connection propia = getConexion();
+                verificar(propia);
+
+                // Llamada anidada: debe reutilizar la misma conexión
+                conectarBD();
+                try {
+                    if (getConexion() != propia) {
+                        interferencias.incrementAndGet();
+                    }
+                } finally {
+                    cerrarConexion();
+                }
+
+                if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                    Thread.yield();
+                }
+
+                verificar(propia);
+                if (getConexion() != propia) {
+                    interferencias.incrementAndGet();
+                }
+            } finally {
+                cerrarConexion();
+            }
+        }
+
+        private void verificar(Connection conexion) throws SQLException {
+            if (conexion.isClosed() || !Thread.currentThread().toString().equals(conexion.getSchema())) {
+                interferencias.incrementAndGet();
+            }
+        }
+    }
+
+    private Connection crearConexionSimulada(Thread propietario) {
+        AtomicBoolean cerrada = new AtomicBoolean(false);
+        String nombrePropietario = propietario.toString();
+
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[]{Connection.class},
+            (proxy, metodo, argumentos) -> {
+                switch (metodo.getName()) {
+                    case "close":
+                        if (!cerrada.compareAndSet(false, true)) {
+                            interferencias.incrementAndGet();
+                        } else {
+                            conexionesAbiertas.decrementAndGet();
+                        }
+                        if (Thread.currentThread() != propietario) {
+                            interferencias.incrementAndGet();
+                        }
+                        return null;
+                    case "isClosed":
+                        return cerrada.get();
+                    case "getSchema":
+                        return nombrePropietario;
+                    case "getAutoCommit":
+                        return true;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == argumentos[0];
+                    case "toString":
+                        return "ConexionSimulada[" + nombrePropietario + "]";
+                    default:
+                        return null;
+                }
+            });
+    }
+}
@@ -0,0 +1,128 @@
+package com.ulatina.test;
+
+import com.ulatina.service.MotorBloqueoCuentas;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Benchmark de contención del motor de bloqueo de cuentas. Compara un candado
+ * global contra el bloqueo por franjas con dos distribuciones de cuentas:
+ * fría (transferencias repartidas uniformemente) y caliente (la mayoría toca
+ * unas pocas cuentas). Cada transferencia simula el tiempo de una transacción
+ * y al final se verifica que el dinero se conserve. No requiere base de datos.
+ */
+public class TestContencionBloqueos {
+
+    private static final int CUENTAS = 10000;
+    private static final int CUENTAS_CALIENTES = 8;
+    private static final int HILOS = 32;
+    private static final int TRANSFERENCIAS_POR_HILO = 2000;
+    private static final long TRABAJO_NANOS = 20_000; // Duración simulada de la transacción
+    private static final long SALDO_INICIAL = 1_000_000;
+
+    private final AtomicInteger agotadas = new AtomicInteger();
+    private final AtomicInteger errores = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== BENCHMARK DE CONTENCIÓN DE BLOQUEOS ===\n");
+
+        TestContencionBloqueos test = new TestContencionBloqueos();
+        boolean exito = true;
+
+        System.out.printf("%-10s %-10s %16s %10s%n", "Bloqueo", "Cuentas", "transf/seg", "agotadas");
+        for (boolean calientes : new boolean[]{false, true}) {
+            exito &= test.medir("global", new MotorBloqueoCuentas(1), calientes);
+            exito &= test.medir("franjas", new MotorBloqueoCuentas(1024), calientes);
+        }
+
+        System.out.println(exito ? "\n✅ El dinero se conserva en todas las corridas"
+                                 : "\n❌ Se detectaron diferencias o errores");
+        System.out.println("\n=== FIN DEL BENCHMARK ===");
+        if (!exito) {
+            System.exit(1);
+        }
+    }
+
+    private boolean medir(String nombre, MotorBloqueoCuentas motor, boolean calientes) throws InterruptedException {
+        long[] saldos = new long[CUENTAS];
+        Arrays.fill(saldos, SALDO_INICIAL);
+        String[] numeros = new String[CUENTAS];
+        for (int i = 0; i < CUENTAS; i++) {
+            numeros[i] = String.format("CR05015108410026%06d", i);
+        }
+
+        agotadas.set(0);
+        errores.set(0);
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+
+        for (int h = 0; h < HILOS; h++) {
+            pool.submit(() -> {
+                try {
+                    inicio.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERENCIAS_POR_HILO; i++) {
+                    int origen = elegirCuenta(random, calientes);
+                    int destino = elegirCuenta(random, calientes);
+                    if (origen == destino) {
+                        continue;
+                    }
+                    long monto = random.nextLong(1, 1000);
+
+                    try {
+                        motor.ejecutar(numeros[origen], numeros[destino], 2, TimeUnit.SECONDS, () -> {
+                            if (saldos[origen] >= monto) {
+                                saldos[origen] -= monto;
+                                LockSupport.parkNanos(TRABAJO_NANOS);
+                                saldos[destino] += monto;
+                            }
+                            return null;
+                        });
+                    } catch (TimeoutException e) {
+                        agotadas.incrementAndGet();
+                    } catch (Exception e) {
+                        errores.incrementAndGet();
+                    }
+                }
+            });
+        }
+
+        long t0 = System.nanoTime();
+        inicio.countDown();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        double segundos = (System.nanoTime() - t0) / 1_000_000_000.0;
+
+        long total = 0;
+        for (long saldo : saldos) {
+            total += saldo;
+        }
+
+        System.out.printf("%-10s %-10s %16.0f %10d%n", nombre, calientes ? "calientes" : "frías",
+                          (HILOS * (double) TRANSFERENCIAS_POR_HILO) / segundos, agotadas.get());
+
+        return total == SALDO_INICIAL * CUENTAS && errores.get() == 0;
+    }
+
+    /**
+     * En modo caliente el 90% de las elecciones cae en unas pocas cuentas
+     */
+    private int elegirCuenta(ThreadLocalRandom random, boolean calientes) {
+        if (calientes && random.nextInt(10) < 9) {
+            return random.nextInt(CUENTAS_CALIENTES);
+        }
+        return random.nextInt(CUENTAS);
+    }
+}
@@ -0,0 +1,112 @@
+package com.ulatina.test;
+
+import com.ulatina.data.Notificacion;
+import com.ulatina.service.DespachadorNotificaciones;
+import com.ulatina.service.TransporteSimulado;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Prueba del despachador de notificaciones con transportes simulados. Verifica
+ * que encolar no espere al proveedor, que los fallos se reintenten hasta
+ * entregarse, que un canal lento no frene al otro y que se respete el límite
+ * de tasa. No requiere base de datos ni proveedores reales.
+ */
+public class TestDespachadorNotificaciones {
+
+    private static final int NOTIFICACIONES = 500;
+    private static final double TASA_SMS = 200;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== PRUEBA DEL DESPACHADOR DE NOTIFICACIONES ===\n");
+        Logger.getLogger("").setLevel(Level.SEVERE);
+
+        // Email: proveedor lento y con 30% de fallos. SMS: rápido pero limitado en tasa
+        TransporteSimulado email = new TransporteSimulado(Notificacion.Canal.EMAIL, 20, 0.3);
+        TransporteSimulado sms = new TransporteSimulado(Notificacion.Canal.SMS, 0, 0);
+        DespachadorNotificaciones despachador = new DespachadorNotificaciones(10, 5, 100)
+            .registrar(email, 8, 2000, 10000, 100)
+            .registrar(sms, 4, 2000, TASA_SMS, 10);
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < NOTIFICACIONES; i++) {
+            despachador.encolar(Notificacion.email("cliente" + i + "@example.com", "Prueba", "Mensaje " + i));
+            despachador.encolar(Notificacion.sms("8888" + String.format("%04d", i), "Mensaje " + i));
+        }
+        double usPorEncolar = (System.nanoTime() - t0) / 1000.0 / (NOTIFICACIONES * 2);
+
+        long smsListos = esperar(t0, () -> sms.getEnviadas().size() >= NOTIFICACIONES);
+        long emailListos = esperar(t0, () -> email.getEnviadas().size() >= NOTIFICACIONES);
+        Map<String, Object> metricas = despachador.obtenerMetricas();
+        despachador.detener(5, TimeUnit.SECONDS);
+
+        boolean exito = true;
+        exito &= verificar(usPorEncolar < 1000, String.format("Encolar: %.1f µs por notificación", usPorEncolar));
+        exito &= verificar(email.getEnviadas().size() == NOTIFICACIONES,
+                           "Email con fallos: " + email.getEnviadas().size() + " entregados en " + emailListos +
+                           " ms " + metricas.get("EMAIL"));
+
+        // Con ráfaga de 10 fichas, 500 SMS a 200/seg no pueden tardar menos de ~2.4 s
+        long minimoMs = (long) ((NOTIFICACIONES - 10) / TASA_SMS * 1000);
+        exito &= verificar(sms.getEnviadas().size() == NOTIFICACIONES && smsListos >= minimoMs * 0.95,
+                           "SMS con límite de tasa: " + sms.getEnviadas().size() + " entregados en " + smsListos +
+                           " ms (mínimo esperado " + minimoMs + " ms)");
+
+        exito &= verificarCanalLento();
+
+        System.out.println(exito ? "\n✅ Todas las verificaciones pasaron" : "\n❌ Hubo verificaciones fallidas");
+        System.out.println("\n=== FIN DE LA PRUEBA ===");
+        System.exit(exito ? 0 : 1);
+    }
+
+    /**
+     * Con el proveedor de email casi detenido (un hilo, 1 s por envío), los SMS
+     * encolados después de los emails se entregan sin esperarlos
+     */
+    private static boolean verificarCanalLento() throws InterruptedException {
+        TransporteSimulado email = new TransporteSimulado(Notificacion.Canal.EMAIL, 1000, 0);
+        TransporteSimulado sms = new TransporteSimulado(Notificacion.Canal.SMS, 0, 0);
+        DespachadorNotificaciones despachador = new DespachadorNotificaciones(1, 5, 100)
+            .registrar(email, 1, 200, 10000, 100)
+            .registrar(sms, 4, 200, 10000, 100);
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            despachador.encolar(Notificacion.email("cliente" + i + "@example.com", "Prueba", "Mensaje " + i));
+        }
+        for (int i = 0; i < 100; i++) {
+            despachador.encolar(Notificacion.sms("8888" + String.format("%04d", i), "Mensaje " + i));
+        }
+
+        long smsListos = esperar(t0, () -> sms.getEnviadas().size() >= 100);
+        int emailsEnviados = email.getEnviadas().size();
+        despachador.detener(0, TimeUnit.SECONDS);
+
+        return verificar(sms.getEnviadas().size() == 100 && smsListos < 1000 && emailsEnviados <= 1,
+                         "Canal lento: 100 SMS entregados en " + smsListos + " ms mientras email llevaba " +
+                         emailsEnviados + " de 100");
+    }
+
+    /**
+     * Espera la condición y devuelve los milisegundos transcurridos desde t0
+     */
+    private static long esperar(long t0, Condicion condicion) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (!condicion.cumplida() && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+    }
+
+    private static boolean verificar(boolean exito, String mensaje) {
+        System.out.println((exito ? "✅ " : "❌ ") + mensaje);
+        return exito;
+    }
+
+    @FunctionalInterface
+    private interface Condicion {
+        boolean cumplida();
+    }
+}
@@ -0,0 +1,103 @@
+package com.ulatina.test;
+
+import com.ulatina.controller.CuentasController;
+import com.ulatina.data.Movimiento;
+import jakarta.json.Json;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.stream.JsonGenerator;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prueba del formato de exportación de movimientos. Escribe un movimiento
+ * con saldos, uno anterior al registro de saldos (saldo_anterior y
+ * saldo_posterior en NULL) y uno con comas y comillas en la descripción, y
+ * verifica que el JSON sea válido y completo y que el CSV deje vacíos los
+ * saldos nulos. No requiere base de datos.
+ */
+public class TestExportacionMovimientos {
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== PRUEBA DE EXPORTACIÓN DE MOVIMIENTOS ===\n");
+
+        List<Movimiento> movimientos = Arrays.asList(
+            movimiento(1L, "DEPOSITO", "100.00", "0.00", "100.00", "Depósito inicial"),
+            movimiento(2L, "RETIRO", "25.00", null, null, "Movimiento sin saldos"),
+            movimiento(3L, "TRANSFERENCIA", "10.00", "75.00", "65.00", "Pago \"alquiler\", marzo"));
+
+        TestExportacionMovimientos test = new TestExportacionMovimientos();
+        boolean exito = test.verificarJSON(movimientos);
+        exito &= test.verificarCSV(movimientos);
+
+        System.out.println("\n=== FIN DE LA PRUEBA ===");
+        if (!exito) {
+            System.exit(1);
+        }
+    }
+
+    private boolean verificarJSON(List<Movimiento> movimientos) {
+        StringWriter salida = new StringWriter();
+        JsonGenerator generador = Json.createGenerator(salida);
+        generador.writeStartArray();
+        for (Movimiento movimiento : movimientos) {
+            CuentasController.escribirMovimientoJSON(generador, movimiento);
+        }
+        generador.writeEnd();
+        generador.close();
+
+        JsonArray arreglo;
+        try (JsonReader lector = Json.createReader(new StringReader(salida.toString()))) {
+            arreglo = lector.readArray();
+        }
+
+        JsonObject sinSaldos = arreglo.getJsonObject(1);
+        boolean ok = arreglo.size() == movimientos.size()
+                  && sinSaldos.isNull("saldoAnterior")
+                  && sinSaldos.isNull("saldoPosterior")
+                  && arreglo.getJsonObject(2).getJsonNumber("saldoPosterior").bigDecimalValue()
+                        .compareTo(new BigDecimal("65.00")) == 0;
+
+        System.out.println("JSON: " + arreglo.size() + " objetos, saldos nulos como null -> " + (ok ? "OK" : "FALLO"));
+        if (!ok) {
+            System.out.println(salida);
+        }
+        return ok;
+    }
+
+    private boolean verificarCSV(List<Movimiento> movimientos) throws Exception {
+        StringWriter salida = new StringWriter();
+        salida.write(CuentasController.ENCABEZADO_CSV);
+        for (Movimiento movimiento : movimientos) {
+            CuentasController.escribirMovimientoCSV(salida, movimiento);
+        }
+
+        String[] lineas = salida.toString().split("\r\n");
+        boolean ok = lineas.length == movimientos.size() + 1
+                  && !salida.toString().contains("null")
+                  && lineas[2].contains(",25.00,")
+                  && lineas[2].contains(",,,Movimiento sin saldos,")
+                  && lineas[3].contains(",\"Pago \"\"alquiler\"\", marzo\",");
+
+        System.out.println("CSV: " + (lineas.length - 1) + " filas, saldos nulos vacíos -> " + (ok ? "OK" : "FALLO"));
+        if (!ok) {
+            System.out.println(salida);
+        }
+        return ok;
+    }
+
+    private static Movimiento movimiento(Long id, String tipo, String monto, String saldoAnterior,
+                                         String saldoPosterior, String descripcion) {
+        Movimiento movimiento = new Movimiento("CR05015108410026000001", tipo, new BigDecimal(monto), descripcion);
+        movimiento.setId(id);
+        movimiento.setFechaMovimiento(LocalDateTime.of(2024, 3, 1, 10, 30));
+        movimiento.setSaldoAnterior(saldoAnterior != null ? new BigDecimal(saldoAnterior) : null);
+        movimiento.setSaldoPosterior(saldoPosterior != null ? new BigDecimal(saldoPosterior) : null);
+        return movimiento;
+    }
+}
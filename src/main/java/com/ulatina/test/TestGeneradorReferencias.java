@@ -0,0 +1,154 @@
+package com.ulatina.test;
+
+import com.ulatina.service.GeneradorReferencias;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Prueba de unicidad y benchmark del generador de referencias. Muchos hilos
+ * generan referencias a la vez y se verifica que ninguna se repita, también con
+ * un reloj detenido y con un reloj que retrocede, y que cada formato respete su
+ * largo (la referencia SWIFT va en el campo :20: del MT103, de 16 caracteres
+ * como máximo). Luego se compara el rendimiento contra la generación anterior
+ * (milisegundos + new Random()).
+ * No requiere base de datos.
+ */
+public class TestGeneradorReferencias {
+
+    private static final int HILOS = 16;
+    private static final int REFERENCIAS_POR_HILO = 100000;
+    private static final int ITERACIONES_BENCHMARK = 2000000;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== PRUEBA DEL GENERADOR DE REFERENCIAS ===\n");
+
+        TestGeneradorReferencias test = new TestGeneradorReferencias();
+        boolean exito = true;
+
+        exito &= test.verificarUnicidad("Movimientos", () -> GeneradorReferencias.referenciaMovimiento("DEP"));
+        exito &= test.verificarUnicidad("SINPE", GeneradorReferencias::referenciaSinpe);
+        exito &= test.verificarUnicidad("SWIFT", GeneradorReferencias::referenciaSwift);
+        exito &= test.verificarLongitud("Movimientos", GeneradorReferencias.referenciaMovimiento("DEP"),
+                                        "DEP-".length() + 13 + "-SSSS".length());
+        exito &= test.verificarLongitud("SINPE", GeneradorReferencias.referenciaSinpe(), 16);
+        exito &= test.verificarLongitud("SWIFT", GeneradorReferencias.referenciaSwift(), 16);
+        exito &= test.verificarMonotonia("Reloj detenido", () -> 1_000_000L);
+
+        AtomicLong relojQueRetrocede = new AtomicLong(5_000_000L);
+        exito &= test.verificarMonotonia("Reloj que retrocede", () -> relojQueRetrocede.addAndGet(-1));
+
+        System.out.println("\n--- Rendimiento (referencias/seg, un hilo) ---");
+        test.medir("Anterior (new Random)", () -> "DEP-" + System.currentTimeMillis() + "-" +
+                                                   String.format("%04d", new Random().nextInt(10000)));
+        test.medir("GeneradorReferencias", () -> GeneradorReferencias.referenciaMovimiento("DEP"));
+        test.medirConcurrente("GeneradorReferencias", () -> GeneradorReferencias.referenciaMovimiento("DEP"));
+
+        System.out.println("\n=== FIN DE LA PRUEBA ===");
+        if (!exito) {
+            System.exit(1);
+        }
+    }
+
+    private boolean verificarUnicidad(String nombre, Supplier<String> generador) throws InterruptedException {
+        Set<String> referencias = ConcurrentHashMap.newKeySet(HILOS * REFERENCIAS_POR_HILO);
+        AtomicInteger duplicadas = new AtomicInteger();
+
+        long ms = ejecutarEnHilos(() -> {
+            for (int i = 0; i < REFERENCIAS_POR_HILO; i++) {
+                if (!referencias.add(generador.get())) {
+                    duplicadas.incrementAndGet();
+                }
+            }
+        });
+
+        boolean exito = duplicadas.get() == 0;
+        System.out.println((exito ? "✅ " : "❌ ") + nombre + ": " + referencias.size() + " referencias únicas, " +
+                           duplicadas.get() + " duplicadas (" + ms + " ms), ejemplo " + generador.get());
+        return exito;
+    }
+
+    private boolean verificarLongitud(String nombre, String referencia, int maximo) {
+        boolean exito = referencia.length() <= maximo;
+        System.out.println((exito ? "✅ " : "❌ ") + nombre + ": " + referencia + " tiene " + referencia.length() +
+                           " caracteres (máximo " + maximo + ")");
+        return exito;
+    }
+
+    private boolean verificarMonotonia(String nombre, LongSupplier reloj) throws InterruptedException {
+        GeneradorReferencias generador = new GeneradorReferencias(1, reloj);
+        Set<Long> valores = ConcurrentHashMap.newKeySet(HILOS * REFERENCIAS_POR_HILO);
+        AtomicInteger errores = new AtomicInteger();
+
+        ejecutarEnHilos(() -> {
+            long anterior = -1;
+            for (int i = 0; i < REFERENCIAS_POR_HILO; i++) {
+                long valor = generador.siguiente();
+                if (valor <= anterior || !valores.add(valor)) {
+                    errores.incrementAndGet();
+                }
+                anterior = valor;
+            }
+        });
+
+        boolean exito = errores.get() == 0;
+        System.out.println((exito ? "✅ " : "❌ ") + nombre + ": " + valores.size() + " valores, " +
+                           errores.get() + " repetidos o no crecientes");
+        return exito;
+    }
+
+    private void medir(String nombre, Supplier<String> generador) {
+        int sumidero = 0;
+        for (int i = 0; i < ITERACIONES_BENCHMARK / 4; i++) {
+            sumidero += generador.get().length();
+        }
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ITERACIONES_BENCHMARK; i++) {
+            sumidero += generador.get().length();
+        }
+        double segundos = (System.nanoTime() - t0) / 1_000_000_000.0;
+
+        System.out.printf("%-28s %14.0f  (%d)%n", nombre, ITERACIONES_BENCHMARK / segundos, sumidero % 10);
+    }
+
+    private void medirConcurrente(String nombre, Supplier<String> generador) throws InterruptedException {
+        long ms = ejecutarEnHilos(() -> {
+            for (int i = 0; i < REFERENCIAS_POR_HILO; i++) {
+                generador.get();
+            }
+        });
+        double porSegundo = (HILOS * (double) REFERENCIAS_POR_HILO) / Math.max(ms, 1) * 1000;
+        System.out.printf("%-28s %14.0f  (%d hilos)%n", nombre, porSegundo, HILOS);
+    }
+
+    private long ejecutarEnHilos(Runnable tarea) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+
+        for (int h = 0; h < HILOS; h++) {
+            pool.submit(() -> {
+                try {
+                    inicio.await();
+                    tarea.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        long t0 = System.nanoTime();
+        inicio.countDown();
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+    }
+}
@@ -0,0 +1,154 @@
+package com.ulatina.test;
+
+import com.ulatina.data.ListaRestrictiva;
+import com.ulatina.service.IndiceListaRestrictiva;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Prueba del índice en memoria de lista restrictiva. Carga entradas sintéticas
+ * y verifica coincidencias por identificación con separadores, por nombre con
+ * tildes, otro orden, nombre parcial y errores de digitación, que un nombre
+ * distinto no coincida y el tiempo por consulta. No requiere base de datos.
+ */
+public class TestIndiceListaRestrictiva {
+
+    private static final int ENTRADAS = 50000;
+    private static final int CONSULTAS = 20000;
+    private static final int CONSULTAS_NUEVAS = 2000;
+
+    private static final String[] NOMBRES = {
+        "JUAN", "CARLOS", "MARIA", "JOSE", "ANA", "LUIS", "SOFIA", "DIEGO", "LAURA", "ANDRES",
+        "GABRIELA", "FERNANDO", "VALERIA", "RICARDO", "DANIELA", "ESTEBAN", "PAOLA", "MAURICIO"
+    };
+    private static final String VOCALES = "AEIOU";
+    private static final String CONSONANTES = "BCDFGHJKLMNPQRSTVWXYZ";
+    private static final String[] APELLIDOS = {
+        "RODRIGUEZ", "VARGAS", "JIMENEZ", "MORA", "ROJAS", "ARAYA", "SOLANO", "CHAVES", "CASTRO",
+        "QUESADA", "CALDERON", "SALAZAR", "HERRERA", "MONTERO", "ALVARADO", "VILLALOBOS", "UMAÑA"
+    };
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== PRUEBA DEL ÍNDICE DE LISTA RESTRICTIVA ===\n");
+        Logger.getLogger("").setLevel(Level.WARNING);
+
+        Random aleatorio = new Random(42);
+        List<ListaRestrictiva> entradas = new ArrayList<>();
+        for (int i = 1; i <= ENTRADAS; i++) {
+            entradas.add(entrada(i, String.format("9%08d", i),
+                                 NOMBRES[aleatorio.nextInt(NOMBRES.length)] + " " + palabra(aleatorio) + " " +
+                                 palabra(aleatorio) + " " + palabra(aleatorio)));
+        }
+        entradas.add(entrada(ENTRADAS + 1, "1-0234-0567", "José Ignacio Montealegre Zúñiga"));
+
+        IndiceListaRestrictiva indice = new IndiceListaRestrictiva(0.8, 60000);
+        long t0 = System.nanoTime();
+        indice.cargar(entradas);
+        long cargaMs = (System.nanoTime() - t0) / 1000000;
+
+        boolean exito = true;
+        exito &= verificar(cargaMs < 10000, "Carga de " + entradas.size() + " entradas en " + cargaMs + " ms");
+        exito &= coincide(indice, "102340567", null, "Identificación sin guiones");
+        exito &= coincide(indice, null, "JOSE IGNACIO MONTEALEGRE ZUNIGA", "Nombre sin tildes");
+        exito &= coincide(indice, null, "Montealegre Zúñiga, José Ignacio", "Nombre en otro orden");
+        exito &= coincide(indice, null, "José Montealegre Zúñiga", "Nombre parcial");
+        exito &= coincide(indice, null, "Jose Ignasio Montealegre Zuñiga", "Nombre con error de digitación");
+        exito &= verificar(indice.buscar("111111111", "Pedro Pablo Ureña Fallas").isEmpty(),
+                           "Cliente que no está en la lista no coincide");
+
+        ListaRestrictiva nueva = entrada(ENTRADAS + 2, "3-0101-0202", "Empresa Fantasma Sociedad Anónima");
+        indice.agregar(nueva);
+        exito &= coincide(indice, "301010202", null, "Alta incremental sin recargar");
+        indice.quitar(nueva.getId());
+        exito &= verificar(indice.buscar("301010202", null).isEmpty(), "Baja incremental sin recargar");
+
+        // Tiempo por consulta solo con identificación
+        for (int i = 0; i < CONSULTAS * 10; i++) {
+            indice.buscar("8" + i, null);
+        }
+        t0 = System.nanoTime();
+        for (int i = 0; i < CONSULTAS * 10; i++) {
+            indice.buscar("8" + i, null);
+        }
+        double usPorIdentificacion = (System.nanoTime() - t0) / 1000.0 / (CONSULTAS * 10);
+        exito &= verificar(usPorIdentificacion < 50,
+                           String.format("Consulta por identificación: %.1f µs en promedio", usPorIdentificacion));
+
+        // Tiempo por consulta con nombre: clientes comunes que no están en la lista
+        for (int i = 0; i < CONSULTAS; i++) {
+            indice.buscar("8" + i, NOMBRES[i % NOMBRES.length] + " " + APELLIDOS[i % APELLIDOS.length]);
+        }
+        t0 = System.nanoTime();
+        for (int i = 0; i < CONSULTAS; i++) {
+            indice.buscar("8" + i, NOMBRES[i % NOMBRES.length] + " " + APELLIDOS[(i / 3) % APELLIDOS.length] +
+                          " " + APELLIDOS[i % APELLIDOS.length]);
+        }
+        double usPorConsulta = (System.nanoTime() - t0) / 1000.0 / CONSULTAS;
+        exito &= verificar(usPorConsulta < 500,
+                           String.format("Consulta con nombres comunes: %.1f µs en promedio", usPorConsulta));
+
+        // Apellidos que no se habían consultado: sin palabras parecidas guardadas,
+        // el caso de cada cliente nuevo. Cada tanda usa apellidos distintos.
+        for (int i = 0; i < CONSULTAS_NUEVAS * 5; i++) {
+            indice.buscar("7" + i, NOMBRES[i % NOMBRES.length] + " " + palabra(aleatorio) + " " + palabra(aleatorio));
+        }
+        t0 = System.nanoTime();
+        for (int i = 0; i < CONSULTAS_NUEVAS; i++) {
+            indice.buscar("6" + i, NOMBRES[i % NOMBRES.length] + " " + palabra(aleatorio) + " " + palabra(aleatorio));
+        }
+        double usPorConsultaNueva = (System.nanoTime() - t0) / 1000.0 / CONSULTAS_NUEVAS;
+        exito &= verificar(usPorConsultaNueva < 250,
+                           String.format("Consulta con apellidos nuevos: %.1f µs en promedio", usPorConsultaNueva));
+
+        System.out.println("\nMétricas: " + indice.obtenerMetricas());
+        System.out.println(exito ? "\n✅ Todas las verificaciones pasaron" : "\n❌ Hubo verificaciones fallidas");
+        System.out.println("\n=== FIN DE LA PRUEBA ===");
+        System.exit(exito ? 0 : 1);
+    }
+
+    private static boolean coincide(IndiceListaRestrictiva indice, String identificacion, String nombre,
+                                    String caso) {
+        List<IndiceListaRestrictiva.Coincidencia> coincidencias = indice.buscar(identificacion, nombre);
+        if (coincidencias.isEmpty()) {
+            return verificar(false, caso + ": sin coincidencias");
+        }
+        IndiceListaRestrictiva.Coincidencia mejor = coincidencias.get(0);
+        return verificar(true, String.format("%s: %s (%s, similitud %.2f)", caso,
+                                             mejor.getEntrada().getNombreCompleto(), mejor.getCriterio(),
+                                             mejor.getSimilitud()));
+    }
+
+    /**
+     * Palabra aleatoria de 4 a 9 letras, para nombres tan variados como los de
+     * las listas internacionales
+     */
+    private static String palabra(Random aleatorio) {
+        StringBuilder palabra = new StringBuilder();
+        int letras = 4 + aleatorio.nextInt(6);
+        boolean vocal = aleatorio.nextBoolean();
+        for (int i = 0; i < letras; i++) {
+            String fuente = vocal ? VOCALES : CONSONANTES;
+            palabra.append(fuente.charAt(aleatorio.nextInt(fuente.length())));
+            vocal = !vocal || aleatorio.nextInt(4) == 0;
+        }
+        return palabra.toString();
+    }
+
+    private static ListaRestrictiva entrada(int id, String identificacion, String nombre) {
+        ListaRestrictiva item = new ListaRestrictiva();
+        item.setId(id);
+        item.setIdentificacion(identificacion);
+        item.setNombreCompleto(nombre);
+        item.setTipoLista("INTERNO");
+        item.setMotivoInclusion("Prueba");
+        return item;
+    }
+
+    private static boolean verificar(boolean exito, String mensaje) {
+        System.out.println((exito ? "✅ " : "❌ ") + mensaje);
+        return exito;
+    }
+}
@@ -0,0 +1,114 @@
+package com.ulatina.test;
+
+import com.ulatina.service.PerfilConexion;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmark de sentencias por segundo para cada perfil de conexión.
+ * Usa las variables DB_* (y DB_SSL=false para un MySQL local sin TLS).
+ *
+ * Uso: java com.ulatina.test.TestRendimientoPerfiles [BASICO OLTP LOTE]
+ */
+public class TestRendimientoPerfiles {
+
+    private static final int CALENTAMIENTO = 500;
+    private static final int CONSULTAS = 5000;
+    private static final int FILAS_LOTE = 5000;
+
+    private final String host = System.getenv("DB_HOST") != null ?
+        System.getenv("DB_HOST") : "localhost";
+    private final String puerto = System.getenv("DB_PORT") != null ?
+        System.getenv("DB_PORT") : "3306";
+    private final String sid = System.getenv("DB_NAME") != null ?
+        System.getenv("DB_NAME") : "defaultdb";
+    private final String usuario = System.getenv("DB_USER") != null ?
+        System.getenv("DB_USER") : "root";
+    private final String clave = System.getenv("DB_PASSWORD") != null ?
+        System.getenv("DB_PASSWORD") : "";
+    private final boolean ssl = !"false".equalsIgnoreCase(System.getenv("DB_SSL"));
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== BENCHMARK DE PERFILES DE CONEXIÓN ===\n");
+
+        List<PerfilConexion> perfiles = new ArrayList<>();
+        if (args.length == 0) {
+            perfiles.addAll(List.of(PerfilConexion.values()));
+        } else {
+            for (String nombre : args) {
+                perfiles.add(PerfilConexion.porNombre(nombre));
+            }
+        }
+
+        Class.forName("com.mysql.cj.jdbc.Driver");
+        TestRendimientoPerfiles test = new TestRendimientoPerfiles();
+
+        System.out.printf("%-8s %18s %18s%n", "Perfil", "consultas/seg", "filas lote/seg");
+        for (PerfilConexion perfil : perfiles) {
+            test.medir(perfil);
+        }
+
+        System.out.println("\n=== FIN DEL BENCHMARK ===");
+    }
+
+    private void medir(PerfilConexion perfil) throws SQLException {
+        String url = perfil.construirURL(host, puerto, sid, ssl);
+
+        try (Connection conn = DriverManager.getConnection(url, usuario, clave)) {
+            // Mismo patrón que los servicios: preparar, ejecutar y cerrar en cada llamada
+            ejecutarConsultas(conn, CALENTAMIENTO);
+            long t0 = System.nanoTime();
+            ejecutarConsultas(conn, CONSULTAS);
+            double consultasPorSegundo = CONSULTAS / segundosDesde(t0);
+
+            double filasPorSegundo = insertarLote(conn);
+
+            System.out.printf("%-8s %18.0f %18.0f%n", perfil, consultasPorSegundo, filasPorSegundo);
+        }
+    }
+
+    private void ejecutarConsultas(Connection conn, int cantidad) throws SQLException {
+        String sql = "SELECT ? + 1, ? AS numero_cuenta";
+        for (int i = 0; i < cantidad; i++) {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, i);
+                ps.setString(2, "CR05015108410026012345");
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                }
+            }
+        }
+    }
+
+    private double insertarLote(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TEMPORARY TABLE IF NOT EXISTS bench_movimiento (" +
+                       "id BIGINT AUTO_INCREMENT PRIMARY KEY, numero_cuenta VARCHAR(34), monto DECIMAL(15,2))");
+            st.execute("TRUNCATE TABLE bench_movimiento");
+        }
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        long t0 = System.nanoTime();
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO bench_movimiento (numero_cuenta, monto) VALUES (?, ?)")) {
+            for (int i = 0; i < FILAS_LOTE; i++) {
+                ps.setString(1, "CR05015108410026012345");
+                ps.setBigDecimal(2, java.math.BigDecimal.valueOf(i, 2));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        return FILAS_LOTE / segundosDesde(t0);
+    }
+
+    private static double segundosDesde(long inicioNanos) {
+        return (System.nanoTime() - inicioNanos) / 1_000_000_000.0;
+    }
+}
@@ -0,0 +1,129 @@
+package com.ulatina.test;
+
+import com.ulatina.data.Cuenta;
+import com.ulatina.service.ServicioCuenta;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prueba de estrés de transferencias concurrentes contra la base de datos.
+ * Crea un grupo de cuentas, ejecuta transferencias aleatorias desde muchos
+ * hilos (incluidas transferencias cruzadas A->B y B->A) y verifica que el
+ * total de dinero se conserve y que ninguna cuenta quede en negativo.
+ * Usa las variables DB_*.
+ *
+ * Uso: java com.ulatina.test.TestTransferenciasConcurrentes [idCliente]
+ */
+public class TestTransferenciasConcurrentes {
+
+    private static final int CUENTAS = 10;
+    private static final int HILOS = 16;
+    private static final int TRANSFERENCIAS_POR_HILO = 200;
+    private static final BigDecimal SALDO_INICIAL = new BigDecimal("1000.00");
+
+    private final AtomicInteger exitosas = new AtomicInteger();
+    private final AtomicInteger rechazadas = new AtomicInteger();
+    private final AtomicInteger errores = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== PRUEBA DE TRANSFERENCIAS CONCURRENTES ===\n");
+
+        int idCliente = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        boolean exito = new TestTransferenciasConcurrentes().ejecutar(idCliente);
+
+        System.out.println("\n=== FIN DE LA PRUEBA ===");
+        System.exit(exito ? 0 : 1);
+    }
+
+    public boolean ejecutar(int idCliente) throws Exception {
+        ServicioCuenta servicio = new ServicioCuenta();
+        List<String> numeros = new ArrayList<>();
+
+        for (int i = 0; i < CUENTAS; i++) {
+            Cuenta cuenta = new Cuenta();
+            cuenta.setTipo("CORRIENTE");
+            cuenta.setMoneda("CRC");
+            cuenta.setSaldo(SALDO_INICIAL);
+            cuenta.setIdCliente(idCliente);
+            numeros.add(servicio.crear(cuenta).getNumero());
+        }
+
+        BigDecimal totalInicial = sumarSaldos(servicio, numeros);
+        System.out.println("Cuentas creadas: " + numeros + "\nTotal inicial: " + totalInicial);
+
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+
+        for (int h = 0; h < HILOS; h++) {
+            pool.submit(() -> {
+                try {
+                    inicio.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERENCIAS_POR_HILO; i++) {
+                    String origen = numeros.get(random.nextInt(CUENTAS));
+                    String destino = numeros.get(random.nextInt(CUENTAS));
+                    if (origen.equals(destino)) {
+                        continue;
+                    }
+                    // Montos grandes para forzar rechazos por saldo insuficiente
+                    BigDecimal monto = BigDecimal.valueOf(random.nextInt(1, 60000), 2);
+
+                    try {
+                        if (servicio.transferir(origen, destino, monto)) {
+                            exitosas.incrementAndGet();
+                        } else {
+                            rechazadas.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errores.incrementAndGet();
+                        System.out.println("❌ " + e.getMessage());
+                    }
+                }
+            });
+        }
+
+        long t0 = System.nanoTime();
+        inicio.countDown();
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.MINUTES);
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+
+        // Releer desde la base de datos, no desde la caché
+        servicio.limpiarCache();
+        BigDecimal totalFinal = sumarSaldos(servicio, numeros);
+        int negativas = 0;
+        for (String numero : numeros) {
+            if (servicio.obtenerPorNumero(numero).getSaldo().signum() < 0) {
+                negativas++;
+            }
+        }
+
+        System.out.println("Transferencias exitosas: " + exitosas.get() + ", rechazadas: " + rechazadas.get() +
+                           ", errores: " + errores.get() + " (" + ms + " ms)");
+        System.out.println("Total final: " + totalFinal + ", cuentas en negativo: " + negativas);
+
+        boolean exito = totalInicial.compareTo(totalFinal) == 0 && negativas == 0 && errores.get() == 0;
+        System.out.println(exito ? "✅ El dinero se conserva" : "❌ El total no se conserva o hubo errores");
+        return exito;
+    }
+
+    private BigDecimal sumarSaldos(ServicioCuenta servicio, List<String> numeros) throws Exception {
+        BigDecimal total = BigDecimal.ZERO;
+        for (String numero : numeros) {
+            total = total.add(servicio.obtenerPorNumero(numero).getSaldo());
+        }
+        return total;
+    }
+}
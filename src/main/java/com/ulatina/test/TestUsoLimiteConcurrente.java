@@ -0,0 +1,286 @@
+package com.ulatina.test;
+
+import com.ulatina.data.LimiteTransaccion;
+import com.ulatina.service.ServicioUsoLimite;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prueba de concurrencia del acumulado de límites. Muchos hilos gastan contra
+ * el mismo límite a la vez y se verifica que el total aceptado nunca supere el
+ * límite, que el acumulado persistido coincida con el de memoria (también al
+ * liberar reservas) y que el contador se reinicie al cambiar de día o de mes.
+ *
+ * Por defecto la persistencia se simula en memoria. Con el argumento "bd" usa
+ * la tabla uso_limite y las variables DB_*.
+ *
+ * Uso: java com.ulatina.test.TestUsoLimiteConcurrente [bd]
+ */
+public class TestUsoLimiteConcurrente {
+
+    private static final int HILOS = 32;
+    private static final int INTENTOS_POR_HILO = 50;
+    private static final BigDecimal LIMITE = new BigDecimal("10000.00");
+
+    public static void main(String[] args) throws Exception {
+        boolean usarBD = args.length > 0 && "bd".equalsIgnoreCase(args[0]);
+        System.out.println("=== PRUEBA DE LÍMITES ACUMULADOS CONCURRENTES (" +
+                           (usarBD ? "base de datos" : "memoria") + ") ===\n");
+
+        TestUsoLimiteConcurrente test = new TestUsoLimiteConcurrente();
+        boolean exito = true;
+
+        exito &= test.probarBordeExacto(usarBD);
+        exito &= test.probarMontosAleatorios(usarBD);
+        exito &= test.probarLiberaciones(usarBD);
+        exito &= test.probarCambioDePeriodo(usarBD);
+        exito &= test.probarRecarga(usarBD);
+
+        System.out.println(exito ? "\n✅ Todas las verificaciones pasaron" : "\n❌ Hubo verificaciones fallidas");
+        System.out.println("\n=== FIN DE LA PRUEBA ===");
+        System.exit(exito ? 0 : 1);
+    }
+
+    /**
+     * Montos que dividen exactamente el límite: deben aceptarse justo LIMITE/monto
+     */
+    private boolean probarBordeExacto(boolean usarBD) throws Exception {
+        UsoLimitePrueba servicio = new UsoLimitePrueba(usarBD);
+        LimiteTransaccion limite = nuevoLimite(LimiteTransaccion.PeriodoLimite.DIARIO);
+        BigDecimal monto = new BigDecimal("100.00");
+        AtomicInteger aceptadas = new AtomicInteger();
+
+        long ms = ejecutarEnHilos(() -> {
+            for (int i = 0; i < INTENTOS_POR_HILO; i++) {
+                ServicioUsoLimite.Reserva reserva = servicio.reservar(limite, monto);
+                if (reserva.isAceptada()) {
+                    aceptadas.incrementAndGet();
+                }
+            }
+        });
+
+        BigDecimal usado = servicio.consultarUsado(limite);
+        BigDecimal persistido = servicio.leerPersistido(limite);
+        boolean exito = aceptadas.get() == 100 && usado.compareTo(LIMITE) == 0 && persistido.compareTo(LIMITE) == 0;
+
+        informar(exito, "Borde exacto: " + aceptadas.get() + " de " + (HILOS * INTENTOS_POR_HILO) +
+                        " aceptadas, usado " + usado + ", persistido " + persistido + " (" + ms + " ms)");
+        return exito;
+    }
+
+    /**
+     * Montos aleatorios: el total aceptado no supera el límite y coincide con lo persistido
+     */
+    private boolean probarMontosAleatorios(boolean usarBD) throws Exception {
+        UsoLimitePrueba servicio = new UsoLimitePrueba(usarBD);
+        LimiteTransaccion limite = nuevoLimite(LimiteTransaccion.PeriodoLimite.MENSUAL);
+        ConcurrentMap<Long, BigDecimal> aceptado = new ConcurrentHashMap<>();
+
+        ejecutarEnHilos(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < INTENTOS_POR_HILO; i++) {
+                BigDecimal monto = BigDecimal.valueOf(random.nextInt(1, 50000), 2);
+                if (servicio.reservar(limite, monto).isAceptada()) {
+                    aceptado.merge(Thread.currentThread().getId(), monto, BigDecimal::add);
+                }
+            }
+        });
+
+        BigDecimal total = aceptado.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal usado = servicio.consultarUsado(limite);
+        BigDecimal persistido = servicio.leerPersistido(limite);
+        boolean exito = total.compareTo(LIMITE) <= 0 && total.compareTo(usado) == 0 && usado.compareTo(persistido) == 0;
+
+        informar(exito, "Montos aleatorios: aceptado " + total + ", usado " + usado + ", persistido " + persistido);
+        return exito;
+    }
+
+    /**
+     * Parte de las reservas se libera como si la transacción hubiera fallado
+     */
+    private boolean probarLiberaciones(boolean usarBD) throws Exception {
+        UsoLimitePrueba servicio = new UsoLimitePrueba(usarBD);
+        LimiteTransaccion limite = nuevoLimite(LimiteTransaccion.PeriodoLimite.SEMANAL);
+        BigDecimal monto = new BigDecimal("250.00");
+        AtomicInteger vigentes = new AtomicInteger();
+
+        ejecutarEnHilos(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < INTENTOS_POR_HILO; i++) {
+                ServicioUsoLimite.Reserva reserva = servicio.reservar(limite, monto);
+                if (!reserva.isAceptada()) {
+                    continue;
+                }
+                if (random.nextInt(10) < 3) {
+                    servicio.liberar(reserva);
+                } else {
+                    vigentes.incrementAndGet();
+                }
+            }
+        });
+
+        BigDecimal esperado = monto.multiply(BigDecimal.valueOf(vigentes.get()));
+        BigDecimal usado = servicio.consultarUsado(limite);
+        BigDecimal persistido = servicio.leerPersistido(limite);
+        boolean exito = esperado.compareTo(usado) == 0 && usado.compareTo(persistido) == 0 &&
+                        usado.compareTo(LIMITE) <= 0;
+
+        informar(exito, "Liberaciones: " + vigentes.get() + " reservas vigentes, usado " + usado +
+                        ", persistido " + persistido);
+        return exito;
+    }
+
+    /**
+     * El acumulado diario se reinicia al día siguiente; el mensual solo al cambiar de mes
+     */
+    private boolean probarCambioDePeriodo(boolean usarBD) throws Exception {
+        UsoLimitePrueba servicio = new UsoLimitePrueba(usarBD);
+        LimiteTransaccion diario = nuevoLimite(LimiteTransaccion.PeriodoLimite.DIARIO);
+        LimiteTransaccion mensual = nuevoLimite(LimiteTransaccion.PeriodoLimite.MENSUAL);
+
+        servicio.fecha.set(LocalDate.of(2031, 1, 30));
+        servicio.reservar(diario, LIMITE);
+        servicio.reservar(mensual, LIMITE);
+        boolean agotado = !servicio.reservar(diario, BigDecimal.ONE).isAceptada() &&
+                          !servicio.reservar(mensual, BigDecimal.ONE).isAceptada();
+
+        servicio.fecha.set(LocalDate.of(2031, 1, 31));
+        boolean diarioReiniciado = servicio.reservar(diario, BigDecimal.ONE).isAceptada();
+        boolean mensualSigue = !servicio.reservar(mensual, BigDecimal.ONE).isAceptada();
+
+        servicio.fecha.set(LocalDate.of(2031, 2, 1));
+        boolean mensualReiniciado = servicio.reservar(mensual, BigDecimal.ONE).isAceptada();
+
+        boolean exito = agotado && diarioReiniciado && mensualSigue && mensualReiniciado;
+        informar(exito, "Cambio de periodo: agotado=" + agotado + ", diario reiniciado=" + diarioReiniciado +
+                        ", mensual sin cambio=" + mensualSigue + ", mensual reiniciado=" + mensualReiniciado);
+        return exito;
+    }
+
+    /**
+     * Una instancia nueva (reinicio de la aplicación) parte del acumulado persistido
+     */
+    private boolean probarRecarga(boolean usarBD) throws Exception {
+        UsoLimitePrueba original = new UsoLimitePrueba(usarBD);
+        LimiteTransaccion limite = nuevoLimite(LimiteTransaccion.PeriodoLimite.DIARIO);
+        original.reservar(limite, new BigDecimal("9000.00"));
+
+        UsoLimitePrueba reiniciado = new UsoLimitePrueba(usarBD);
+        reiniciado.almacen = original.almacen;
+        boolean rechazada = !reiniciado.reservar(limite, new BigDecimal("1000.01")).isAceptada();
+        boolean aceptada = reiniciado.reservar(limite, new BigDecimal("1000.00")).isAceptada();
+
+        boolean exito = rechazada && aceptada;
+        informar(exito, "Recarga tras reinicio: usado " + reiniciado.consultarUsado(limite) +
+                        ", excedente rechazado=" + rechazada + ", resto aceptado=" + aceptada);
+        return exito;
+    }
+
+    private LimiteTransaccion nuevoLimite(LimiteTransaccion.PeriodoLimite periodo) {
+        // Cuenta distinta en cada corrida para no arrastrar uso persistido de corridas anteriores
+        String cuenta = "T" + Long.toString(System.nanoTime(), 36).toUpperCase();
+        LimiteTransaccion limite = new LimiteTransaccion(cuenta, LimiteTransaccion.TipoLimite.TRANSFERENCIA_NACIONAL,
+                                                         LIMITE, periodo);
+        limite.setActivo(true);
+        return limite;
+    }
+
+    private void informar(boolean exito, String mensaje) {
+        System.out.println((exito ? "✅ " : "❌ ") + mensaje);
+    }
+
+    private long ejecutarEnHilos(Tarea tarea) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch inicio = new CountDownLatch(1);
+        AtomicInteger errores = new AtomicInteger();
+
+        for (int h = 0; h < HILOS; h++) {
+            pool.submit(() -> {
+                try {
+                    inicio.await();
+                    tarea.ejecutar();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    errores.incrementAndGet();
+                    System.out.println("❌ " + e.getMessage());
+                }
+            });
+        }
+
+        long t0 = System.nanoTime();
+        inicio.countDown();
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.MINUTES);
+        if (errores.get() > 0) {
+            throw new IllegalStateException(errores.get() + " hilos terminaron con error");
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+    }
+
+    @FunctionalInterface
+    private interface Tarea {
+        void ejecutar() throws Exception;
+    }
+
+    /**
+     * Servicio con fecha controlable y, sin base de datos, persistencia en un
+     * mapa con una pequeña latencia para que las escrituras se intercalen
+     */
+    private static class UsoLimitePrueba extends ServicioUsoLimite {
+        private final boolean usarBD;
+        private final AtomicReference<LocalDate> fecha = new AtomicReference<>(LocalDate.now());
+        private ConcurrentMap<String, BigDecimal> almacen = new ConcurrentHashMap<>();
+
+        private UsoLimitePrueba(boolean usarBD) {
+            this.usarBD = usarBD;
+        }
+
+        @Override
+        protected LocalDate hoy() {
+            return fecha.get();
+        }
+
+        @Override
+        protected BigDecimal cargarUso(String numeroCuenta, LimiteTransaccion.TipoLimite tipo,
+                                       LimiteTransaccion.PeriodoLimite periodo, LocalDate ventana) throws Exception {
+            if (usarBD) {
+                return super.cargarUso(numeroCuenta, tipo, periodo, ventana);
+            }
+            return almacen.getOrDefault(clave(numeroCuenta, tipo, periodo, ventana), BigDecimal.ZERO);
+        }
+
+        @Override
+        protected void persistirUso(String numeroCuenta, LimiteTransaccion.TipoLimite tipo,
+                                    LimiteTransaccion.PeriodoLimite periodo, LocalDate ventana,
+                                    BigDecimal delta) throws Exception {
+            if (usarBD) {
+                super.persistirUso(numeroCuenta, tipo, periodo, ventana, delta);
+                return;
+            }
+            LockSupport.parkNanos(50_000);
+            almacen.merge(clave(numeroCuenta, tipo, periodo, ventana), delta,
+                          (actual, d) -> actual.add(d).max(BigDecimal.ZERO));
+        }
+
+        private BigDecimal leerPersistido(LimiteTransaccion limite) throws Exception {
+            return cargarUso(limite.getNumeroCuenta(), limite.getTipoLimite(), limite.getPeriodo(),
+                             inicioVentana(limite.getPeriodo(), hoy()));
+        }
+
+        private static String clave(String numeroCuenta, LimiteTransaccion.TipoLimite tipo,
+                                    LimiteTransaccion.PeriodoLimite periodo, LocalDate ventana) {
+            return numeroCuenta + "|" + tipo + "|" + periodo + "|" + ventana;
+        }
+    }
+}